@@ -23,7 +23,8 @@ ARGS=(
   --maxRequests 128 \
   --maxRequestsPerHost 64 \
   --tls TLSv1.2,TLSv1.3 \
-  --jfr 20
+  --jfr 20 \
+  --jcmd true
 )
 
 build_and_run() {
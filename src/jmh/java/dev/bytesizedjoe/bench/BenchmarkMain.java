@@ -0,0 +1,42 @@
+package dev.bytesizedjoe.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * JMH entry point of the {@code -jmh} jar: takes the usual JMH command line, always adds the GC profiler,
+ * and unless {@code -rff} is given writes JSON results to {@code jmh-<transport.id>.json}.
+ */
+public final class BenchmarkMain {
+  public static void main(final String[] args) throws Exception {
+    final var cli = new CommandLineOptions(args);
+    if (cli.shouldHelp() || cli.shouldList() || cli.shouldListProfilers() || cli.shouldListResultFormats()) {
+      org.openjdk.jmh.Main.main(args);
+      return;
+    }
+    final ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+    final boolean gcRequested = cli.getProfilers().stream()
+        .anyMatch(p -> p.getKlass().equals("gc") || p.getKlass().equals(GCProfiler.class.getName()));
+    if (!gcRequested) options.addProfiler(GCProfiler.class);
+    if (!cli.getResult().hasValue()) {
+      options.resultFormat(ResultFormatType.JSON).result("jmh-" + transportId() + ".json");
+    }
+    new Runner(options.build()).run();
+  }
+
+  private static String transportId() throws IOException {
+    final var props = new Properties();
+    try (InputStream in = BenchmarkMain.class.getResourceAsStream("/transport.properties")) {
+      if (in != null) props.load(in);
+    }
+    return props.getProperty("transport.id", "unknown");
+  }
+}
@@ -0,0 +1,151 @@
+package dev.bytesizedjoe.bench;
+
+import dev.bytesizedjoe.cli.ArgsParser;
+import dev.bytesizedjoe.k8s.KubernetesClientFactory;
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.ListOptionsBuilder;
+import io.fabric8.kubernetes.api.model.NamespaceBuilder;
+import io.fabric8.kubernetes.api.model.PodList;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.WatcherException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-request hot paths, and watch event delivery, of whichever transport the jar was built with, against a stand-in API server
+ * running in a child process. Run through {@link BenchmarkMain} so every result carries {@code -prof gc}
+ * allocation figures ({@code gc.alloc.rate.norm} is bytes per operation).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ClientBenchmarks {
+  static final String NAMESPACE = "ab-bench";
+  static final long PAGE_SIZE = 200;
+
+  @State(Scope.Benchmark)
+  public static class Server {
+    StandInServer server;
+    KubernetesClient client;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+      // No churn, so every iteration sees the same data and the server never competes for the CPU idly
+      server = StandInServer.start("--mockPods", "1000", "--mockServices", "10", "--mockWatchRate", "0");
+      client = KubernetesClientFactory.build(ArgsParser.parse(new String[]{"--master", server.url()}));
+      try {
+        client.namespaces().resource(new NamespaceBuilder().withNewMetadata().withName(NAMESPACE).endMetadata().build()).create();
+      } catch (KubernetesClientException e) {
+        if (e.getCode() != 409) throw e;
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+      client.close();
+      server.close();
+    }
+  }
+
+  /** One ConfigMap per benchmark thread, so PUTs carry the current resourceVersion and never conflict. */
+  @State(Scope.Thread)
+  public static class OwnConfigMap {
+    ConfigMap current;
+
+    @Setup(Level.Trial)
+    public void create(final Server s) {
+      current = s.client.configMaps().inNamespace(NAMESPACE).resource(newConfigMap()).create();
+    }
+  }
+
+  /** {@link OwnConfigMap} with a watch on it; the events for it are handed to the benchmark thread. */
+  @State(Scope.Thread)
+  public static class WatchedConfigMap {
+    final BlockingQueue<ConfigMap> events = new LinkedBlockingQueue<>();
+    ConfigMap current;
+    Watch watch;
+
+    @Setup(Level.Trial)
+    public void open(final Server s) {
+      current = s.client.configMaps().inNamespace(NAMESPACE).resource(newConfigMap()).create();
+      final String name = current.getMetadata().getName();
+      watch = s.client.configMaps().inNamespace(NAMESPACE).withName(name).watch(new Watcher<>() {
+        @Override
+        public void eventReceived(final Action action, final ConfigMap resource) {
+          // The stand-in sends the whole namespace's events whatever the field selector says
+          if (name.equals(resource.getMetadata().getName())) events.add(resource);
+        }
+
+        @Override
+        public void onClose(final WatcherException cause) {
+        }
+      });
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+      watch.close();
+    }
+  }
+
+  static ConfigMap newConfigMap() {
+    return new ConfigMapBuilder()
+        .withNewMetadata().withName("bench-" + UUID.randomUUID().toString().substring(0, 8)).withNamespace(NAMESPACE).endMetadata()
+        .withData(Map.of("key", "value", "payload", "x".repeat(512)))
+        .build();
+  }
+
+  @Benchmark
+  public ConfigMap getConfigMap(final Server s, final OwnConfigMap cm) {
+    return s.client.configMaps().inNamespace(NAMESPACE).withName(cm.current.getMetadata().getName()).get();
+  }
+
+  @Benchmark
+  public ConfigMap putConfigMap(final Server s, final OwnConfigMap cm) {
+    cm.current = s.client.configMaps().inNamespace(NAMESPACE).resource(cm.current).update();
+    return cm.current;
+  }
+
+  @Benchmark
+  public PodList listPodPage(final Server s) {
+    return s.client.pods().inAnyNamespace().list(new ListOptionsBuilder().withLimit(PAGE_SIZE).build());
+  }
+
+  /**
+   * A PUT and the MODIFIED event it causes, delivered over an open watch up to {@code Watcher.eventReceived}.
+   * Less {@link #putConfigMap}, this is the watch path: the stand-in pushing the event and the client framing
+   * and decoding it.
+   */
+  @Benchmark
+  public ConfigMap watchConfigMapEvent(final Server s, final WatchedConfigMap cm) throws InterruptedException {
+    cm.current = s.client.configMaps().inNamespace(NAMESPACE).resource(cm.current).update();
+    final String version = cm.current.getMetadata().getResourceVersion();
+    while (true) {
+      final ConfigMap event = cm.events.poll(10, TimeUnit.SECONDS);
+      if (event == null) throw new IllegalStateException("No watch event for resourceVersion " + version);
+      if (version.equals(event.getMetadata().getResourceVersion())) return event;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package dev.bytesizedjoe.bench;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The stand-in API server ({@code Main mock}) as a child process of the benchmark fork, so the server's
+ * own allocation and GC don't show up in the client's {@code -prof gc} numbers.
+ */
+@NullMarked
+@Slf4j
+final class StandInServer implements AutoCloseable {
+  private static final Pattern READY = Pattern.compile("--master (\\S+)");
+
+  private final Process process;
+  private final String url;
+
+  private StandInServer(final Process process, final String url) {
+    this.process = process;
+    this.url = url;
+  }
+
+  static StandInServer start(final String... mockArgs) throws IOException {
+    final List<String> command = new ArrayList<>(List.of(
+        Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+        "-cp", System.getProperty("java.class.path"), "dev.bytesizedjoe.Main", "mock", "--mockPort", "0"));
+    command.addAll(List.of(mockArgs));
+    final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    final var reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      final var m = READY.matcher(line);
+      if (m.find()) {
+        drain(reader);
+        log.info("Stand-in API server at {}", m.group(1));
+        return new StandInServer(process, m.group(1));
+      }
+    }
+    process.destroyForcibly();
+    throw new IOException("Stand-in API server exited before it was ready");
+  }
+
+  String url() {
+    return url;
+  }
+
+  private static void drain(final BufferedReader reader) {
+    final var t = new Thread(() -> {
+      try {
+        while (reader.readLine() != null) { }
+      } catch (IOException ignored) { }
+    }, "stand-in-output");
+    t.setDaemon(true);
+    t.start();
+  }
+
+  @Override
+  public void close() {
+    process.destroy();
+  }
+}
@@ -2,25 +2,239 @@ package dev.bytesizedjoe;
 
 import dev.bytesizedjoe.cli.ArgsParser;
 import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.harness.Agent;
+import dev.bytesizedjoe.harness.ClientFanOut;
+import dev.bytesizedjoe.harness.Coordinator;
 import dev.bytesizedjoe.harness.HarnessRunner;
+import dev.bytesizedjoe.harness.ListDecoding;
+import dev.bytesizedjoe.harness.SaturationSweep;
+import dev.bytesizedjoe.harness.ScalingMatrix;
+import dev.bytesizedjoe.harness.Soak;
+import dev.bytesizedjoe.harness.TlsHandshakes;
 import dev.bytesizedjoe.k8s.KubernetesClientFactory;
+import dev.bytesizedjoe.k8s.TransportClassLoader;
+import dev.bytesizedjoe.k8s.Workloads;
+import dev.bytesizedjoe.mock.FaultProxy;
+import dev.bytesizedjoe.mock.MockApiServer;
+import dev.bytesizedjoe.report.ComparisonReport;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.http.HttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
 public final class Main {
   private static final Logger log = LoggerFactory.getLogger(Main.class);
 
   public static void main(final String[] args) throws Exception {
-    final HarnessArgs config = ArgsParser.parse(args);
+    if (args.length > 0 && "mock".equals(args[0])) {
+      runMockServer(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if (args.length > 0 && "agent".equals(args[0])) {
+      final var coordinator = ArgsParser.flags(Arrays.copyOfRange(args, 1, args.length)).get("coordinator");
+      if (coordinator == null) throw new IllegalArgumentException("agent needs --coordinator host:port");
+      Agent.run(coordinator);
+      // Transport threads may outlive the client, as after a normal run
+      System.exit(0);
+    }
+    if (args.length > 0 && "report".equals(args[0])) {
+      ComparisonReport.main(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    final HarnessArgs parsed = ArgsParser.parse(args);
+    validate(parsed);
     checkNativeMemoryFlag();
-    try (final var client = KubernetesClientFactory.build(config)) {
-      new HarnessRunner(client).run(config);
+    try (final var mock = parsed.isMock() ? MockApiServer.start(MockApiServer.Settings.fromArgs(parsed)) : null) {
+      // The stand-in's TLS certificate is self-signed
+      final HarnessArgs target = mock != null
+          ? parsed.toBuilder().masterUrl(Optional.of(mock.url())).trustCerts(parsed.isTrustCerts() || parsed.isMockTls()).build()
+          : parsed;
+      final var faults = FaultProxy.Settings.fromArgs(target);
+      try (final var proxy = faults.isActive() ? FaultProxy.start(KubernetesClientFactory.masterUrl(target), faults,
+          Paths.get(target.getOutputDir().orElse("out"))) : null) {
+        run(proxy != null ? target.toBuilder().proxyAddress(Optional.of(proxy.address())).build() : target, args);
+      }
     }
     log.info("Finished all runs. Exiting now.");
     // Ensure we don't linger due to any non-daemon threads in dependencies
     System.exit(0);
   }
 
+  /**
+   * Runs whichever mode the arguments select against the API server they point at; {@code argv} is what a
+   * distributed run hands its agents.
+   */
+  private static void run(final HarnessArgs config, final String[] argv) throws Exception {
+    if (!config.getSweepConcurrency().isEmpty()) {
+      runSweep(config);
+    } else if (!config.getListDatasets().isEmpty()) {
+      runListDecoding(config);
+    } else if (!config.getPayloadSizes().isEmpty() || !config.getPageSizes().isEmpty()) {
+      runMatrix(config);
+    } else if (config.getSoakSeconds() > 0) {
+      runSoak(config);
+    } else if (config.getClients() > 0) {
+      runFanOut(config);
+    } else if (config.getHandshakeRate() > 0) {
+      runHandshakes(config);
+    } else if (config.getAgents() > 0) {
+      new Coordinator().run(config, argv, config.transportLabel());
+    } else if (!config.getInterleavedTransports().isEmpty()) {
+      runInterleaved(config);
+    } else {
+      try (final var client = KubernetesClientFactory.build(config)) {
+        new HarnessRunner(client).run(config);
+      }
+    }
+  }
+
+  /** Rejects flag combinations a run would otherwise only find out about halfway through, or silently ignore. */
+  private static void validate(final HarnessArgs config) {
+    Workloads.checkExecutionMode(config);
+    final List<String> modes = new ArrayList<>();
+    if (!config.getSweepConcurrency().isEmpty()) modes.add("--sweep");
+    if (!config.getListDatasets().isEmpty()) modes.add("--listDatasets");
+    if (!config.getPayloadSizes().isEmpty() || !config.getPageSizes().isEmpty()) modes.add("--payloadSizes/--pageSizes");
+    if (config.getSoakSeconds() > 0) modes.add("--soak");
+    if (config.getClients() > 0) modes.add("--clients");
+    if (config.getHandshakeRate() > 0) modes.add("--handshakes");
+    if (config.getAgents() > 0) modes.add("--agents");
+    if (modes.size() > 1) {
+      throw new IllegalArgumentException("Pick one of " + String.join(", ", modes) + "; each is a run of its own");
+    }
+    if (config.getAgents() > 0 && !config.getInterleavedTransports().isEmpty()) {
+      throw new IllegalArgumentException("--agents runs one transport per agent; it can't be combined with --interleave");
+    }
+    // Only the plain run holds these open; the soak opens its own watches
+    final List<String> background = new ArrayList<>();
+    if (config.getWatchCount() > 1 && config.getSoakSeconds() == 0) background.add("--watches");
+    if (config.isInformers()) background.add("--informers");
+    if (config.getLogStreams() > 0) background.add("--logStreams");
+    if (config.getExecSessions() > 0) background.add("--execSessions");
+    if (config.getPortForwards() > 0) background.add("--portForwards");
+    if (!modes.isEmpty() && !background.isEmpty()) {
+      throw new IllegalArgumentException(modes.get(0) + " doesn't run " + String.join(", ", background)
+          + "; they only apply to the plain measured run");
+    }
+  }
+
+  /** Builds one client per transport, each on its own isolated classloader, and interleaves them in this JVM. */
+  private static void runInterleaved(final HarnessArgs config) throws Exception {
+    final Map<String, KubernetesClient> clients = new LinkedHashMap<>();
+    try {
+      for (final var transport : config.getInterleavedTransports().entrySet()) {
+        final var loader = TransportClassLoader.create(transport.getKey(), transport.getValue());
+        clients.put(transport.getKey(), KubernetesClientFactory.build(config, loader));
+      }
+      new HarnessRunner(clients).run(config);
+    } finally {
+      // The loaders stay open: Vert.x shuts down asynchronously after close() and still loads classes
+      clients.values().forEach(KubernetesClient::close);
+    }
+  }
+
+  private static void runSweep(final HarnessArgs config) throws Exception {
+    forEachTransport(config, (label, transport) -> new SaturationSweep(transport::build).run(config, label));
+  }
+
+  private static void runMatrix(final HarnessArgs config) throws Exception {
+    forEachTransport(config, (label, transport) -> new ScalingMatrix(transport::build).run(config, label));
+  }
+
+  private static void runListDecoding(final HarnessArgs config) throws Exception {
+    forEachTransport(config, (label, transport) -> new ListDecoding(transport::build).run(config, label));
+  }
+
+  private static void runSoak(final HarnessArgs config) throws Exception {
+    forEachTransport(config, (label, transport) -> new Soak(transport::build).run(config, label));
+  }
+
+  private static void runFanOut(final HarnessArgs config) throws Exception {
+    forEachTransport(config, (label, transport) ->
+        new ClientFanOut(transport.factory(), KubernetesClientFactory::buildBare).run(config, label));
+  }
+
+  private static void runHandshakes(final HarnessArgs config) throws Exception {
+    forEachTransport(config, (label, transport) -> new TlsHandshakes(transport::buildBare).run(config, label));
+  }
+
+  /**
+   * Runs {@code run} on the harness-classpath transport, labelled {@link HarnessArgs#transportLabel}, or on each
+   * {@code --interleave} transport in turn, each on its own isolated classloader.
+   */
+  private static void forEachTransport(final HarnessArgs config, final TransportRun run) throws Exception {
+    if (config.getInterleavedTransports().isEmpty()) {
+      run.run(config.transportLabel(), new Transport() {
+        @Override
+        public KubernetesClient build(final HarnessArgs args) {
+          return KubernetesClientFactory.build(args);
+        }
+
+        @Override
+        public KubernetesClient buildBare(final HarnessArgs args) {
+          return KubernetesClientFactory.buildBare(args);
+        }
+
+        @Override
+        public HttpClient.Factory factory() {
+          return KubernetesClientFactory.factory();
+        }
+      });
+      return;
+    }
+    for (final var entry : config.getInterleavedTransports().entrySet()) {
+      final var loader = TransportClassLoader.create(entry.getKey(), entry.getValue());
+      final HttpClient.Factory factory = loader.loadFactory();
+      run.run(entry.getKey(), new Transport() {
+        @Override
+        public KubernetesClient build(final HarnessArgs args) {
+          return KubernetesClientFactory.build(args, loader);
+        }
+
+        @Override
+        public KubernetesClient buildBare(final HarnessArgs args) {
+          return KubernetesClientFactory.buildBare(args, KubernetesClientFactory.copyOf(factory));
+        }
+
+        @Override
+        public HttpClient.Factory factory() {
+          return factory;
+        }
+      });
+    }
+  }
+
+  /** A transport under test: clients built on it, and the HTTP client provider behind them. */
+  private interface Transport {
+    KubernetesClient build(HarnessArgs args);
+
+    /** A client without the harness's interceptors, for modes that measure the transport's own cost. */
+    KubernetesClient buildBare(HarnessArgs args);
+
+    HttpClient.Factory factory();
+  }
+
+  @FunctionalInterface
+  private interface TransportRun {
+    void run(String label, Transport transport) throws Exception;
+  }
+
+  /** Runs the stand-in API server as its own process so it doesn't share a heap with the client under test. */
+  private static void runMockServer(final String[] args) throws Exception {
+    final var server = MockApiServer.start(MockApiServer.Settings.fromArgs(ArgsParser.parse(args)));
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close, "mock-api-shutdown"));
+    log.info("Point the harness at it with --master {}", server.url());
+    Thread.currentThread().join();
+  }
+
   private static void checkNativeMemoryFlag() {
     final var nmt = System.getProperty("-XX:NativeMemoryTracking");
     // Can't reliably read VM flag here; instead, warn if jcmd NMT fails later.
@@ -5,7 +5,9 @@ import org.jspecify.annotations.NullMarked;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 
@@ -14,14 +16,7 @@ import java.util.Optional;
 public class ArgsParser {
 
   public HarnessArgs parse(final String[] args) {
-    final Map<String, String> map = new HashMap<>();
-    for (var i = 0; i < args.length; i++) {
-      if (args[i].startsWith("--")) {
-        final var key = args[i].substring(2);
-        final var value = (i + 1 < args.length && !args[i + 1].startsWith("--")) ? args[++i] : "true";
-        map.put(key, value);
-      }
-    }
+    final Map<String, String> map = flags(args);
 
     final var label = Optional.ofNullable(map.get("label"));
     final var namespace = Optional.ofNullable(map.get("namespace"));
@@ -29,8 +24,46 @@ public class ArgsParser {
 
     final var repeats = Integer.parseInt(map.getOrDefault("repeats", "3"));
     final var warmup = Long.parseLong(map.getOrDefault("warmup", "15"));
+    final var warmupMax = Long.parseLong(map.getOrDefault("warmupMax", "180"));
+    final var warmupWindow = Long.parseLong(map.getOrDefault("warmupWindow", "5"));
+    final var warmupTolerance = Double.parseDouble(map.getOrDefault("warmupTolerance", "10"));
     final var duration = Long.parseLong(map.getOrDefault("duration", "120"));
     final var threads = Integer.parseInt(map.getOrDefault("threads", "4"));
+    final var rates = parseRates(map.get("rate"));
+    final var watches = Integer.parseInt(map.getOrDefault("watches", "1"));
+    final var informers = Boolean.parseBoolean(map.getOrDefault("informers", "false"));
+    final var informerResync = Long.parseLong(map.getOrDefault("informerResync", "0"));
+    final var logStreams = Integer.parseInt(map.getOrDefault("logStreams", "0"));
+    final var logConsumeRate = Long.parseLong(map.getOrDefault("logConsumeRate", "0"));
+    final var execSessions = Integer.parseInt(map.getOrDefault("execSessions", "0"));
+    final var portForwards = Integer.parseInt(map.getOrDefault("portForwards", "0"));
+    final var wsChunk = Integer.parseInt(map.getOrDefault("wsChunk", "16384"));
+    final var interleave = parsePairs(map.get("interleave"));
+    final var slice = Long.parseLong(map.getOrDefault("slice", "10"));
+    final var sweep = parseInts(map.get("sweep"));
+    final var sweepLimits = parseInts(map.get("sweepLimits"));
+    final var step = Long.parseLong(map.getOrDefault("step", "20"));
+    final var clients = Integer.parseInt(map.getOrDefault("clients", "0"));
+    final var handshakes = Double.parseDouble(map.getOrDefault("handshakes", "0"));
+    final var requestsPerConnection = Integer.parseInt(map.getOrDefault("requestsPerConnection", "1"));
+    final var write = WriteMode.parse(map.getOrDefault("write", "edit"));
+    final var payload = Integer.parseInt(map.getOrDefault("payload", "256"));
+    final var pageSize = Integer.parseInt(map.getOrDefault("pageSize", "200"));
+    final var list = ListMode.parse(map.getOrDefault("list", "typed"));
+    final var payloadSizes = parseInts(map.get("payloadSizes"));
+    final var pageSizes = parseInts(map.get("pageSizes"));
+    final var listDatasets = parseInts(map.get("listDatasets"));
+    final var listModes = parseCsv(map.get("listModes")).stream().map(ListMode::parse).toList();
+    final var soak = parseSeconds(map.getOrDefault("soak", "0"));
+    final var soakSample = parseSeconds(map.getOrDefault("soakSample", "60"));
+    final var soakWatchRestart = parseSeconds(map.getOrDefault("soakWatchRestart", "600"));
+    final var soakClientChurn = parseSeconds(map.getOrDefault("soakClientChurn", "1800"));
+    final var leakThreshold = Double.parseDouble(map.getOrDefault("leakThreshold", "5"));
+    final var agents = Integer.parseInt(map.getOrDefault("agents", "0"));
+    final var agentPort = Integer.parseInt(map.getOrDefault("agentPort", "0"));
+    final var spawnAgents = Boolean.parseBoolean(map.getOrDefault("spawnAgents", "false"));
+    final var mode = ExecutionMode.parse(map.getOrDefault("mode", "platform"));
+    final var inflight = Integer.parseInt(map.getOrDefault("inflight", "64"));
     final var trust = Boolean.parseBoolean(map.getOrDefault("trustCerts", "false"));
     final var reqT = Integer.parseInt(map.getOrDefault("reqTimeout", "30"));
     final var connT = Integer.parseInt(map.getOrDefault("connTimeout", "10"));
@@ -39,6 +72,25 @@ public class ArgsParser {
     final var maxReqHost = Integer.parseInt(map.getOrDefault("maxRequestsPerHost", "32"));
     final var tls = parseCsv(map.getOrDefault("tls", "TLSv1.2,TLSv1.3"));
     final var jfrSec = Integer.parseInt(map.getOrDefault("jfr", "0"));
+    final var jfrSummary = Boolean.parseBoolean(map.getOrDefault("jfrSummary", "true"));
+    final var sampleMs = Long.parseLong(map.getOrDefault("sampleMs", "1000"));
+    final var jcmd = Boolean.parseBoolean(map.getOrDefault("jcmd", "false"));
+    final var master = Optional.ofNullable(map.get("master"));
+    final var faultProxy = Boolean.parseBoolean(map.getOrDefault("faultProxy", "false"));
+    final var faultLatency = Optional.ofNullable(map.get("faultLatency"));
+    final var faultBandwidth = Long.parseLong(map.getOrDefault("faultBandwidth", "0"));
+    final var faultResets = Double.parseDouble(map.getOrDefault("faultResetPercent", "0"));
+    final var faultSlow = Double.parseDouble(map.getOrDefault("faultSlowPercent", "0"));
+    final var faultSlowRate = Long.parseLong(map.getOrDefault("faultSlowRate", "64"));
+    final var mock = Boolean.parseBoolean(map.getOrDefault("mock", "false"));
+    final var mockPort = Integer.parseInt(map.getOrDefault("mockPort", "0"));
+    final var mockPods = Integer.parseInt(map.getOrDefault("mockPods", "1000"));
+    final var mockServices = Integer.parseInt(map.getOrDefault("mockServices", "200"));
+    final var mockLatency = Integer.parseInt(map.getOrDefault("mockLatencyMs", "0"));
+    final var mockWatchRate = Integer.parseInt(map.getOrDefault("mockWatchRate", "10"));
+    final var mockLogRate = Integer.parseInt(map.getOrDefault("mockLogRate", "4096"));
+    final var mockTls = Boolean.parseBoolean(map.getOrDefault("mockTls", "false"));
+    final var mockTlsResumable = Integer.parseInt(map.getOrDefault("mockTlsResumable", "50"));
 
     return HarnessArgs.builder()
         .label(label)
@@ -46,8 +98,46 @@ public class ArgsParser {
         .outputDir(outputDir)
         .repeats(repeats)
         .warmupSeconds(warmup)
+        .warmupMaxSeconds(warmupMax)
+        .warmupWindowSeconds(warmupWindow)
+        .warmupTolerancePercent(warmupTolerance)
         .durationSeconds(duration)
         .workloadThreads(threads)
+        .rates(rates)
+        .watchCount(watches)
+        .informers(informers)
+        .informerResyncSeconds(informerResync)
+        .logStreams(logStreams)
+        .logConsumeBytesPerSecond(logConsumeRate)
+        .execSessions(execSessions)
+        .portForwards(portForwards)
+        .websocketChunkBytes(wsChunk)
+        .interleavedTransports(interleave)
+        .sliceSeconds(slice)
+        .sweepConcurrency(sweep)
+        .sweepLimits(sweepLimits)
+        .stepSeconds(step)
+        .clients(clients)
+        .handshakeRate(handshakes)
+        .requestsPerConnection(requestsPerConnection)
+        .writeMode(write)
+        .payloadBytes(payload)
+        .pageSize(pageSize)
+        .listMode(list)
+        .payloadSizes(payloadSizes)
+        .pageSizes(pageSizes)
+        .listDatasets(listDatasets)
+        .listModes(listModes)
+        .soakSeconds(soak)
+        .soakSampleSeconds(soakSample)
+        .soakWatchRestartSeconds(soakWatchRestart)
+        .soakClientChurnSeconds(soakClientChurn)
+        .leakThresholdPercent(leakThreshold)
+        .agents(agents)
+        .agentPort(agentPort)
+        .spawnAgents(spawnAgents)
+        .executionMode(mode)
+        .maxInFlight(inflight)
         .trustCerts(trust)
         .requestTimeoutSeconds(reqT)
         .connectTimeoutSeconds(connT)
@@ -56,9 +146,95 @@ public class ArgsParser {
         .maxConcurrentRequestsPerHost(maxReqHost)
         .tlsVersions(tls)
         .jfrSeconds(jfrSec)
+        .jfrSummary(jfrSummary)
+        .sampleMillis(sampleMs)
+        .jcmdSnapshots(jcmd)
+        .masterUrl(master)
+        .faultProxy(faultProxy)
+        .faultLatency(faultLatency)
+        .faultBandwidth(faultBandwidth)
+        .faultResetPercent(faultResets)
+        .faultSlowPercent(faultSlow)
+        .faultSlowRate(faultSlowRate)
+        .proxyAddress(Optional.empty())
+        .mock(mock)
+        .mockPort(mockPort)
+        .mockPods(mockPods)
+        .mockServices(mockServices)
+        .mockLatencyMs(mockLatency)
+        .mockWatchRate(mockWatchRate)
+        .mockLogRate(mockLogRate)
+        .mockTls(mockTls)
+        .mockTlsResumable(mockTlsResumable)
         .build();
   }
 
+  /** Raw {@code --key value} flags; a flag without a value is {@code "true"}. Also used by the subcommands. */
+  public Map<String, String> flags(final String[] args) {
+    final Map<String, String> map = new HashMap<>();
+    for (var i = 0; i < args.length; i++) {
+      if (args[i].startsWith("--")) {
+        final var key = args[i].substring(2);
+        final var value = (i + 1 < args.length && !args[i + 1].startsWith("--")) ? args[++i] : "true";
+        map.put(key, value);
+      }
+    }
+    return map;
+  }
+
+  /**
+   * Parses {@code --rate}: either one number applied to every operation type, or
+   * {@code type=ops/s} pairs such as {@code configmap=20,pods=5}.
+   */
+  private Map<String, Double> parseRates(final String value) {
+    final Map<String, Double> rates = new LinkedHashMap<>();
+    if (value == null || value.isBlank()) return rates;
+    if (!value.contains("=")) {
+      final var rate = Double.parseDouble(value.trim());
+      for (final var type : List.of("configmap", "pods", "services")) {
+        rates.put(type, rate);
+      }
+      return rates;
+    }
+    for (final var pair : parseCsv(value)) {
+      final var kv = pair.split("=", 2);
+      rates.put(kv[0].trim(), Double.parseDouble(kv[1].trim()));
+    }
+    return rates;
+  }
+
+  /** Parses {@code label=value} pairs such as {@code --interleave vertx4=target/transports/vertx4,vertx5=...}, keeping their order. */
+  private Map<String, String> parsePairs(final String value) {
+    final Map<String, String> pairs = new LinkedHashMap<>();
+    for (final var pair : parseCsv(value)) {
+      final var kv = pair.split("=", 2);
+      if (kv.length != 2) throw new IllegalArgumentException("Expected label=value but got '" + pair + "'");
+      pairs.put(kv[0].trim(), kv[1].trim());
+    }
+    return pairs;
+  }
+
+  /** Seconds, or a number with an {@code s}, {@code m}, {@code h} or {@code d} suffix, e.g. {@code 90m}. */
+  long parseSeconds(final String value) {
+    final String v = value.trim().toLowerCase(Locale.ROOT);
+    final long unit = switch (v.isEmpty() ? ' ' : v.charAt(v.length() - 1)) {
+      case 's' -> 1;
+      case 'm' -> 60;
+      case 'h' -> 3600;
+      case 'd' -> 86400;
+      default -> 0;
+    };
+    return unit == 0 ? Long.parseLong(v) : Long.parseLong(v.substring(0, v.length() - 1)) * unit;
+  }
+
+  private List<Integer> parseInts(final String value) {
+    final List<Integer> out = new ArrayList<>();
+    for (final var v : parseCsv(value)) {
+      out.add(Integer.parseInt(v));
+    }
+    return out;
+  }
+
   private List<String> parseCsv(final String value) {
     if (value == null || value.isBlank()) return List.of();
     final var parts = value.split(",");
@@ -0,0 +1,19 @@
+package dev.bytesizedjoe.cli;
+
+import java.util.Locale;
+
+/**
+ * How workload callers are executed.
+ */
+public enum ExecutionMode {
+  /** Blocking calls on a fixed pool of {@code --threads} platform threads. */
+  PLATFORM,
+  /** Blocking calls, one virtual thread per caller (requires the {@code jdk21} build profile). */
+  VIRTUAL,
+  /** Non-blocking calls on the client's async HTTP API with at most {@code --inflight} operations outstanding. */
+  ASYNC;
+
+  public static ExecutionMode parse(final String value) {
+    return valueOf(value.trim().toUpperCase(Locale.ROOT));
+  }
+}
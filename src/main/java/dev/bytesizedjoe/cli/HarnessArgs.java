@@ -6,6 +6,7 @@ import lombok.Value;
 import org.jspecify.annotations.NullMarked;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -20,10 +21,121 @@ public class HarnessArgs {
   Optional<String> outputDir;
 
   int repeats;
+  /** Minimum warmup; it then goes on until steady (see {@code Warmup}), for at most {@link #warmupMaxSeconds}. */
   long warmupSeconds;
+  long warmupMaxSeconds;
+  long warmupWindowSeconds;
+  double warmupTolerancePercent;
   long durationSeconds;
   int workloadThreads;
 
+  /**
+   * Open-loop arrival rate (ops/s) per operation type ({@code configmap}, {@code pods}, {@code services}).
+   * Empty means the default closed-loop workload.
+   */
+  @Singular("rate")
+  Map<String, Double> rates;
+
+  /** Concurrent cluster-wide pod watches held open during each run. */
+  int watchCount;
+
+  /** Run pod/service/ConfigMap informers alongside the workload ({@code informers.txt}). */
+  boolean informers;
+  long informerResyncSeconds;
+
+  /** Pod logs followed concurrently during each run ({@code logs.txt}); 0 keeps the single log tail. */
+  int logStreams;
+  /** Per-stream read rate of the log sinks in bytes/s, to simulate a slow consumer; 0 reads as fast as possible. */
+  long logConsumeBytesPerSecond;
+
+  /** Exec sessions echoing bulk data through stdin/stdout during each run ({@code websockets.txt}). */
+  int execSessions;
+  /** Port-forwards echoing bulk data through a forwarded local socket during each run. */
+  int portForwards;
+  /** Size of each chunk pushed through an exec or port-forward session. */
+  int websocketChunkBytes;
+
+  /**
+   * Transports to interleave in one JVM, label to classpath (a directory of jars, or a path list), each
+   * loaded in its own classloader. Empty means the single transport on the harness classpath.
+   */
+  @Singular("interleavedTransport")
+  Map<String, String> interleavedTransports;
+  /** Length of one transport's measurement slice in an interleaved run. */
+  long sliceSeconds;
+
+  /**
+   * Concurrency levels of a saturation sweep (threads, or in-flight requests in async mode). Empty means a
+   * normal measurement run.
+   */
+  @Singular("sweepConcurrency")
+  List<Integer> sweepConcurrency;
+  /** Client request limits (maxRequests and maxRequestsPerHost) to sweep; empty means just the configured ones. */
+  @Singular("sweepLimit")
+  List<Integer> sweepLimits;
+  long stepSeconds;
+
+  /** Clients to build side by side for a fan-out run ({@code clients.md}); 0 means a normal measurement run. */
+  int clients;
+
+  /**
+   * New connections per second for a TLS handshake run, once per {@code --tls} version ({@code tls.md});
+   * 0 means a normal measurement run.
+   */
+  double handshakeRate;
+  /** Requests made on each connection of a handshake run before the stand-in closes it. */
+  int requestsPerConnection;
+
+  /** How the ConfigMap churn updates its objects. */
+  WriteMode writeMode;
+  /** Random bytes behind each ConfigMap value (Base64-encoded, so the value is 4/3 as long). */
+  int payloadBytes;
+  /** Objects per list page; 0 lists everything in one request. */
+  int pageSize;
+  /** How the pod listing decodes its pages. */
+  ListMode listMode;
+
+  /**
+   * ConfigMap payload sizes of a scaling matrix ({@code matrix.md}); with {@link #pageSizes} empty too, a
+   * normal measurement run.
+   */
+  @Singular("payloadStep")
+  List<Integer> payloadSizes;
+  /** List page sizes of a scaling matrix; 0 is an unpaginated list of the whole dataset. */
+  @Singular("pageStep")
+  List<Integer> pageSizes;
+
+  /**
+   * Stand-in pod counts of a list decoding run ({@code lists.md}), one forked stand-in each; empty means a
+   * normal measurement run.
+   */
+  @Singular("listDataset")
+  List<Integer> listDatasets;
+  /** Decoding variants a list decoding run compares; empty means all of them. */
+  @Singular("listStep")
+  List<ListMode> listModes;
+
+  /** Length of a soak run ({@code soak.md}); 0 means a normal measurement run. */
+  long soakSeconds;
+  long soakSampleSeconds;
+  /** Seconds between closing and reopening a soak's watches; 0 keeps them open. */
+  long soakWatchRestartSeconds;
+  /** Seconds between replacing a soak's client with a new one; 0 keeps one client. */
+  long soakClientChurnSeconds;
+  /** Growth per hour, in percent of the mean, above which a soak flags a resource. */
+  double leakThresholdPercent;
+
+  /** Agent processes generating the load of a distributed run ({@code Coordinator}); 0 runs it in this JVM. */
+  int agents;
+  /** Loopback port the coordinator listens on for its agents; 0 picks a free one. */
+  int agentPort;
+  /** Fork the agents on this machine instead of waiting for them to connect. */
+  boolean spawnAgents;
+
+  ExecutionMode executionMode;
+  /** Maximum outstanding operations in {@link ExecutionMode#ASYNC} mode. */
+  int maxInFlight;
+
   boolean trustCerts;
   int requestTimeoutSeconds;
   int connectTimeoutSeconds;
@@ -35,4 +147,47 @@ public class HarnessArgs {
   List<String> tlsVersions;
 
   int jfrSeconds;
+  /** Stream JFR events in-process and write per-phase aggregates ({@code jfr_summary.txt}). */
+  boolean jfrSummary;
+
+  /** Interval of the in-process JVM telemetry sampler ({@code telemetry.csv}); 0 disables it. */
+  long sampleMillis;
+  /** Also fork jcmd/jstat for thread dump, NMT and gcutil snapshots at start/mid/end. */
+  boolean jcmdSnapshots;
+
+  /** Overrides the API server URL instead of using kubeconfig/in-cluster discovery. */
+  Optional<String> masterUrl;
+
+  /** Route the client through the fault-injecting proxy even when no fault is configured, as a baseline. */
+  boolean faultProxy;
+  /** Delay added by the proxy to every forwarded read, e.g. {@code 20}, {@code uniform:5:50}, {@code exp:20}, {@code pareto:10:1.5} (ms). */
+  Optional<String> faultLatency;
+  /** Proxy bandwidth cap in bytes/s per direction, shared by all connections; 0 means no cap. */
+  long faultBandwidth;
+  /** Percentage of forwarded reads on which the proxy resets the connection instead. */
+  double faultResetPercent;
+  /** Percentage of proxied connections whose responses trickle at {@link #faultSlowRate}. */
+  double faultSlowPercent;
+  /** Bytes/s a slow-loris connection delivers its responses at. */
+  long faultSlowRate;
+  /** {@code host:port} of the running fault proxy the client connects through; set at startup, not a flag. */
+  Optional<String> proxyAddress;
+
+  /** Start an in-process stand-in API server and point the client at it. */
+  boolean mock;
+  int mockPort;
+  int mockPods;
+  int mockServices;
+  int mockLatencyMs;
+  int mockWatchRate;
+  int mockLogRate;
+  /** Serve the stand-in over TLS with its bundled self-signed certificate. */
+  boolean mockTls;
+  /** Percentage of the stand-in's TLS connections that may resume a session; the rest get a full handshake. */
+  int mockTlsResumable;
+
+  /** {@link #label}, or the {@code transport.id} the build profile sets when none was given. */
+  public String transportLabel() {
+    return label.orElseGet(() -> System.getProperty("transport.id", "vertx-unknown"));
+  }
 }
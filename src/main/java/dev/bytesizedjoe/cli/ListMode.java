@@ -0,0 +1,30 @@
+package dev.bytesizedjoe.cli;
+
+import java.util.Locale;
+
+/**
+ * How the pod listing decodes its pages; each page is timed as {@link #operation()}.
+ */
+public enum ListMode {
+  /** {@code pods().list(...)}: every page bound to the typed {@code PodList} model. */
+  TYPED("pods.list.page"),
+  /** {@code genericKubernetesResources("v1", "Pod").list(...)}: pages as untyped maps. */
+  GENERIC("pods.list.generic"),
+  /** A raw GET whose body is streamed through a JSON parser that keeps only item metadata and the continue token. */
+  STREAMING("pods.list.streaming");
+
+  private final String operation;
+
+  ListMode(final String operation) {
+    this.operation = operation;
+  }
+
+  public String operation() {
+    return operation;
+  }
+
+  /** Accepts {@code typed}, {@code generic} and {@code streaming}. */
+  public static ListMode parse(final String value) {
+    return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+  }
+}
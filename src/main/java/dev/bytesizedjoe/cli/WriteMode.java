@@ -0,0 +1,34 @@
+package dev.bytesizedjoe.cli;
+
+import java.util.Locale;
+
+/**
+ * How the ConfigMap churn updates its objects; each logical update is timed as {@link #operation()}.
+ */
+public enum WriteMode {
+  /** {@code edit(...)}: GET the object, then send the client's computed patch (two round trips). */
+  EDIT("configmap.edit"),
+  /** One RFC 6902 JSON patch replacing the changed key. */
+  JSON_PATCH("configmap.jsonpatch"),
+  /** One RFC 7386 JSON merge patch with just the changed key. */
+  MERGE_PATCH("configmap.mergepatch"),
+  /** Server-side apply of the whole desired object, forcing ownership for the harness's field manager. */
+  APPLY("configmap.apply"),
+  /** Both of a cycle's merge patches sent at once without waiting for the first; timed as one operation. */
+  PIPELINED("configmap.pipelined");
+
+  private final String operation;
+
+  WriteMode(final String operation) {
+    this.operation = operation;
+  }
+
+  public String operation() {
+    return operation;
+  }
+
+  /** Accepts {@code edit}, {@code json-patch}, {@code merge-patch}, {@code apply} and {@code pipelined}. */
+  public static WriteMode parse(final String value) {
+    return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+  }
+}
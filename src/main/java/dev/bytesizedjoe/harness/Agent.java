@@ -0,0 +1,114 @@
+package dev.bytesizedjoe.harness;
+
+import dev.bytesizedjoe.cli.ArgsParser;
+import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.k8s.KubernetesClientFactory;
+import dev.bytesizedjoe.k8s.Warmup;
+import dev.bytesizedjoe.k8s.Workloads;
+import dev.bytesizedjoe.metrics.OperationStats;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One load-generating process of a distributed run ({@code agent} subcommand). It connects to the
+ * {@link Coordinator}, takes the run's flags from it, warms up its own client and then runs the measured
+ * workload whenever the coordinator says {@code start}, from the same wall-clock instant as every other agent.
+ * After each run it sends back its {@link OperationStats} (see {@link OperationStats#encode}) and the CPU time
+ * it spent, so the coordinator can merge the histograms and show what generating the load cost.
+ * <p>
+ * The protocol is UTF-8 lines, {@code <keyword> <arguments>}:
+ * <pre>
+ * agent:       hello &lt;pid&gt; &lt;transport&gt;
+ * coordinator: id &lt;n&gt;, arg &lt;flag or value&gt;..., [proxy &lt;host:port&gt;], configured
+ * agent:       warm &lt;seconds&gt; &lt;steady&gt;
+ * coordinator: start &lt;repeat&gt; &lt;epoch ms&gt;
+ * agent:       cpu &lt;ms&gt;, stats lines..., end
+ * coordinator: bye
+ * </pre>
+ */
+@NullMarked
+@Slf4j
+public final class Agent {
+  private Agent() {
+  }
+
+  /** Serves the coordinator at {@code host:port} until it says {@code bye}. */
+  public static void run(final String coordinator) throws Exception {
+    final int colon = coordinator.lastIndexOf(':');
+    if (colon < 0) throw new IllegalArgumentException("Expected host:port but got '" + coordinator + "'");
+    try (var socket = new Socket(coordinator.substring(0, colon), Integer.parseInt(coordinator.substring(colon + 1)));
+         var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+         var out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+      out.printf(Locale.ROOT, "hello %d %s%n", ProcessHandle.current().pid(), System.getProperty("transport.id", "vertx-unknown"));
+      out.flush();
+
+      final List<String> argv = new ArrayList<>();
+      String proxy = null;
+      var id = 0;
+      for (String line = read(in); !"configured".equals(line); line = read(in)) {
+        final String value = line.indexOf(' ') > 0 ? line.substring(line.indexOf(' ') + 1) : "";
+        if (line.startsWith("id ")) id = Integer.parseInt(value);
+        else if (line.startsWith("arg ")) argv.add(value);
+        else if (line.startsWith("proxy ")) proxy = value;
+      }
+      final HarnessArgs args = ArgsParser.parse(argv.toArray(new String[0])).toBuilder()
+          .proxyAddress(Optional.ofNullable(proxy))
+          .build();
+      // The coordinator's JVM may have been started differently, e.g. without virtual threads
+      Workloads.checkExecutionMode(args);
+      final var ns = args.getNamespace().orElse("ab-harness");
+
+      try (var client = KubernetesClientFactory.build(args)) {
+        Runs.ensureNamespace(client, ns);
+        log.info("Agent {} warming up...", id);
+        final Warmup.Result warmedUp = Workloads.runWarmup(client, ns, args);
+        out.printf(Locale.ROOT, "warm %.1f %s%n", warmedUp.getSeconds(), warmedUp.isSteady());
+        out.flush();
+
+        for (String line = read(in); !"bye".equals(line); line = read(in)) {
+          if (!line.startsWith("start ")) continue;
+          final String[] f = line.split(" ");
+          final long wait = Long.parseLong(f[2]) - System.currentTimeMillis();
+          if (wait > 0) TimeUnit.MILLISECONDS.sleep(wait);
+          log.info("Agent {} running repeat {}", id, f[1]);
+          final var stats = new OperationStats();
+          final long cpuBefore = processCpuNanos();
+          Workloads.startWorkload(client, ns, args, stats).get();
+          final long cpuAfter = processCpuNanos();
+          out.printf(Locale.ROOT, "cpu %d%n", cpuBefore >= 0 ? TimeUnit.NANOSECONDS.toMillis(cpuAfter - cpuBefore) : -1);
+          out.println("stats");
+          stats.encode(out);
+          out.println("end");
+          out.flush();
+        }
+      }
+    }
+    log.info("Coordinator finished; agent exiting");
+  }
+
+  private static String read(final BufferedReader in) throws IOException {
+    final @Nullable String line = in.readLine();
+    if (line == null) throw new IOException("Coordinator closed the connection");
+    return line;
+  }
+
+  private static long processCpuNanos() {
+    return ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os
+        ? os.getProcessCpuTime() : -1;
+  }
+}
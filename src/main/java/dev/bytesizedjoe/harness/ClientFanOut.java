@@ -0,0 +1,289 @@
+package dev.bytesizedjoe.harness;
+
+import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.k8s.KubernetesClientFactory;
+import dev.bytesizedjoe.k8s.SharedTransport;
+import dev.bytesizedjoe.k8s.Workloads;
+import dev.bytesizedjoe.metrics.MemoryFootprint;
+import dev.bytesizedjoe.metrics.NativeMemory;
+import dev.bytesizedjoe.metrics.OperationStats;
+import io.fabric8.kubernetes.api.model.ListOptionsBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.http.HttpClient;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Builds {@code --clients} clients in one JVM, as a process talking to many clusters does, and measures what
+ * each extra client costs: heap after GC, direct memory, threads and NMT committed memory after each one is
+ * built and has made its first request, and how long building it and that first request took. The workload
+ * is then spread across all of them for {@code --duration} seconds (threads, rates and the async window
+ * divided by the client count) and the footprint measured again.
+ * <p>
+ * This is done twice per {@code --repeats}: {@code separate} gives every client a new instance of the HTTP
+ * client factory, as a client built without one gets from the ServiceLoader; {@code shared} builds all of them
+ * on one factory, on a single Vert.x instance when the factory takes one (see {@link SharedTransport}). The
+ * order alternates between repeats, so neither pass always runs in the JVM the other has warmed up and left
+ * garbage in. The marginal cost is the least-squares slope of each metric over the client count, across repeats.
+ */
+@NullMarked
+@Slf4j
+public final class ClientFanOut {
+  public static final String CSV = "clients.csv";
+  public static final String MARKDOWN = "clients.md";
+  static final String SEPARATE = "separate";
+  static final String SHARED = "shared";
+  /** Footprint after each client is built and has made its first request. */
+  static final String OPEN = "open";
+  /** Footprint with all clients open after the spread workload. */
+  static final String LOADED = "loaded";
+  static final List<String> METRICS = List.of(
+      "heap_bytes", "direct_bytes", "netty_direct", "threads", "nmt_total", "nmt_thread", "nmt_other");
+  private static final long SETTLE_SECONDS = 5;
+
+  private final HttpClient.Factory template;
+  private final BiFunction<HarnessArgs, HttpClient.Factory, KubernetesClient> clients;
+
+  /** {@code template} is the transport's factory; {@code clients} builds a client on a given factory. */
+  public ClientFanOut(final HttpClient.Factory template,
+                      final BiFunction<HarnessArgs, HttpClient.Factory, KubernetesClient> clients) {
+    this.template = template;
+    this.clients = clients;
+  }
+
+  public void run(final HarnessArgs args, final String label) throws Exception {
+    final var ns = args.getNamespace().orElse("ab-harness");
+    final Path dir = Paths.get(args.getOutputDir().orElse("out"), label, "clients-" + Runs.timeStamp());
+    Files.createDirectories(dir);
+    final int n = Math.max(1, args.getClients());
+
+    final List<Sample> samples = new ArrayList<>();
+    final Map<String, OperationStats> stats = new LinkedHashMap<>();
+    boolean sharesVertx = false;
+    for (var r = 1; r <= Math.max(1, args.getRepeats()); r++) {
+      for (final String sharing : order(r)) {
+        final var s = new OperationStats();
+        stats.put(pass(r, sharing), s);
+        try (var shared = SHARED.equals(sharing) ? SharedTransport.of(KubernetesClientFactory.copyOf(template)) : null) {
+          sharesVertx |= shared != null && shared.sharesVertx();
+          samples.addAll(runOne(args, ns, n, r, sharing, shared, s));
+        }
+        s.writeSnapshot(dir.resolve(pass(r, sharing)));
+        // Let the closed clients' event loops and pools shut down before the next baseline
+        TimeUnit.SECONDS.sleep(SETTLE_SECONDS);
+      }
+    }
+    write(dir, label, args, n, sharesVertx, samples, stats);
+    log.info("Client fan-out complete. Summary in {}", dir.resolve(MARKDOWN));
+  }
+
+  /** The passes of repeat {@code repeat}: odd repeats start with {@code separate}, even ones with {@code shared}. */
+  static List<String> order(final int repeat) {
+    return repeat % 2 == 1 ? List.of(SEPARATE, SHARED) : List.of(SHARED, SEPARATE);
+  }
+
+  /** A pass's directory, and its key in the stats. */
+  private static String pass(final int repeat, final String sharing) {
+    return "rep" + repeat + "/" + sharing;
+  }
+
+  private List<Sample> runOne(final HarnessArgs args, final String ns, final int n, final int repeat, final String sharing,
+                              @Nullable final SharedTransport shared, final OperationStats stats) throws Exception {
+    final List<Sample> samples = new ArrayList<>();
+    final List<KubernetesClient> open = new ArrayList<>();
+    // Throughput is over the workload, not the building and warmup before it
+    stats.pause();
+    try {
+      samples.add(sample(repeat, sharing, OPEN, 0, 0, 0));
+      for (var i = 1; i <= n; i++) {
+        final HttpClient.Factory factory = shared != null ? shared.factory() : KubernetesClientFactory.copyOf(template);
+        final long start = System.nanoTime();
+        final KubernetesClient client = clients.apply(args, factory);
+        open.add(client);
+        final long built = System.nanoTime();
+        client.pods().inAnyNamespace().list(new ListOptionsBuilder().withLimit(1L).build());
+        final long answered = System.nanoTime();
+        samples.add(sample(repeat, sharing, OPEN, i, (built - start) / 1e6, (answered - built) / 1e6));
+      }
+      log.info("Fan-out {} (repeat {}): {} clients open, warming up...", sharing, repeat, n);
+      Runs.ensureNamespace(open.get(0), ns);
+      Workloads.runWarmup(open.get(0), ns, args);
+
+      final var perClient = perClient(args, n);
+      final List<CompletableFuture<Void>> workloads = new ArrayList<>();
+      stats.resume();
+      for (final KubernetesClient client : open) {
+        workloads.add(Workloads.startWorkload(client, ns, perClient, stats));
+      }
+      CompletableFuture.allOf(workloads.toArray(CompletableFuture[]::new)).get();
+      stats.pause();
+      samples.add(sample(repeat, sharing, LOADED, n, 0, 0));
+    } finally {
+      for (final KubernetesClient client : open) {
+        try { client.close(); } catch (Exception ignore) {}
+      }
+    }
+    return samples;
+  }
+
+  /**
+   * The workload for one of {@code n} clients: together they run what one client would run alone. Each still
+   * gets a thread per operation type, or its closed loop would run them one after another.
+   */
+  static HarnessArgs perClient(final HarnessArgs args, final int n) {
+    final var builder = args.toBuilder()
+        .workloadThreads(Math.max(SaturationSweep.MIN_THREADS, (args.getWorkloadThreads() + n - 1) / n))
+        .maxInFlight(Math.max(1, (args.getMaxInFlight() + n - 1) / n))
+        .clearRates();
+    args.getRates().forEach((type, rate) -> builder.rate(type, rate / n));
+    return builder.build();
+  }
+
+  private static Sample sample(final int repeat, final String sharing, final String phase, final int clients,
+                               final double buildMillis, final double firstRequestMillis) {
+    final MemoryFootprint footprint = MemoryFootprint.measure();
+    final Map<String, Long> nmt = NativeMemory.committed();
+    return new Sample(repeat, sharing, phase, clients, buildMillis, firstRequestMillis, footprint.getHeapUsed(),
+        footprint.getDirectUsed(), footprint.getNettyDirect(), footprint.getThreads(),
+        NativeMemory.committed(nmt, NativeMemory.TOTAL), NativeMemory.committed(nmt, NativeMemory.THREAD),
+        NativeMemory.committed(nmt, NativeMemory.OTHER));
+  }
+
+  /** Least-squares slope of {@code metric} over the client count, or NaN if the metric wasn't available. */
+  static double slope(final List<Sample> curve, final String metric) {
+    if (curve.size() < 2 || curve.stream().anyMatch(s -> s.value(metric) < 0)) return Double.NaN;
+    final double meanX = curve.stream().mapToDouble(Sample::getClients).average().orElse(0);
+    final double meanY = curve.stream().mapToDouble(s -> s.value(metric)).average().orElse(0);
+    double num = 0;
+    double den = 0;
+    for (final Sample s : curve) {
+      num += (s.clients - meanX) * (s.value(metric) - meanY);
+      den += (s.clients - meanX) * (s.clients - meanX);
+    }
+    return den > 0 ? num / den : Double.NaN;
+  }
+
+  private void write(final Path dir, final String label, final HarnessArgs args, final int n, final boolean sharesVertx,
+                     final List<Sample> samples, final Map<String, OperationStats> stats) throws IOException {
+    try (var csv = new PrintWriter(Files.newBufferedWriter(dir.resolve(CSV)))) {
+      csv.println("repeat,sharing,phase,clients,build_ms,first_request_ms," + String.join(",", METRICS));
+      for (final Sample s : samples) {
+        csv.printf(Locale.ROOT, "%d,%s,%s,%d,%.3f,%.3f", s.repeat, s.sharing, s.phase, s.clients, s.buildMillis,
+            s.firstRequestMillis);
+        for (final String metric : METRICS) csv.printf(Locale.ROOT, ",%d", s.value(metric));
+        csv.println();
+      }
+    }
+    try (var md = new PrintWriter(Files.newBufferedWriter(dir.resolve(MARKDOWN)))) {
+      md.printf(Locale.ROOT, "## Client fan-out: %s%n%n", label);
+      md.printf(Locale.ROOT, "%d clients; `separate` gives each its own factory instance, `shared` builds all on one%s. "
+              + "%d repeats, alternating which pass runs first. Memory is measured after GC; NMT columns need "
+              + "`-XX:NativeMemoryTracking=summary`.%n", n,
+          sharesVertx ? " factory backed by one Vert.x instance" : " factory instance", Math.max(1, args.getRepeats()));
+
+      md.printf(Locale.ROOT, "%n### Marginal cost per client%n%n");
+      md.println("| Metric | separate | shared | shared − separate |");
+      md.println("|---|---:|---:|---:|");
+      for (final String metric : METRICS) {
+        final double separate = slope(curve(samples, SEPARATE), metric);
+        final double shared = slope(curve(samples, SHARED), metric);
+        md.printf(Locale.ROOT, "| %s | %s | %s | %s |%n", metric, number(separate), number(shared), number(shared - separate));
+      }
+      for (final boolean first : List.of(true, false)) {
+        final String which = first ? "first client, median over repeats" : "median of the rest";
+        final double buildSeparate = startup(curve(samples, SEPARATE), first, true);
+        final double buildShared = startup(curve(samples, SHARED), first, true);
+        md.printf(Locale.ROOT, "| build_ms (%s) | %s | %s | %s |%n", which, number(buildSeparate), number(buildShared),
+            number(buildShared - buildSeparate));
+        final double requestSeparate = startup(curve(samples, SEPARATE), first, false);
+        final double requestShared = startup(curve(samples, SHARED), first, false);
+        md.printf(Locale.ROOT, "| first_request_ms (%s) | %s | %s | %s |%n", which, number(requestSeparate),
+            number(requestShared), number(requestShared - requestSeparate));
+      }
+
+      md.printf(Locale.ROOT, "%n### Workload spread across the clients (%d s)%n%n", Math.max(1, args.getDurationSeconds()));
+      md.println("| Pass | ops/s | p50 ms | p99 ms | Errors | Retained per client after load |");
+      md.println("|---|---:|---:|---:|---:|---|");
+      for (final var entry : stats.entrySet()) {
+        final Histogram latency = entry.getValue().combinedLatency();
+        final double seconds = Math.max(1e-3, entry.getValue().activeSeconds());
+        final List<Sample> pass = samples.stream().filter(s -> pass(s.repeat, s.sharing).equals(entry.getKey())).toList();
+        final Sample base = pass.get(0);
+        final Sample loaded = pass.stream().filter(s -> LOADED.equals(s.phase)).findFirst().orElse(base);
+        md.printf(Locale.ROOT, "| %s | %.1f | %.2f | %.2f | %d | heap %s B, threads %s |%n", entry.getKey(),
+            latency.getTotalCount() / seconds, latency.getValueAtPercentile(50) / 1e6,
+            latency.getValueAtPercentile(99) / 1e6, entry.getValue().totalErrors(),
+            number((loaded.heapUsed - base.heapUsed) / (double) n), number((loaded.threads - base.threads) / (double) n));
+      }
+    }
+  }
+
+  private static List<Sample> curve(final List<Sample> samples, final String sharing) {
+    return samples.stream().filter(s -> s.sharing.equals(sharing) && OPEN.equals(s.phase)).toList();
+  }
+
+  /** Build or first-request time of each repeat's first client, or of the others; the median either way. */
+  private static double startup(final List<Sample> curve, final boolean first, final boolean build) {
+    return median(curve.stream().filter(s -> first ? s.clients == 1 : s.clients > 1)
+        .mapToDouble(s -> build ? s.buildMillis : s.firstRequestMillis).toArray());
+  }
+
+  private static double median(final double[] values) {
+    if (values.length == 0) return Double.NaN;
+    Arrays.sort(values);
+    final int mid = values.length / 2;
+    return values.length % 2 == 1 ? values[mid] : (values[mid - 1] + values[mid]) / 2;
+  }
+
+  private static String number(final double value) {
+    return Double.isNaN(value) ? "-" : String.format(Locale.ROOT, "%.1f", value);
+  }
+
+  @Value
+  static class Sample {
+    int repeat;
+    String sharing;
+    String phase;
+    int clients;
+    double buildMillis;
+    double firstRequestMillis;
+    long heapUsed;
+    long directUsed;
+    long nettyDirect;
+    long threads;
+    long nmtTotal;
+    long nmtThread;
+    long nmtOther;
+
+    long value(final String metric) {
+      return switch (metric) {
+        case "heap_bytes" -> heapUsed;
+        case "direct_bytes" -> directUsed;
+        case "netty_direct" -> nettyDirect;
+        case "threads" -> threads;
+        case "nmt_total" -> nmtTotal;
+        case "nmt_thread" -> nmtThread;
+        case "nmt_other" -> nmtOther;
+        default -> throw new IllegalArgumentException("Unknown metric " + metric);
+      };
+    }
+  }
+}
@@ -0,0 +1,214 @@
+package dev.bytesizedjoe.harness;
+
+import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.metrics.OperationStats;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a distributed run: {@code --agents} {@link Agent} processes generate the load, so it isn't capped by
+ * one JVM and the load generation's CPU isn't spent in the process measuring. The coordinator listens on
+ * {@code --agentPort} (loopback), forks the agents itself with {@code --spawnAgents} or waits for them to
+ * connect, hands each the flags of this invocation, and once all have warmed up starts every repeat on all of
+ * them at the same wall-clock instant. Their stats are merged into one run directory per repeat, with each
+ * agent's own figures and CPU time alongside ({@link #AGENTS}).
+ */
+@NullMarked
+@Slf4j
+public final class Coordinator {
+  public static final String AGENTS = "agents.txt";
+  private static final String MAIN_CLASS = "dev.bytesizedjoe.Main";
+  private static final long CONNECT_TIMEOUT_SECONDS = 120;
+  /** Lead time of a start, so every agent has the message before the instant it names. */
+  private static final long START_DELAY_MILLIS = 2000;
+
+  public void run(final HarnessArgs args, final String[] argv, final String label) throws Exception {
+    final Path dir = Paths.get(args.getOutputDir().orElse("out"), label, "distributed-" + Runs.timeStamp());
+    Files.createDirectories(dir);
+    final List<Process> spawned = new ArrayList<>();
+    final List<Connection> agents = new ArrayList<>();
+    try (var server = new ServerSocket(args.getAgentPort(), 64, InetAddress.getLoopbackAddress())) {
+      final String address = "127.0.0.1:" + server.getLocalPort();
+      if (args.isSpawnAgents()) {
+        for (var i = 0; i < args.getAgents(); i++) {
+          spawned.add(fork(address, dir.resolve("agent-" + i + ".log")));
+        }
+      } else {
+        log.info("Waiting for {} agents: start each with `java -jar <harness jar> agent --coordinator {}`",
+            args.getAgents(), address);
+      }
+      server.setSoTimeout((int) TimeUnit.SECONDS.toMillis(CONNECT_TIMEOUT_SECONDS));
+      while (agents.size() < args.getAgents()) {
+        try {
+          agents.add(new Connection(agents.size(), server.accept()));
+        } catch (SocketTimeoutException e) {
+          throw new IOException("Only " + agents.size() + " of " + args.getAgents() + " agents connected within "
+              + CONNECT_TIMEOUT_SECONDS + " s", e);
+        }
+      }
+      final List<String> flags = agentArgv(argv, args);
+      for (final Connection agent : agents) agent.configure(flags, args.getProxyAddress().orElse(null));
+      for (final Connection agent : agents) agent.awaitWarm();
+      log.info("All {} agents warmed up", agents.size());
+
+      for (var r = 1; r <= Math.max(1, args.getRepeats()); r++) {
+        final long startAt = System.currentTimeMillis() + START_DELAY_MILLIS;
+        for (final Connection agent : agents) agent.send("start " + r + " " + startAt);
+        final var merged = new OperationStats();
+        final Path runDir = dir.resolve("rep" + r);
+        for (final Connection agent : agents) {
+          agent.awaitStats(merged).writeSnapshot(runDir.resolve("agent-" + agent.id));
+        }
+        merged.writeSnapshot(runDir);
+        writeAgents(runDir.resolve(AGENTS), agents);
+        log.info("Repeat {}: {} ops/s across {} agents, {} errors", r,
+            String.format(Locale.ROOT, "%.1f", merged.combinedLatency().getTotalCount() / Math.max(1e-3, merged.activeSeconds())),
+            agents.size(), merged.totalErrors());
+      }
+      for (final Connection agent : agents) agent.send("bye");
+    } finally {
+      agents.forEach(Connection::close);
+      for (final Process p : spawned) {
+        if (!p.waitFor(30, TimeUnit.SECONDS)) p.destroyForcibly();
+      }
+    }
+    log.info("Distributed run complete. Results in {}", dir);
+  }
+
+  /**
+   * The flags the agents run with: this invocation's, plus the API server it resolved at startup (the
+   * in-process stand-in, say) and whether to trust its certificate, which later flags override.
+   */
+  static List<String> agentArgv(final String[] argv, final HarnessArgs args) {
+    final List<String> flags = new ArrayList<>(Arrays.asList(argv));
+    args.getMasterUrl().ifPresent(master -> flags.addAll(List.of("--master", master)));
+    flags.addAll(List.of("--trustCerts", String.valueOf(args.isTrustCerts())));
+    return flags;
+  }
+
+  private void writeAgents(final Path file, final List<Connection> agents) throws IOException {
+    try (var out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+      out.printf(Locale.ROOT, "%-6s %8s %-16s %10s %10s %8s %10s %10s%n",
+          "agent", "pid", "transport", "ops", "ops_s", "errors", "cpu_ms", "cpu_cores");
+      for (final Connection agent : agents) {
+        final OperationStats stats = agent.lastStats;
+        if (stats == null) continue;
+        final double seconds = Math.max(1e-3, stats.activeSeconds());
+        final long ops = stats.combinedLatency().getTotalCount();
+        out.printf(Locale.ROOT, "%-6d %8d %-16s %10d %10.1f %8d %10d %10s%n", agent.id, agent.pid, agent.transport,
+            ops, ops / seconds, stats.totalErrors(), agent.lastCpuMillis,
+            agent.lastCpuMillis >= 0 ? String.format(Locale.ROOT, "%.2f", agent.lastCpuMillis / 1000.0 / seconds) : "-");
+      }
+    }
+  }
+
+  /** Starts an agent on this JVM's classpath, logging to {@code logFile}. */
+  private static Process fork(final String coordinator, final Path logFile) throws IOException {
+    final List<String> cmd = new ArrayList<>(List.of(ProcessHandle.current().info().command()
+        .orElseGet(() -> Paths.get(System.getProperty("java.home"), "bin", "java").toString())));
+    final String transport = System.getProperty("transport.id");
+    if (transport != null) cmd.add("-Dtransport.id=" + transport);
+    cmd.addAll(List.of("-cp", System.getProperty("java.class.path"), MAIN_CLASS, "agent", "--coordinator", coordinator));
+    return new ProcessBuilder(cmd).redirectErrorStream(true).redirectOutput(logFile.toFile()).start();
+  }
+
+  /** The coordinator's side of one agent's connection. */
+  private static final class Connection implements AutoCloseable {
+    final int id;
+    final Socket socket;
+    final BufferedReader in;
+    final PrintWriter out;
+    final long pid;
+    final String transport;
+    @Nullable OperationStats lastStats;
+    long lastCpuMillis = -1;
+
+    Connection(final int id, final Socket socket) throws IOException {
+      this.id = id;
+      this.socket = socket;
+      // Something that connects but never says hello mustn't hold up the run
+      socket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(CONNECT_TIMEOUT_SECONDS));
+      this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      this.out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+      final String[] hello;
+      try {
+        hello = read().split(" ");
+      } catch (SocketTimeoutException e) {
+        close();
+        throw new IOException("Agent " + id + " connected but sent no hello within " + CONNECT_TIMEOUT_SECONDS + " s", e);
+      }
+      if (hello.length < 3 || !"hello".equals(hello[0])) throw new IOException("Not an agent: " + String.join(" ", hello));
+      // From here on runs take as long as they take; a dead agent shows up as a closed connection
+      socket.setSoTimeout(0);
+      this.pid = Long.parseLong(hello[1]);
+      this.transport = hello[2];
+      log.info("Agent {} connected: pid {} ({})", id, pid, transport);
+    }
+
+    void configure(final List<String> flags, final @Nullable String proxy) {
+      out.println("id " + id);
+      flags.forEach(flag -> out.println("arg " + flag));
+      if (proxy != null) out.println("proxy " + proxy);
+      send("configured");
+    }
+
+    void awaitWarm() throws IOException {
+      final String line = read();
+      if (!line.startsWith("warm ")) throw new IOException("Agent " + id + " sent '" + line + "' instead of warming up");
+    }
+
+    /** Reads one repeat's result and merges it into {@code merged}; returns the agent's own stats. */
+    OperationStats awaitStats(final OperationStats merged) throws IOException {
+      final List<String> lines = new ArrayList<>();
+      for (String line = read(); !"end".equals(line); line = read()) {
+        if (line.startsWith("cpu ")) lastCpuMillis = Long.parseLong(line.substring(4));
+        else if (!"stats".equals(line)) lines.add(line);
+      }
+      merged.merge(lines);
+      final var stats = new OperationStats();
+      stats.merge(lines);
+      lastStats = stats;
+      return stats;
+    }
+
+    void send(final String line) {
+      out.println(line);
+      out.flush();
+    }
+
+    private String read() throws IOException {
+      final @Nullable String line = in.readLine();
+      if (line == null) throw new IOException("Agent " + id + " disconnected");
+      return line;
+    }
+
+    @Override
+    public void close() {
+      try {
+        socket.close();
+      } catch (IOException ignored) {
+        // Nothing left to read from it
+      }
+    }
+  }
+}
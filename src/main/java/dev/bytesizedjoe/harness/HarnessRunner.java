@@ -1,69 +1,131 @@
 package dev.bytesizedjoe.harness;
 
 import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.k8s.InformerWorkload;
+import dev.bytesizedjoe.k8s.LogStreams;
+import dev.bytesizedjoe.k8s.PodWatches;
 import dev.bytesizedjoe.k8s.Pods;
+import dev.bytesizedjoe.k8s.RequestTracer;
+import dev.bytesizedjoe.k8s.Warmup;
+import dev.bytesizedjoe.k8s.WebSocketSessions;
 import dev.bytesizedjoe.k8s.Workloads;
+import dev.bytesizedjoe.metrics.JfrMonitor;
+import dev.bytesizedjoe.metrics.JvmSampler;
 import dev.bytesizedjoe.metrics.Metrics;
+import dev.bytesizedjoe.metrics.OperationStats;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.client.KubernetesClient;
-import io.fabric8.kubernetes.api.model.NamespaceBuilder;
-import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.dsl.LogWatch;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
-import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
 @NullMarked
 @Slf4j
-@RequiredArgsConstructor
 public class HarnessRunner {
+  /** Directory (under the output dir) for JVM-wide artifacts of interleaved runs, which no single transport owns. */
+  static final String INTERLEAVED_DIR = "interleaved";
+
   private final KubernetesClient client;
+  /** Clients by transport label for an interleaved run; empty for a single-transport run. */
+  private final Map<String, KubernetesClient> transports;
+
+  public HarnessRunner(final KubernetesClient client) {
+    this.client = client;
+    this.transports = Map.of();
+  }
+
+  /** Interleaves measurement slices across {@code transports} (label to client); the first also does namespace setup. */
+  public HarnessRunner(final Map<String, KubernetesClient> transports) {
+    this.client = transports.values().iterator().next();
+    this.transports = new LinkedHashMap<>(transports);
+  }
 
   public void run(final HarnessArgs args) throws Exception {
-    final var label = args.getLabel().orElseGet(() -> System.getProperty("transport.id", "vertx-unknown"));
+    if (!transports.isEmpty()) {
+      runInterleaved(args);
+      return;
+    }
+    final var label = args.transportLabel();
     final var runBaseDir = args.getOutputDir().orElse("out") + File.separator + label;
 
     final var ns = args.getNamespace().orElse("ab-harness");
-    ensureNamespace(ns);
+    Runs.ensureNamespace(client, ns);
+
+    try (final var jfr = args.isJfrSummary() ? JfrMonitor.start() : null) {
+      final var warmup = jfr != null ? jfr.begin("warmup") : null;
+      final var warmedUp = Workloads.runWarmup(client, ns, args);
+      if (jfr != null && warmup != null) jfr.end(warmup);
 
-    log.info("Warmup for {} seconds...", args.getWarmupSeconds());
-    Workloads.runWarmup(client, ns, args);
+      runMeasurements(args, ns, runBaseDir, warmedUp, jfr, warmup);
+    }
+
+    // Final completion log to make end-of-runs explicit
+    log.info("All runs complete. Artifacts available under {}", runBaseDir);
+  }
 
+  private void runMeasurements(final HarnessArgs args, final String ns, final String runBaseDir, final Warmup.Result warmedUp,
+                               @Nullable final JfrMonitor jfr, final JfrMonitor.@Nullable Phase warmup) throws Exception {
     for (var i = 1; i <= args.getRepeats(); i++) {
-      final var runId = timeStamp() + "-rep" + i;
+      final var runId = Runs.timeStamp() + "-rep" + i;
       final Path runDir = Paths.get(runBaseDir, runId);
       Files.createDirectories(runDir);
       log.info("Starting run {} in {}", runId, runDir);
+      warmedUp.write(runDir.resolve(Warmup.FILE_NAME));
 
-      final Watcher<Pod> watcher = new Pods.NoopPodWatcher();
-      final var watch = client.pods().inAnyNamespace().watch(watcher);
-      final var logTail = startLogTail(runDir);
+      final var stats = new OperationStats();
+      final var requests = RequestTracer.of(client).begin();
+      final var watches = PodWatches.open(client, Math.max(1, args.getWatchCount()), stats, runDir);
+      final var informers = args.isInformers() ? InformerWorkload.start(client, ns, args, stats, runDir) : null;
+      final var logs = args.getLogStreams() > 0 ? LogStreams.open(client, args, stats, runDir) : null;
+      final var logTail = logs == null ? startLogTail(runDir) : null;
+      final var sessions = args.getExecSessions() + args.getPortForwards() > 0
+          ? WebSocketSessions.open(client, args, stats, runDir) : null;
 
-      Metrics.collectAllMetrics(runDir, "start");
+      final var sampler = args.getSampleMillis() > 0 ? JvmSampler.start(runDir, args.getSampleMillis()) : null;
+      snapshot(runDir, "start", stats, requests, args);
 
-      final var workload = Workloads.startWorkload(client, ns, args);
+      final var measure = jfr != null ? jfr.begin("measure") : null;
+      final var workload = Workloads.startWorkload(client, ns, args, stats);
 
       Thread.sleep(TimeUnit.SECONDS.toMillis(Math.max(1, args.getDurationSeconds() / 2)));
-      Metrics.collectAllMetrics(runDir, "mid");
+      snapshot(runDir, "mid", stats, requests, args);
 
       if (args.getJfrSeconds() > 0) {
         Metrics.recordJfr(runDir, args.getJfrSeconds());
       }
 
       workload.get();
-      Metrics.collectAllMetrics(runDir, "end");
+      if (informers != null) informers.close();
+      if (logs != null) logs.close();
+      if (sessions != null) sessions.close();
+      if (jfr != null && measure != null) jfr.end(measure);
+      snapshot(runDir, "end", stats, requests, args);
+      if (sampler != null) sampler.close();
+      if (jfr != null && warmup != null && measure != null) {
+        try {
+          jfr.writeSummary(runDir, warmup, measure);
+        } catch (Exception e) {
+          log.warn("Failed to write JFR summary: {}", e.toString());
+        }
+      }
 
-      try { watch.close(); } catch (Exception ignore) {}
+      watches.close();
       try { if (logTail != null) logTail.close(); } catch (Exception ignore) {}
 
       cleanupRunConfigMaps(ns);
@@ -71,20 +133,132 @@ public class HarnessRunner {
       log.info("Completed run {}", runId);
       Thread.sleep(TimeUnit.SECONDS.toMillis(10));
     }
+  }
 
-    // Final completion log to make end-of-runs explicit
-    log.info("All runs complete. Artifacts available under {}", runBaseDir);
+  /**
+   * Same-JVM A/B: alternates {@code --slice} second slices of the workload between the transports until each
+   * has run for {@code --duration}, so both see the same cluster conditions. Latency, allocation and JFR
+   * aggregates are kept per transport in {@code <out>/<transport>/<runId>}; JVM-wide telemetry and the slice
+   * schedule ({@code slices.csv}) go to {@code <out>/interleaved/<runId>}.
+   */
+  private void runInterleaved(final HarnessArgs args) throws Exception {
+    final var outDir = args.getOutputDir().orElse("out");
+    final var ns = args.getNamespace().orElse("ab-harness");
+    Runs.ensureNamespace(client, ns);
+    if (args.getWatchCount() > 1 || args.isInformers() || args.getLogStreams() > 0
+        || args.getExecSessions() + args.getPortForwards() > 0) {
+      log.warn("Watches, informers, log streams and exec/port-forward sessions are not run in interleaved mode; only the request workload is sliced");
+    }
+
+    try (final var jfr = args.isJfrSummary() ? JfrMonitor.start() : null) {
+      final Map<String, JfrMonitor.Phase> warmups = new LinkedHashMap<>();
+      final Map<String, Warmup.Result> warmedUp = new LinkedHashMap<>();
+      for (final var transport : transports.entrySet()) {
+        log.info("Warming up {}...", transport.getKey());
+        final var warmup = jfr != null ? jfr.begin("warmup") : null;
+        warmedUp.put(transport.getKey(), Workloads.runWarmup(transport.getValue(), ns, args));
+        if (jfr != null && warmup != null) {
+          jfr.end(warmup);
+          warmups.put(transport.getKey(), warmup);
+        }
+      }
+      for (var i = 1; i <= args.getRepeats(); i++) {
+        runInterleavedOnce(args, ns, outDir, Runs.timeStamp() + "-rep" + i, i, jfr, warmups, warmedUp);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+      }
+    }
+    log.info("All interleaved runs complete. Artifacts available under {} for {}", outDir, transports.keySet());
   }
 
-  private void ensureNamespace(final String namespace) {
-    try {
-      if (client.namespaces().withName(namespace).get() == null) {
-        final var ns = new NamespaceBuilder().withNewMetadata().withName(namespace).endMetadata().build();
-        client.namespaces().resource(ns).create();
+  private void runInterleavedOnce(final HarnessArgs args, final String ns, final String outDir, final String runId,
+                                  final int repeat, @Nullable final JfrMonitor jfr,
+                                  final Map<String, JfrMonitor.Phase> warmups,
+                                  final Map<String, Warmup.Result> warmedUp) throws Exception {
+    final Path sharedDir = Paths.get(outDir, INTERLEAVED_DIR, runId);
+    Files.createDirectories(sharedDir);
+    final long sliceSeconds = Math.max(1, args.getSliceSeconds());
+    final long slices = Math.max(1, (args.getDurationSeconds() + sliceSeconds - 1) / sliceSeconds);
+    final var sliceArgs = args.toBuilder().durationSeconds(sliceSeconds).build();
+    // Alternate which transport leads each repeat so neither always runs right after the other
+    final List<String> order = new ArrayList<>(transports.keySet());
+    if (repeat % 2 == 0) Collections.reverse(order);
+    log.info("Starting interleaved run {}: {} slices of {}s each for {}", runId, slices, sliceSeconds, order);
+
+    final Map<String, OperationStats> stats = new LinkedHashMap<>();
+    final Map<String, RequestTracer.Trace> requests = new LinkedHashMap<>();
+    final Map<String, JfrMonitor.Phase> measures = new LinkedHashMap<>();
+    for (final var label : order) {
+      final var s = new OperationStats();
+      s.pause();
+      stats.put(label, s);
+      requests.put(label, RequestTracer.of(transports.get(label)).begin());
+    }
+
+    final var sampler = args.getSampleMillis() > 0 ? JvmSampler.start(sharedDir, args.getSampleMillis()) : null;
+    final long runStart = System.nanoTime();
+    try (var schedule = new PrintWriter(Files.newBufferedWriter(sharedDir.resolve("slices.csv")))) {
+      schedule.println("slice,transport,start_ms,end_ms");
+      for (long slice = 0; slice < slices; slice++) {
+        for (final var label : order) {
+          final var s = stats.get(label);
+          final long from = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStart);
+          if (jfr != null) {
+            final var phase = measures.get(label);
+            if (phase == null) {
+              measures.put(label, jfr.begin("measure"));
+            } else {
+              jfr.resume(phase);
+            }
+          }
+          s.resume();
+          Workloads.startWorkload(transports.get(label), ns, sliceArgs, s).get();
+          s.pause();
+          if (jfr != null) jfr.pause(measures.get(label));
+          schedule.printf(Locale.ROOT, "%d,%s,%d,%d%n", slice, label, from,
+              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStart));
+        }
+      }
+    }
+
+    for (final var label : order) {
+      final Path runDir = Paths.get(outDir, label, runId);
+      final var measure = measures.get(label);
+      if (jfr != null && measure != null) jfr.end(measure);
+      try {
+        stats.get(label).writeSnapshot(runDir.resolve("end"));
+        requests.get(label).write(runDir.resolve("end"));
+        warmedUp.get(label).write(runDir.resolve(Warmup.FILE_NAME));
+      } catch (Exception e) {
+        log.warn("Failed to write latency snapshot for {}: {}", label, e.toString());
+      }
+      final var warmup = warmups.get(label);
+      if (jfr != null && warmup != null && measure != null) {
+        try {
+          jfr.writeSummary(runDir, warmup, measure);
+        } catch (Exception e) {
+          log.warn("Failed to write JFR summary for {}: {}", label, e.toString());
+        }
       }
+    }
+    if (sampler != null) sampler.close();
+    if (args.isJcmdSnapshots()) {
+      Metrics.collectAllMetrics(sharedDir, "end");
+    }
+
+    cleanupRunConfigMaps(ns);
+    log.info("Completed interleaved run {}", runId);
+  }
+
+  private void snapshot(final Path runDir, final String phase, final OperationStats stats,
+                        final RequestTracer.Trace requests, final HarnessArgs args) {
+    if (args.isJcmdSnapshots()) {
+      Metrics.collectAllMetrics(runDir, phase);
+    }
+    try {
+      stats.writeSnapshot(runDir.resolve(phase));
+      requests.write(runDir.resolve(phase));
     } catch (Exception e) {
-      final var ns = new NamespaceBuilder().withNewMetadata().withName(namespace).endMetadata().build();
-      try { client.namespaces().resource(ns).create(); } catch (Exception ignored) { }
+      log.warn("Failed to write latency snapshot: {}", e.toString());
     }
   }
 
@@ -115,10 +289,4 @@ public class HarnessRunner {
     } catch (Exception ignored) {
     }
   }
-
-  private String timeStamp() {
-    final var df = new SimpleDateFormat("yyyyMMdd-HHmmss");
-    df.setTimeZone(TimeZone.getTimeZone("UTC"));
-    return df.format(new java.util.Date());
-  }
 }
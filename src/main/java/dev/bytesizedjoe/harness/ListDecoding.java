@@ -0,0 +1,208 @@
+package dev.bytesizedjoe.harness;
+
+import dev.bytesizedjoe.cli.ExecutionMode;
+import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.cli.ListMode;
+import dev.bytesizedjoe.k8s.RequestTracer;
+import dev.bytesizedjoe.k8s.Workloads;
+import dev.bytesizedjoe.metrics.LiveHeapPeak;
+import dev.bytesizedjoe.metrics.MemoryFootprint;
+import dev.bytesizedjoe.metrics.OperationStats;
+import dev.bytesizedjoe.mock.MockApiServer;
+import dev.bytesizedjoe.mock.StandInProcess;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * What decoding a pod list costs the client, per {@code --listModes} variant (see {@link ListMode}) and page
+ * size, across the {@code --listDatasets} stand-in sizes. Each dataset gets its own stand-in in a child JVM
+ * ({@link StandInProcess}), so its heap stays out of the figures, and one warmup. Each point then lists the
+ * whole dataset over and over on {@code --threads} blocking callers for {@code --step} seconds, after a
+ * discarded {@code --warmupWindow} that gets the variant's decoding path compiled.
+ * <p>
+ * Reported per point: pages/s, items/s, bytes allocated per item (caller plus transport threads, see
+ * {@code allocation.txt}) and peak live heap above the GC'd baseline: the most heap left after any GC during
+ * the point ({@link LiveHeapPeak}), so decoded pages still reachable count and eden filling up between young GCs
+ * doesn't. The {@code --threads} callers' listings overlap, so it is what that many concurrent listings keep
+ * alive at once. Page sizes are {@code --pageSizes}, or {@code --pageSize} and 0 (one unpaginated list of
+ * everything).
+ */
+@NullMarked
+@Slf4j
+public final class ListDecoding {
+  public static final String CSV = "lists.csv";
+  public static final String MARKDOWN = "lists.md";
+
+  private final Function<HarnessArgs, KubernetesClient> clients;
+
+  /** {@code clients} builds the client for each dataset's stand-in. */
+  public ListDecoding(final Function<HarnessArgs, KubernetesClient> clients) {
+    this.clients = clients;
+  }
+
+  public void run(final HarnessArgs args, final String label) throws Exception {
+    final var ns = args.getNamespace().orElse("ab-harness");
+    final Path dir = Paths.get(args.getOutputDir().orElse("out"), label, "lists-" + Runs.timeStamp());
+    Files.createDirectories(dir);
+    if (args.getExecutionMode() == ExecutionMode.ASYNC || !args.getRates().isEmpty()) {
+      log.warn("List decoding runs blocking closed-loop callers; --mode async and --rate are ignored");
+    }
+    if (args.isMock() || args.getProxyAddress().isPresent()) {
+      log.warn("List decoding forks its own stand-ins; --mock and the fault proxy are not used");
+    }
+    final List<ListMode> modes = args.getListModes().isEmpty() ? Arrays.asList(ListMode.values()) : args.getListModes();
+    final List<Integer> pageSizes = args.getPageSizes().isEmpty() ? List.of(args.getPageSize(), 0) : args.getPageSizes();
+    final List<Point> points = new ArrayList<>();
+    for (final int dataset : args.getListDatasets()) {
+      final var settings = MockApiServer.Settings.fromArgs(args).toBuilder().pods(dataset).watchEventsPerSecond(0).build();
+      try (var standIn = StandInProcess.start(settings, dir.resolve("standin-" + dataset + ".log"))) {
+        final var base = args.toBuilder()
+            .executionMode(args.getExecutionMode() == ExecutionMode.ASYNC ? ExecutionMode.PLATFORM : args.getExecutionMode())
+            .clearRates()
+            .masterUrl(Optional.of(standIn.url()))
+            .trustCerts(args.isTrustCerts() || args.isMockTls())
+            .proxyAddress(Optional.empty())
+            .build();
+        try (var client = clients.apply(base)) {
+          Runs.ensureNamespace(client, ns);
+          log.info("Lists {} with {} pods: warming up...", label, dataset);
+          Workloads.runWarmup(client, ns, base).write(dir.resolve("warmup-" + dataset + ".txt"));
+          for (final ListMode mode : modes) {
+            for (final int pageSize : pageSizes) {
+              points.add(runPoint(client, dataset, mode, pageSize, base, dir.resolve(String.valueOf(dataset))));
+            }
+          }
+        }
+      }
+    }
+    write(dir, label, args, points);
+    log.info("List decoding complete. Results in {}", dir.resolve(MARKDOWN));
+  }
+
+  private Point runPoint(final KubernetesClient client, final int dataset, final ListMode mode, final int pageSize,
+                         final HarnessArgs args, final Path dir) throws Exception {
+    list(client, mode, pageSize, args, Math.max(1, args.getWarmupWindowSeconds()), new OperationStats());
+    final var stats = new OperationStats();
+    final var requests = RequestTracer.of(client).begin();
+    final long baseline = MemoryFootprint.measure().getHeapUsed();
+    final long peak;
+    final long collections;
+    try (var live = LiveHeapPeak.start()) {
+      list(client, mode, pageSize, args, Math.max(1, args.getStepSeconds()), stats);
+      peak = live.peakBytes();
+      collections = live.collections();
+    }
+    final Path pointDir = dir.resolve(mode.name().toLowerCase(Locale.ROOT) + "-" + pageSize);
+    stats.writeSnapshot(pointDir);
+    requests.write(pointDir);
+
+    final String operation = mode.operation();
+    final Histogram latency = stats.latency(operation);
+    final long pages = latency.getTotalCount();
+    final long items = stats.counter(operation + ".items");
+    final double seconds = Math.max(1e-3, stats.activeSeconds());
+    final var point = new Point(dataset, mode, pageSize, pages / seconds, items / seconds,
+        pages > 0 ? stats.responseBytes(operation) / 1024.0 / pages : 0,
+        items > 0 ? stats.allocatedBytes(operation) / (double) items : Double.NaN,
+        peak >= 0 ? Math.max(0, peak - baseline) / (double) (1 << 20) : Double.NaN, collections,
+        pages > 0 ? latency.getValueAtPercentile(50) / 1e6 : Double.NaN,
+        pages > 0 ? latency.getValueAtPercentile(99) / 1e6 : Double.NaN, stats.totalErrors());
+    log.info("Lists {} pods, {} page={}: {} pages/s, {} items/s, {} B allocated/item, peak live heap +{} MB over {} GCs, {} errors",
+        dataset, mode, pageSize, String.format(Locale.ROOT, "%.1f", point.pagesPerSecond),
+        String.format(Locale.ROOT, "%.0f", point.itemsPerSecond), String.format(Locale.ROOT, "%.0f", point.bytesPerItem),
+        String.format(Locale.ROOT, "%.1f", point.peakHeapMb), point.gcs, point.errors);
+    return point;
+  }
+
+  /** Lists the whole dataset over and over on {@code --threads} callers for {@code seconds}. */
+  private void list(final KubernetesClient client, final ListMode mode, final int pageSize, final HarnessArgs args,
+                    final long seconds, final OperationStats stats) throws Exception {
+    final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    final ExecutorService pool = Workloads.newWorkerPool(args, "lists");
+    try {
+      final List<Future<?>> callers = new ArrayList<>();
+      for (var i = 0; i < Math.max(1, args.getWorkloadThreads()); i++) {
+        callers.add(pool.submit(() -> {
+          while (System.nanoTime() < end) {
+            try {
+              Workloads.listPods(client, pageSize, mode, 0, stats);
+            } catch (RuntimeException ignored) {
+              // Already counted as an error by OperationStats
+            }
+          }
+        }));
+      }
+      for (final Future<?> f : callers) f.get();
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private void write(final Path dir, final String label, final HarnessArgs args, final List<Point> points) throws IOException {
+    try (var csv = new PrintWriter(Files.newBufferedWriter(dir.resolve(CSV)))) {
+      csv.println("dataset,decoding,page_size,pages_s,items_s,kb_page,alloc_bytes_item,peak_live_heap_mb,gcs,p50_ms,p99_ms,errors");
+      for (final Point p : points) {
+        csv.printf(Locale.ROOT, "%d,%s,%d,%.2f,%.1f,%.2f,%.1f,%.1f,%d,%.3f,%.3f,%d%n", p.dataset,
+            p.mode.name().toLowerCase(Locale.ROOT), p.pageSize, p.pagesPerSecond, p.itemsPerSecond, p.kbPerPage,
+            p.bytesPerItem, p.peakHeapMb, p.gcs, p.p50Millis, p.p99Millis, p.errors);
+      }
+    }
+    try (var md = new PrintWriter(Files.newBufferedWriter(dir.resolve(MARKDOWN)))) {
+      md.printf(Locale.ROOT, "## List decoding: %s%n%n", label);
+      md.printf(Locale.ROOT, "%d s per point on %d callers, each listing the whole dataset over and over; their "
+              + "listings overlap. Page size 0 is one unpaginated list. Peak live heap is the most heap left after "
+              + "any GC in the point, above the GC'd baseline, so it is what %d concurrent listings keep reachable; "
+              + "`-` means no GC ran.%n",
+          Math.max(1, args.getStepSeconds()), Math.max(1, args.getWorkloadThreads()), Math.max(1, args.getWorkloadThreads()));
+      for (final int dataset : args.getListDatasets()) {
+        final List<Point> rows = points.stream().filter(p -> p.dataset == dataset).toList();
+        if (rows.isEmpty()) continue;
+        md.printf(Locale.ROOT, "%n### %d pods%n%n", dataset);
+        md.println("| Decoding | Page size | pages/s | items/s | KB/page | B alloc/item | Peak live heap MB | GCs | p50 ms | p99 ms | Errors |");
+        md.println("|---|---:|---:|---:|---:|---:|---:|---:|---:|---:|---:|");
+        for (final Point p : rows) {
+          md.printf(Locale.ROOT, "| %s | %d | %.1f | %.0f | %.1f | %.0f | %s | %d | %.2f | %.2f | %d |%n",
+              p.mode.name().toLowerCase(Locale.ROOT), p.pageSize, p.pagesPerSecond, p.itemsPerSecond, p.kbPerPage,
+              p.bytesPerItem, Double.isNaN(p.peakHeapMb) ? "-" : String.format(Locale.ROOT, "%.1f", p.peakHeapMb),
+              p.gcs, p.p50Millis, p.p99Millis, p.errors);
+        }
+      }
+    }
+  }
+
+  @Value
+  static class Point {
+    int dataset;
+    ListMode mode;
+    int pageSize;
+    double pagesPerSecond;
+    double itemsPerSecond;
+    double kbPerPage;
+    /** Bytes allocated per listed item, caller and transport threads; NaN where allocation isn't measured. */
+    double bytesPerItem;
+    /** Most heap left after a GC during the point, above the baseline; NaN if no GC ran. */
+    double peakHeapMb;
+    long gcs;
+    double p50Millis;
+    double p99Millis;
+    long errors;
+  }
+}
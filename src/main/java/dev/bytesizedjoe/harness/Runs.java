@@ -0,0 +1,41 @@
+package dev.bytesizedjoe.harness;
+
+import io.fabric8.kubernetes.api.model.Namespace;
+import io.fabric8.kubernetes.api.model.NamespaceBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/** What every mode does before it runs: name its output directory and make sure its namespace exists. */
+@NullMarked
+@Slf4j
+@UtilityClass
+class Runs {
+  /** UTC {@code yyyyMMdd-HHmmss}, the suffix of every run and mode directory. */
+  String timeStamp() {
+    final var df = new SimpleDateFormat("yyyyMMdd-HHmmss");
+    df.setTimeZone(TimeZone.getTimeZone("UTC"));
+    return df.format(new Date());
+  }
+
+  /** Creates {@code namespace} unless it exists; also tries when it can't be read, e.g. without get rights on namespaces. */
+  void ensureNamespace(final KubernetesClient client, final String namespace) {
+    final Namespace ns = new NamespaceBuilder().withNewMetadata().withName(namespace).endMetadata().build();
+    try {
+      if (client.namespaces().withName(namespace).get() == null) {
+        client.namespaces().resource(ns).create();
+      }
+    } catch (Exception e) {
+      try {
+        client.namespaces().resource(ns).create();
+      } catch (Exception ignored) {
+        log.debug("Could not ensure namespace {}: {}", namespace, e.toString());
+      }
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package dev.bytesizedjoe.harness;
+
+import dev.bytesizedjoe.cli.ExecutionMode;
+import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.k8s.RequestTracer;
+import dev.bytesizedjoe.k8s.Workloads;
+import dev.bytesizedjoe.metrics.OperationStats;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Walks a grid of client request limits × workload concurrency in one invocation and records throughput
+ * and latency at each step, to find where a transport saturates.
+ * <p>
+ * For each limit a fresh client is built, warmed up, and the closed-loop workload (or the async window with
+ * {@code --mode async}) is run for {@code --step} seconds at each concurrency level. The knee of each curve
+ * is the step with the highest power (throughput divided by p99, Kleinrock's measure): beyond it, added
+ * concurrency buys latency rather than throughput. Steps that gain less than 5% throughput over the
+ * previous one while p99 rises are marked saturated.
+ */
+@NullMarked
+@Slf4j
+public final class SaturationSweep {
+  public static final String CSV = "sweep.csv";
+  public static final String MARKDOWN = "sweep.md";
+  /** The closed loop always runs its three operation types, each on its own thread. */
+  static final int MIN_THREADS = 3;
+  private static final double FLAT_GAIN = 0.05;
+
+  private final Function<HarnessArgs, KubernetesClient> clients;
+
+  /** {@code clients} builds a client for the given (limit-adjusted) arguments. */
+  public SaturationSweep(final Function<HarnessArgs, KubernetesClient> clients) {
+    this.clients = clients;
+  }
+
+  public void run(final HarnessArgs args, final String label) throws Exception {
+    final var ns = args.getNamespace().orElse("ab-harness");
+    final Path dir = Paths.get(args.getOutputDir().orElse("out"), label, "sweep-" + Runs.timeStamp());
+    Files.createDirectories(dir);
+    if (!args.getRates().isEmpty()) {
+      log.warn("--rate is ignored by the sweep; it drives the closed loop (or async window) at each concurrency");
+    }
+    final List<Integer> limits = args.getSweepLimits().isEmpty()
+        ? List.of(args.getMaxConcurrentRequestsPerHost())
+        : args.getSweepLimits();
+
+    final List<Step> steps = new ArrayList<>();
+    for (final int limit : limits) {
+      final var base = args.toBuilder()
+          .maxConcurrentRequests(limit)
+          .maxConcurrentRequestsPerHost(limit)
+          .clearRates()
+          .durationSeconds(Math.max(1, args.getStepSeconds()))
+          .build();
+      try (var client = clients.apply(base)) {
+        Runs.ensureNamespace(client, ns);
+        log.info("Sweep {} limit={}: warming up...", label, limit);
+        Workloads.runWarmup(client, ns, base).write(dir.resolve("warmup-" + limit + ".txt"));
+        for (final int concurrency : args.getSweepConcurrency()) {
+          steps.add(runStep(client, ns, base, limit, concurrency, dir));
+        }
+      }
+    }
+    final List<Step> marked = markKnees(steps);
+    write(dir, label, args, marked);
+    log.info("Sweep complete. Curve in {}", dir.resolve(MARKDOWN));
+  }
+
+  private Step runStep(final KubernetesClient client, final String ns, final HarnessArgs base, final int limit,
+                       final int concurrency, final Path dir) throws Exception {
+    final var stepArgs = base.getExecutionMode() == ExecutionMode.ASYNC
+        ? base.toBuilder().maxInFlight(concurrency).build()
+        : base.toBuilder().workloadThreads(Math.max(MIN_THREADS, concurrency)).build();
+    final var stats = new OperationStats();
+    final var requests = RequestTracer.of(client).begin();
+    Workloads.startWorkload(client, ns, stepArgs, stats).get();
+    stats.writeSnapshot(dir.resolve("step-" + limit + "-" + concurrency));
+    requests.write(dir.resolve("step-" + limit + "-" + concurrency));
+
+    final Histogram latency = stats.combinedLatency();
+    final double seconds = Math.max(1e-3, stats.activeSeconds());
+    final var step = new Step(limit, concurrency, latency.getTotalCount() / seconds,
+        latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(99) / 1e6, stats.totalErrors(),
+        false, false);
+    log.info("Sweep limit={} concurrency={}: {} ops/s, p50 {} ms, p99 {} ms, {} errors", limit, concurrency,
+        String.format(Locale.ROOT, "%.1f", step.opsPerSecond), String.format(Locale.ROOT, "%.2f", step.p50Millis),
+        String.format(Locale.ROOT, "%.2f", step.p99Millis), step.errors);
+    return step;
+  }
+
+  /** Marks, per limit, the knee (highest throughput/p99) and the steps that only added latency. */
+  static List<Step> markKnees(final List<Step> steps) {
+    final List<Step> out = new ArrayList<>();
+    for (final int limit : steps.stream().map(Step::getLimit).distinct().toList()) {
+      final List<Step> curve = steps.stream().filter(s -> s.limit == limit).toList();
+      int knee = 0;
+      for (var i = 1; i < curve.size(); i++) {
+        if (curve.get(i).power() > curve.get(knee).power()) knee = i;
+      }
+      for (var i = 0; i < curve.size(); i++) {
+        final Step s = curve.get(i);
+        boolean saturated = false;
+        if (i > 0) {
+          final Step prev = curve.get(i - 1);
+          saturated = s.opsPerSecond < prev.opsPerSecond * (1 + FLAT_GAIN) && s.p99Millis > prev.p99Millis;
+        }
+        out.add(new Step(s.limit, s.concurrency, s.opsPerSecond, s.p50Millis, s.p99Millis, s.errors, i == knee, saturated));
+      }
+    }
+    return out;
+  }
+
+  private void write(final Path dir, final String label, final HarnessArgs args, final List<Step> steps) throws IOException {
+    try (var csv = new PrintWriter(Files.newBufferedWriter(dir.resolve(CSV)))) {
+      csv.println("limit,concurrency,ops_s,p50_ms,p99_ms,errors,power,knee,saturated");
+      for (final Step s : steps) {
+        csv.printf(Locale.ROOT, "%d,%d,%.2f,%.3f,%.3f,%d,%.3f,%b,%b%n", s.limit, s.concurrency, s.opsPerSecond,
+            s.p50Millis, s.p99Millis, s.errors, s.power(), s.knee, s.saturated);
+      }
+    }
+    final double maxOps = steps.stream().mapToDouble(Step::getOpsPerSecond).max().orElse(1);
+    try (var md = new PrintWriter(Files.newBufferedWriter(dir.resolve(MARKDOWN)))) {
+      md.printf(Locale.ROOT, "## Saturation sweep: %s%n%n", label);
+      md.printf(Locale.ROOT, "Mode `%s`, %d s per step; concurrency is %s. Knee = highest ops/s ÷ p99.%n",
+          args.getExecutionMode().name().toLowerCase(Locale.ROOT), Math.max(1, args.getStepSeconds()),
+          args.getExecutionMode() == ExecutionMode.ASYNC ? "requests in flight" : "workload threads (at least 3)");
+      for (final int limit : steps.stream().map(Step::getLimit).distinct().toList()) {
+        md.printf(Locale.ROOT, "%n### maxRequests = maxRequestsPerHost = %d%n%n", limit);
+        md.println("| Concurrency | ops/s | p50 ms | p99 ms | Errors | Throughput | |");
+        md.println("|---:|---:|---:|---:|---:|---|---|");
+        for (final Step s : steps) {
+          if (s.limit != limit) continue;
+          md.printf(Locale.ROOT, "| %d | %.1f | %.2f | %.2f | %d | `%s` | %s |%n", s.concurrency, s.opsPerSecond,
+              s.p50Millis, s.p99Millis, s.errors, "#".repeat((int) Math.round(20 * s.opsPerSecond / Math.max(1e-9, maxOps))),
+              s.knee ? "**knee**" : s.saturated ? "saturated" : "");
+        }
+      }
+    }
+  }
+
+
+  @Value
+  static class Step {
+    int limit;
+    int concurrency;
+    double opsPerSecond;
+    double p50Millis;
+    double p99Millis;
+    long errors;
+    boolean knee;
+    boolean saturated;
+
+    double power() {
+      return p99Millis > 0 ? opsPerSecond / p99Millis : 0;
+    }
+  }
+}
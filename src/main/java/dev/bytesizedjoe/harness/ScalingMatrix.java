@@ -0,0 +1,193 @@
+package dev.bytesizedjoe.harness;
+
+import dev.bytesizedjoe.cli.ExecutionMode;
+import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.k8s.PayloadPool;
+import dev.bytesizedjoe.k8s.RequestTracer;
+import dev.bytesizedjoe.k8s.Warmup;
+import dev.bytesizedjoe.k8s.Workloads;
+import dev.bytesizedjoe.metrics.OperationStats;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Latency and throughput as objects grow, which is where the transports' buffer handling differs. After one
+ * warmup, each point runs for {@code --step} seconds on {@code --threads} blocking callers:
+ * <ul>
+ *   <li>{@code payload}: only the ConfigMap churn, with values of each {@code --payloadSizes} size, updated
+ *   the {@code --write} way; measured on the update operation</li>
+ *   <li>{@code page}: only the pod listing, decoded the {@code --list} way, at each {@code --pageSizes} page
+ *   size; 0 lists the whole dataset in one response, so with the stand-in {@code --mockPods} sets its size</li>
+ * </ul>
+ * Payloads come from {@link PayloadPool}, generated before the point starts. Each curve also gets the
+ * least-squares p50 cost of one more MiB of body.
+ */
+@NullMarked
+@Slf4j
+public final class ScalingMatrix {
+  public static final String CSV = "matrix.csv";
+  public static final String MARKDOWN = "matrix.md";
+  static final String PAYLOAD = "payload";
+  static final String PAGE = "page";
+
+  private final Function<HarnessArgs, KubernetesClient> clients;
+
+  /** {@code clients} builds the client the whole matrix runs on. */
+  public ScalingMatrix(final Function<HarnessArgs, KubernetesClient> clients) {
+    this.clients = clients;
+  }
+
+  public void run(final HarnessArgs args, final String label) throws Exception {
+    final var ns = args.getNamespace().orElse("ab-harness");
+    final Path dir = Paths.get(args.getOutputDir().orElse("out"), label, "matrix-" + Runs.timeStamp());
+    Files.createDirectories(dir);
+    if (args.getExecutionMode() == ExecutionMode.ASYNC || !args.getRates().isEmpty()) {
+      log.warn("The matrix runs blocking closed-loop callers; --mode async and --rate are ignored");
+    }
+    final var base = args.toBuilder()
+        .executionMode(args.getExecutionMode() == ExecutionMode.ASYNC ? ExecutionMode.PLATFORM : args.getExecutionMode())
+        .clearRates()
+        .build();
+    final List<Point> points = new ArrayList<>();
+    try (var client = clients.apply(base)) {
+      Runs.ensureNamespace(client, ns);
+      log.info("Matrix {}: warming up...", label);
+      Workloads.runWarmup(client, ns, base).write(dir.resolve(Warmup.FILE_NAME));
+      for (final int size : args.getPayloadSizes()) {
+        PayloadPool.prepare(size);
+        final var stepArgs = base.toBuilder().payloadBytes(size).build();
+        points.add(runPoint(client, PAYLOAD, size, args.getWriteMode().operation(), stepArgs, dir,
+            stats -> () -> Workloads.createUpdateDeleteConfigMapOnce(client, ns, stepArgs, stats)));
+      }
+      for (final int pageSize : args.getPageSizes()) {
+        final var stepArgs = base.toBuilder().pageSize(pageSize).build();
+        points.add(runPoint(client, PAGE, pageSize, args.getListMode().operation(), stepArgs, dir,
+            stats -> () -> Workloads.runPaginatedPodList(client, pageSize, args.getListMode(), stats)));
+      }
+    }
+    write(dir, label, args, points);
+    log.info("Matrix complete. Curves in {}", dir.resolve(MARKDOWN));
+  }
+
+  private Point runPoint(final KubernetesClient client, final String dimension, final int size, final String operation,
+                         final HarnessArgs args, final Path dir, final Function<OperationStats, Runnable> calls)
+      throws Exception {
+    final var stats = new OperationStats();
+    final var requests = RequestTracer.of(client).begin();
+    final Runnable call = calls.apply(stats);
+    final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(1, args.getStepSeconds()));
+    final ExecutorService pool = Workloads.newWorkerPool(args, "matrix");
+    try {
+      final List<Future<?>> callers = new ArrayList<>();
+      for (var i = 0; i < Math.max(1, args.getWorkloadThreads()); i++) {
+        callers.add(pool.submit(() -> {
+          while (System.nanoTime() < end) {
+            try {
+              call.run();
+            } catch (RuntimeException ignored) {
+              // Already counted as an error by OperationStats
+            }
+          }
+        }));
+      }
+      for (final Future<?> f : callers) f.get();
+    } finally {
+      pool.shutdownNow();
+    }
+    stats.writeSnapshot(dir.resolve(dimension + "-" + size));
+    requests.write(dir.resolve(dimension + "-" + size));
+
+    final Histogram latency = stats.latency(operation);
+    final long count = latency.getTotalCount();
+    final double seconds = Math.max(1e-3, stats.activeSeconds());
+    final long bytes = stats.requestBytes(operation) + stats.responseBytes(operation);
+    final var point = new Point(dimension, size, operation, count / seconds,
+        count > 0 ? bytes / 1024.0 / count : 0, bytes / seconds / (1 << 20),
+        count > 0 ? latency.getValueAtPercentile(50) / 1e6 : Double.NaN,
+        count > 0 ? latency.getValueAtPercentile(99) / 1e6 : Double.NaN, stats.totalErrors());
+    log.info("Matrix {}={}: {} {} ops/s, {} KB/op, p50 {} ms, p99 {} ms, {} errors", dimension, size, operation,
+        String.format(Locale.ROOT, "%.1f", point.opsPerSecond), String.format(Locale.ROOT, "%.1f", point.kbPerOp),
+        String.format(Locale.ROOT, "%.2f", point.p50Millis), String.format(Locale.ROOT, "%.2f", point.p99Millis),
+        point.errors);
+    return point;
+  }
+
+  /** Least-squares slope of p50 over body size in one curve, as ms per MiB; NaN with fewer than two sizes. */
+  static double msPerMiB(final List<Point> curve) {
+    final List<Point> measured = curve.stream().filter(p -> !Double.isNaN(p.p50Millis)).toList();
+    if (measured.size() < 2) return Double.NaN;
+    final double meanX = measured.stream().mapToDouble(p -> p.kbPerOp / 1024).average().orElse(0);
+    final double meanY = measured.stream().mapToDouble(Point::getP50Millis).average().orElse(0);
+    double num = 0;
+    double den = 0;
+    for (final Point p : measured) {
+      final double x = p.kbPerOp / 1024 - meanX;
+      num += x * (p.p50Millis - meanY);
+      den += x * x;
+    }
+    return den > 0 ? num / den : Double.NaN;
+  }
+
+  private void write(final Path dir, final String label, final HarnessArgs args, final List<Point> points) throws IOException {
+    try (var csv = new PrintWriter(Files.newBufferedWriter(dir.resolve(CSV)))) {
+      csv.println("dimension,size,operation,ops_s,kb_op,mb_s,p50_ms,p99_ms,errors");
+      for (final Point p : points) {
+        csv.printf(Locale.ROOT, "%s,%d,%s,%.2f,%.2f,%.3f,%.3f,%.3f,%d%n", p.dimension, p.size, p.operation,
+            p.opsPerSecond, p.kbPerOp, p.mbPerSecond, p.p50Millis, p.p99Millis, p.errors);
+      }
+    }
+    try (var md = new PrintWriter(Files.newBufferedWriter(dir.resolve(MARKDOWN)))) {
+      md.printf(Locale.ROOT, "## Scaling matrix: %s%n%n", label);
+      md.printf(Locale.ROOT, "%d s per point on %d callers. KB/op is request plus response body.%n",
+          Math.max(1, args.getStepSeconds()), Math.max(1, args.getWorkloadThreads()));
+      for (final String dimension : List.of(PAYLOAD, PAGE)) {
+        final List<Point> curve = points.stream().filter(p -> p.dimension.equals(dimension)).toList();
+        if (curve.isEmpty()) continue;
+        final double maxP99 = curve.stream().mapToDouble(Point::getP99Millis).filter(v -> !Double.isNaN(v)).max().orElse(1);
+        md.printf(Locale.ROOT, "%n### %s%n%n", PAYLOAD.equals(dimension)
+            ? "ConfigMap payload (`" + args.getWriteMode().operation() + "`), raw bytes"
+            : "Pod list page size (`" + args.getListMode().operation() + "`), 0 = unpaginated");
+        md.println("| Size | KB/op | ops/s | MB/s | p50 ms | p99 ms | Errors | p99 |");
+        md.println("|---:|---:|---:|---:|---:|---:|---:|---|");
+        for (final Point p : curve) {
+          md.printf(Locale.ROOT, "| %d | %.1f | %.1f | %.2f | %.2f | %.2f | %d | `%s` |%n", p.size, p.kbPerOp,
+              p.opsPerSecond, p.mbPerSecond, p.p50Millis, p.p99Millis, p.errors,
+              Double.isNaN(p.p99Millis) ? "" : "#".repeat((int) Math.round(20 * p.p99Millis / Math.max(1e-9, maxP99))));
+        }
+        final double slope = msPerMiB(curve);
+        if (!Double.isNaN(slope)) {
+          md.printf(Locale.ROOT, "%np50 grows by %.2f ms per extra MiB of body.%n", slope);
+        }
+      }
+    }
+  }
+
+  @Value
+  static class Point {
+    String dimension;
+    int size;
+    String operation;
+    double opsPerSecond;
+    double kbPerOp;
+    double mbPerSecond;
+    double p50Millis;
+    double p99Millis;
+    long errors;
+  }
+}
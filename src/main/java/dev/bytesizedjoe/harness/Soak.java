@@ -0,0 +1,319 @@
+package dev.bytesizedjoe.harness;
+
+import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.k8s.PodWatches;
+import dev.bytesizedjoe.k8s.Warmup;
+import dev.bytesizedjoe.k8s.Workloads;
+import dev.bytesizedjoe.metrics.MemoryFootprint;
+import dev.bytesizedjoe.metrics.NativeMemory;
+import dev.bytesizedjoe.metrics.OperationStats;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Runs the workload for {@code --soak} (hours, typically) to catch what a two-minute run can't: direct buffers
+ * that are never freed, threads that keep growing, watches that leak on reconnect. Alongside the request
+ * workload it holds {@code --watches} pod watches and closes and reopens them every {@code --soakWatchRestart}
+ * seconds; every {@code --soakClientChurn} seconds it closes the client and builds a new one, whose
+ * predecessor's resources should then be released.
+ * <p>
+ * Every {@code --soakSample} seconds it records heap after GC, JDK direct buffers, Netty's direct counter and
+ * pooled allocator usage (looked up in the transport's own classloader), NMT committed memory, threads and
+ * open file descriptors to {@link #CSV}. At the end each resource gets a least-squares growth slope over the
+ * samples after the first tenth of the soak (startup and warmup transients). A resource whose slope is more
+ * than {@code --leakThreshold} percent of its mean per hour, with the fit explaining at least half the
+ * variance, is flagged as growing in {@link #MARKDOWN} and the log.
+ */
+@NullMarked
+@Slf4j
+public final class Soak {
+  public static final String CSV = "soak.csv";
+  public static final String MARKDOWN = "soak.md";
+  public static final String RESTARTS_CSV = "watch-restarts.csv";
+  static final List<String> RESOURCES = List.of("heap_bytes", "direct_bytes", "netty_direct", "netty_pooled_direct",
+      "netty_pooled_heap", "threads", "fds", "nmt_total", "nmt_thread", "nmt_other");
+  /** Share of the soak left out of the trend fit so startup and warmup don't read as growth. */
+  static final double SETTLE_FRACTION = 0.1;
+  /** Minimum coefficient of determination for a slope to count as a trend rather than noise. */
+  static final double MIN_R2 = 0.5;
+
+  private final Function<HarnessArgs, KubernetesClient> clients;
+
+  /** {@code clients} builds the soak's client, and each replacement on churn. */
+  public Soak(final Function<HarnessArgs, KubernetesClient> clients) {
+    this.clients = clients;
+  }
+
+  public void run(final HarnessArgs args, final String label) throws Exception {
+    final var ns = args.getNamespace().orElse("ab-harness");
+    final Path dir = Paths.get(args.getOutputDir().orElse("out"), label, "soak-" + Runs.timeStamp());
+    Files.createDirectories(dir);
+    final long sampleNanos = TimeUnit.SECONDS.toNanos(Math.max(1, args.getSoakSampleSeconds()));
+    final long restartNanos = TimeUnit.SECONDS.toNanos(args.getSoakWatchRestartSeconds());
+    final long churnSeconds = args.getSoakClientChurnSeconds();
+    final var stats = new OperationStats();
+    final List<Sample> samples = new ArrayList<>();
+    int generation = 1;
+    long restarts = 0;
+
+    KubernetesClient client = clients.apply(args);
+    try (var csv = new PrintWriter(Files.newBufferedWriter(dir.resolve(CSV)));
+         var reopens = new PrintWriter(Files.newBufferedWriter(dir.resolve(RESTARTS_CSV)))) {
+      csv.println("elapsed_s,generation,ops,errors,watch_reconnects," + String.join(",", RESOURCES));
+      reopens.println("elapsed_s,generation,cause,requested,opened,open_ms");
+      Runs.ensureNamespace(client, ns);
+      Workloads.runWarmup(client, ns, args).write(dir.resolve(Warmup.FILE_NAME));
+      log.info("Soak {}: {} s, sampling every {} s, watch restarts every {} s, client churn every {} s", label,
+          args.getSoakSeconds(), args.getSoakSampleSeconds(), args.getSoakWatchRestartSeconds(), churnSeconds);
+
+      final long start = System.nanoTime();
+      final long end = start + TimeUnit.SECONDS.toNanos(args.getSoakSeconds());
+      PodWatches watches = PodWatches.open(client, Math.max(1, args.getWatchCount()), stats, dir);
+      CompletableFuture<Void> workload = Workloads.startWorkload(client, ns, segment(args, end), stats);
+      long nextSample = start;
+      long nextRestart = start + restartNanos;
+      while (true) {
+        final long now = System.nanoTime();
+        if (now >= nextSample) {
+          final var sample = sample(client, stats, (now - start) / 1e9, generation);
+          samples.add(sample);
+          sample.writeTo(csv);
+          csv.flush();
+          nextSample += sampleNanos;
+        }
+        if (now >= end) break;
+        if (restartNanos > 0 && now >= nextRestart) {
+          watches.close();
+          watches = reopen(client, args, stats, reopens, (now - start) / 1e9, generation, "restart");
+          restarts++;
+          nextRestart += restartNanos;
+        }
+        if (workload.isDone()) {
+          finish(workload);
+          if (churnSeconds > 0) {
+            watches.close();
+            client.close();
+            client = clients.apply(args);
+            generation++;
+            log.info("Soak {}: client generation {} after {} s", label, generation, (now - start) / 1_000_000_000L);
+            watches = reopen(client, args, stats, reopens, (now - start) / 1e9, generation, "churn");
+          }
+          workload = Workloads.startWorkload(client, ns, segment(args, end), stats);
+        }
+        TimeUnit.MILLISECONDS.sleep(Math.max(1, Math.min(1000, TimeUnit.NANOSECONDS.toMillis(
+            Math.min(nextSample, end) - System.nanoTime()))));
+      }
+      finish(workload);
+      watches.close();
+    } finally {
+      client.close();
+    }
+    stats.writeSnapshot(dir.resolve("end"));
+
+    final List<Trend> trends = RESOURCES.stream()
+        .map(r -> trend(samples, r, args.getLeakThresholdPercent())).toList();
+    write(dir, label, args, samples, trends, stats, generation, restarts);
+    trends.stream().filter(Trend::isGrowing).forEach(t -> log.warn("Soak {}: {} grows {}%/h ({} per hour, R²={})",
+        label, t.resource, String.format(Locale.ROOT, "%.1f", t.percentPerHour),
+        String.format(Locale.ROOT, "%.0f", t.slopePerHour), String.format(Locale.ROOT, "%.2f", t.r2)));
+    log.info("Soak complete: {} of {} resources growing. Trends in {}", trends.stream().filter(Trend::isGrowing).count(),
+        trends.size(), dir.resolve(MARKDOWN));
+  }
+
+  /**
+   * Opens a new watch set without the footprint measurement of the first, whose forced GCs would show up in
+   * the samples every restart, and appends its open time to {@link #RESTARTS_CSV}.
+   */
+  private static PodWatches reopen(final KubernetesClient client, final HarnessArgs args, final OperationStats stats,
+                                   final PrintWriter reopens, final double elapsedSeconds, final int generation,
+                                   final String cause) {
+    final int count = Math.max(1, args.getWatchCount());
+    final var watches = PodWatches.open(client, count, stats);
+    reopens.printf(Locale.ROOT, "%.0f,%d,%s,%d,%d,%d%n", elapsedSeconds, generation, cause, count, watches.size(),
+        watches.openMillis());
+    reopens.flush();
+    return watches;
+  }
+
+  /** The workload until the next client churn, or until the soak ends. */
+  private static HarnessArgs segment(final HarnessArgs args, final long endNanos) {
+    final long remaining = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(endNanos - System.nanoTime()));
+    final long churn = args.getSoakClientChurnSeconds();
+    return args.toBuilder().durationSeconds(churn > 0 ? Math.min(churn, remaining) : remaining).build();
+  }
+
+  private static void finish(final CompletableFuture<Void> workload) throws InterruptedException {
+    try {
+      workload.get();
+    } catch (ExecutionException e) {
+      log.warn("Soak workload segment failed: {}", String.valueOf(e.getCause()));
+    }
+  }
+
+  private static Sample sample(final KubernetesClient client, final OperationStats stats, final double elapsedSeconds,
+                               final int generation) {
+    final MemoryFootprint footprint = MemoryFootprint.measure();
+    final Map<String, Long> nmt = NativeMemory.committed();
+    final ClassLoader transport = client.getHttpClient().getClass().getClassLoader();
+    return new Sample(elapsedSeconds, generation, stats.combinedLatency().getTotalCount(), stats.totalErrors(),
+        stats.counter("watch.reconnects"), footprint.getHeapUsed(), footprint.getDirectUsed(),
+        netty(transport, "io.netty.util.internal.PlatformDependent", "usedDirectMemory", false),
+        netty(transport, "io.netty.buffer.PooledByteBufAllocator", "usedDirectMemory", true),
+        netty(transport, "io.netty.buffer.PooledByteBufAllocator", "usedHeapMemory", true),
+        footprint.getThreads(), openFileDescriptors(), NativeMemory.committed(nmt, NativeMemory.TOTAL),
+        NativeMemory.committed(nmt, NativeMemory.THREAD), NativeMemory.committed(nmt, NativeMemory.OTHER));
+  }
+
+  /**
+   * A Netty memory figure from the transport's classloader: a static method of {@code className}, or with
+   * {@code pooled} the method of {@code PooledByteBufAllocator.DEFAULT.metric()}; -1 without Netty.
+   */
+  private static long netty(final ClassLoader loader, final String className, final String method, final boolean pooled) {
+    try {
+      final Class<?> type = Class.forName(className, false, loader);
+      final Object target = pooled
+          ? type.getMethod("metric").invoke(type.getField("DEFAULT").get(null))
+          : null;
+      final Object value = (target != null ? target.getClass() : type).getMethod(method).invoke(target);
+      return value instanceof Long l ? l : -1;
+    } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+      return -1;
+    }
+  }
+
+  private static long openFileDescriptors() {
+    return ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.UnixOperatingSystemMXBean unix
+        ? unix.getOpenFileDescriptorCount()
+        : -1;
+  }
+
+  /**
+   * Least-squares growth of {@code resource} per hour over the samples after {@link #SETTLE_FRACTION} of the soak,
+   * flagged as growing when it exceeds {@code thresholdPercent} of the mean per hour with R² of at least
+   * {@link #MIN_R2}. NaN slope when the resource wasn't available or fewer than three samples remain.
+   */
+  static Trend trend(final List<Sample> samples, final String resource, final double thresholdPercent) {
+    final double last = samples.isEmpty() ? 0 : samples.get(samples.size() - 1).elapsedSeconds;
+    final List<Sample> fitted = samples.stream()
+        .filter(s -> s.elapsedSeconds >= SETTLE_FRACTION * last).toList();
+    if (fitted.size() < 3 || fitted.stream().anyMatch(s -> s.value(resource) < 0)) {
+      return new Trend(resource, -1, -1, Double.NaN, Double.NaN, Double.NaN, false);
+    }
+    final double meanX = fitted.stream().mapToDouble(s -> s.elapsedSeconds / 3600).average().orElse(0);
+    final double meanY = fitted.stream().mapToDouble(s -> s.value(resource)).average().orElse(0);
+    double sxy = 0;
+    double sxx = 0;
+    double syy = 0;
+    for (final Sample s : fitted) {
+      final double x = s.elapsedSeconds / 3600 - meanX;
+      final double y = s.value(resource) - meanY;
+      sxy += x * y;
+      sxx += x * x;
+      syy += y * y;
+    }
+    final double slope = sxx > 0 ? sxy / sxx : Double.NaN;
+    final double r2 = sxx > 0 && syy > 0 ? sxy * sxy / (sxx * syy) : 0;
+    final double percent = meanY > 0 ? 100 * slope / meanY : Double.NaN;
+    return new Trend(resource, fitted.get(0).value(resource), fitted.get(fitted.size() - 1).value(resource), slope,
+        percent, r2, percent > thresholdPercent && r2 >= MIN_R2);
+  }
+
+  private void write(final Path dir, final String label, final HarnessArgs args, final List<Sample> samples,
+                     final List<Trend> trends, final OperationStats stats, final int generations, final long restarts)
+      throws IOException {
+    try (var md = new PrintWriter(Files.newBufferedWriter(dir.resolve(MARKDOWN)))) {
+      md.printf(Locale.ROOT, "## Soak: %s%n%n", label);
+      final Histogram latency = stats.combinedLatency();
+      final double seconds = Math.max(1e-3, stats.activeSeconds());
+      md.printf(Locale.ROOT, "%.1f h, %d samples, %d client generations, %d watch restarts. Workload: %.1f ops/s, "
+              + "p50 %.2f ms, p99 %.2f ms, %d errors.%n", seconds / 3600, samples.size(), generations, restarts,
+          latency.getTotalCount() / seconds, latency.getValueAtPercentile(50) / 1e6,
+          latency.getValueAtPercentile(99) / 1e6, stats.totalErrors());
+      md.printf(Locale.ROOT, "%nFitted over the samples after the first %.0f%% of the soak. Growing: over %s%% of "
+          + "the mean per hour with R² ≥ %.1f. NMT columns need `-XX:NativeMemoryTracking=summary`.%n%n",
+          100 * SETTLE_FRACTION, number(args.getLeakThresholdPercent()), MIN_R2);
+      md.println("| Resource | First | Last | Slope per hour | % per hour | R² | Verdict |");
+      md.println("|---|---:|---:|---:|---:|---:|---|");
+      for (final Trend t : trends) {
+        md.printf(Locale.ROOT, "| %s | %s | %s | %s | %s | %s | %s |%n", t.resource,
+            t.first < 0 ? "-" : Long.toString(t.first), t.last < 0 ? "-" : Long.toString(t.last),
+            number(t.slopePerHour), number(t.percentPerHour), Double.isNaN(t.r2) ? "-" : String.format(Locale.ROOT, "%.2f", t.r2),
+            Double.isNaN(t.slopePerHour) ? "n/a" : t.growing ? "**growing**" : "flat");
+      }
+    }
+  }
+
+  private static String number(final double value) {
+    return Double.isNaN(value) ? "-" : String.format(Locale.ROOT, "%.1f", value);
+  }
+
+  @Value
+  static class Trend {
+    String resource;
+    long first;
+    long last;
+    double slopePerHour;
+    double percentPerHour;
+    double r2;
+    boolean growing;
+  }
+
+  @Value
+  static class Sample {
+    double elapsedSeconds;
+    int generation;
+    long ops;
+    long errors;
+    long watchReconnects;
+    long heapUsed;
+    long directUsed;
+    long nettyDirect;
+    long nettyPooledDirect;
+    long nettyPooledHeap;
+    long threads;
+    long fds;
+    long nmtTotal;
+    long nmtThread;
+    long nmtOther;
+
+    long value(final String resource) {
+      return switch (resource) {
+        case "heap_bytes" -> heapUsed;
+        case "direct_bytes" -> directUsed;
+        case "netty_direct" -> nettyDirect;
+        case "netty_pooled_direct" -> nettyPooledDirect;
+        case "netty_pooled_heap" -> nettyPooledHeap;
+        case "threads" -> threads;
+        case "fds" -> fds;
+        case "nmt_total" -> nmtTotal;
+        case "nmt_thread" -> nmtThread;
+        case "nmt_other" -> nmtOther;
+        default -> throw new IllegalArgumentException("Unknown resource " + resource);
+      };
+    }
+
+    void writeTo(final PrintWriter csv) {
+      csv.printf(Locale.ROOT, "%.1f,%d,%d,%d,%d", elapsedSeconds, generation, ops, errors, watchReconnects);
+      for (final String resource : RESOURCES) csv.printf(Locale.ROOT, ",%d", value(resource));
+      csv.println();
+    }
+  }
+}
@@ -0,0 +1,206 @@
+package dev.bytesizedjoe.harness;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.metrics.OperationStats;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Connection-establishment cost per TLS version. For each {@code --tls} version a client limited to that
+ * version requests the stand-in's {@code /ab/handshake} at {@code --handshakes} per second, one request at a
+ * time, for {@code --duration} seconds after a {@code --warmup}. The stand-in closes each connection after
+ * {@code --requestsPerConnection} requests, so the client keeps connecting again, as it does while API
+ * servers roll.
+ * <p>
+ * Every response says whether its request opened the connection and, if so, whether the TLS session was
+ * resumed, so request latencies are split into {@code tls.full}, {@code tls.resumed} and {@code tls.reused}
+ * (a request on an already open connection), or {@code tcp.connect} against a plain-text stand-in. The
+ * stand-in's {@code --mockTlsResumable} decides the mix of full and resumable handshakes. CPU per handshake
+ * is process-wide; with {@code --mock} it includes the server's side of the handshake.
+ */
+@NullMarked
+@Slf4j
+public final class TlsHandshakes {
+  public static final String CSV = "tls.csv";
+  public static final String MARKDOWN = "tls.md";
+  static final String PATH = "/ab/handshake";
+  static final String FULL = "tls.full";
+  static final String RESUMED = "tls.resumed";
+  static final String REUSED = "tls.reused";
+  static final String PLAIN = "tcp.connect";
+
+  private final Function<HarnessArgs, KubernetesClient> clients;
+  private final ObjectMapper json = new ObjectMapper();
+
+  /** {@code clients} builds a client for the given (version-restricted) arguments. */
+  public TlsHandshakes(final Function<HarnessArgs, KubernetesClient> clients) {
+    this.clients = clients;
+  }
+
+  public void run(final HarnessArgs args, final String label) throws Exception {
+    final Path dir = Paths.get(args.getOutputDir().orElse("out"), label, "tls-" + Runs.timeStamp());
+    Files.createDirectories(dir);
+    final List<Result> results = new ArrayList<>();
+    for (final String version : args.getTlsVersions()) {
+      final var versionArgs = args.toBuilder().clearTlsVersions().tlsVersion(version).build();
+      try (var client = clients.apply(versionArgs)) {
+        final String url = new URL(client.getMasterUrl(), PATH + "?closeAfter=" + Math.max(1, args.getRequestsPerConnection())).toString();
+        log.info("Handshakes {} {}: warmup for {} seconds...", label, version, args.getWarmupSeconds());
+        drive(client, url, args.getHandshakeRate(), args.getWarmupSeconds(), new OperationStats());
+        final var stats = new OperationStats();
+        final long cpuBefore = processCpuNanos();
+        drive(client, url, args.getHandshakeRate(), Math.max(1, args.getDurationSeconds()), stats);
+        final long cpuNanos = cpuBefore >= 0 ? processCpuNanos() - cpuBefore : -1;
+        stats.writeSnapshot(dir.resolve(version));
+        final var result = result(version, stats, cpuNanos);
+        log.info("Handshakes {} {}: {} full, {} resumed, {} reused, reuse ratio {}", label, version,
+            result.full, result.resumed, result.reused, String.format(Locale.ROOT, "%.3f", result.reuseRatio()));
+        results.add(result);
+      }
+    }
+    write(dir, label, args, results);
+    log.info("Handshake run complete. Summary in {}", dir.resolve(MARKDOWN));
+  }
+
+  /** Requests {@code url} on a fixed timeline; a request that overruns its slot delays the next, counted as late. */
+  private void drive(final KubernetesClient client, final String url, final double rate, final long seconds,
+                     final OperationStats stats) throws IOException {
+    if (seconds <= 0) return;
+    final long periodNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(1e-3, rate)));
+    final long start = System.nanoTime();
+    final long end = start + TimeUnit.SECONDS.toNanos(seconds);
+    for (long k = 0; ; k++) {
+      final long intended = start + k * periodNanos;
+      if (intended >= end) break;
+      for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime()) {
+        LockSupport.parkNanos(wait);
+      }
+      if (System.nanoTime() - intended > periodNanos) stats.increment("tls.late");
+      final long begin = System.nanoTime();
+      final String body;
+      try {
+        body = client.raw(url);
+      } catch (RuntimeException e) {
+        stats.record("tls.failed", System.nanoTime() - begin, e);
+        continue;
+      }
+      final long nanos = System.nanoTime() - begin;
+      if (body == null) {
+        throw new IllegalStateException(PATH + " is not served at " + url + "; run against the stand-in (--mock, or a mock process)");
+      }
+      final JsonNode r = json.readTree(body);
+      final String protocol = r.path("protocol").asText("none");
+      if (r.path("request").asInt(1) > 1) {
+        stats.record(REUSED, nanos, null);
+        continue;
+      }
+      stats.record("none".equals(protocol) ? PLAIN : r.path("resumed").asBoolean() ? RESUMED : FULL, nanos, null);
+      stats.increment("tls.protocol." + protocol);
+      stats.add("tls.server_handshake_us", r.path("handshakeMicros").asLong());
+    }
+  }
+
+  private static Result result(final String version, final OperationStats stats, final long cpuNanos) {
+    // A plain-text stand-in has no handshake to resume; its connects count as full
+    final Histogram full = stats.latency(FULL);
+    full.add(stats.latency(PLAIN));
+    final Histogram resumed = stats.latency(RESUMED);
+    final Histogram reused = stats.latency(REUSED);
+    final long opened = full.getTotalCount() + resumed.getTotalCount();
+    return new Result(version, full.getTotalCount(), resumed.getTotalCount(), reused.getTotalCount(),
+        stats.latency("tls.failed").getTotalCount(), stats.counter("tls.late"),
+        ms(full, 50), ms(full, 99), ms(resumed, 50), ms(resumed, 99), ms(reused, 50),
+        cpuNanos >= 0 && opened > 0 ? cpuNanos / 1e6 / opened : Double.NaN,
+        opened > 0 ? stats.counter("tls.server_handshake_us") / (double) opened : Double.NaN);
+  }
+
+  private static double ms(final Histogram h, final double percentile) {
+    return h.getTotalCount() == 0 ? Double.NaN : h.getValueAtPercentile(percentile) / 1e6;
+  }
+
+  private void write(final Path dir, final String label, final HarnessArgs args, final List<Result> results) throws IOException {
+    try (var csv = new PrintWriter(Files.newBufferedWriter(dir.resolve(CSV)))) {
+      csv.println("version,full,resumed,reused,failed,late,full_p50_ms,full_p99_ms,resumed_p50_ms,resumed_p99_ms,"
+          + "reused_p50_ms,cpu_ms_per_handshake,server_handshake_us,reuse_ratio");
+      for (final Result r : results) {
+        csv.printf(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%s,%s,%s,%s,%s,%s,%s,%.4f%n", r.version, r.full, r.resumed,
+            r.reused, r.failed, r.late, csvNumber(r.fullP50), csvNumber(r.fullP99), csvNumber(r.resumedP50), csvNumber(r.resumedP99),
+            csvNumber(r.reusedP50), csvNumber(r.cpuMillisPerHandshake), csvNumber(r.serverHandshakeMicros), r.reuseRatio());
+      }
+    }
+    final int perConnection = Math.max(1, args.getRequestsPerConnection());
+    try (var md = new PrintWriter(Files.newBufferedWriter(dir.resolve(MARKDOWN)))) {
+      md.printf(Locale.ROOT, "## TLS handshakes: %s%n%n", label);
+      md.printf(Locale.ROOT, "%.1f requests/s for %d s per version, %d request(s) per connection (ideal reuse ratio %.3f). "
+              + "CPU per handshake is process-wide.%n%n", args.getHandshakeRate(), Math.max(1, args.getDurationSeconds()),
+          perConnection, (perConnection - 1) / (double) perConnection);
+      md.println("| Version | Full | Resumed | Reused | Failed | Full p50/p99 ms | Resumed p50/p99 ms | Reused p50 ms "
+          + "| CPU ms/handshake | Server handshake µs | Reuse ratio |");
+      md.println("|---|---:|---:|---:|---:|---:|---:|---:|---:|---:|---:|");
+      for (final Result r : results) {
+        md.printf(Locale.ROOT, "| %s | %d | %d | %d | %d | %s / %s | %s / %s | %s | %s | %s | %.3f |%n", r.version,
+            r.full, r.resumed, r.reused, r.failed, mdNumber(r.fullP50), mdNumber(r.fullP99),
+            mdNumber(r.resumedP50), mdNumber(r.resumedP99), mdNumber(r.reusedP50), mdNumber(r.cpuMillisPerHandshake),
+            mdNumber(r.serverHandshakeMicros), r.reuseRatio());
+      }
+      if (results.stream().anyMatch(r -> r.late > 0)) {
+        md.printf(Locale.ROOT, "%nSome requests started late, so fewer connections were made than the rate asks for.%n");
+      }
+    }
+  }
+
+  private static String csvNumber(final double value) {
+    return Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.3f", value);
+  }
+
+  private static String mdNumber(final double value) {
+    return Double.isNaN(value) ? "-" : String.format(Locale.ROOT, "%.2f", value);
+  }
+
+  private static long processCpuNanos() {
+    return ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os
+        ? os.getProcessCpuTime() : -1;
+  }
+
+  @Value
+  static class Result {
+    String version;
+    long full;
+    long resumed;
+    long reused;
+    long failed;
+    long late;
+    double fullP50;
+    double fullP99;
+    double resumedP50;
+    double resumedP99;
+    double reusedP50;
+    double cpuMillisPerHandshake;
+    double serverHandshakeMicros;
+
+    /** Share of requests that went over an already open connection. */
+    double reuseRatio() {
+      final long total = full + resumed + reused;
+      return total > 0 ? reused / (double) total : 0;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package dev.bytesizedjoe.k8s;
+
+import dev.bytesizedjoe.metrics.OperationStats;
+import io.fabric8.kubernetes.client.http.AsyncBody;
+import io.fabric8.kubernetes.client.http.HttpRequest;
+import io.fabric8.kubernetes.client.http.Interceptor;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Attributes transport-thread allocation to the operation that issued the request. The client builds
+ * the body consumer chain on the calling thread, so the caller's {@link OperationStats.Scope} is captured
+ * there and every body chunk reports the bytes it carried.
+ * <p>
+ * Most decoding happens on the I/O thread after the last chunk (when the response future completes), not
+ * inside the consumer. So each I/O thread keeps a window open from the end of the last chunk it delivered:
+ * everything it allocates until it delivers a chunk for another request, or until the owning operation
+ * finishes, is charged to that chunk's operation. Unrelated work on a shared event loop in that window is
+ * charged too, which slightly overstates per-operation figures under high concurrency.
+ */
+@NullMarked
+public final class AllocationInterceptor implements Interceptor {
+  public static final String NAME = "ab-allocation";
+
+  private static final com.sun.management.@Nullable ThreadMXBean THREADS =
+      ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean t ? t : null;
+  private final Map<Thread, Window> open = new ConcurrentHashMap<>();
+
+  @Override
+  public AsyncBody.Consumer<List<ByteBuffer>> consumer(final AsyncBody.Consumer<List<ByteBuffer>> consumer,
+                                                       final HttpRequest request) {
+    final var scope = OperationStats.Scope.current();
+    if (scope == null || THREADS == null) return consumer;
+    scope.onClose(() -> open.forEach((thread, window) -> {
+      if (window.scope == scope) close(thread, window);
+    }));
+    return new AsyncBody.Consumer<>() {
+      @Override
+      public void consume(final List<ByteBuffer> buffers, final AsyncBody body) throws Exception {
+        final Thread thread = Thread.currentThread();
+        final var previous = open.get(thread);
+        if (previous != null) close(thread, previous);
+        long bytes = 0;
+        for (final ByteBuffer b : buffers) bytes += b.remaining();
+        final long before = OperationStats.Scope.threadAllocatedBytes();
+        try {
+          consumer.consume(buffers, body);
+        } finally {
+          final long after = OperationStats.Scope.threadAllocatedBytes();
+          scope.addTransport(before >= 0 && after >= 0 ? after - before : 0, bytes);
+          if (after >= 0) open.put(thread, new Window(scope, thread.getId(), after));
+        }
+      }
+
+      @Override
+      public <U> U unwrap(final Class<U> target) {
+        return consumer.unwrap(target);
+      }
+    };
+  }
+
+  /** Charges the window's thread allocation since it opened to its operation; whoever removes it first wins. */
+  private void close(final Thread thread, final Window window) {
+    if (THREADS != null && open.remove(thread, window)) {
+      final long now = THREADS.getThreadAllocatedBytes(window.threadId);
+      if (now >= window.start) window.scope.addTransport(now - window.start, 0);
+    }
+  }
+
+  private static final class Window {
+    final OperationStats.Scope scope;
+    final long threadId;
+    final long start;
+
+    Window(final OperationStats.Scope scope, final long threadId, final long start) {
+      this.scope = scope;
+      this.threadId = threadId;
+      this.start = start;
+    }
+  }
+}
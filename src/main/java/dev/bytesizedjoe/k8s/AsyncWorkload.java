@@ -0,0 +1,182 @@
+package dev.bytesizedjoe.k8s;
+
+import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.cli.WriteMode;
+import dev.bytesizedjoe.metrics.OperationStats;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.PodList;
+import io.fabric8.kubernetes.api.model.ServiceList;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.http.HttpClient;
+import io.fabric8.kubernetes.client.http.HttpRequest;
+import io.fabric8.kubernetes.client.http.HttpResponse;
+import io.fabric8.kubernetes.client.utils.KubernetesSerialization;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Fully asynchronous variant of the closed-loop workload. A single dispatcher keeps up to
+ * {@code --inflight} logical operations outstanding against the client's non-blocking HTTP API;
+ * completions run on the transport's own threads and nothing waits on a response.
+ * Operations and their names match {@link Workloads} so results are directly comparable; each is timed
+ * through {@link OperationStats#timeAsync}, so it gets allocation, wire and request trace figures too.
+ */
+@NullMarked
+@Slf4j
+public final class AsyncWorkload {
+  private static final int MAX_PAGES = 50;
+
+  private final HttpClient http;
+  private final KubernetesSerialization serialization;
+  private final String apiBase;
+  private final String namespace;
+  private final WriteMode writeMode;
+  private final int payloadBytes;
+  private final int pageSize;
+  private final OperationStats stats;
+
+  private AsyncWorkload(final KubernetesClient client, final String namespace, final HarnessArgs args,
+                        final OperationStats stats) {
+    this.http = client.getHttpClient();
+    this.serialization = client.getKubernetesSerialization();
+    this.apiBase = client.getMasterUrl().toString().replaceAll("/+$", "") + "/api/v1";
+    this.namespace = namespace;
+    this.writeMode = args.getWriteMode();
+    this.payloadBytes = args.getPayloadBytes();
+    this.pageSize = args.getPageSize();
+    this.stats = stats;
+  }
+
+  public static CompletableFuture<Void> start(final KubernetesClient client, final String namespace, final HarnessArgs args,
+                                              final OperationStats stats) {
+    final var workload = new AsyncWorkload(client, namespace, args, stats);
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+    final Thread dispatcher = new Thread(() -> {
+      try {
+        workload.dispatch(args);
+        done.complete(null);
+      } catch (Throwable t) {
+        done.completeExceptionally(t);
+      }
+    }, "async-workload-dispatcher");
+    dispatcher.setDaemon(true);
+    dispatcher.start();
+    return done;
+  }
+
+  private void dispatch(final HarnessArgs args) throws InterruptedException {
+    final int window = Math.max(1, args.getMaxInFlight());
+    final var permits = new Semaphore(window);
+    // Same mix as the closed loop: one pod lister, one service lister, everything else ConfigMap churn
+    final List<Supplier<CompletableFuture<?>>> mix = List.of(
+        this::configMapCycle, this::podListing, this::serviceListing, this::configMapCycle);
+    final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(args.getDurationSeconds());
+    long issued = 0;
+    while (System.nanoTime() < end) {
+      if (!permits.tryAcquire(100, TimeUnit.MILLISECONDS)) continue;
+      final Supplier<CompletableFuture<?>> op = mix.get((int) (issued++ % mix.size()));
+      CompletableFuture<?> cf;
+      try {
+        cf = op.get();
+      } catch (RuntimeException e) {
+        cf = CompletableFuture.failedFuture(e);
+      }
+      cf.whenComplete((r, t) -> permits.release());
+    }
+    // Let outstanding operations finish so they are counted, bounded by the request timeout
+    if (!permits.tryAcquire(window, args.getRequestTimeoutSeconds() * 2L + 30, TimeUnit.SECONDS)) {
+      log.warn("{} async operations still in flight at the end of the run", window - permits.availablePermits());
+    }
+    log.info("Async workload issued {} operations with an in-flight window of {}", issued, window);
+  }
+
+  private CompletableFuture<?> configMapCycle() {
+    final var name = "ab-" + UUID.randomUUID().toString().substring(0, 8);
+    final String collection = apiBase + "/namespaces/" + namespace + "/configmaps";
+    final String item = collection + "/" + name;
+    final var cm = new ConfigMapBuilder()
+        .withNewMetadata().withName(name).endMetadata()
+        .addToData("k", PayloadPool.next(payloadBytes))
+        .build();
+    final CompletableFuture<?> created = stats.timeAsync("configmap.create", scope -> send(http.newHttpRequestBuilder().uri(collection)
+        .post("application/json", serialization.asJson(cm)).build()));
+    final CompletableFuture<?> updated = writeMode == WriteMode.PIPELINED
+        ? created.thenCompose(r -> stats.timeAsync(writeMode.operation(), scope -> CompletableFuture.allOf(
+            send(patch(item, name)), send(patch(item, name)))))
+        : created.thenCompose(r -> update(item, name)).thenCompose(r -> update(item, name));
+    return updated.thenCompose(r -> stats.timeAsync("configmap.delete", scope -> send(http.newHttpRequestBuilder().uri(item)
+        .delete("application/json", "{}").build())));
+  }
+
+  /** One logical update the {@code --write} way; {@code edit} mirrors {@code edit(...)}: fetch, then JSON-patch the changed key. */
+  private CompletableFuture<byte[]> update(final String item, final String name) {
+    if (writeMode == WriteMode.EDIT) {
+      return stats.timeAsync(writeMode.operation(), scope -> send(http.newHttpRequestBuilder().uri(item).build())
+          .thenCompose(current -> scope.within(() -> send(patch(item, name)))));
+    }
+    return stats.timeAsync(writeMode.operation(), scope -> send(patch(item, name)));
+  }
+
+  private HttpRequest patch(final String item, final String name) {
+    return switch (writeMode) {
+      case MERGE_PATCH, PIPELINED -> http.newHttpRequestBuilder().uri(item)
+          .patch("application/merge-patch+json", PayloadPool.next("mergepatch", payloadBytes, Workloads::mergePatch)).build();
+      case APPLY -> http.newHttpRequestBuilder().uri(item + "?fieldManager=" + Workloads.FIELD_MANAGER + "&force=true")
+          .patch("application/apply-patch+yaml", Workloads.applied(serialization, name, PayloadPool.next(payloadBytes))).build();
+      default -> http.newHttpRequestBuilder().uri(item)
+          .patch("application/json-patch+json", PayloadPool.next("jsonpatch", payloadBytes, Workloads::jsonPatch)).build();
+    };
+  }
+
+  private CompletableFuture<?> podListing() {
+    return listPages("pods.list.page", apiBase + "/pods", PodList.class, null, 0);
+  }
+
+  private CompletableFuture<?> serviceListing() {
+    return listPages("services.list.page", apiBase + "/services", ServiceList.class, null, 0);
+  }
+
+  private <L extends KubernetesResourceList<?>> CompletableFuture<?> listPages(final String op, final String url,
+                                                                              final Class<L> type,
+                                                                              @Nullable final String cont, final int page) {
+    final var query = new StringJoiner("&", "?", "").setEmptyValue("");
+    if (pageSize > 0) query.add("limit=" + pageSize);
+    if (cont != null) query.add("continue=" + URLEncoder.encode(cont, StandardCharsets.UTF_8));
+    final String uri = url + query;
+    return stats.timeAsync(op, scope -> send(http.newHttpRequestBuilder().uri(uri).build())
+            .thenApply(body -> serialization.unmarshal(new ByteArrayInputStream(body), type)))
+        .thenCompose(list -> {
+          final String next = list.getMetadata() != null ? list.getMetadata().getContinue() : null;
+          if (next == null || next.isEmpty() || page + 1 >= MAX_PAGES) {
+            return CompletableFuture.completedFuture(null);
+          }
+          return listPages(op, url, type, next, page + 1);
+        });
+  }
+
+  private CompletableFuture<byte[]> send(final HttpRequest request) {
+    return http.sendAsync(request, byte[].class).thenApply(AsyncWorkload::bodyOrThrow);
+  }
+
+  private static byte[] bodyOrThrow(final HttpResponse<byte[]> response) {
+    if (!response.isSuccessful()) {
+      throw new KubernetesClientException(response.request().method() + " " + response.request().uri()
+          + " failed with HTTP " + response.code(), response.code(), null);
+    }
+    return response.body();
+  }
+}
@@ -0,0 +1,217 @@
+package dev.bytesizedjoe.k8s;
+
+import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.metrics.MemoryFootprint;
+import dev.bytesizedjoe.metrics.OperationStats;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.dsl.Informable;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Controller-style workload: pod, service and ConfigMap informers with an in-memory cache, run next to
+ * the request workload so cache maintenance competes with it the way it does in our controllers.
+ * <p>
+ * Measures time to initial sync per kind ({@code informer.<kind>.sync}), retained heap per cached object
+ * (written to {@code informers.txt}), the cost of a full relist while under load (a fresh pod informer
+ * synced a third of the way into the run: {@code informer.pods.relist} plus its CPU time), and
+ * {@code byNode} index lookup latency ({@code informer.pods.lookup}) while watch events are applied. Lookups
+ * run at a fixed {@value #LOOKUPS_PER_SECOND}/s, a busy controller's pace, so they don't take a core away
+ * from the transport being measured.
+ * With {@code --informerResync} the handlers also count resync deliveries.
+ */
+@NullMarked
+@Slf4j
+public final class InformerWorkload implements AutoCloseable {
+  public static final String FILE_NAME = "informers.txt";
+  static final String NODE_INDEX = "byNode";
+  private static final long LIST_LIMIT = 500;
+  static final int LOOKUPS_PER_SECOND = 1000;
+
+  private final KubernetesClient client;
+  private final OperationStats stats;
+  private final Map<String, SharedIndexInformer<? extends HasMetadata>> informers = new LinkedHashMap<>();
+  private final List<Thread> threads = new ArrayList<>();
+  private volatile boolean closed;
+
+  private InformerWorkload(final KubernetesClient client, final OperationStats stats) {
+    this.client = client;
+    this.stats = stats;
+  }
+
+  /** Starts and syncs the informers (blocking), then starts the lookup and relist probes in the background. */
+  public static InformerWorkload start(final KubernetesClient client, final String namespace, final HarnessArgs args,
+                                       final OperationStats stats, final Path runDir) {
+    final var workload = new InformerWorkload(client, stats);
+    final long resyncMillis = TimeUnit.SECONDS.toMillis(args.getInformerResyncSeconds());
+    final MemoryFootprint before = MemoryFootprint.measure();
+
+    final Map<String, Long> syncMillis = new LinkedHashMap<>();
+    syncMillis.put("pods", workload.startAndSync("pods",
+        client.pods().inAnyNamespace().withLimit(LIST_LIMIT).withIndexers(Map.of(NODE_INDEX, InformerWorkload::nodeOf)),
+        resyncMillis));
+    syncMillis.put("services", workload.startAndSync("services",
+        client.services().inAnyNamespace().withLimit(LIST_LIMIT), resyncMillis));
+    syncMillis.put("configmaps", workload.startAndSync("configmaps",
+        client.configMaps().inNamespace(namespace).withLimit(LIST_LIMIT), resyncMillis));
+
+    final MemoryFootprint after = MemoryFootprint.measure();
+    long objects = 0;
+    final Map<String, Integer> counts = new LinkedHashMap<>();
+    for (final var e : workload.informers.entrySet()) {
+      final int n = e.getValue().getStore().list().size();
+      counts.put(e.getKey(), n);
+      objects += n;
+    }
+    log.info("Informers synced {} objects: {}", objects, counts);
+    try {
+      writeSummary(runDir.resolve(FILE_NAME), counts, syncMillis, objects, before, after);
+    } catch (IOException e) {
+      log.warn("Failed to write informer summary: {}", e.toString());
+    }
+
+    workload.background("informer-lookup", workload::lookupLoop);
+    workload.background("informer-relist", () -> workload.relistProbe(args.getDurationSeconds()));
+    return workload;
+  }
+
+  private <T extends HasMetadata> long startAndSync(final String kind, final Informable<T> source, final long resyncMillis) {
+    final long start = System.nanoTime();
+    final SharedIndexInformer<T> informer = source.runnableInformer(resyncMillis);
+    informer.addEventHandler(new CountingHandler<>(kind));
+    informers.put(kind, informer);
+    try {
+      informer.start().toCompletableFuture().get(5, TimeUnit.MINUTES);
+      stats.record("informer." + kind + ".sync", System.nanoTime() - start, null);
+    } catch (Exception e) {
+      stats.record("informer." + kind + ".sync", System.nanoTime() - start, e);
+      log.warn("Informer for {} did not sync: {}", kind, e.toString());
+    }
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void lookupLoop() {
+    final var pods = (SharedIndexInformer<Pod>) informers.get("pods");
+    if (pods == null) return;
+    final List<String> nodes = pods.getStore().list().stream()
+        .map(p -> nodeOf(p).get(0)).distinct().sorted().toList();
+    if (nodes.isEmpty()) return;
+    final long periodNanos = TimeUnit.SECONDS.toNanos(1) / LOOKUPS_PER_SECOND;
+    final long first = System.nanoTime();
+    long found = 0;
+    for (long i = 0; !closed; i++) {
+      final long intended = first + i * periodNanos;
+      for (long wait = intended - System.nanoTime(); wait > 0 && !closed; wait = intended - System.nanoTime()) {
+        LockSupport.parkNanos(wait);
+      }
+      final long start = System.nanoTime();
+      found += pods.getIndexer().byIndex(NODE_INDEX, nodes.get((int) (i % nodes.size()))).size();
+      stats.record("informer.pods.lookup", System.nanoTime() - start, null);
+    }
+    log.debug("Index lookups returned {} pods in total", found);
+  }
+
+  /** A fresh informer listing every pod while the rest of the workload runs: the cost of a relist after a 410. */
+  private void relistProbe(final long durationSeconds) {
+    try {
+      TimeUnit.SECONDS.sleep(Math.max(1, durationSeconds / 3));
+    } catch (InterruptedException e) {
+      return;
+    }
+    if (closed) return;
+    final var os = ManagementFactory.getOperatingSystemMXBean();
+    final long cpuBefore = processCpuNanos(os);
+    final long start = System.nanoTime();
+    try (var probe = client.pods().inAnyNamespace().withLimit(LIST_LIMIT).runnableInformer(0)) {
+      probe.start().toCompletableFuture().get(5, TimeUnit.MINUTES);
+      stats.record("informer.pods.relist", System.nanoTime() - start, null);
+    } catch (Exception e) {
+      stats.record("informer.pods.relist", System.nanoTime() - start, e);
+    }
+    if (cpuBefore >= 0) {
+      stats.add("informer.pods.relist_cpu_ms", TimeUnit.NANOSECONDS.toMillis(processCpuNanos(os) - cpuBefore));
+    }
+  }
+
+  private static long processCpuNanos(final java.lang.management.OperatingSystemMXBean os) {
+    return os instanceof com.sun.management.OperatingSystemMXBean sunOs ? sunOs.getProcessCpuTime() : -1;
+  }
+
+  private void background(final String name, final Runnable task) {
+    final var t = new Thread(task, name);
+    t.setDaemon(true);
+    threads.add(t);
+    t.start();
+  }
+
+  static List<String> nodeOf(final Pod pod) {
+    final String node = pod.getSpec() != null ? pod.getSpec().getNodeName() : null;
+    return List.of(node != null ? node : "<unscheduled>");
+  }
+
+  private static void writeSummary(final Path file, final Map<String, Integer> counts, final Map<String, Long> syncMillis,
+                                   final long objects, final MemoryFootprint before, final MemoryFootprint after)
+      throws IOException {
+    Files.createDirectories(file.getParent());
+    try (var out = new PrintWriter(Files.newBufferedWriter(file))) {
+      out.printf(Locale.ROOT, "# informers objects=%d%n", objects);
+      out.printf(Locale.ROOT, "%-16s %10s %10s%n", "kind", "objects", "sync_ms");
+      counts.forEach((kind, n) -> out.printf(Locale.ROOT, "%-16s %10d %10d%n", kind, n, syncMillis.get(kind)));
+      out.println();
+      MemoryFootprint.writeDelta(out, before, after, objects, "per_object");
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    threads.forEach(Thread::interrupt);
+    informers.values().forEach(i -> {
+      try { i.close(); } catch (Exception ignore) {}
+    });
+  }
+
+  /** Counts deliveries; an update whose resource version didn't change is a resync, not a watch event. */
+  private final class CountingHandler<T extends HasMetadata> implements ResourceEventHandler<T> {
+    private final String prefix;
+
+    CountingHandler(final String kind) {
+      this.prefix = "informer." + kind + ".";
+    }
+
+    @Override
+    public void onAdd(final T obj) {
+      stats.increment(prefix + "add");
+    }
+
+    @Override
+    public void onUpdate(final T oldObj, final T newObj) {
+      final boolean resync = Objects.equals(oldObj.getMetadata().getResourceVersion(), newObj.getMetadata().getResourceVersion());
+      stats.increment(prefix + (resync ? "resync" : "update"));
+    }
+
+    @Override
+    public void onDelete(final T obj, final boolean deletedFinalStateUnknown) {
+      stats.increment(prefix + "delete");
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package dev.bytesizedjoe.k8s;
+
+import dev.bytesizedjoe.metrics.OperationStats;
+import dev.bytesizedjoe.mock.MockApiServer;
+import io.fabric8.kubernetes.api.model.ManagedFieldsEntry;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.WatcherException;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Pod watcher that records what the transport delivers instead of discarding it: per-action event
+ * counters ({@code watch.events.<action>}) and a {@code watch.lag} histogram of delivery delay.
+ * <p>
+ * Lag is measured against the best timestamp the object carries: the stand-in server's
+ * {@value MockApiServer#EMITTED_AT_ANNOTATION} annotation (millisecond precision), otherwise the newest
+ * managedFields time for updates or the creation time for adds (both whole seconds, so only useful for
+ * spotting multi-second stalls on a real cluster). resourceVersion is opaque and carries no time.
+ */
+@NullMarked
+@Slf4j
+public final class InstrumentedPodWatcher implements Watcher<Pod> {
+  private final OperationStats stats;
+  private final Consumer<WatcherException> onFailure;
+  private volatile @Nullable String lastResourceVersion;
+
+  public InstrumentedPodWatcher(final OperationStats stats, final Consumer<WatcherException> onFailure) {
+    this.stats = stats;
+    this.onFailure = onFailure;
+  }
+
+  @Override
+  public void eventReceived(final Action action, final Pod pod) {
+    final long receivedAt = System.currentTimeMillis();
+    stats.increment("watch.events." + action.name().toLowerCase(Locale.ROOT));
+    final ObjectMeta meta = pod.getMetadata();
+    if (meta == null) return;
+    if (meta.getResourceVersion() != null) {
+      lastResourceVersion = meta.getResourceVersion();
+    }
+    final long sentAt = sentAtMillis(action, meta);
+    if (sentAt > 0) {
+      stats.record("watch.lag", TimeUnit.MILLISECONDS.toNanos(Math.max(0, receivedAt - sentAt)), null);
+    }
+  }
+
+  @Override
+  public void onClose(final WatcherException cause) {
+    stats.increment("watch.closed.error");
+    log.debug("Pod watch closed with error: {}", cause.toString());
+    onFailure.accept(cause);
+  }
+
+  /** Resource version of the last delivered event, used to resume after a failure. */
+  public @Nullable String lastResourceVersion() {
+    return lastResourceVersion;
+  }
+
+  private static long sentAtMillis(final Action action, final ObjectMeta meta) {
+    final String emitted = meta.getAnnotations() != null ? meta.getAnnotations().get(MockApiServer.EMITTED_AT_ANNOTATION) : null;
+    if (emitted != null) {
+      try {
+        return Long.parseLong(emitted);
+      } catch (NumberFormatException ignored) {
+        return -1;
+      }
+    }
+    if (action == Action.MODIFIED && meta.getManagedFields() != null) {
+      long newest = -1;
+      for (final ManagedFieldsEntry entry : meta.getManagedFields()) {
+        newest = Math.max(newest, parse(entry.getTime()));
+      }
+      return newest;
+    }
+    return action == Action.ADDED ? parse(meta.getCreationTimestamp()) : -1;
+  }
+
+  private static long parse(@Nullable final String timestamp) {
+    if (timestamp == null) return -1;
+    try {
+      return Instant.parse(timestamp).toEpochMilli();
+    } catch (RuntimeException e) {
+      return -1;
+    }
+  }
+}
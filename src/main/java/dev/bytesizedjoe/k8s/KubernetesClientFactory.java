@@ -6,23 +6,71 @@ import io.fabric8.kubernetes.client.ConfigBuilder;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientBuilder;
 import io.fabric8.kubernetes.client.http.HttpClient;
+import io.fabric8.kubernetes.client.http.TlsVersion;
 import lombok.experimental.UtilityClass;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.ServiceLoader;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @NullMarked
 @UtilityClass
 public class KubernetesClientFactory {
   private static final Logger log = LoggerFactory.getLogger(KubernetesClientFactory.class);
+  /** Fan-out and soak runs build many clients; the proxy's hostname warning is logged for the first. */
+  private static final AtomicBoolean HOSTNAME_WARNED = new AtomicBoolean();
 
   public KubernetesClient build(final HarnessArgs args) {
+    return newClient(args, true);
+  }
+
+  /**
+   * Like {@link #build(HarnessArgs)}, but without the harness's interceptors: no request trace, wire or
+   * transport allocation figures and no watch connect counts, so the client costs what the transport alone
+   * does. For the modes that measure clients and connections themselves.
+   */
+  public KubernetesClient buildBare(final HarnessArgs args) {
+    return newClient(args, false);
+  }
+
+  private KubernetesClient newClient(final HarnessArgs args, final boolean traced) {
+    final var tracer = traced ? new RequestTracer() : null;
+    final var clientBuilder = clientBuilder(config(args), tracer);
+    if (Chosen.FACTORY != null) clientBuilder.withHttpClientFactory(copyOf(Chosen.FACTORY));
+    final KubernetesClient client = clientBuilder.build();
+    return tracer != null ? tracer.attach(client) : client;
+  }
+
+  /** The HTTP client provider {@link #build(HarnessArgs)} would pick, for callers that build several clients on it. */
+  public HttpClient.Factory factory() {
+    if (Chosen.FACTORY == null) throw new IllegalStateException("No fabric8 HTTP client provider on the classpath");
+    return copyOf(Chosen.FACTORY);
+  }
+
+  /**
+   * The provider {@link #choose()} picks, resolved on first use: fan-out and soak runs build many clients, and
+   * each gets a fresh instance of it through {@link #copyOf} instead of another classpath scan.
+   */
+  private static final class Chosen {
+    static final HttpClient.@Nullable Factory FACTORY = resolve();
+
+    private static HttpClient.@Nullable Factory resolve() {
+      final HttpClient.Factory chosen = choose();
+      if (chosen == null) log.info("No explicit provider selected; deferring to Fabric8 default selection");
+      return chosen;
+    }
+  }
+
+  private HttpClient.@Nullable Factory choose() {
     // Discover which HTTP client provider instances are present
     final List<HttpClient.Factory> discoveredFactories = new ArrayList<>();
     final List<String> discoveredNames = new ArrayList<>();
@@ -60,15 +108,6 @@ public class KubernetesClientFactory {
     }
     log.info("Fabric8 Vert.x 5 transport detected: {}", vertx5TransportDetected);
 
-    final var auto = Config.autoConfigure(null);
-    final Config config = new ConfigBuilder(auto)
-        .withRequestTimeout((int) TimeUnit.SECONDS.toMillis(args.getRequestTimeoutSeconds()))
-        .withConnectionTimeout((int) TimeUnit.SECONDS.toMillis(args.getConnectTimeoutSeconds()))
-        .withTrustCerts(args.isTrustCerts())
-        .withMaxConcurrentRequests(args.getMaxConcurrentRequests())
-        .withMaxConcurrentRequestsPerHost(args.getMaxConcurrentRequestsPerHost())
-        .build();
-
     final String preferRaw = System.getProperty("k8s.httpFactory",
         System.getProperty("transport.id", ""));
     final String prefer = preferRaw.toLowerCase(Locale.ROOT);
@@ -139,10 +178,106 @@ public class KubernetesClientFactory {
 
     if (chosen != null) {
       log.info("Selected HTTP client provider: {}", chosen.getClass().getName());
-      return new KubernetesClientBuilder().withConfig(config).withHttpClientFactory(chosen).build();
-    } else {
-      log.info("No explicit provider selected; deferring to Fabric8 default selection");
-      return new KubernetesClientBuilder().withConfig(config).build();
     }
+    return chosen;
+  }
+
+  /**
+   * Builds a client on the transport isolated in {@code transport} (see {@link TransportClassLoader}),
+   * with the same configuration and interceptors as {@link #build(HarnessArgs)}.
+   */
+  public KubernetesClient build(final HarnessArgs args, final TransportClassLoader transport) {
+    final HttpClient.Factory factory = transport.loadFactory();
+    log.info("Transport {} uses HTTP client provider {}", transport.label(), factory.getClass().getName());
+    return build(args, factory);
+  }
+
+  /** Builds a client on {@code factory}, which may come from an isolated transport, with the usual configuration. */
+  public KubernetesClient build(final HarnessArgs args, final HttpClient.Factory factory) {
+    return newClient(args, factory, true);
+  }
+
+  /** {@link #buildBare(HarnessArgs)} on {@code factory}, which may come from an isolated transport. */
+  public KubernetesClient buildBare(final HarnessArgs args, final HttpClient.Factory factory) {
+    return newClient(args, factory, false);
+  }
+
+  private KubernetesClient newClient(final HarnessArgs args, final HttpClient.Factory factory, final boolean traced) {
+    final Thread current = Thread.currentThread();
+    final ClassLoader previous = current.getContextClassLoader();
+    // Vert.x looks up its own SPIs through the context loader, and its threads inherit it
+    current.setContextClassLoader(factory.getClass().getClassLoader());
+    try {
+      final var tracer = traced ? new RequestTracer() : null;
+      final KubernetesClient client = clientBuilder(config(args), tracer).withHttpClientFactory(factory).build();
+      return tracer != null ? tracer.attach(client) : client;
+    } finally {
+      current.setContextClassLoader(previous);
+    }
+  }
+
+  /**
+   * A new instance of {@code factory}'s class, as the ServiceLoader would create for a client built without
+   * an explicit factory: nothing (such as a Vert.x instance) is shared with clients built on {@code factory}.
+   */
+  public HttpClient.Factory copyOf(final HttpClient.Factory factory) {
+    try {
+      return factory.getClass().getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Cannot instantiate " + factory.getClass().getName(), e);
+    }
+  }
+
+  private Config config(final HarnessArgs args) {
+    // An explicit master URL (e.g. the stand-in API server) must not pick up kubeconfig credentials
+    final var base = args.getMasterUrl().isPresent() ? Config.empty() : Config.autoConfigure(null);
+    final var configBuilder = new ConfigBuilder(base)
+        .withRequestTimeout((int) TimeUnit.SECONDS.toMillis(args.getRequestTimeoutSeconds()))
+        .withConnectionTimeout((int) TimeUnit.SECONDS.toMillis(args.getConnectTimeoutSeconds()))
+        .withTrustCerts(args.isTrustCerts())
+        .withMaxConcurrentRequests(args.getMaxConcurrentRequests())
+        .withMaxConcurrentRequestsPerHost(args.getMaxConcurrentRequestsPerHost());
+    if (!args.getTlsVersions().isEmpty()) {
+      configBuilder.withTlsVersions(args.getTlsVersions().stream().map(TlsVersion::forJavaName).toArray(TlsVersion[]::new));
+    }
+    args.getMasterUrl().ifPresent(url -> {
+      log.info("Using API server {}", url);
+      configBuilder.withMasterUrl(url);
+    });
+    args.getProxyAddress().ifPresent(proxy -> {
+      final URI master = URI.create(args.getMasterUrl().orElseGet(base::getMasterUrl));
+      // The proxy forwards raw TCP, so TLS still ends at the API server, whose certificate doesn't name the proxy
+      configBuilder.withMasterUrl(master.getScheme() + "://" + proxy + Objects.toString(master.getRawPath(), ""));
+      if ("https".equalsIgnoreCase(master.getScheme())) {
+        configBuilder.withDisableHostnameVerification(true);
+        if (HOSTNAME_WARNED.compareAndSet(false, true)) {
+          log.warn("TLS hostname verification is disabled while going through the fault proxy at {}: {}'s certificate "
+              + "names it, not the proxy. The certificate itself is still checked unless --trustCerts is set", proxy,
+              master.getHost());
+        }
+      }
+    });
+    return configBuilder.build();
+  }
+
+  /** The API server {@link #build(HarnessArgs)} would connect to, as configured or discovered. */
+  public String masterUrl(final HarnessArgs args) {
+    return args.getMasterUrl().orElseGet(() -> Config.autoConfigure(null).getMasterUrl());
+  }
+
+  /**
+   * Every request of the client goes through {@code tracer}, which {@link RequestTracer#of} then returns for it,
+   * and the other interceptors the harness reports from; a bare client without a tracer gets none of them.
+   */
+  private KubernetesClientBuilder clientBuilder(final Config config, @Nullable final RequestTracer tracer) {
+    final var builder = new KubernetesClientBuilder().withConfig(config);
+    if (tracer == null) return builder;
+    return builder
+        .withHttpClientBuilderConsumer(b -> b
+            .addOrReplaceInterceptor("ab-watch-connects", PodWatches.CONNECT_COUNTER)
+            // Sees each call's own body consumer, before the others wrap it, and hands its findings to the tracer
+            .addOrReplaceInterceptor(RoundTripInterceptor.NAME, new RoundTripInterceptor())
+            .addOrReplaceInterceptor(RequestTracer.NAME, tracer)
+            .addOrReplaceInterceptor(AllocationInterceptor.NAME, new AllocationInterceptor()));
   }
 }
@@ -0,0 +1,224 @@
+package dev.bytesizedjoe.k8s;
+
+import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.metrics.MemoryFootprint;
+import dev.bytesizedjoe.metrics.OperationStats;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.dsl.LogWatch;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Follows the logs of {@code --logStreams} pods at once, each through {@code watchLog(OutputStream)}, and
+ * measures what sustained log streaming costs each transport.
+ * <p>
+ * Lines stamped with epoch millis (as the stand-in server's are) give the end-to-end delay from the
+ * server writing a line to the harness consuming it ({@code log.delay}). With {@code --logConsumeRate}
+ * each sink reads no faster than that many bytes per second; the client only requests more of the body
+ * once a write returns, so a slow sink pushes back through the transport, and the heap and direct buffer
+ * peaks show how much each transport buffers meanwhile. Throughput, CPU per MB and memory go to
+ * {@code logs.txt}. CPU is process-wide, so it includes the request workload running alongside.
+ */
+@NullMarked
+@Slf4j
+public final class LogStreams implements AutoCloseable {
+  public static final String FILE_NAME = "logs.txt";
+  private static final int TAIL_LINES = 10;
+  private static final long PEAK_SAMPLE_MILLIS = 500;
+  private static final int EPOCH_MILLIS_DIGITS = 13;
+
+  private final OperationStats stats;
+  private final Path runDir;
+  private final int requested;
+  private final long consumeRate;
+  private final List<LogWatch> watches = new ArrayList<>();
+  private final AtomicLong bytes = new AtomicLong();
+  private final MemoryFootprint before;
+  private final long startNanos = System.nanoTime();
+  private final long cpuStartNanos = processCpuNanos();
+  private final Thread peakSampler;
+  private volatile long peakHeap;
+  private volatile long peakDirect;
+  private volatile long peakNettyDirect = -1;
+  private volatile boolean closed;
+
+  private LogStreams(final OperationStats stats, final Path runDir, final int requested, final long consumeRate,
+                     final MemoryFootprint before) {
+    this.stats = stats;
+    this.runDir = runDir;
+    this.requested = requested;
+    this.consumeRate = consumeRate;
+    this.before = before;
+    this.peakSampler = new Thread(this::samplePeaks, "log-streams-peaks");
+    this.peakSampler.setDaemon(true);
+  }
+
+  /** Starts following the first {@code --logStreams} running pods; the footprint is written on {@link #close()}. */
+  public static LogStreams open(final KubernetesClient client, final HarnessArgs args, final OperationStats stats,
+                                final Path runDir) {
+    final var streams = new LogStreams(stats, runDir, args.getLogStreams(), args.getLogConsumeBytesPerSecond(),
+        MemoryFootprint.measure());
+    streams.peakSampler.start();
+    for (final Pod pod : Pods.running(client, args.getLogStreams())) {
+      final String container = Pods.firstRunningContainerName(pod).orElseThrow();
+      try {
+        final LogWatch watch = stats.time("log.open", () -> client.pods()
+            .inNamespace(pod.getMetadata().getNamespace())
+            .withName(pod.getMetadata().getName())
+            .inContainer(container)
+            .tailingLines(TAIL_LINES)
+            .watchLog(streams.new Sink()));
+        synchronized (streams.watches) {
+          streams.watches.add(watch);
+        }
+      } catch (RuntimeException e) {
+        log.warn("Failed to follow log of {}/{}: {}", pod.getMetadata().getNamespace(), pod.getMetadata().getName(),
+            e.toString());
+      }
+    }
+    log.info("Following {} of {} pod logs{}", streams.watches.size(), args.getLogStreams(),
+        streams.consumeRate > 0 ? " at " + streams.consumeRate + " bytes/s each" : "");
+    return streams;
+  }
+
+  private void samplePeaks() {
+    while (!closed) {
+      final MemoryFootprint now = MemoryFootprint.sample();
+      peakHeap = Math.max(peakHeap, now.getHeapUsed());
+      peakDirect = Math.max(peakDirect, now.getDirectUsed());
+      peakNettyDirect = Math.max(peakNettyDirect, now.getNettyDirect());
+      try {
+        TimeUnit.MILLISECONDS.sleep(PEAK_SAMPLE_MILLIS);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Counts bytes and lines as they arrive, timing each stamped line, and sleeps in {@code write} when
+   * ahead of the consume rate.
+   */
+  final class Sink extends OutputStream {
+    private final long openedNanos = System.nanoTime();
+    private long received;
+    private long digits;
+    private int digitCount;
+    private boolean inStamp = true;
+
+    @Override
+    public void write(final int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      for (int i = off; i < off + len; i++) {
+        final byte c = b[i];
+        if (c == '\n') {
+          endOfLine();
+        } else if (inStamp) {
+          if (c >= '0' && c <= '9' && digitCount <= EPOCH_MILLIS_DIGITS) {
+            digits = digits * 10 + (c - '0');
+            digitCount++;
+          } else {
+            inStamp = false;
+          }
+        }
+      }
+      received += len;
+      bytes.addAndGet(len);
+      stats.add("log.bytes", len);
+      throttle();
+    }
+
+    private void endOfLine() {
+      // Only a 13-digit run counts as epoch millis, so lines starting with an ISO date or a count don't
+      if (digitCount == EPOCH_MILLIS_DIGITS) {
+        stats.record("log.delay", TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - digits)), null);
+      }
+      stats.increment("log.lines");
+      digits = 0;
+      digitCount = 0;
+      inStamp = true;
+    }
+
+    private void throttle() throws InterruptedIOException {
+      if (consumeRate <= 0) return;
+      final long due = openedNanos + received * TimeUnit.SECONDS.toNanos(1) / consumeRate;
+      final long wait = due - System.nanoTime();
+      if (wait <= 0) return;
+      try {
+        TimeUnit.NANOSECONDS.sleep(wait);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("log sink interrupted");
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    if (closed) return;
+    final double seconds = (System.nanoTime() - startNanos) / 1e9;
+    final long cpuNanos = cpuStartNanos >= 0 ? processCpuNanos() - cpuStartNanos : -1;
+    final long total = bytes.get();
+    // Measured while the streams are still open, so it's what they retain, not what they leave behind
+    final MemoryFootprint after = MemoryFootprint.measure();
+    closed = true;
+    peakSampler.interrupt();
+    final int opened;
+    synchronized (watches) {
+      opened = watches.size();
+      for (final LogWatch w : watches) {
+        try { w.close(); } catch (Exception ignore) {}
+      }
+      watches.clear();
+    }
+    try {
+      write(runDir.resolve(FILE_NAME), opened, seconds, total, cpuNanos, after);
+    } catch (IOException e) {
+      log.warn("Failed to write log stream summary: {}", e.toString());
+    }
+  }
+
+  private void write(final Path file, final int opened, final double seconds, final long total, final long cpuNanos,
+                     final MemoryFootprint after) throws IOException {
+    final double mb = total / (1024.0 * 1024.0);
+    Files.createDirectories(file.getParent());
+    try (var out = new PrintWriter(Files.newBufferedWriter(file))) {
+      out.printf(Locale.ROOT, "# log streams requested=%d opened=%d consume_rate_bytes_s=%d seconds=%.1f%n",
+          requested, opened, consumeRate, seconds);
+      out.printf(Locale.ROOT, "bytes %d%n", total);
+      out.printf(Locale.ROOT, "mb_s %.3f%n", seconds > 0 ? mb / seconds : 0);
+      out.printf(Locale.ROOT, "mb_s_per_stream %.3f%n", seconds > 0 && opened > 0 ? mb / seconds / opened : 0);
+      if (cpuNanos >= 0 && mb > 0) {
+        out.printf(Locale.ROOT, "cpu_ms_per_mb %.2f%n", TimeUnit.NANOSECONDS.toMillis(cpuNanos) / mb);
+      }
+      out.printf(Locale.ROOT, "peak_heap_bytes %d%n", peakHeap);
+      out.printf(Locale.ROOT, "peak_direct_bytes %d%n", peakDirect);
+      out.printf(Locale.ROOT, "peak_netty_direct %d%n", peakNettyDirect);
+      out.println();
+      MemoryFootprint.writeDelta(out, before, after, opened, "per_stream");
+    }
+  }
+
+  private static long processCpuNanos() {
+    return ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os
+        ? os.getProcessCpuTime() : -1;
+  }
+}
@@ -0,0 +1,128 @@
+package dev.bytesizedjoe.k8s;
+
+import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.metrics.OperationStats;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop (constant arrival rate) workload: each operation type is started on a fixed timeline
+ * regardless of how long earlier requests take, and latency is measured from the intended start
+ * time so queueing behind a slow transport shows up in the tail instead of lowering the load.
+ * <p>
+ * Per type {@code t} it records {@code t.intended} (completion minus intended start) and
+ * {@code t.lag} (actual start minus intended start) histograms plus {@code open.t.scheduled},
+ * {@code open.t.late} and {@code open.t.dropped} counters. A request dropped because the backlog was full
+ * is only counted: it has no latency to record, and any figure put in {@code t.intended} for it would be made
+ * up, so read the histogram together with the dropped share of {@code scheduled}.
+ */
+@NullMarked
+@Slf4j
+@UtilityClass
+public class OpenLoopWorkload {
+  public static final List<String> OPERATION_TYPES = List.of("configmap", "pods", "services");
+
+  public CompletableFuture<Void> start(final KubernetesClient client, final String namespace, final HarnessArgs args,
+                                       final OperationStats stats) {
+    final Map<String, Runnable> ops = Map.of(
+        "configmap", () -> Workloads.createUpdateDeleteConfigMapOnce(client, namespace, args, stats),
+        "pods", () -> Workloads.runPaginatedPodList(client, args.getPageSize(), args.getListMode(), stats),
+        "services", () -> Workloads.runPaginatedServiceList(client, args.getPageSize(), stats));
+
+    final List<CompletableFuture<Void>> lanes = new ArrayList<>();
+    args.getRates().forEach((type, rate) -> {
+      final Runnable op = ops.get(type);
+      if (op == null) {
+        log.warn("Ignoring --rate for unknown operation type '{}' (known: {})", type, OPERATION_TYPES);
+      } else if (rate > 0) {
+        lanes.add(startLane(type, rate, op, args, stats));
+      }
+    });
+    return CompletableFuture.allOf(lanes.toArray(new CompletableFuture[0]));
+  }
+
+  private CompletableFuture<Void> startLane(final String type, final double rate, final Runnable op,
+                                            final HarnessArgs args, final OperationStats stats) {
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+    final Thread dispatcher = new Thread(() -> {
+      try {
+        dispatch(type, rate, op, args, stats);
+        done.complete(null);
+      } catch (Throwable t) {
+        done.completeExceptionally(t);
+      }
+    }, "open-loop-" + type);
+    dispatcher.setDaemon(true);
+    dispatcher.start();
+    return done;
+  }
+
+  private void dispatch(final String type, final double rate, final Runnable op, final HarnessArgs args,
+                        final OperationStats stats) throws InterruptedException {
+    final ExecutorService pool = Workloads.newWorkerPool(args, "open-loop-" + type);
+    final long periodNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+    // Bound the backlog so a stalled transport can't queue unbounded work; overflow is reported as dropped
+    final int maxOutstanding = Math.max(args.getWorkloadThreads() * 4, (int) Math.ceil(rate * 2));
+    final var outstanding = new AtomicInteger();
+    final String prefix = "open." + type + ".";
+
+    final long start = System.nanoTime();
+    final long end = start + TimeUnit.SECONDS.toNanos(args.getDurationSeconds());
+    try {
+      for (long k = 0; ; k++) {
+        final long intended = start + k * periodNanos;
+        if (intended >= end) break;
+        for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime()) {
+          LockSupport.parkNanos(wait);
+        }
+        stats.increment(prefix + "scheduled");
+        if (outstanding.get() >= maxOutstanding) {
+          stats.increment(prefix + "dropped");
+          continue;
+        }
+        outstanding.incrementAndGet();
+        pool.execute(() -> {
+          final long begin = System.nanoTime();
+          stats.record(type + ".lag", begin - intended, null);
+          if (begin - intended > periodNanos) {
+            stats.increment(prefix + "late");
+          }
+          Throwable error = null;
+          try {
+            op.run();
+          } catch (RuntimeException e) {
+            error = e;
+          } finally {
+            stats.record(type + ".intended", System.nanoTime() - intended, error);
+            outstanding.decrementAndGet();
+          }
+        });
+      }
+    } finally {
+      pool.shutdown();
+      if (!pool.awaitTermination(args.getRequestTimeoutSeconds() * 2L + 30, TimeUnit.SECONDS)) {
+        pool.shutdownNow();
+      }
+    }
+    final long scheduled = stats.counter(prefix + "scheduled");
+    final long late = stats.counter(prefix + "late");
+    final long droppedCount = stats.counter(prefix + "dropped");
+    if (droppedCount > 0 || late > scheduled / 100) {
+      log.warn("Open-loop '{}' could not keep up with {}/s: {} scheduled, {} started late, {} dropped",
+          type, rate, scheduled, late, droppedCount);
+    } else {
+      log.info("Open-loop '{}' kept up with {}/s: {} scheduled, {} started late", type, rate, scheduled, late);
+    }
+  }
+}
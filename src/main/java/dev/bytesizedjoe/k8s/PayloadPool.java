@@ -0,0 +1,66 @@
+package dev.bytesizedjoe.k8s;
+
+import lombok.experimental.UtilityClass;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.Base64;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * ConfigMap values (Base64 of random bytes) and the patch bodies built from them, generated once per size
+ * and handed out in rotation. The workload's hot loop then allocates nothing of its own for a payload, so
+ * what {@code allocation.txt} shows for a write is the client's serialization and buffering.
+ * {@link #VARIANTS} values per size keep consecutive updates from being no-ops.
+ */
+@NullMarked
+@UtilityClass
+public class PayloadPool {
+  static final int VARIANTS = 16;
+
+  private final Map<String, String[]> pool = new ConcurrentHashMap<>();
+  private final AtomicInteger turn = new AtomicInteger();
+
+  /** A value encoding {@code rawBytes} random bytes (4/3 as many characters). */
+  public String next(final int rawBytes) {
+    return pick(values(rawBytes));
+  }
+
+  /**
+   * A body made from a value of {@code rawBytes} by {@code render}, rendered once per value and cached under
+   * {@code kind}; {@code render} must depend on the value only.
+   */
+  public String next(final String kind, final int rawBytes, final UnaryOperator<String> render) {
+    return pick(pool.computeIfAbsent(kind + ":" + rawBytes, k -> {
+      final String[] values = values(rawBytes);
+      final String[] bodies = new String[values.length];
+      for (var i = 0; i < values.length; i++) bodies[i] = render.apply(values[i]);
+      return bodies;
+    }));
+  }
+
+  /** Generates the values of {@code rawBytes} ahead of a measurement, so the first requests don't pay for it. */
+  public void prepare(final int rawBytes) {
+    values(rawBytes);
+  }
+
+  private String[] values(final int rawBytes) {
+    return pool.computeIfAbsent(String.valueOf(rawBytes), k -> {
+      final var random = new Random(rawBytes);
+      final String[] values = new String[VARIANTS];
+      final byte[] b = new byte[Math.max(0, rawBytes)];
+      for (var i = 0; i < VARIANTS; i++) {
+        random.nextBytes(b);
+        values[i] = Base64.getEncoder().encodeToString(b);
+      }
+      return values;
+    });
+  }
+
+  private String pick(final String[] values) {
+    return values[Math.floorMod(turn.getAndIncrement(), values.length)];
+  }
+}
@@ -0,0 +1,216 @@
+package dev.bytesizedjoe.k8s;
+
+import dev.bytesizedjoe.metrics.MemoryFootprint;
+import dev.bytesizedjoe.metrics.OperationStats;
+import io.fabric8.kubernetes.api.model.ListOptions;
+import io.fabric8.kubernetes.api.model.ListOptionsBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.WatcherException;
+import io.fabric8.kubernetes.client.http.BasicBuilder;
+import io.fabric8.kubernetes.client.http.HttpRequest;
+import io.fabric8.kubernetes.client.http.Interceptor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A set of concurrent cluster-wide pod watches, each on its own connection, instrumented with
+ * {@link InstrumentedPodWatcher}. Opening the set measures heap, direct memory and thread growth and
+ * writes it per watch to {@code watches.txt}, so {@code --watches 1000} shows what each transport
+ * pays per open watch.
+ * <p>
+ * Reconnects done internally by the client are counted from the connection requests it issues
+ * ({@link #CONNECT_COUNTER} must be registered on the client). Each set's watches carry a field selector
+ * excluding a pod name no pod has ({@code ab-watch-set-<n>}), which the client sends again on every
+ * reconnect, so other pod watches (informers, other sets) aren't counted. Watches that fail outright are
+ * reopened from their last resource version, replacing the failed one, and counted as {@code watch.reopened}.
+ */
+@NullMarked
+@Slf4j
+public final class PodWatches implements AutoCloseable {
+  public static final String FILE_NAME = "watches.txt";
+  static final String MARKER_PREFIX = "ab-watch-set-";
+  private static final AtomicLong SET_IDS = new AtomicLong();
+  private static final Map<String, PodWatches> ACTIVE = new ConcurrentHashMap<>();
+
+  /** Counts pod watch (re)connection requests against the open watch set that sent them. */
+  public static final Interceptor CONNECT_COUNTER = new Interceptor() {
+    @Override
+    public void before(final BasicBuilder builder, final HttpRequest request, final RequestTags tags) {
+      final String marker = marker(request.uri());
+      final var set = marker != null ? ACTIVE.get(marker) : null;
+      if (set != null) set.connected();
+    }
+  };
+
+  private final KubernetesClient client;
+  private final OperationStats stats;
+  private final String marker = MARKER_PREFIX + SET_IDS.incrementAndGet();
+  /** Open watches by their watcher, so a failed one can be replaced; guarded by itself, as is {@link #failed}. */
+  private final Map<InstrumentedPodWatcher, Watch> watches = new LinkedHashMap<>();
+  private final Set<InstrumentedPodWatcher> failed = new HashSet<>();
+  private final AtomicLong opened = new AtomicLong();
+  private final AtomicLong connects = new AtomicLong();
+  private volatile boolean closed;
+  private long openMillis;
+
+  private PodWatches(final KubernetesClient client, final OperationStats stats) {
+    this.client = client;
+    this.stats = stats;
+  }
+
+  /** Opens {@code count} watches starting at the current resource version and records their footprint in {@code runDir}. */
+  public static PodWatches open(final KubernetesClient client, final int count, final OperationStats stats,
+                                final Path runDir) {
+    final MemoryFootprint before = MemoryFootprint.measure();
+    final var set = open(client, count, stats);
+    final MemoryFootprint after = MemoryFootprint.measure();
+    try {
+      writeFootprint(runDir.resolve(FILE_NAME), count, set.size(), set.openMillis, before, after);
+    } catch (IOException e) {
+      log.warn("Failed to write watch footprint: {}", e.toString());
+    }
+    return set;
+  }
+
+  /**
+   * Opens {@code count} watches starting at the current resource version without measuring their footprint,
+   * which would force two GCs: for reopening watches on a schedule, as a soak does.
+   */
+  public static PodWatches open(final KubernetesClient client, final int count, final OperationStats stats) {
+    final var set = new PodWatches(client, stats);
+    ACTIVE.put(set.marker, set);
+    final long start = System.nanoTime();
+    final String resourceVersion = currentResourceVersion(client);
+    for (var i = 0; i < count; i++) {
+      try {
+        set.openOne(resourceVersion);
+      } catch (RuntimeException e) {
+        log.warn("Failed to open pod watch {}/{}: {}", i + 1, count, e.toString());
+      }
+    }
+    set.openMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    log.info("Opened {} of {} pod watches in {} ms", set.size(), count, set.openMillis);
+    return set;
+  }
+
+  /** Watches currently open. */
+  public int size() {
+    synchronized (watches) {
+      return watches.size();
+    }
+  }
+
+  /** How long opening the set took. */
+  public long openMillis() {
+    return openMillis;
+  }
+
+  private void openOne(@Nullable final String resourceVersion) {
+    final var watcher = new InstrumentedPodWatcher[1];
+    watcher[0] = new InstrumentedPodWatcher(stats, cause -> reopen(watcher[0], cause));
+    opened.incrementAndGet();
+    final Watch watch = stats.time("watch.open", () -> client.pods().inAnyNamespace().watch(options(resourceVersion), watcher[0]));
+    final boolean keep;
+    synchronized (watches) {
+      // It may have failed, and been replaced, before watch() returned
+      keep = !closed && !failed.remove(watcher[0]);
+      if (keep) watches.put(watcher[0], watch);
+    }
+    if (!keep) {
+      try { watch.close(); } catch (Exception ignore) {}
+    }
+  }
+
+  private void reopen(final InstrumentedPodWatcher watcher, final WatcherException cause) {
+    if (closed) return;
+    final Watch dead;
+    synchronized (watches) {
+      dead = watches.remove(watcher);
+      if (dead == null) failed.add(watcher);
+    }
+    if (dead != null) {
+      try { dead.close(); } catch (Exception ignore) {}
+    }
+    // 410 Gone means our resource version was compacted away; start again from "now"
+    final String resumeFrom = cause.isHttpGone() ? currentResourceVersion(client) : watcher.lastResourceVersion();
+    stats.increment("watch.reopened");
+    try {
+      openOne(resumeFrom);
+    } catch (RuntimeException e) {
+      log.warn("Failed to reopen pod watch: {}", e.toString());
+    }
+  }
+
+  private void connected() {
+    stats.increment("watch.connects");
+    if (connects.incrementAndGet() > opened.get()) {
+      stats.increment("watch.reconnects");
+    }
+  }
+
+  private ListOptions options(@Nullable final String resourceVersion) {
+    // Starting from a known version avoids a synthetic ADDED event per existing pod on every watch
+    return new ListOptionsBuilder().withResourceVersion(resourceVersion).withAllowWatchBookmarks(true)
+        .withFieldSelector("metadata.name!=" + marker)
+        .build();
+  }
+
+  /** The watch set marker in a pod watch request's field selector, or null for any other request. */
+  static @Nullable String marker(final URI uri) {
+    final String query = uri.getRawQuery();
+    if (query == null || !query.contains("watch=true") || !uri.getRawPath().endsWith("/pods")) return null;
+    final int start = query.indexOf(MARKER_PREFIX);
+    if (start < 0) return null;
+    int end = start + MARKER_PREFIX.length();
+    while (end < query.length() && Character.isDigit(query.charAt(end))) end++;
+    return end > start + MARKER_PREFIX.length() ? query.substring(start, end) : null;
+  }
+
+  private static @Nullable String currentResourceVersion(final KubernetesClient client) {
+    try {
+      final var list = client.pods().inAnyNamespace().list(new ListOptionsBuilder().withLimit(1L).build());
+      return list.getMetadata() != null ? list.getMetadata().getResourceVersion() : null;
+    } catch (RuntimeException e) {
+      log.debug("Could not read current pod resource version: {}", e.toString());
+      return null;
+    }
+  }
+
+  private static void writeFootprint(final Path file, final int requested, final int opened, final long openMillis,
+                                     final MemoryFootprint before, final MemoryFootprint after) throws IOException {
+    Files.createDirectories(file.getParent());
+    try (var out = new PrintWriter(Files.newBufferedWriter(file))) {
+      out.printf(Locale.ROOT, "# watches requested=%d opened=%d open_ms=%d%n", requested, opened, openMillis);
+      MemoryFootprint.writeDelta(out, before, after, opened, "per_watch");
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    ACTIVE.remove(marker);
+    synchronized (watches) {
+      for (final Watch w : watches.values()) {
+        try { w.close(); } catch (Exception ignore) {}
+      }
+      watches.clear();
+      failed.clear();
+    }
+  }
+}
@@ -1,10 +1,9 @@
 package dev.bytesizedjoe.k8s;
 
 import io.fabric8.kubernetes.api.model.ContainerStatus;
+import io.fabric8.kubernetes.api.model.ListOptionsBuilder;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.client.KubernetesClient;
-import io.fabric8.kubernetes.client.Watcher;
-import io.fabric8.kubernetes.client.WatcherException;
 import lombok.experimental.UtilityClass;
 import org.jspecify.annotations.NullMarked;
 
@@ -24,6 +23,17 @@ public class Pods {
         .findFirst();
   }
 
+  /** Up to {@code count} running pods with a ready container, from a single list call. */
+  public List<Pod> running(final KubernetesClient client, final int count) {
+    // Ask for more than needed since some listed pods may not be running
+    final var options = new ListOptionsBuilder().withLimit((long) Math.max(2 * count, 100)).build();
+    return client.pods().inAnyNamespace().list(options).getItems().stream()
+        .filter(p -> Objects.equals("Running", Optional.ofNullable(p.getStatus()).map(s -> s.getPhase()).orElse(null)))
+        .filter(p -> firstRunningContainerName(p).isPresent())
+        .limit(count)
+        .toList();
+  }
+
   public Optional<String> firstRunningContainerName(final Pod p) {
     if (p.getStatus() == null || p.getStatus().getContainerStatuses() == null) return Optional.empty();
     for (final ContainerStatus cs : p.getStatus().getContainerStatuses()) {
@@ -33,9 +43,4 @@ public class Pods {
     }
     return Optional.empty();
   }
-
-  public static final class NoopPodWatcher implements Watcher<Pod> {
-    @Override public void eventReceived(final Action action, final Pod resource) { }
-    @Override public void onClose(final WatcherException cause) { }
-  }
 }
@@ -0,0 +1,339 @@
+package dev.bytesizedjoe.k8s;
+
+import dev.bytesizedjoe.metrics.OperationStats;
+import dev.bytesizedjoe.mock.MockHttpServer;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.http.AsyncBody;
+import io.fabric8.kubernetes.client.http.HttpRequest;
+import io.fabric8.kubernetes.client.http.HttpResponse;
+import io.fabric8.kubernetes.client.http.Interceptor;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Traces every HTTP request a client sends (WebSocket sessions aside) and aggregates them per endpoint:
+ * method plus resource path with names and namespaces dropped, e.g. {@code GET pods} or
+ * {@code PATCH configmaps/{name}}. Each request is split into phases:
+ * <ul>
+ *   <li>{@code ttfb}: from the interceptor chain running to the response headers, so it includes getting
+ *   a connection and the server's time</li>
+ *   <li>{@code body}: from the headers to the last body byte, the transport's streaming</li>
+ *   <li>{@code decode}: from the last body byte to the end of the timed operation that sent it, mostly
+ *   deserialization; only for the last request of operations timed through {@link OperationStats#time}</li>
+ * </ul>
+ * The stand-in API server names each response's connection (see {@link MockHttpServer#CONNECTION_HEADER}), which tells
+ * reused connections from new ones; against a real API server that column stays empty.
+ * <p>
+ * Requests are matched across the interceptor callbacks by identity, so nothing is added to what goes on
+ * the wire. Retries and body sizes come from {@link RoundTripInterceptor}, which must run first; retries of
+ * unscoped requests (watches, informers) count as first attempts. A timed operation's requests that never got
+ * a response are counted as failed when it ends, unscoped ones once they have waited five minutes.
+ */
+@NullMarked
+public final class RequestTracer implements Interceptor {
+  public static final String NAME = "ab-request-trace";
+  public static final String FILE_NAME = "requests.txt";
+  private static final int SIGNIFICANT_DIGITS = 3;
+  private static final Map<KubernetesClient, RequestTracer> TRACERS = Collections.synchronizedMap(new WeakHashMap<>());
+  /** Unscoped requests still without response headers after this long are dropped as failed. */
+  private static final long EXPIRY_NANOS = TimeUnit.MINUTES.toNanos(5);
+  /** How many requests are sent between looks for expired ones. */
+  private static final int EXPIRY_INTERVAL = 1024;
+
+  /** Keyed by the request object itself: the client hands the same one to every callback of an attempt. */
+  private final Map<HttpRequest, Exchange> inFlight = new ConcurrentHashMap<>();
+  private final Map<OperationStats.Scope, Operation> operations = new ConcurrentHashMap<>();
+  private final AtomicLong sent = new AtomicLong();
+  private volatile Trace trace = new Trace();
+
+  /** Makes this the tracer {@link #of} returns for {@code client}; returns the client. */
+  KubernetesClient attach(final KubernetesClient client) {
+    TRACERS.put(client, this);
+    return client;
+  }
+
+  /** The tracer of a client built by {@link KubernetesClientFactory}; a detached one that sees nothing otherwise. */
+  public static RequestTracer of(final KubernetesClient client) {
+    final var tracer = TRACERS.get(client);
+    return tracer != null ? tracer : new RequestTracer();
+  }
+
+  /**
+   * Starts a new table; requests sent from now on are recorded there, those already in flight in the table that
+   * was current when they were sent.
+   */
+  public Trace begin() {
+    final var fresh = new Trace();
+    trace = fresh;
+    return fresh;
+  }
+
+  @Override
+  public AsyncBody.Consumer<List<ByteBuffer>> consumer(final AsyncBody.Consumer<List<ByteBuffer>> consumer,
+                                                       final HttpRequest request) {
+    final var attempt = RoundTripInterceptor.take(request);
+    final long now = System.nanoTime();
+    final var exchange = new Exchange(trace, endpoint(request.method(), request.uri()), attempt.retry,
+        attempt.bodyBytes, attempt.scope, now);
+    inFlight.put(request, exchange);
+    if (attempt.scope != null) {
+      operation(attempt.scope).requests.add(request);
+    } else if (sent.incrementAndGet() % EXPIRY_INTERVAL == 0) {
+      expire(now);
+    }
+    return new AsyncBody.Consumer<>() {
+      @Override
+      public void consume(final List<ByteBuffer> buffers, final AsyncBody body) throws Exception {
+        long bytes = 0;
+        for (final ByteBuffer b : buffers) bytes += b.remaining();
+        exchange.responseBytes.add(bytes);
+        consumer.consume(buffers, body);
+      }
+
+      @Override
+      public <U> U unwrap(final Class<U> target) {
+        return consumer.unwrap(target);
+      }
+    };
+  }
+
+  @Override
+  public void after(final HttpRequest request, final HttpResponse<?> response,
+                    final AsyncBody.Consumer<List<ByteBuffer>> consumer) {
+    final var exchange = inFlight.get(request);
+    if (exchange == null) return;
+    exchange.headers = System.nanoTime();
+    exchange.status = response.code();
+    exchange.reused = reused(response.header(MockHttpServer.CONNECTION_HEADER));
+    if (response.body() instanceof AsyncBody body) {
+      body.done().whenComplete((ignored, error) -> finish(request, exchange, error == null));
+    } else {
+      finish(request, exchange, true);
+    }
+  }
+
+  @Override
+  public void afterConnectionFailure(final HttpRequest request, final Throwable failure) {
+    final var exchange = inFlight.remove(request);
+    if (exchange != null) exchange.trace.failed(exchange);
+  }
+
+  /** The requests {@code scope} sent so far; the first one registers the bookkeeping for when it closes. */
+  private Operation operation(final OperationStats.Scope scope) {
+    final var fresh = new Operation();
+    final var existing = operations.putIfAbsent(scope, fresh);
+    if (existing != null) return existing;
+    scope.onClose(() -> {
+      operations.remove(scope);
+      final var last = fresh.last.get();
+      if (last != null) last.trace.decoded(last, System.nanoTime() - last.done);
+      // A blocking call has its response by now; anything without one was abandoned, e.g. on a timeout
+      for (final HttpRequest request : fresh.requests) {
+        final var e = inFlight.get(request);
+        if (e != null && e.headers == 0 && inFlight.remove(request, e)) e.trace.failed(e);
+      }
+    });
+    return fresh;
+  }
+
+  /**
+   * Drops unscoped requests that got no response headers within {@link #EXPIRY_NANOS}: the client doesn't
+   * always report a failed connection with the request object it sent, and nothing else ends them.
+   */
+  private void expire(final long now) {
+    inFlight.forEach((request, e) -> {
+      if (e.scope == null && e.headers == 0 && now - e.start > EXPIRY_NANOS && inFlight.remove(request, e)) {
+        e.trace.failed(e);
+      }
+    });
+  }
+
+  private void finish(final HttpRequest request, final Exchange exchange, final boolean complete) {
+    if (!inFlight.remove(request, exchange)) return;
+    exchange.done = System.nanoTime();
+    if (!complete) {
+      exchange.trace.failed(exchange);
+      return;
+    }
+    exchange.trace.record(exchange);
+    final var operation = exchange.scope != null ? operations.get(exchange.scope) : null;
+    if (operation != null) {
+      operation.last.accumulateAndGet(exchange, (last, e) -> last == null || last.done <= e.done ? e : last);
+    }
+  }
+
+  /** 1 when the stand-in served the request on a connection it had used before, 0 on a new one, -1 if unknown. */
+  static int reused(@Nullable final String connection) {
+    if (connection == null) return -1;
+    final int slash = connection.indexOf('/');
+    try {
+      return slash > 0 && Integer.parseInt(connection.substring(slash + 1).trim()) > 1 ? 1 : 0;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * {@code method} and the resource path below {@code /api/<version>} or {@code /apis/<group>/<version>}, with the
+   * namespace and object name dropped and the group kept as a prefix; watches get {@code ?watch}.
+   */
+  static String endpoint(final String method, final URI uri) {
+    final String[] path = uri.getRawPath() == null ? new String[0] : uri.getRawPath().split("/");
+    int i;
+    String group = "";
+    if (path.length > 1 && "api".equals(path[1])) {
+      i = 3;
+    } else if (path.length > 2 && "apis".equals(path[1])) {
+      group = path[2] + "/";
+      i = 4;
+    } else {
+      return method + " " + uri.getRawPath();
+    }
+    if (i + 2 < path.length && "namespaces".equals(path[i])) i += 2;
+    final var endpoint = new StringBuilder(method).append(' ').append(group);
+    if (i >= path.length) return endpoint.append('/').toString();
+    endpoint.append(path[i]);
+    if (i + 1 < path.length) endpoint.append("/{name}");
+    for (var j = i + 2; j < path.length; j++) endpoint.append('/').append(path[j]);
+    final String query = uri.getRawQuery();
+    if (query != null && query.contains("watch=true")) endpoint.append("?watch");
+    return endpoint.toString();
+  }
+
+  /** Per-endpoint aggregates of the requests that finished while this table was current. */
+  public static final class Trace {
+    private final Map<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+
+    void record(final Exchange exchange) {
+      final var e = endpoint(exchange);
+      if (exchange.status < 400) e.ok.increment();
+      else if (exchange.status < 500) e.clientErrors.increment();
+      else e.serverErrors.increment();
+      e.responseBytes.add(exchange.responseBytes.sum());
+      if (exchange.reused > 0) e.reused.increment();
+      else if (exchange.reused == 0) e.connected.increment();
+      e.ttfb.recordValue(Math.max(0, exchange.headers - exchange.start));
+      e.body.recordValue(Math.max(0, exchange.done - exchange.headers));
+    }
+
+    void failed(final Exchange exchange) {
+      endpoint(exchange).failed.increment();
+    }
+
+    void decoded(final Exchange exchange, final long nanos) {
+      endpoint(exchange).decode.recordValue(Math.max(0, nanos));
+    }
+
+    private Endpoint endpoint(final Exchange exchange) {
+      final var e = endpoints.computeIfAbsent(exchange.endpoint, k -> new Endpoint());
+      if (exchange.counted) return e;
+      exchange.counted = true;
+      if (exchange.retry) e.retries.increment();
+      e.requestBytes.add(exchange.requestBytes);
+      return e;
+    }
+
+    /** Writes {@link #FILE_NAME} to {@code dir}: one row per endpoint, latencies in ms, bodies in KB. */
+    public void write(final Path dir) throws IOException {
+      Files.createDirectories(dir);
+      try (final var out = new PrintWriter(Files.newBufferedWriter(dir.resolve(FILE_NAME), StandardCharsets.UTF_8))) {
+        out.printf(Locale.ROOT, "%-36s %8s %8s %6s %6s %6s %7s %10s %10s %7s %9s %9s %9s %9s %9s %9s%n",
+            "endpoint", "count", "ok", "4xx", "5xx", "failed", "retries", "req_kb", "resp_kb", "reused",
+            "ttfb_p50", "ttfb_p99", "body_p50", "body_p99", "dec_p50", "dec_p99");
+        endpoints.forEach((name, e) -> {
+          final long ok = e.ok.sum();
+          final long count = ok + e.clientErrors.sum() + e.serverErrors.sum() + e.failed.sum();
+          final long known = e.reused.sum() + e.connected.sum();
+          final Histogram ttfb = e.ttfb.copy();
+          final Histogram body = e.body.copy();
+          final Histogram decode = e.decode.copy();
+          out.printf(Locale.ROOT, "%-36s %8d %8d %6d %6d %6d %7d %10.1f %10.1f %7s %9.3f %9.3f %9.3f %9.3f %9s %9s%n",
+              name, count, ok, e.clientErrors.sum(), e.serverErrors.sum(), e.failed.sum(), e.retries.sum(),
+              e.requestBytes.sum() / 1024.0, e.responseBytes.sum() / 1024.0,
+              known > 0 ? String.format(Locale.ROOT, "%.1f%%", 100.0 * e.reused.sum() / known) : "-",
+              ms(ttfb.getValueAtPercentile(50)), ms(ttfb.getValueAtPercentile(99)),
+              ms(body.getValueAtPercentile(50)), ms(body.getValueAtPercentile(99)),
+              decode.getTotalCount() > 0 ? String.format(Locale.ROOT, "%.3f", ms(decode.getValueAtPercentile(50))) : "-",
+              decode.getTotalCount() > 0 ? String.format(Locale.ROOT, "%.3f", ms(decode.getValueAtPercentile(99))) : "-");
+        });
+        final long connected = endpoints.values().stream().mapToLong(e -> e.connected.sum()).sum();
+        final long reused = endpoints.values().stream().mapToLong(e -> e.reused.sum()).sum();
+        out.printf(Locale.ROOT, "# connections new=%d reused=%d%n", connected, reused);
+      }
+    }
+
+    private static double ms(final long nanos) {
+      return nanos / 1e6;
+    }
+  }
+
+  private static final class Endpoint {
+    final LongAdder ok = new LongAdder();
+    final LongAdder clientErrors = new LongAdder();
+    final LongAdder serverErrors = new LongAdder();
+    final LongAdder failed = new LongAdder();
+    final LongAdder retries = new LongAdder();
+    final LongAdder requestBytes = new LongAdder();
+    final LongAdder responseBytes = new LongAdder();
+    final LongAdder connected = new LongAdder();
+    final LongAdder reused = new LongAdder();
+    final Histogram ttfb = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    final Histogram body = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    final Histogram decode = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+  }
+
+  /** What a timed operation's requests need once it ends: which ones it sent and the last to finish. */
+  private static final class Operation {
+    final Queue<HttpRequest> requests = new ConcurrentLinkedQueue<>();
+    final AtomicReference<@Nullable Exchange> last = new AtomicReference<>();
+  }
+
+  /** One request attempt, from its consumer chain being built until its body completes. */
+  private static final class Exchange {
+    final Trace trace;
+    final String endpoint;
+    final boolean retry;
+    final long requestBytes;
+    final OperationStats.@Nullable Scope scope;
+    final long start;
+    final LongAdder responseBytes = new LongAdder();
+    volatile long headers;
+    volatile long done;
+    volatile int status;
+    volatile int reused = -1;
+    volatile boolean counted;
+
+    Exchange(final Trace trace, final String endpoint, final boolean retry, final long requestBytes,
+             final OperationStats.@Nullable Scope scope, final long start) {
+      this.trace = trace;
+      this.endpoint = endpoint;
+      this.retry = retry;
+      this.requestBytes = requestBytes;
+      this.scope = scope;
+      this.start = start;
+    }
+  }
+}
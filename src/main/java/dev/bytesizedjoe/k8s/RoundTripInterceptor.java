@@ -0,0 +1,104 @@
+package dev.bytesizedjoe.k8s;
+
+import dev.bytesizedjoe.metrics.OperationStats;
+import io.fabric8.kubernetes.client.http.AsyncBody;
+import io.fabric8.kubernetes.client.http.HttpRequest;
+import io.fabric8.kubernetes.client.http.Interceptor;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts the HTTP requests a timed operation sends, with their body bytes, into its
+ * {@link OperationStats.Scope}, including requests the client sends again after a connection failure or a
+ * retryable status. The client builds each attempt's body consumer chain on the thread sending it, right
+ * after the request interceptors ran: the first attempt on the calling thread, where the scope is known, and
+ * retries on the client's scheduler, where it isn't. Every attempt of one call starts that chain from the same
+ * caller's consumer, so an unscoped attempt whose consumer a still open timed operation sent is its retry; this
+ * interceptor must therefore come before any that wrap the consumer. Unscoped requests (watches, informers)
+ * are not counted; a watch that reconnects shows up in {@link PodWatches} instead.
+ * <p>
+ * Each attempt's body is measured here once and handed on to {@link RequestTracer} through {@link #take}.
+ */
+@NullMarked
+public final class RoundTripInterceptor implements Interceptor {
+  public static final String NAME = "ab-round-trips";
+  private static final ThreadLocal<Attempt> LAST = new ThreadLocal<>();
+
+  private final Map<AsyncBody.Consumer<List<ByteBuffer>>, OperationStats.Scope> owners = new ConcurrentHashMap<>();
+
+  @Override
+  public AsyncBody.Consumer<List<ByteBuffer>> consumer(final AsyncBody.Consumer<List<ByteBuffer>> consumer,
+                                                       final HttpRequest request) {
+    final long bytes = bodyBytes(request);
+    final var scope = OperationStats.Scope.current();
+    final var owner = scope != null ? scope : owners.get(consumer);
+    if (scope != null && owners.put(consumer, scope) != scope) {
+      scope.onClose(() -> owners.remove(consumer, scope));
+    }
+    if (owner != null) {
+      if (scope == null) owner.addRetry();
+      owner.addRequest(bytes);
+    }
+    LAST.set(new Attempt(request, owner, scope == null && owner != null, bytes));
+    return consumer;
+  }
+
+  /**
+   * What the last attempt this thread sent looked like, if it was {@code request}; measured afresh, as a
+   * first attempt, otherwise.
+   */
+  static Attempt take(final HttpRequest request) {
+    final var last = LAST.get();
+    LAST.remove();
+    return last != null && last.request == request
+        ? last
+        : new Attempt(request, OperationStats.Scope.current(), false, bodyBytes(request));
+  }
+
+  static long bodyBytes(final HttpRequest request) {
+    final String body = request.bodyString();
+    return body == null ? 0 : utf8Length(body);
+  }
+
+  /** The length of {@code s} encoded as UTF-8, without encoding it; an unpaired surrogate counts as {@code ?}. */
+  static long utf8Length(final CharSequence s) {
+    long bytes = 0;
+    for (int i = 0, n = s.length(); i < n; i++) {
+      final char c = s.charAt(i);
+      if (c < 0x80) {
+        bytes++;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+        bytes += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        bytes++;
+      } else {
+        bytes += 3;
+      }
+    }
+    return bytes;
+  }
+
+  /** One attempt at a request: the timed operation it was sent for, if any, and its body size. */
+  static final class Attempt {
+    final HttpRequest request;
+    final OperationStats.@Nullable Scope scope;
+    final boolean retry;
+    final long bodyBytes;
+
+    Attempt(final HttpRequest request, final OperationStats.@Nullable Scope scope, final boolean retry,
+            final long bodyBytes) {
+      this.request = request;
+      this.scope = scope;
+      this.retry = retry;
+      this.bodyBytes = bodyBytes;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package dev.bytesizedjoe.k8s;
+
+import io.fabric8.kubernetes.client.http.HttpClient;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * One HTTP client factory for many clients. For a Vert.x transport whose factory takes a {@code Vertx}, the
+ * factory is built on one Vert.x instance created here, so every client shares its event loops and worker
+ * pool; otherwise the given factory instance itself is shared. Vert.x is reached by reflection, through the
+ * factory's own classloader, so this works for isolated transports and without a compile-time dependency.
+ */
+@NullMarked
+@Slf4j
+public final class SharedTransport implements AutoCloseable {
+  private static final String VERTX = "io.vertx.core.Vertx";
+
+  private final HttpClient.Factory factory;
+  private final @Nullable Object vertx;
+
+  private SharedTransport(final HttpClient.Factory factory, @Nullable final Object vertx) {
+    this.factory = factory;
+    this.vertx = vertx;
+  }
+
+  public static SharedTransport of(final HttpClient.Factory template) {
+    final ClassLoader loader = template.getClass().getClassLoader();
+    final Thread current = Thread.currentThread();
+    final ClassLoader previous = current.getContextClassLoader();
+    current.setContextClassLoader(loader);
+    try {
+      final Class<?> vertxClass = Class.forName(VERTX, true, loader);
+      final var constructor = template.getClass().getConstructor(vertxClass);
+      final Object vertx = vertxClass.getMethod("vertx").invoke(null);
+      log.info("Sharing one Vert.x instance across clients of {}", template.getClass().getName());
+      return new SharedTransport((HttpClient.Factory) constructor.newInstance(vertx), vertx);
+    } catch (ReflectiveOperationException | LinkageError e) {
+      log.info("{} takes no Vert.x instance; sharing the factory itself", template.getClass().getName());
+      return new SharedTransport(template, null);
+    } finally {
+      current.setContextClassLoader(previous);
+    }
+  }
+
+  public HttpClient.Factory factory() {
+    return factory;
+  }
+
+  /** Whether the clients share a Vert.x instance created here, rather than just the factory. */
+  public boolean sharesVertx() {
+    return vertx != null;
+  }
+
+  /** Closes the shared Vert.x instance; close the clients first. */
+  @Override
+  public void close() {
+    if (vertx == null) return;
+    try {
+      // Through the interface: the implementation class isn't public
+      Class.forName(VERTX, false, factory.getClass().getClassLoader()).getMethod("close").invoke(vertx);
+    } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+      log.debug("Failed to close shared Vert.x: {}", e.toString());
+    }
+  }
+}
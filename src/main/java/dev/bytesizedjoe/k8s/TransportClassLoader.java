@@ -0,0 +1,154 @@
+package dev.bytesizedjoe.k8s;
+
+import io.fabric8.kubernetes.client.http.HttpClient;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.stream.Stream;
+
+/**
+ * Loads one HTTP transport (fabric8 transport module plus its Vert.x/Netty/OkHttp/Jetty jars) in isolation,
+ * so two transports whose dependencies conflict, such as Vert.x 4 and Vert.x 5, can run in the same JVM.
+ * <p>
+ * Transport packages are child-only: they are never taken from the parent, even if the harness jar was
+ * shaded with a transport of its own. Everything else (fabric8 API and model, Jackson, the harness) comes
+ * from the parent, so the transport's {@link HttpClient.Factory} plugs into the shared client API.
+ */
+@NullMarked
+@Slf4j
+public final class TransportClassLoader extends URLClassLoader {
+  static final List<String> ISOLATED_PACKAGES = List.of(
+      "io.vertx.", "io.netty.",
+      "io.fabric8.kubernetes.client.vertx.", "io.fabric8.kubernetes.client.okhttp.",
+      "io.fabric8.kubernetes.client.jetty.", "io.fabric8.kubernetes.client.jdkhttp.",
+      "okhttp3.", "okio.", "kotlin.", "org.eclipse.jetty.");
+  private static final String SERVICES = "META-INF/services/";
+
+  static {
+    registerAsParallelCapable();
+  }
+
+  private final String label;
+
+  TransportClassLoader(final String label, final URL[] urls, final ClassLoader parent) {
+    super("transport-" + label, urls, parent);
+    this.label = label;
+  }
+
+  /**
+   * Creates a loader for {@code classpath}: a directory (every jar in it), or jars and directories
+   * separated by the platform path separator.
+   */
+  public static TransportClassLoader create(final String label, final String classpath) {
+    final List<URL> urls = new ArrayList<>();
+    for (final String entry : classpath.split(File.pathSeparator)) {
+      if (entry.isBlank()) continue;
+      final Path path = Paths.get(entry.trim());
+      if (Files.isDirectory(path)) {
+        try (Stream<Path> files = Files.list(path)) {
+          files.filter(f -> f.getFileName().toString().endsWith(".jar")).sorted().forEach(f -> urls.add(toUrl(f)));
+        } catch (IOException e) {
+          throw new UncheckedIOException("Cannot list transport jars in " + path, e);
+        }
+      } else if (Files.isRegularFile(path)) {
+        urls.add(toUrl(path));
+      } else {
+        throw new IllegalArgumentException("Transport classpath entry for '" + label + "' does not exist: " + path);
+      }
+    }
+    if (urls.isEmpty()) {
+      throw new IllegalArgumentException("No transport jars found for '" + label + "' in " + classpath);
+    }
+    log.info("Transport {} loads {} jars from {}", label, urls.size(), classpath);
+    return new TransportClassLoader(label, urls.toArray(URL[]::new), TransportClassLoader.class.getClassLoader());
+  }
+
+  /** The HTTP client factory defined by this loader's own jars; the parent's providers are never considered. */
+  public HttpClient.Factory loadFactory() {
+    final List<HttpClient.Factory> found = new ArrayList<>();
+    final var it = ServiceLoader.load(HttpClient.Factory.class, this).iterator();
+    while (it.hasNext()) {
+      try {
+        final HttpClient.Factory factory = it.next();
+        if (factory.getClass().getClassLoader() == this) found.add(factory);
+      } catch (ServiceConfigurationError e) {
+        log.debug("Skipping HTTP client provider for {}: {}", label, e.toString());
+      }
+    }
+    // Same rule as fabric8's own selection: the highest priority wins
+    return found.stream()
+        .max(Comparator.comparingInt(HttpClient.Factory::priority))
+        .orElseThrow(() -> new IllegalStateException("No fabric8 HTTP client factory in transport '" + label + "'"));
+  }
+
+  public String label() {
+    return label;
+  }
+
+  static boolean isIsolated(final String className) {
+    for (final String prefix : ISOLATED_PACKAGES) {
+      if (className.startsWith(prefix)) return true;
+    }
+    return false;
+  }
+
+  @Override
+  protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+    if (!isIsolated(name)) {
+      return super.loadClass(name, resolve);
+    }
+    synchronized (getClassLoadingLock(name)) {
+      Class<?> c = findLoadedClass(name);
+      if (c == null) {
+        c = findClass(name);
+      }
+      if (resolve) {
+        resolveClass(c);
+      }
+      return c;
+    }
+  }
+
+  @Override
+  public @Nullable URL getResource(final String name) {
+    return isIsolatedResource(name) ? findResource(name) : super.getResource(name);
+  }
+
+  @Override
+  public Enumeration<URL> getResources(final String name) throws IOException {
+    // Service registrations for transport SPIs must not list the parent's copies of transport classes
+    return isIsolatedResource(name) ? findResources(name) : super.getResources(name);
+  }
+
+  static boolean isIsolatedResource(final String name) {
+    if (name.startsWith(SERVICES)) {
+      final String service = name.substring(SERVICES.length());
+      return service.equals(HttpClient.Factory.class.getName()) || isIsolated(service);
+    }
+    return isIsolated(name.replace('/', '.'));
+  }
+
+  private static URL toUrl(final Path path) {
+    try {
+      return path.toUri().toURL();
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException(path.toString(), e);
+    }
+  }
+}
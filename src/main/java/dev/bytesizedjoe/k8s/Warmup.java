@@ -0,0 +1,152 @@
+package dev.bytesizedjoe.k8s;
+
+import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.metrics.OperationStats;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import lombok.Value;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the measured workload mix in {@code --warmupWindow} second windows until the JVM and the transport
+ * have settled: at least {@code --warmup} seconds, then until the last {@link #SPAN} windows agree on
+ * throughput within {@code --warmupTolerance} percent and JIT compilation in each of them has died down, or
+ * {@code --warmupMax} seconds have passed. How long that took is itself a startup cost, so the
+ * {@link Result} is written next to each run as {@link #FILE_NAME}.
+ * <p>
+ * Compilation counts as died down when a window spent at most the tolerance share of the busiest window's
+ * compile time, or under 1% of the window's wall time. Without compilation time monitoring only throughput is
+ * checked.
+ */
+@NullMarked
+@Slf4j
+@UtilityClass
+public class Warmup {
+  public static final String FILE_NAME = "warmup.txt";
+  /** Consecutive windows that must agree before the warmup ends. */
+  static final int SPAN = 3;
+
+  private static final @Nullable CompilationMXBean COMPILER = compiler();
+
+  public Result run(final KubernetesClient client, final String namespace, final HarnessArgs args)
+      throws InterruptedException {
+    final long window = Math.max(1, args.getWarmupWindowSeconds());
+    final long ceiling = Math.max(args.getWarmupSeconds(), args.getWarmupMaxSeconds());
+    final double tolerance = args.getWarmupTolerancePercent() / 100.0;
+    final var windowArgs = args.toBuilder().durationSeconds(window).build();
+    log.info("Warmup: at least {} s, then until steady in {} s windows, at most {} s...",
+        args.getWarmupSeconds(), window, ceiling);
+    final List<Window> windows = new ArrayList<>();
+    final long start = System.nanoTime();
+    long compiled = compileMillis();
+    double elapsed = 0;
+    boolean steady = false;
+    while (elapsed < ceiling) {
+      final var stats = new OperationStats();
+      try {
+        Workloads.startWorkload(client, namespace, windowArgs, stats).get();
+      } catch (ExecutionException e) {
+        log.warn("Warmup window failed: {}", String.valueOf(e.getCause()));
+      }
+      final long nowCompiled = compileMillis();
+      elapsed = (System.nanoTime() - start) / 1e9;
+      final double seconds = Math.max(1e-3, stats.activeSeconds());
+      windows.add(new Window(elapsed, stats.combinedLatency().getTotalCount() / seconds,
+          compiled >= 0 ? nowCompiled - compiled : -1, stats.totalErrors()));
+      compiled = nowCompiled;
+      steady = elapsed >= args.getWarmupSeconds() && isSteady(windows, tolerance, TimeUnit.SECONDS.toMillis(window));
+      if (steady) break;
+    }
+    final var result = new Result(elapsed, steady, windows);
+    if (steady) {
+      log.info("Warmup steady after {} s ({} windows, {} ops/s)", String.format(Locale.ROOT, "%.1f", elapsed),
+          windows.size(), String.format(Locale.ROOT, "%.1f", result.opsPerSecond()));
+    } else {
+      log.warn("Warmup hit the {} s ceiling before throughput and compilation settled; see {}", ceiling, FILE_NAME);
+    }
+    return result;
+  }
+
+  /**
+   * Whether the last {@link #SPAN} windows spread at most {@code tolerance} of their mean throughput, and each
+   * compiled for at most {@code tolerance} of the busiest window's compile time or 1% of {@code windowMillis}.
+   */
+  static boolean isSteady(final List<Window> windows, final double tolerance, final long windowMillis) {
+    if (windows.size() < SPAN) return false;
+    final List<Window> last = windows.subList(windows.size() - SPAN, windows.size());
+    final double mean = last.stream().mapToDouble(Window::getOpsPerSecond).average().orElse(0);
+    final double spread = last.stream().mapToDouble(Window::getOpsPerSecond).max().orElse(0)
+        - last.stream().mapToDouble(Window::getOpsPerSecond).min().orElse(0);
+    if (mean <= 0 || spread > tolerance * mean) return false;
+    final long peak = windows.stream().mapToLong(Window::getCompileMillis).max().orElse(-1);
+    if (peak < 0) return true;
+    final double quiet = Math.max(tolerance * peak, 0.01 * windowMillis);
+    return last.stream().allMatch(w -> w.compileMillis <= quiet);
+  }
+
+  /** Total JIT compilation time so far in ms, or -1 when the JVM doesn't monitor it. */
+  private long compileMillis() {
+    return COMPILER != null ? COMPILER.getTotalCompilationTime() : -1;
+  }
+
+  private static @Nullable CompilationMXBean compiler() {
+    final CompilationMXBean bean = ManagementFactory.getCompilationMXBean();
+    return bean != null && bean.isCompilationTimeMonitoringSupported() ? bean : null;
+  }
+
+  /** One warmup window: when it ended (s since the warmup started), its throughput, compile time and errors. */
+  @Value
+  public static class Window {
+    double elapsedSeconds;
+    double opsPerSecond;
+    long compileMillis;
+    long errors;
+  }
+
+  @Value
+  public static class Result {
+    double seconds;
+    boolean steady;
+    List<Window> windows;
+
+    /** Throughput of the last window, i.e. where the warmup settled. */
+    public double opsPerSecond() {
+      return windows.isEmpty() ? 0 : windows.get(windows.size() - 1).opsPerSecond;
+    }
+
+    public long compileMillis() {
+      return windows.stream().mapToLong(Window::getCompileMillis).filter(ms -> ms >= 0).sum();
+    }
+
+    /** Writes the summary as {@code key value} lines, then the windows as comment lines, to {@code file}. */
+    public void write(final Path file) throws IOException {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+      try (final var out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+        out.printf(Locale.ROOT, "seconds %.1f%n", seconds);
+        out.printf(Locale.ROOT, "steady %s%n", steady);
+        out.printf(Locale.ROOT, "windows %d%n", windows.size());
+        out.printf(Locale.ROOT, "compile_ms %d%n", compileMillis());
+        out.printf(Locale.ROOT, "ops_s %.1f%n", opsPerSecond());
+        out.println("# elapsed_s ops_s compile_ms errors");
+        for (final Window w : windows) {
+          out.printf(Locale.ROOT, "# %.1f %.1f %d %d%n", w.elapsedSeconds, w.opsPerSecond, w.compileMillis, w.errors);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,254 @@
+package dev.bytesizedjoe.k8s;
+
+import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.metrics.MemoryFootprint;
+import dev.bytesizedjoe.metrics.OperationStats;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.LocalPortForward;
+import io.fabric8.kubernetes.client.dsl.ExecWatch;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk data through the WebSocket upgrade path: {@code --execSessions} exec sessions pushing data through
+ * stdin and reading it back from stdout, and {@code --portForwards} port-forwards pushing it through a
+ * forwarded local socket, each against a pod that echoes (the stand-in server does, for any command or port).
+ * <p>
+ * Each session keeps {@value #WINDOW} chunks of {@code --wsChunk} bytes in flight. Every chunk carries
+ * its send time, so the echo gives the frame round trip ({@code exec.frame}, {@code portforward.frame});
+ * {@code exec.open} is the exec upgrade and {@code portforward.open} the time from connecting to the
+ * forwarded socket to the first echo, which includes the upgrade. A session whose echo stalls for
+ * {@code --wsTimeout} seconds is abandoned and counted. MB/s and memory per session go to
+ * {@code websockets.txt}.
+ */
+@NullMarked
+@Slf4j
+public final class WebSocketSessions implements AutoCloseable {
+  public static final String FILE_NAME = "websockets.txt";
+  static final int WINDOW = 4;
+  private static final int FORWARDED_PORT = 8080;
+  private static final String EXEC = "exec";
+  private static final String PORT_FORWARD = "portforward";
+
+  private final OperationStats stats;
+  private final Path runDir;
+  private final int chunkBytes;
+  private final long stallSeconds;
+  private final List<Session> sessions = new ArrayList<>();
+  private final List<AutoCloseable> resources = new ArrayList<>();
+  private final long startNanos = System.nanoTime();
+  private volatile boolean closed;
+  private MemoryFootprint before = MemoryFootprint.sample();
+  private MemoryFootprint after = before;
+
+  private WebSocketSessions(final OperationStats stats, final Path runDir, final int chunkBytes, final long stallSeconds) {
+    this.stats = stats;
+    this.runDir = runDir;
+    this.chunkBytes = Math.max(Long.BYTES, chunkBytes);
+    this.stallSeconds = Math.max(1, stallSeconds);
+  }
+
+  /** Opens the sessions, waits for each one's first echo and measures the footprint, then leaves them pumping. */
+  public static WebSocketSessions open(final KubernetesClient client, final HarnessArgs args, final OperationStats stats,
+                                       final Path runDir) {
+    final var set = new WebSocketSessions(stats, runDir, args.getWebsocketChunkBytes(), args.getWebsocketTimeoutSeconds());
+    set.before = MemoryFootprint.measure();
+    final List<Pod> pods = Pods.running(client, Math.max(args.getExecSessions(), args.getPortForwards()));
+    if (pods.isEmpty() && args.getExecSessions() + args.getPortForwards() > 0) {
+      log.warn("No running pods to exec into or port-forward to");
+    }
+    for (var i = 0; i < args.getExecSessions() && !pods.isEmpty(); i++) {
+      set.openExec(client, pods.get(i % pods.size()));
+    }
+    for (var i = 0; i < args.getPortForwards() && !pods.isEmpty(); i++) {
+      set.openPortForward(client, pods.get(i % pods.size()));
+    }
+    set.awaitFirstEchoes();
+    set.after = MemoryFootprint.measure();
+    log.info("Opened {} exec and {} port-forward sessions", set.count(EXEC), set.count(PORT_FORWARD));
+    return set;
+  }
+
+  private void openExec(final KubernetesClient client, final Pod pod) {
+    try {
+      final ExecWatch watch = stats.time(EXEC + ".open", () -> client.pods()
+          .inNamespace(pod.getMetadata().getNamespace())
+          .withName(pod.getMetadata().getName())
+          .inContainer(Pods.firstRunningContainerName(pod).orElseThrow())
+          .redirectingInput()
+          .redirectingOutput()
+          .exec("cat"));
+      resources.add(watch);
+      start(new Session(EXEC, watch.getInput(), watch.getOutput(), System.nanoTime()));
+    } catch (RuntimeException e) {
+      log.warn("Failed to exec into {}: {}", pod.getMetadata().getName(), e.toString());
+    }
+  }
+
+  private void openPortForward(final KubernetesClient client, final Pod pod) {
+    try {
+      final LocalPortForward forward = client.pods()
+          .inNamespace(pod.getMetadata().getNamespace())
+          .withName(pod.getMetadata().getName())
+          .portForward(FORWARDED_PORT);
+      resources.add(forward);
+      final long connectNanos = System.nanoTime();
+      final var socket = new Socket(InetAddress.getLoopbackAddress(), forward.getLocalPort());
+      socket.setTcpNoDelay(true);
+      socket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(stallSeconds));
+      resources.add(socket);
+      start(new Session(PORT_FORWARD, socket.getOutputStream(), socket.getInputStream(), connectNanos));
+    } catch (IOException | RuntimeException e) {
+      log.warn("Failed to port-forward to {}: {}", pod.getMetadata().getName(), e.toString());
+    }
+  }
+
+  private void start(final Session session) {
+    sessions.add(session);
+    final int n = sessions.size();
+    for (final Thread t : List.of(
+        new Thread(session::write, "ws-" + session.kind + "-" + n + "-writer"),
+        new Thread(session::read, "ws-" + session.kind + "-" + n + "-reader"))) {
+      t.setDaemon(true);
+      t.start();
+    }
+  }
+
+  private void awaitFirstEchoes() {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(stallSeconds);
+    for (final Session s : sessions) {
+      try {
+        if (!s.firstEcho.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+          log.warn("No echo on a {} session within {} s", s.kind, stallSeconds);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private long count(final String kind) {
+    return sessions.stream().filter(s -> s.kind.equals(kind)).count();
+  }
+
+  /** One bidirectional stream, pumped by a writer and a reader thread sharing a window of chunks. */
+  private final class Session {
+    private final String kind;
+    private final OutputStream out;
+    private final InputStream in;
+    private final long openStartNanos;
+    private final Semaphore window = new Semaphore(WINDOW);
+    private final CountDownLatch firstEcho = new CountDownLatch(1);
+    private volatile boolean failed;
+
+    Session(final String kind, final OutputStream out, final InputStream in, final long openStartNanos) {
+      this.kind = kind;
+      this.out = out;
+      this.in = in;
+      this.openStartNanos = openStartNanos;
+    }
+
+    void write() {
+      final byte[] chunk = new byte[chunkBytes];
+      Arrays.fill(chunk, (byte) 'x');
+      final ByteBuffer stamp = ByteBuffer.wrap(chunk);
+      try {
+        while (!closed && !failed) {
+          if (!window.tryAcquire(stallSeconds, TimeUnit.SECONDS)) {
+            fail("stalled", null);
+            return;
+          }
+          stamp.putLong(0, System.nanoTime());
+          out.write(chunk);
+          out.flush();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (IOException | RuntimeException e) {
+        fail("failed", e);
+      }
+    }
+
+    void read() {
+      final byte[] chunk = new byte[chunkBytes];
+      final ByteBuffer stamp = ByteBuffer.wrap(chunk);
+      try {
+        while (!closed && !failed) {
+          if (in.readNBytes(chunk, 0, chunkBytes) < chunkBytes) {
+            if (!closed) fail("failed", null);
+            return;
+          }
+          final long now = System.nanoTime();
+          if (firstEcho.getCount() > 0) {
+            if (PORT_FORWARD.equals(kind)) stats.record(kind + ".open", now - openStartNanos, null);
+            firstEcho.countDown();
+          }
+          stats.record(kind + ".frame", now - stamp.getLong(0), null);
+          stats.add(kind + ".bytes", 2L * chunkBytes);
+          window.release();
+        }
+      } catch (IOException | RuntimeException e) {
+        fail("failed", e);
+      }
+    }
+
+    private void fail(final String reason, @Nullable final Exception cause) {
+      if (closed || failed) return;
+      failed = true;
+      stats.increment(kind + "." + reason);
+      log.debug("{} session {}: {}", kind, reason, cause == null ? "-" : cause.toString());
+    }
+  }
+
+  @Override
+  public void close() {
+    if (closed) return;
+    final double seconds = (System.nanoTime() - startNanos) / 1e9;
+    closed = true;
+    for (final AutoCloseable r : resources) {
+      try { r.close(); } catch (Exception ignore) {}
+    }
+    try {
+      write(runDir.resolve(FILE_NAME), seconds);
+    } catch (IOException e) {
+      log.warn("Failed to write WebSocket session summary: {}", e.toString());
+    }
+  }
+
+  private void write(final Path file, final double seconds) throws IOException {
+    Files.createDirectories(file.getParent());
+    try (var out = new PrintWriter(Files.newBufferedWriter(file))) {
+      out.printf(Locale.ROOT, "# websocket sessions exec=%d portforward=%d chunk_bytes=%d window=%d seconds=%.1f%n",
+          count(EXEC), count(PORT_FORWARD), chunkBytes, WINDOW, seconds);
+      for (final String kind : List.of(EXEC, PORT_FORWARD)) {
+        final long n = count(kind);
+        if (n == 0) continue;
+        final double mb = stats.counter(kind + ".bytes") / (1024.0 * 1024.0);
+        out.printf(Locale.ROOT, "%s.mb_s %.3f%n", kind, seconds > 0 ? mb / seconds : 0);
+        out.printf(Locale.ROOT, "%s.mb_s_per_session %.3f%n", kind, seconds > 0 ? mb / seconds / n : 0);
+      }
+      out.println();
+      MemoryFootprint.writeDelta(out, before, after, sessions.size(), "per_session");
+    }
+  }
+}
@@ -1,45 +1,93 @@
 package dev.bytesizedjoe.k8s;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import dev.bytesizedjoe.cli.ExecutionMode;
 import dev.bytesizedjoe.cli.HarnessArgs;
+import dev.bytesizedjoe.cli.ListMode;
+import dev.bytesizedjoe.cli.WriteMode;
+import dev.bytesizedjoe.metrics.OperationStats;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResourceList;
 import io.fabric8.kubernetes.api.model.ListOptions;
 import io.fabric8.kubernetes.api.model.ListOptionsBuilder;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import io.fabric8.kubernetes.api.model.ObjectMetaBuilder;
 import io.fabric8.kubernetes.api.model.PodList;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
 import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.kubernetes.client.dsl.base.PatchContext;
+import io.fabric8.kubernetes.client.dsl.base.PatchType;
+import io.fabric8.kubernetes.client.http.HttpClient;
+import io.fabric8.kubernetes.client.http.HttpResponse;
+import io.fabric8.kubernetes.client.utils.KubernetesSerialization;
+import lombok.Value;
 import lombok.experimental.UtilityClass;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 @NullMarked
 @UtilityClass
 public class Workloads {
+  /** Field manager of the harness's server-side applies. */
+  static final String FIELD_MANAGER = "ab-harness";
+  /** Pages one pod or service listing walks at most. */
+  static final int MAX_PAGES = 50;
 
-  public void runWarmup(final KubernetesClient client, final String namespace, final HarnessArgs args) throws InterruptedException {
-    final var end = Instant.now().plusSeconds(args.getWarmupSeconds());
-    while (Instant.now().isBefore(end)) {
-      client.pods().inNamespace(namespace).list();
-      createUpdateDeleteConfigMapOnce(client, namespace);
-      Thread.sleep(200);
+  private static final JsonFactory JSON = new JsonFactory();
+
+  /** Runs the measured workload mix until it is steady; see {@link Warmup}. */
+  public Warmup.Result runWarmup(final KubernetesClient client, final String namespace, final HarnessArgs args)
+      throws InterruptedException {
+    return Warmup.run(client, namespace, args);
+  }
+
+  /**
+   * Rejects a {@code --mode} the workload can't run as asked: virtual threads on a build without them, or an
+   * arrival rate for the async workload, which has none.
+   */
+  public void checkExecutionMode(final HarnessArgs args) {
+    if (args.getExecutionMode() == ExecutionMode.VIRTUAL && !VirtualThreads.isSupported()) {
+      throw new IllegalArgumentException("--mode virtual needs a build with -Pjdk21 running on JDK 21+");
+    }
+    if (args.getExecutionMode() == ExecutionMode.ASYNC && !args.getRates().isEmpty()) {
+      throw new IllegalArgumentException("--mode async keeps --inflight operations outstanding and has no arrival rate; "
+          + "drop --rate, or use --mode platform or virtual for an open-loop run");
     }
   }
 
-  public CompletableFuture<Void> startWorkload(final KubernetesClient client, final String namespace, final HarnessArgs args) {
-    final ExecutorService pool = Executors.newFixedThreadPool(args.getWorkloadThreads());
+  public CompletableFuture<Void> startWorkload(final KubernetesClient client, final String namespace, final HarnessArgs args,
+                                               final OperationStats stats) {
+    if (args.getExecutionMode() == ExecutionMode.ASYNC) {
+      return AsyncWorkload.start(client, namespace, args, stats);
+    }
+    if (!args.getRates().isEmpty()) {
+      return OpenLoopWorkload.start(client, namespace, args, stats);
+    }
+    final ExecutorService pool = newWorkerPool(args, "workload");
     final List<Callable<Void>> tasks = new ArrayList<>();
 
-    tasks.add(() -> { runUntilDeadline(args.getDurationSeconds(), () -> { createUpdateDeleteConfigMapOnce(client, namespace); return null; }); return null; });
-    tasks.add(() -> { runUntilDeadline(args.getDurationSeconds(), () -> { runPaginatedPodList(client); return null; }); return null; });
-    tasks.add(() -> { runUntilDeadline(args.getDurationSeconds(), () -> { runPaginatedServiceList(client); return null; }); return null; });
+    tasks.add(() -> { runUntilDeadline(args.getDurationSeconds(), () -> { createUpdateDeleteConfigMapOnce(client, namespace, args, stats); return null; }); return null; });
+    tasks.add(() -> { runUntilDeadline(args.getDurationSeconds(), () -> { runPaginatedPodList(client, args.getPageSize(), args.getListMode(), stats); return null; }); return null; });
+    tasks.add(() -> { runUntilDeadline(args.getDurationSeconds(), () -> { runPaginatedServiceList(client, args.getPageSize(), stats); return null; }); return null; });
 
     for (var i = 0; i < Math.max(0, args.getWorkloadThreads() - tasks.size()); i++) {
-      tasks.add(() -> { runUntilDeadline(args.getDurationSeconds(), () -> { createUpdateDeleteConfigMapOnce(client, namespace); return null; }); return null; });
+      tasks.add(() -> { runUntilDeadline(args.getDurationSeconds(), () -> { createUpdateDeleteConfigMapOnce(client, namespace, args, stats); return null; }); return null; });
     }
 
     final CompletableFuture<Void> cf = new CompletableFuture<>();
@@ -64,53 +112,247 @@ public class Workloads {
     return cf;
   }
 
-  public void createUpdateDeleteConfigMapOnce(final KubernetesClient client, final String namespace) {
+  /**
+   * Pool for blocking workload callers: {@code --threads} platform threads, or one virtual thread per task with {@code --mode virtual}.
+   */
+  public ExecutorService newWorkerPool(final HarnessArgs args, final String namePrefix) {
+    if (args.getExecutionMode() == ExecutionMode.VIRTUAL) {
+      return VirtualThreads.newExecutor(namePrefix);
+    }
+    final var counter = new AtomicInteger();
+    return Executors.newFixedThreadPool(args.getWorkloadThreads(), r -> {
+      final var t = new Thread(r, namePrefix + "-" + counter.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /**
+   * Creates a ConfigMap with a {@code --payload} value, updates it twice the {@code --write} way (each update
+   * timed as {@link WriteMode#operation()}) and deletes it.
+   */
+  public void createUpdateDeleteConfigMapOnce(final KubernetesClient client, final String namespace, final HarnessArgs args,
+                                              final OperationStats stats) {
+    final WriteMode mode = args.getWriteMode();
+    final int size = args.getPayloadBytes();
     final var name = "ab-" + UUID.randomUUID().toString().substring(0, 8);
     final NonNamespaceOperation<ConfigMap, ?, Resource<ConfigMap>> cms = client.configMaps().inNamespace(namespace);
 
-    final Map<String, String> data1 = Collections.singletonMap("k", randomPayload(256));
+    final Map<String, String> data1 = Collections.singletonMap("k", PayloadPool.next(size));
     final var cm = new ConfigMapBuilder()
         .withNewMetadata().withName(name).endMetadata()
         .withData(data1)
         .build();
 
-    cms.create(cm);
+    stats.time("configmap.create", () -> cms.create(cm));
 
-    for (var i = 0; i < 2; i++) {
-      cms.withName(name).edit(c -> new ConfigMapBuilder(c)
-          .addToData("k", randomPayload(256))
-          .build());
+    if (mode == WriteMode.PIPELINED) {
+      stats.time(mode.operation(), () -> updatePipelined(client, namespace, name, size, 2));
+    } else {
+      for (var i = 0; i < 2; i++) {
+        stats.time(mode.operation(), () -> update(client, cms.withName(name), mode, name, size));
+      }
     }
 
-    try { cms.withName(name).delete(); } catch (Exception ignored) {}
+    try { stats.time("configmap.delete", () -> cms.withName(name).delete()); } catch (Exception ignored) {}
   }
 
-  private String randomPayload(final int size) {
-    final byte[] b = new byte[size];
-    new Random().nextBytes(b);
-    return Base64.getEncoder().encodeToString(b);
+  private ConfigMap update(final KubernetesClient client, final Resource<ConfigMap> resource, final WriteMode mode,
+                           final String name, final int size) {
+    return switch (mode) {
+      case JSON_PATCH -> resource.patch(PatchContext.of(PatchType.JSON), PayloadPool.next("jsonpatch", size, Workloads::jsonPatch));
+      case MERGE_PATCH -> resource.patch(PatchContext.of(PatchType.JSON_MERGE), PayloadPool.next("mergepatch", size, Workloads::mergePatch));
+      // The applied object names the ConfigMap, so only its value comes from the pool
+      case APPLY -> resource.patch(new PatchContext.Builder().withPatchType(PatchType.SERVER_SIDE_APPLY)
+          .withFieldManager(FIELD_MANAGER).withForce(true).build(), applied(client.getKubernetesSerialization(), name, PayloadPool.next(size)));
+      default -> {
+        final String payload = PayloadPool.next(size);
+        yield resource.edit(c -> new ConfigMapBuilder(c).addToData("k", payload).build());
+      }
+    };
   }
 
-  public void runPaginatedPodList(final KubernetesClient client) {
-    String cont = null;
-    var page = 0;
-    do {
-      final ListOptions opts = new ListOptionsBuilder().withLimit(200L).withContinue(cont).build();
-      final PodList list = client.pods().inAnyNamespace().list(opts);
-      cont = list.getMetadata() != null ? list.getMetadata().getContinue() : null;
-      page++;
-    } while (cont != null && !cont.isEmpty() && page < 50);
+  /** Sends {@code count} merge patches to one ConfigMap back to back through the client's async HTTP API, then waits for all. */
+  private Void updatePipelined(final KubernetesClient client, final String namespace, final String name, final int size,
+                               final int count) {
+    final HttpClient http = client.getHttpClient();
+    final String item = client.getMasterUrl().toString().replaceAll("/+$", "")
+        + "/api/v1/namespaces/" + namespace + "/configmaps/" + name;
+    final List<CompletableFuture<?>> sent = new ArrayList<>();
+    for (var i = 0; i < count; i++) {
+      sent.add(http.sendAsync(http.newHttpRequestBuilder().uri(item)
+              .patch("application/merge-patch+json", PayloadPool.next("mergepatch", size, Workloads::mergePatch)).build(), byte[].class)
+          .thenApply(r -> {
+            if (!r.isSuccessful()) {
+              throw new KubernetesClientException("PATCH " + item + " failed with HTTP " + r.code(), r.code(), null);
+            }
+            return r.body();
+          }));
+    }
+    CompletableFuture.allOf(sent.toArray(new CompletableFuture[0])).join();
+    return null;
+  }
+
+  String jsonPatch(final String payload) {
+    return "[{\"op\":\"replace\",\"path\":\"/data/k\",\"value\":\"" + payload + "\"}]";
+  }
+
+  String mergePatch(final String payload) {
+    return "{\"data\":{\"k\":\"" + payload + "\"}}";
+  }
+
+  /** The whole desired object for server-side apply: just the fields the harness owns. */
+  String applied(final KubernetesSerialization serialization, final String name, final String payload) {
+    return serialization.asJson(new ConfigMapBuilder()
+        .withNewMetadata().withName(name).endMetadata()
+        .addToData("k", payload)
+        .build());
+  }
+
+  /**
+   * Lists all pods {@code pageSize} at a time (up to {@link #MAX_PAGES} pages), decoding them the {@code mode}
+   * way; 0 lists them in one unpaginated request.
+   */
+  public void runPaginatedPodList(final KubernetesClient client, final int pageSize, final ListMode mode,
+                                  final OperationStats stats) {
+    listPods(client, pageSize, mode, MAX_PAGES, stats);
   }
 
-  public void runPaginatedServiceList(final KubernetesClient client) {
+  /**
+   * Lists pods like {@link #runPaginatedPodList} for at most {@code maxPages} pages (0 for no limit), counting
+   * the items under {@code <operation>.items}; returns how many were listed.
+   */
+  public long listPods(final KubernetesClient client, final int pageSize, final ListMode mode, final int maxPages,
+                       final OperationStats stats) {
     String cont = null;
     var page = 0;
+    long items = 0;
     do {
-      final ListOptions opts = new ListOptionsBuilder().withLimit(200L).withContinue(cont).build();
-      final var list = client.services().inAnyNamespace().list(opts);
-      cont = list.getMetadata() != null ? list.getMetadata().getContinue() : null;
+      final Page listed = listPodPage(client, limit(pageSize), cont, mode, stats);
+      stats.add(mode.operation() + ".items", listed.items);
+      items += listed.items;
+      cont = listed.next;
       page++;
-    } while (cont != null && !cont.isEmpty() && page < 50);
+    } while (cont != null && !cont.isEmpty() && (maxPages <= 0 || page < maxPages));
+    return items;
+  }
+
+  private Page listPodPage(final KubernetesClient client, final @Nullable Long limit, final @Nullable String cont,
+                           final ListMode mode, final OperationStats stats) {
+    final ListOptions opts = new ListOptionsBuilder().withLimit(limit).withContinue(cont).build();
+    return switch (mode) {
+      case TYPED -> stats.time(mode.operation(), () -> {
+        final PodList list = client.pods().inAnyNamespace().list(opts);
+        return new Page(list.getItems().size(), list.getMetadata() != null ? list.getMetadata().getContinue() : null);
+      });
+      case GENERIC -> stats.time(mode.operation(), () -> {
+        final GenericKubernetesResourceList list = client.genericKubernetesResources("v1", "Pod").inAnyNamespace().list(opts);
+        return new Page(list.getItems().size(), list.getMetadata() != null ? list.getMetadata().getContinue() : null);
+      });
+      case STREAMING -> stats.time(mode.operation(), () -> streamPodPage(client, limit, cont));
+    };
+  }
+
+  /** GETs one page as a stream and decodes it with {@link #metadataOnly}, never holding the whole body. */
+  private Page streamPodPage(final KubernetesClient client, final @Nullable Long limit, final @Nullable String cont) {
+    final String base = client.getMasterUrl().toString().replaceAll("/+$", "");
+    final String uri = base + "/api/v1/pods?limit=" + (limit != null ? limit : 0)
+        + (cont == null ? "" : "&continue=" + URLEncoder.encode(cont, StandardCharsets.UTF_8));
+    final HttpClient http = client.getHttpClient();
+    final HttpResponse<InputStream> response;
+    try {
+      response = http.sendAsync(http.newHttpRequestBuilder().uri(uri).build(), InputStream.class).join();
+    } catch (CompletionException e) {
+      throw KubernetesClientException.launderThrowable(e.getCause() != null ? e.getCause() : e);
+    }
+    try (InputStream body = response.body()) {
+      if (!response.isSuccessful()) {
+        throw new KubernetesClientException("GET " + uri + " failed with HTTP " + response.code(), response.code(), null);
+      }
+      try (JsonParser parser = JSON.createParser(body)) {
+        return metadataOnly(parser, meta -> { });
+      }
+    } catch (IOException e) {
+      throw KubernetesClientException.launderThrowable(e);
+    }
+  }
+
+  /**
+   * Pulls a list response's item metadata (name, namespace and resourceVersion, handed to {@code items}) and
+   * its continue token out of {@code parser}; every other value is skipped without being materialized.
+   */
+  Page metadataOnly(final JsonParser parser, final Consumer<ObjectMeta> items) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) throw new IOException("Expected a JSON object");
+    String next = null;
+    var count = 0;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.currentName();
+      final JsonToken value = parser.nextToken();
+      if ("metadata".equals(field) && value == JsonToken.START_OBJECT) {
+        next = continueToken(parser);
+      } else if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          ObjectMeta meta = null;
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String itemField = parser.currentName();
+            if (parser.nextToken() == JsonToken.START_OBJECT && "metadata".equals(itemField)) {
+              meta = itemMetadata(parser);
+            } else {
+              parser.skipChildren();
+            }
+          }
+          items.accept(meta != null ? meta : new ObjectMeta());
+          count++;
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return new Page(count, next);
+  }
+
+  /** Reads the item metadata object the parser is on, keeping name, namespace and resourceVersion. */
+  private ObjectMeta itemMetadata(final JsonParser parser) throws IOException {
+    final var meta = new ObjectMetaBuilder();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.currentName();
+      if (parser.nextToken() != JsonToken.VALUE_STRING) {
+        parser.skipChildren();
+        continue;
+      }
+      switch (field) {
+        case "name" -> meta.withName(parser.getText());
+        case "namespace" -> meta.withNamespace(parser.getText());
+        case "resourceVersion" -> meta.withResourceVersion(parser.getText());
+        default -> { }
+      }
+    }
+    return meta.build();
+  }
+
+  /** Reads the list metadata object the parser is on, keeping only its continue token. */
+  private @Nullable String continueToken(final JsonParser parser) throws IOException {
+    String next = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.currentName();
+      if (parser.nextToken() == JsonToken.VALUE_STRING && "continue".equals(field)) {
+        next = parser.getText();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return next;
+  }
+
+  private @Nullable Long limit(final int pageSize) {
+    return pageSize > 0 ? (long) pageSize : null;
+  }
+
+  /** One decoded list page: how many items it held and its continue token. */
+  @Value
+  static class Page {
+    long items;
+    @Nullable String next;
   }
 
   private void runUntilDeadline(final long seconds, final Supplier<Void> op) {
@@ -119,6 +361,7 @@ public class Workloads {
       try {
         op.get();
       } catch (Exception ignored) {
+        // Already counted as an error by OperationStats
       }
     }
   }
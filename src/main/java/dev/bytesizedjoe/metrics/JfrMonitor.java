@@ -0,0 +1,305 @@
+package dev.bytesizedjoe.metrics;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams JFR events in-process for the lifetime of the harness and aggregates them per phase
+ * (warmup, each measurement run), so the A/B report can show which transport allocates more and blocks
+ * more on its hot path without anyone opening a recording in JMC.
+ * <p>
+ * Aggregated: GC pauses, allocation samples by top application frame, socket reads/writes that blocked
+ * for 1 ms or more (bytes and time), thread park and monitor contention, and safepoints. Events are
+ * attributed to phases by their start time, and {@link #end(Phase)} waits for the stream to flush past
+ * the end of the phase. A phase may span several windows ({@link #pause}/{@link #resume}), e.g. one
+ * transport's slices of an interleaved run.
+ */
+@NullMarked
+@Slf4j
+public final class JfrMonitor implements AutoCloseable {
+  public static final String FILE_NAME = "jfr_summary.txt";
+  private static final Duration BLOCKING_THRESHOLD = Duration.ofMillis(1);
+  private static final int TOP_N = 10;
+
+  private final RecordingStream stream = new RecordingStream();
+  private final List<Phase> phases = new CopyOnWriteArrayList<>();
+  private volatile Instant lastFlush = Instant.EPOCH;
+
+  private JfrMonitor() {
+    stream.enable("jdk.GarbageCollection");
+    stream.enable("jdk.SafepointBegin");
+    stream.enable("jdk.ObjectAllocationSample").withStackTrace();
+    // Blocking events only above a small threshold: every socket read with a stack trace would cost more than
+    // the I/O being measured, and park/monitor would be swamped by idle pool threads
+    stream.enable("jdk.SocketRead").withThreshold(BLOCKING_THRESHOLD).withoutStackTrace();
+    stream.enable("jdk.SocketWrite").withThreshold(BLOCKING_THRESHOLD).withoutStackTrace();
+    stream.enable("jdk.ThreadPark").withThreshold(BLOCKING_THRESHOLD).withStackTrace();
+    stream.enable("jdk.JavaMonitorEnter").withThreshold(BLOCKING_THRESHOLD).withStackTrace();
+
+    stream.onEvent("jdk.GarbageCollection", e -> route(e, (a, ev) -> a.gc(ev)));
+    stream.onEvent("jdk.SafepointBegin", e -> route(e, (a, ev) -> a.safepoints.add(ev.getDuration())));
+    stream.onEvent("jdk.ObjectAllocationSample", e -> route(e, (a, ev) -> a.allocation(ev)));
+    stream.onEvent("jdk.SocketRead", e -> route(e, (a, ev) -> a.socketRead.add(ev.getDuration(), ev.getLong("bytesRead"))));
+    stream.onEvent("jdk.SocketWrite", e -> route(e, (a, ev) -> a.socketWrite.add(ev.getDuration(), ev.getLong("bytesWritten"))));
+    stream.onEvent("jdk.ThreadPark", e -> route(e, (a, ev) -> a.blocked(a.park, a.parkFrames, ev)));
+    stream.onEvent("jdk.JavaMonitorEnter", e -> route(e, (a, ev) -> a.blocked(a.monitor, a.monitorFrames, ev)));
+    stream.onFlush(() -> lastFlush = Instant.now());
+  }
+
+  /** Starts the event stream; returns {@code null} when JFR isn't available in this JVM. */
+  public static @Nullable JfrMonitor start() {
+    try {
+      final var monitor = new JfrMonitor();
+      monitor.stream.startAsync();
+      return monitor;
+    } catch (RuntimeException | LinkageError e) {
+      log.warn("JFR event streaming unavailable; no {} will be written: {}", FILE_NAME, e.toString());
+      return null;
+    }
+  }
+
+  public Phase begin(final String name) {
+    final var phase = new Phase(name, Instant.now());
+    phases.add(phase);
+    return phase;
+  }
+
+  /** Closes the phase's current window without waiting for the stream. */
+  public void pause(final Phase phase) {
+    phase.current().end = Instant.now();
+  }
+
+  /** Opens a new window of a paused phase. */
+  public void resume(final Phase phase) {
+    phase.windows.add(new Window(Instant.now()));
+  }
+
+  /** Closes the phase and waits (bounded) until the stream has delivered events up to its end. */
+  public void end(final Phase phase) {
+    final var window = phase.current();
+    if (window.end == null) window.end = Instant.now();
+    final Instant end = Objects.requireNonNull(window.end);
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!lastFlush.isAfter(end) && System.nanoTime() < deadline) {
+      try {
+        TimeUnit.MILLISECONDS.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /** Writes {@code jfr_summary.txt} with one section per given phase. */
+  public void writeSummary(final Path dir, final Phase... sections) throws IOException {
+    Files.createDirectories(dir);
+    try (var out = new PrintWriter(Files.newBufferedWriter(dir.resolve(FILE_NAME)))) {
+      for (final var phase : sections) {
+        phase.write(out);
+        out.println();
+      }
+    }
+  }
+
+  private void route(final RecordedEvent event, final Handler handler) {
+    final Instant at = event.getStartTime();
+    for (final var phase : phases) {
+      if (phase.contains(at)) {
+        synchronized (phase.aggregate) {
+          handler.accept(phase.aggregate, event);
+        }
+        return;
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    stream.close();
+  }
+
+  private interface Handler {
+    void accept(Aggregate aggregate, RecordedEvent event);
+  }
+
+  /** A named set of time windows whose events are aggregated together. */
+  public static final class Phase {
+    private final String name;
+    private final List<Window> windows = new CopyOnWriteArrayList<>();
+    private final Aggregate aggregate = new Aggregate();
+
+    private Phase(final String name, final Instant start) {
+      this.name = name;
+      windows.add(new Window(start));
+    }
+
+    private Window current() {
+      return windows.get(windows.size() - 1);
+    }
+
+    private boolean contains(final Instant at) {
+      for (final var w : windows) {
+        final var e = w.end;
+        if (!at.isBefore(w.start) && (e == null || at.isBefore(e))) return true;
+      }
+      return false;
+    }
+
+    private void write(final PrintWriter out) {
+      long millis = 0;
+      for (final var w : windows) {
+        final var e = w.end;
+        millis += Duration.between(w.start, e != null ? e : Instant.now()).toMillis();
+      }
+      final double seconds = Math.max(1, millis) / 1000.0;
+      if (windows.size() > 1) {
+        out.printf(Locale.ROOT, "# phase=%s seconds=%.1f windows=%d%n", name, seconds, windows.size());
+      } else {
+        out.printf(Locale.ROOT, "# phase=%s seconds=%.1f%n", name, seconds);
+      }
+      synchronized (aggregate) {
+        aggregate.write(out, seconds);
+      }
+    }
+  }
+
+  private static final class Window {
+    private final Instant start;
+    private volatile @Nullable Instant end;
+
+    private Window(final Instant start) {
+      this.start = start;
+    }
+  }
+
+  private static final class Aggregate {
+    final Timing gcPauses = new Timing(false);
+    final Map<String, Long> gcByName = new HashMap<>();
+    final Timing safepoints = new Timing(false);
+    long allocationBytes;
+    final Map<String, Long> allocationByFrame = new HashMap<>();
+    final Map<String, Long> allocationByClass = new HashMap<>();
+    final Timing socketRead = new Timing(true);
+    final Timing socketWrite = new Timing(true);
+    final Timing park = new Timing(false);
+    final Map<String, Long> parkFrames = new HashMap<>();
+    final Timing monitor = new Timing(false);
+    final Map<String, Long> monitorFrames = new HashMap<>();
+
+    void gc(final RecordedEvent e) {
+      gcPauses.count++;
+      gcPauses.totalNanos += e.getDuration("sumOfPauses").toNanos();
+      gcPauses.max = Math.max(gcPauses.max, e.getDuration("longestPause").toNanos());
+      gcByName.merge(e.getString("name"), 1L, Long::sum);
+    }
+
+    void allocation(final RecordedEvent e) {
+      final long weight = e.getLong("weight");
+      allocationBytes += weight;
+      allocationByFrame.merge(topFrame(e), weight, Long::sum);
+      final var type = e.getClass("objectClass");
+      allocationByClass.merge(type != null ? type.getName() : "?", weight, Long::sum);
+    }
+
+    void blocked(final Timing timing, final Map<String, Long> frames, final RecordedEvent e) {
+      timing.add(e.getDuration());
+      frames.merge(topFrame(e), e.getDuration().toNanos(), Long::sum);
+    }
+
+    void write(final PrintWriter out, final double seconds) {
+      out.printf(Locale.ROOT, "gc.count %d%n", gcPauses.count);
+      out.printf(Locale.ROOT, "gc.pause_total_ms %.3f%n", gcPauses.totalMillis());
+      out.printf(Locale.ROOT, "gc.pause_max_ms %.3f%n", gcPauses.maxMillis());
+      gcByName.forEach((n, c) -> out.printf(Locale.ROOT, "gc.by_name %s=%d%n", n.replace(' ', '_'), c));
+      safepoints.write(out, "safepoint");
+      out.printf(Locale.ROOT, "alloc.sampled_bytes %d%n", allocationBytes);
+      out.printf(Locale.ROOT, "alloc.sampled_mb_s %.2f%n", allocationBytes / seconds / (1024.0 * 1024.0));
+      top(out, "alloc.frame", allocationByFrame, allocationBytes);
+      top(out, "alloc.class", allocationByClass, allocationBytes);
+      socketRead.write(out, "socket.read");
+      socketWrite.write(out, "socket.write");
+      park.write(out, "park");
+      top(out, "park.frame", parkFrames, park.totalNanos);
+      monitor.write(out, "monitor");
+      top(out, "monitor.frame", monitorFrames, monitor.totalNanos);
+    }
+
+    private static void top(final PrintWriter out, final String key, final Map<String, Long> values, final long total) {
+      values.entrySet().stream()
+          .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+          .limit(TOP_N)
+          .forEach(en -> out.printf(Locale.ROOT, "%s %s %d %.1f%%%n", key, en.getKey(), en.getValue(),
+              total > 0 ? 100.0 * en.getValue() / total : 0));
+    }
+
+    /** First frame outside the JDK, so samples land on netty/vertx/fabric8/harness code rather than e.g. Arrays.copyOf. */
+    private static String topFrame(final RecordedEvent e) {
+      final var trace = e.getStackTrace();
+      if (trace == null || trace.getFrames().isEmpty()) return "?";
+      for (final RecordedFrame frame : trace.getFrames()) {
+        final var type = frame.getMethod().getType().getName();
+        if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+          return type + "." + frame.getMethod().getName();
+        }
+      }
+      final var first = trace.getFrames().get(0).getMethod();
+      return first.getType().getName() + "." + first.getName();
+    }
+  }
+
+  private static final class Timing {
+    long count;
+    long totalNanos;
+    long max;
+    long bytes;
+    private final boolean withBytes;
+
+    Timing(final boolean withBytes) {
+      this.withBytes = withBytes;
+    }
+
+    void add(final Duration d, final long bytes) {
+      count++;
+      totalNanos += d.toNanos();
+      max = Math.max(max, d.toNanos());
+      this.bytes += bytes;
+    }
+
+    void add(final Duration d) {
+      add(d, 0);
+    }
+
+    double totalMillis() {
+      return totalNanos / 1e6;
+    }
+
+    double maxMillis() {
+      return max / 1e6;
+    }
+
+    void write(final PrintWriter out, final String key) {
+      out.printf(Locale.ROOT, "%s.count %d%n", key, count);
+      out.printf(Locale.ROOT, "%s.total_ms %.3f%n", key, totalMillis());
+      out.printf(Locale.ROOT, "%s.max_ms %.3f%n", key, maxMillis());
+      if (withBytes) out.printf(Locale.ROOT, "%s.bytes %d%n", key, bytes);
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package dev.bytesizedjoe.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the platform MXBeans on a daemon thread and appends one CSV row per interval to
+ * {@code telemetry.csv}. This replaces the three forked jcmd/jstat snapshots as the primary source of
+ * heap, direct memory, GC, thread and CPU data: it is cheap enough to run every second and does not
+ * disturb the process being measured.
+ * <p>
+ * Columns are fixed when the sampler starts: elapsed time, heap/non-heap, one {@code pool.<name>.used}
+ * per memory pool, {@code buffer.<name>.used/count}, {@code gc.<name>.count/ms} per collector, threads,
+ * process CPU, class loading, allocated bytes (HotSpot only) and RSS (Linux only). Unavailable
+ * values are written as {@code -1}.
+ */
+@NullMarked
+@Slf4j
+public final class JvmSampler implements AutoCloseable {
+  public static final String FILE_NAME = "telemetry.csv";
+
+  private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+  private final List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+  private final List<BufferPoolMXBean> buffers = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+  private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final ClassLoadingMXBean classes = ManagementFactory.getClassLoadingMXBean();
+  private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+
+  private final Map<Long, Long> allocatedByThread = new HashMap<>();
+
+  private final BufferedWriter out;
+  private final long intervalMillis;
+  private final long startNanos = System.nanoTime();
+  private final Thread thread;
+  private volatile boolean running = true;
+
+  private JvmSampler(final Path file, final long intervalMillis) throws IOException {
+    this.out = Files.newBufferedWriter(file);
+    this.intervalMillis = intervalMillis;
+    out.write(String.join(",", header()));
+    out.newLine();
+    this.thread = new Thread(this::loop, "jvm-sampler");
+    thread.setDaemon(true);
+  }
+
+  /** Starts sampling into {@code runDir/telemetry.csv}; returns {@code null} if the file can't be created. */
+  public static @Nullable JvmSampler start(final Path runDir, final long intervalMillis) {
+    try {
+      Files.createDirectories(runDir);
+      final var sampler = new JvmSampler(runDir.resolve(FILE_NAME), Math.max(10, intervalMillis));
+      sampler.sample();
+      sampler.thread.start();
+      return sampler;
+    } catch (IOException e) {
+      log.warn("Failed to start JVM telemetry sampler: {}", e.toString());
+      return null;
+    }
+  }
+
+  private List<String> header() {
+    final List<String> cols = new ArrayList<>(List.of("elapsed_ms", "heap.used", "heap.committed",
+        "nonheap.used", "nonheap.committed"));
+    pools.forEach(p -> cols.add("pool." + column(p.getName()) + ".used"));
+    buffers.forEach(b -> {
+      cols.add("buffer." + column(b.getName()) + ".used");
+      cols.add("buffer." + column(b.getName()) + ".count");
+    });
+    collectors.forEach(gc -> {
+      cols.add("gc." + column(gc.getName()) + ".count");
+      cols.add("gc." + column(gc.getName()) + ".ms");
+    });
+    cols.addAll(List.of("threads.live", "threads.daemon", "threads.peak", "cpu.process_ms", "cpu.load",
+        "classes.loaded", "classes.unloaded", "alloc.bytes", "rss.bytes"));
+    return cols;
+  }
+
+  private void loop() {
+    while (running) {
+      try {
+        TimeUnit.MILLISECONDS.sleep(intervalMillis);
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (running) sample();
+    }
+  }
+
+  private synchronized void sample() {
+    final List<Object> row = new ArrayList<>();
+    row.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    final var heap = memory.getHeapMemoryUsage();
+    final var nonHeap = memory.getNonHeapMemoryUsage();
+    row.add(heap.getUsed());
+    row.add(heap.getCommitted());
+    row.add(nonHeap.getUsed());
+    row.add(nonHeap.getCommitted());
+    pools.forEach(p -> row.add(p.isValid() ? p.getUsage().getUsed() : -1));
+    buffers.forEach(b -> {
+      row.add(b.getMemoryUsed());
+      row.add(b.getCount());
+    });
+    collectors.forEach(gc -> {
+      row.add(gc.getCollectionCount());
+      row.add(gc.getCollectionTime());
+    });
+    row.add(threads.getThreadCount());
+    row.add(threads.getDaemonThreadCount());
+    row.add(threads.getPeakThreadCount());
+    if (os instanceof com.sun.management.OperatingSystemMXBean sunOs) {
+      row.add(TimeUnit.NANOSECONDS.toMillis(sunOs.getProcessCpuTime()));
+      row.add(String.format(Locale.ROOT, "%.3f", sunOs.getProcessCpuLoad()));
+    } else {
+      row.add(-1);
+      row.add(-1);
+    }
+    row.add(classes.getLoadedClassCount());
+    row.add(classes.getUnloadedClassCount());
+    row.add(allocatedBytes());
+    row.add(residentSetBytes());
+
+    try {
+      final var sb = new StringBuilder();
+      for (var i = 0; i < row.size(); i++) {
+        if (i > 0) sb.append(',');
+        sb.append(row.get(i));
+      }
+      out.write(sb.toString());
+      out.newLine();
+      out.flush();
+    } catch (IOException e) {
+      log.warn("Failed to write JVM telemetry sample: {}", e.toString());
+      running = false;
+    }
+  }
+
+  /**
+   * Bytes allocated by all threads so far. JDK 17 has no process-wide counter, so per-thread counters are
+   * summed and the last value of threads that have since exited is kept; allocations made after the
+   * final sample of a short-lived thread are missed.
+   */
+  private long allocatedBytes() {
+    if (!(threads instanceof com.sun.management.ThreadMXBean sunThreads) || !sunThreads.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+    final long[] ids = sunThreads.getAllThreadIds();
+    final long[] bytes = sunThreads.getThreadAllocatedBytes(ids);
+    for (var i = 0; i < ids.length; i++) {
+      if (bytes[i] >= 0) allocatedByThread.merge(ids[i], bytes[i], Math::max);
+    }
+    long total = 0;
+    for (final long b : allocatedByThread.values()) total += b;
+    return total;
+  }
+
+  /** VmRSS from {@code /proc/self/status}; -1 where procfs isn't available. */
+  private static long residentSetBytes() {
+    try {
+      for (final var line : Files.readAllLines(Path.of("/proc/self/status"))) {
+        if (line.startsWith("VmRSS:")) {
+          return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+        }
+      }
+    } catch (IOException | RuntimeException ignored) {
+    }
+    return -1;
+  }
+
+  private static String column(final String name) {
+    return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "_").replaceAll("^_|_$", "");
+  }
+
+  /** Takes a final sample and closes the file. */
+  @Override
+  public void close() {
+    running = false;
+    thread.interrupt();
+    try {
+      thread.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    sample();
+    try {
+      out.close();
+    } catch (IOException e) {
+      log.warn("Failed to close JVM telemetry file: {}", e.toString());
+    }
+  }
+}
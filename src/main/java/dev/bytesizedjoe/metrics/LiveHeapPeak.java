@@ -0,0 +1,79 @@
+package dev.bytesizedjoe.metrics;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.jspecify.annotations.NullMarked;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * The highest heap usage right after a GC while this is open, i.e. the most live data the process held at
+ * any collection. Unlike used heap or the pools' peak usage it doesn't follow eden filling up between young
+ * GCs, so it shows what a burst of work kept reachable rather than how the young generation is sized.
+ * Only collections that finish while open count; {@link #peakBytes()} is -1 if there were none.
+ */
+@NullMarked
+public final class LiveHeapPeak implements AutoCloseable {
+  private final Set<String> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+      .filter(p -> p.getType() == MemoryType.HEAP).map(MemoryPoolMXBean::getName).collect(Collectors.toSet());
+  private final AtomicLong peak = new AtomicLong(-1);
+  private final AtomicLong collections = new AtomicLong();
+  private final List<NotificationEmitter> emitters = new ArrayList<>();
+  private final NotificationListener listener = this::onGc;
+
+  private LiveHeapPeak() {
+  }
+
+  public static LiveHeapPeak start() {
+    final var tracker = new LiveHeapPeak();
+    for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (gc instanceof NotificationEmitter emitter) {
+        emitter.addNotificationListener(tracker.listener, null, null);
+        tracker.emitters.add(emitter);
+      }
+    }
+    return tracker;
+  }
+
+  public long peakBytes() {
+    return peak.get();
+  }
+
+  public long collections() {
+    return collections.get();
+  }
+
+  private void onGc(final Notification notification, final Object handback) {
+    if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+    final var info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+    long after = 0;
+    for (final var pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+      if (heapPools.contains(pool.getKey())) after += pool.getValue().getUsed();
+    }
+    collections.incrementAndGet();
+    peak.accumulateAndGet(after, Math::max);
+  }
+
+  @Override
+  public void close() {
+    for (final NotificationEmitter emitter : emitters) {
+      try {
+        emitter.removeNotificationListener(listener);
+      } catch (ListenerNotFoundException ignored) {
+        // Already gone
+      }
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package dev.bytesizedjoe.metrics;
+
+import lombok.Value;
+import org.jspecify.annotations.NullMarked;
+
+import java.io.PrintWriter;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retained memory and thread count at one point in time: heap after GC, JDK direct buffers,
+ * Netty's own direct-memory counter ({@code -1} when Netty isn't tracking it) and live threads.
+ * Two of these around an action give its per-item cost.
+ */
+@NullMarked
+@Value
+public class MemoryFootprint {
+  long heapUsed;
+  long directUsed;
+  long nettyDirect;
+  long threads;
+
+  /** Runs two explicit GCs first on purpose: the figure should be retained heap, not garbage. */
+  public static MemoryFootprint measure() {
+    for (var i = 0; i < 2; i++) {
+      System.gc();
+      try {
+        TimeUnit.MILLISECONDS.sleep(200);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return sample();
+  }
+
+  /** The same figures without the GCs, so heap includes garbage; cheap enough to poll for peaks. */
+  public static MemoryFootprint sample() {
+    return new MemoryFootprint(
+        ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(),
+        ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+            .filter(b -> "direct".equals(b.getName())).mapToLong(BufferPoolMXBean::getMemoryUsed).sum(),
+        nettyUsedDirectMemory(),
+        ManagementFactory.getThreadMXBean().getThreadCount());
+  }
+
+  /** Writes a before/after table with the difference divided by {@code items}, labelled {@code perColumn}. */
+  public static void writeDelta(final PrintWriter out, final MemoryFootprint before, final MemoryFootprint after,
+                                final long items, final String perColumn) {
+    final long n = Math.max(1, items);
+    out.printf(Locale.ROOT, "%-16s %14s %14s %14s%n", "metric", "before", "after", perColumn);
+    row(out, "heap_bytes", before.heapUsed, after.heapUsed, n);
+    row(out, "direct_bytes", before.directUsed, after.directUsed, n);
+    row(out, "netty_direct", before.nettyDirect, after.nettyDirect, n);
+    row(out, "threads", before.threads, after.threads, n);
+  }
+
+  private static void row(final PrintWriter out, final String metric, final long before, final long after, final long n) {
+    if (before < 0 || after < 0) {
+      out.printf(Locale.ROOT, "%-16s %14s %14s %14s%n", metric, "-", "-", "-");
+    } else {
+      out.printf(Locale.ROOT, "%-16s %14d %14d %14.1f%n", metric, before, after, (after - before) / (double) n);
+    }
+  }
+
+  /** Netty allocates most direct memory without a Cleaner, so it's invisible to the JDK buffer pool. */
+  private static long nettyUsedDirectMemory() {
+    try {
+      final var value = Class.forName("io.netty.util.internal.PlatformDependent")
+          .getMethod("usedDirectMemory").invoke(null);
+      return value instanceof Long l ? l : -1;
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return -1;
+    }
+  }
+}
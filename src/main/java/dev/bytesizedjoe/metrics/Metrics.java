@@ -1,5 +1,7 @@
 package dev.bytesizedjoe.metrics;
 
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
 import lombok.experimental.UtilityClass;
 import org.jspecify.annotations.NullMarked;
 import org.slf4j.Logger;
@@ -30,13 +32,16 @@ public class Metrics {
     }
   }
 
+  /** Records a full {@code profile} JFR for {@code seconds} in-process and dumps it to {@code midrun.jfr}. */
   public void recordJfr(final Path runDir, final int seconds) {
-    try {
-      final long pid = ProcessHandle.current().pid();
-      final Path jfr = runDir.resolve("midrun.jfr");
-      runAndWait(jcmdPath(), Long.toString(pid), "JFR.start", "name=midrun", "settings=profile", "filename=" + jfr.toAbsolutePath());
+    try (var recording = new Recording(Configuration.getConfiguration("profile"))) {
+      recording.setName("midrun");
+      recording.start();
       Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
-      runAndWait(jcmdPath(), Long.toString(pid), "JFR.stop", "name=midrun");
+      recording.stop();
+      recording.dump(runDir.resolve("midrun.jfr"));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     } catch (Exception e) {
       log.warn("Failed to record JFR: {}", e.toString());
     }
@@ -62,11 +67,4 @@ public class Metrics {
     }
     p.waitFor(30, TimeUnit.SECONDS);
   }
-
-  private void runAndWait(final String... cmd) throws IOException, InterruptedException {
-    final var pb = new ProcessBuilder(cmd);
-    pb.redirectErrorStream(true);
-    final var p = pb.start();
-    p.waitFor(30, TimeUnit.SECONDS);
-  }
 }
@@ -0,0 +1,69 @@
+package dev.bytesizedjoe.metrics;
+
+import lombok.experimental.UtilityClass;
+import org.jspecify.annotations.NullMarked;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Native Memory Tracking summary read in-process through the DiagnosticCommand MBean, the same data as
+ * {@code jcmd <pid> VM.native_memory summary} without forking. Needs {@code -XX:NativeMemoryTracking=summary}.
+ */
+@NullMarked
+@UtilityClass
+public class NativeMemory {
+  public static final String TOTAL = "Total";
+  public static final String THREAD = "Thread";
+  /** NMT's category for NIO direct buffers, among other untyped mallocs. */
+  public static final String OTHER = "Other";
+
+  private static final Pattern TOTAL_LINE = Pattern.compile("^Total:.*?committed=(\\d+)([KMG]?)B");
+  private static final Pattern CATEGORY_LINE = Pattern.compile("^-\\s+(\\S[^(]*?)\\s+\\(.*?committed=(\\d+)([KMG]?)B");
+
+  /** Committed bytes by NMT category plus {@link #TOTAL}; empty when NMT is off or the MBean isn't there. */
+  public Map<String, Long> committed() {
+    try {
+      final Object out = ManagementFactory.getPlatformMBeanServer().invoke(
+          new ObjectName("com.sun.management:type=DiagnosticCommand"), "vmNativeMemory",
+          new Object[] {new String[] {"summary"}}, new String[] {String[].class.getName()});
+      return out instanceof String s ? parse(s) : Map.of();
+    } catch (Exception | LinkageError e) {
+      return Map.of();
+    }
+  }
+
+  /** The committed figure of {@code category}, or {@code -1}. */
+  public long committed(final Map<String, Long> summary, final String category) {
+    return summary.getOrDefault(category, -1L);
+  }
+
+  Map<String, Long> parse(final String summary) {
+    final Map<String, Long> committed = new LinkedHashMap<>();
+    for (final String line : summary.split("\n")) {
+      final String trimmed = line.trim();
+      final Matcher total = TOTAL_LINE.matcher(trimmed);
+      if (total.find()) {
+        committed.put(TOTAL, bytes(total.group(1), total.group(2)));
+        continue;
+      }
+      final Matcher category = CATEGORY_LINE.matcher(trimmed);
+      if (category.find()) committed.putIfAbsent(category.group(1), bytes(category.group(2), category.group(3)));
+    }
+    return committed;
+  }
+
+  private long bytes(final String value, final String unit) {
+    final long n = Long.parseLong(value);
+    return switch (unit) {
+      case "G" -> n << 30;
+      case "M" -> n << 20;
+      case "K" -> n << 10;
+      default -> n;
+    };
+  }
+}
@@ -0,0 +1,464 @@
+package dev.bytesizedjoe.metrics;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+
+/**
+ * Per-operation latency histograms and success/error counters for one measurement run.
+ * Safe to record into from any number of workload threads.
+ */
+@NullMarked
+public final class OperationStats {
+  private static final int SIGNIFICANT_DIGITS = 3;
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  private final Map<String, Operation> operations = new ConcurrentSkipListMap<>();
+  private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+  private final long startNanos = System.nanoTime();
+  private long pausedNanos;
+  private long pausedAt = -1;
+  private long mergedActiveNanos = -1;
+
+  /**
+   * Runs {@code call}, recording its latency under {@code operation}. Exceptions are counted
+   * as errors and rethrown so callers keep their existing control flow.
+   * <p>
+   * Also records the bytes the operation allocated: on the calling thread, plus whatever transport
+   * threads report into the {@link Scope} this call opens (see {@link Scope#current()}). Requests the client
+   * retried on the operation's behalf are counted as {@code retries.<operation>}, and the requests it sent
+   * with their body bytes each way go to {@code wire.txt}.
+   */
+  public <T> T time(final String operation, final Supplier<T> call) {
+    final var scope = Scope.open();
+    final var start = System.nanoTime();
+    try {
+      final T result = call.get();
+      record(operation, System.nanoTime() - start, null);
+      return result;
+    } catch (RuntimeException e) {
+      record(operation, System.nanoTime() - start, e);
+      throw e;
+    } finally {
+      scope.close();
+      recordAllocation(operation, scope);
+      recordWire(operation, scope);
+    }
+  }
+
+  /**
+   * Like {@link #time} for an operation that completes asynchronously. {@code call} starts it with the
+   * operation's {@link Scope} current, so the requests it sends are attributed, and gets that scope to make
+   * current again (see {@link Scope#within}) where it sends more from a callback. Latency, allocation and wire
+   * figures are recorded when the returned future completes; only the calling thread's allocation up to
+   * {@code call} returning counts, plus what transport threads report.
+   */
+  public <T> CompletableFuture<T> timeAsync(final String operation, final Function<Scope, CompletableFuture<T>> call) {
+    final var scope = Scope.open();
+    final var start = System.nanoTime();
+    CompletableFuture<T> result;
+    try {
+      result = call.apply(scope);
+    } catch (RuntimeException e) {
+      result = CompletableFuture.failedFuture(e);
+    } finally {
+      scope.detach();
+    }
+    return result.whenComplete((r, t) -> {
+      record(operation, System.nanoTime() - start,
+          t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+      scope.finish();
+      recordAllocation(operation, scope);
+      recordWire(operation, scope);
+    });
+  }
+
+  public void record(final String operation, final long nanos, @Nullable final Throwable error) {
+    final var op = operations.computeIfAbsent(operation, k -> new Operation());
+    op.latency.recordValue(Math.max(0, nanos));
+    if (error == null) {
+      op.successes.increment();
+    } else {
+      op.errors.increment();
+      op.errorsByType.computeIfAbsent(error.getClass().getSimpleName(), k -> new LongAdder()).increment();
+    }
+  }
+
+  private void recordAllocation(final String operation, final Scope scope) {
+    final long allocated = scope.allocatedBytes();
+    if (allocated < 0) return;
+    final var op = operations.computeIfAbsent(operation, k -> new Operation());
+    op.allocated.recordValue(allocated);
+    op.allocatedTotal.add(allocated);
+  }
+
+  private void recordWire(final String operation, final Scope scope) {
+    // Nothing reported the operation's requests, e.g. on a client built without the harness's interceptors
+    if (scope.requests.sum() == 0) return;
+    final var op = operations.computeIfAbsent(operation, k -> new Operation());
+    op.scoped.increment();
+    op.requests.add(scope.requests.sum());
+    op.requestBytes.add(scope.requestBytes.sum());
+    op.responseBytes.add(scope.responseBytes.sum());
+    final long retries = scope.retries.sum();
+    if (retries > 0) add("retries." + operation, retries);
+  }
+
+  /** Adds to a named event counter (e.g. schedule misses) that is reported alongside the histograms. */
+  public void increment(final String counter) {
+    counters.computeIfAbsent(counter, k -> new LongAdder()).increment();
+  }
+
+  public void add(final String counter, final long delta) {
+    counters.computeIfAbsent(counter, k -> new LongAdder()).add(delta);
+  }
+
+  public long counter(final String counter) {
+    final LongAdder adder = counters.get(counter);
+    return adder == null ? 0 : adder.sum();
+  }
+
+  /**
+   * Stops the clock that throughput is computed against, e.g. while another transport has its slice of an
+   * interleaved run. Recording is still accepted; {@link #resume()} restarts the clock.
+   */
+  public synchronized void pause() {
+    if (pausedAt < 0) pausedAt = System.nanoTime();
+  }
+
+  public synchronized void resume() {
+    if (pausedAt >= 0) {
+      pausedNanos += System.nanoTime() - pausedAt;
+      pausedAt = -1;
+    }
+  }
+
+  /** Latencies of every operation merged into one histogram. */
+  public Histogram combinedLatency() {
+    final Histogram combined = new Histogram(SIGNIFICANT_DIGITS);
+    operations.values().forEach(op -> combined.add(op.latency));
+    return combined;
+  }
+
+  /** A copy of one operation's latency histogram; empty if it was never recorded. */
+  public Histogram latency(final String operation) {
+    final var op = operations.get(operation);
+    return op == null ? new Histogram(SIGNIFICANT_DIGITS) : op.latency.copy();
+  }
+
+  /** Request body bytes sent by one operation's timed calls (see {@code wire.txt}). */
+  public long requestBytes(final String operation) {
+    final var op = operations.get(operation);
+    return op == null ? 0 : op.requestBytes.sum();
+  }
+
+  /** Response body bytes received by one operation's timed calls. */
+  public long responseBytes(final String operation) {
+    final var op = operations.get(operation);
+    return op == null ? 0 : op.responseBytes.sum();
+  }
+
+  /** Bytes allocated by one operation's timed calls (see {@code allocation.txt}); 0 where that isn't measured. */
+  public long allocatedBytes(final String operation) {
+    final var op = operations.get(operation);
+    return op == null ? 0 : op.allocatedTotal.sum();
+  }
+
+  public long totalErrors() {
+    return operations.values().stream().mapToLong(op -> op.errors.sum()).sum();
+  }
+
+  public double activeSeconds() {
+    return activeNanos() / 1e9;
+  }
+
+  /** Time since this instance was created, excluding paused periods; or the longest merged one (see {@link #merge}). */
+  synchronized long activeNanos() {
+    if (mergedActiveNanos >= 0) return mergedActiveNanos;
+    final long now = System.nanoTime();
+    return now - startNanos - pausedNanos - (pausedAt >= 0 ? now - pausedAt : 0);
+  }
+
+  /**
+   * Writes everything recorded so far as text lines that {@link #merge} adds up on another instance, typically
+   * in another process: counts and byte totals per operation with both histograms compressed and Base64-encoded,
+   * errors by type, counters and the active time.
+   */
+  public void encode(final PrintWriter out) {
+    out.printf(Locale.ROOT, "active %d%n", activeNanos());
+    operations.forEach((name, op) -> {
+      out.printf(Locale.ROOT, "op %s %d %d %d %d %d %d %d %s %s%n", name, op.successes.sum(), op.errors.sum(),
+          op.allocatedTotal.sum(), op.responseBytes.sum(), op.scoped.sum(), op.requests.sum(), op.requestBytes.sum(),
+          encode(op.latency), encode(op.allocated));
+      op.errorsByType.forEach((type, count) -> out.printf(Locale.ROOT, "error %s %s %d%n", name, type, count.sum()));
+    });
+    counters.forEach((name, count) -> out.printf(Locale.ROOT, "counter %s %d%n", name, count.sum()));
+  }
+
+  /**
+   * Adds lines written by {@link #encode}. Histograms, totals and counters add up. The merged instances ran side
+   * by side, so throughput is computed against the longest of their active times from then on.
+   */
+  public void merge(final Iterable<String> lines) {
+    for (final String line : lines) {
+      if (line.isBlank()) continue;
+      final String[] f = line.trim().split(" ");
+      switch (f[0]) {
+        case "active" -> {
+          synchronized (this) {
+            mergedActiveNanos = Math.max(mergedActiveNanos, Long.parseLong(f[1]));
+          }
+        }
+        case "op" -> {
+          final var op = operations.computeIfAbsent(f[1], k -> new Operation());
+          op.successes.add(Long.parseLong(f[2]));
+          op.errors.add(Long.parseLong(f[3]));
+          op.allocatedTotal.add(Long.parseLong(f[4]));
+          op.responseBytes.add(Long.parseLong(f[5]));
+          op.scoped.add(Long.parseLong(f[6]));
+          op.requests.add(Long.parseLong(f[7]));
+          op.requestBytes.add(Long.parseLong(f[8]));
+          op.latency.add(decode(f[9]));
+          op.allocated.add(decode(f[10]));
+        }
+        case "error" -> operations.computeIfAbsent(f[1], k -> new Operation())
+            .errorsByType.computeIfAbsent(f[2], k -> new LongAdder()).add(Long.parseLong(f[3]));
+        case "counter" -> add(f[1], Long.parseLong(f[2]));
+        default -> throw new IllegalArgumentException("Not an encoded stats line: " + line);
+      }
+    }
+  }
+
+  private static String encode(final Histogram histogram) {
+    final Histogram copy = histogram.copy();
+    final ByteBuffer buffer = ByteBuffer.allocate(copy.getNeededByteBufferCapacity());
+    final int length = copy.encodeIntoCompressedByteBuffer(buffer);
+    return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+  }
+
+  private static Histogram decode(final String encoded) {
+    try {
+      return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(encoded)), 0);
+    } catch (DataFormatException e) {
+      throw new IllegalArgumentException("Not an encoded histogram", e);
+    }
+  }
+
+  /**
+   * Writes a cumulative snapshot (since this instance was created) to {@code latency.txt} in {@code dir}.
+   */
+  public void writeSnapshot(final Path dir) throws IOException {
+    Files.createDirectories(dir);
+    final double elapsedSec = activeNanos() / 1e9;
+    writeAllocation(dir);
+    writeWire(dir);
+    try (final var out = new PrintWriter(Files.newBufferedWriter(dir.resolve("latency.txt"), StandardCharsets.UTF_8))) {
+      out.printf(Locale.ROOT, "# elapsed_s=%.3f%n", elapsedSec);
+      out.printf(Locale.ROOT, "%-24s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+          "op", "count", "errors", "ops_s", "p50_ms", "p90_ms", "p99_ms", "p99.9_ms", "max_ms");
+      operations.forEach((name, op) -> {
+        final Histogram h = op.latency.copy();
+        final long ok = op.successes.sum();
+        final long err = op.errors.sum();
+        out.printf(Locale.ROOT, "%-24s %10d %8d %10.2f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+            name, ok + err, err, elapsedSec > 0 ? (ok + err) / elapsedSec : 0.0,
+            ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(90)),
+            ms(h.getValueAtPercentile(99)), ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue()));
+      });
+      operations.forEach((name, op) -> op.errorsByType.forEach((type, count) ->
+          out.printf(Locale.ROOT, "# error %s %s=%d%n", name, type, count.sum())));
+      counters.forEach((name, count) -> out.printf(Locale.ROOT, "# counter %s=%d%n", name, count.sum()));
+    }
+  }
+
+  /**
+   * Writes {@code allocation.txt}: bytes allocated per operation (caller thread plus transport threads)
+   * and per response body byte, for operations recorded through {@link #time}.
+   */
+  private void writeAllocation(final Path dir) throws IOException {
+    try (final var out = new PrintWriter(Files.newBufferedWriter(dir.resolve("allocation.txt"), StandardCharsets.UTF_8))) {
+      out.printf(Locale.ROOT, "%-24s %10s %10s %10s %10s %10s %10s %12s %14s%n",
+          "op", "count", "mean_kb", "p50_kb", "p90_kb", "p99_kb", "max_kb", "resp_kb_mean", "alloc_per_byte");
+      operations.forEach((name, op) -> {
+        final Histogram h = op.allocated.copy();
+        final long n = h.getTotalCount();
+        if (n == 0) return;
+        final long total = op.allocatedTotal.sum();
+        final long resp = op.responseBytes.sum();
+        out.printf(Locale.ROOT, "%-24s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %12.1f %14s%n",
+            name, n, kb(total / (double) n), kb(h.getValueAtPercentile(50)), kb(h.getValueAtPercentile(90)),
+            kb(h.getValueAtPercentile(99)), kb(h.getMaxValue()), kb(resp / (double) n),
+            resp > 0 ? String.format(Locale.ROOT, "%.2f", total / (double) resp) : "-");
+      });
+    }
+  }
+
+  /**
+   * Writes {@code wire.txt}: per operation recorded through {@link #time} whose requests were reported, the HTTP
+   * requests it took (round trips, retries included) and the request and response body bytes, on average.
+   * Headers are not counted.
+   */
+  private void writeWire(final Path dir) throws IOException {
+    try (final var out = new PrintWriter(Files.newBufferedWriter(dir.resolve("wire.txt"), StandardCharsets.UTF_8))) {
+      out.printf(Locale.ROOT, "%-24s %10s %12s %12s %12s%n", "op", "count", "requests_op", "req_kb_op", "resp_kb_op");
+      operations.forEach((name, op) -> {
+        final long n = op.scoped.sum();
+        if (n == 0) return;
+        out.printf(Locale.ROOT, "%-24s %10d %12.2f %12.2f %12.2f%n", name, n, op.requests.sum() / (double) n,
+            kb(op.requestBytes.sum() / (double) n), kb(op.responseBytes.sum() / (double) n));
+      });
+    }
+  }
+
+  private static double kb(final double bytes) {
+    return bytes / 1024.0;
+  }
+
+  private static double ms(final long nanos) {
+    return nanos / 1e6;
+  }
+
+  private static final class Operation {
+    final Histogram latency = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    final LongAdder successes = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final Map<String, LongAdder> errorsByType = new ConcurrentHashMap<>();
+    final Histogram allocated = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    final LongAdder allocatedTotal = new LongAdder();
+    final LongAdder responseBytes = new LongAdder();
+    final LongAdder scoped = new LongAdder();
+    final LongAdder requests = new LongAdder();
+    final LongAdder requestBytes = new LongAdder();
+  }
+
+  /**
+   * Allocation attributed to one timed operation. The calling thread's allocation is measured directly;
+   * transport threads that do work on the operation's behalf (e.g. a response body consumer) find the
+   * scope via {@link #current()} on the calling thread when the request is issued and report into it.
+   */
+  public static final class Scope {
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private final @Nullable Scope previous;
+    private final long callerStart;
+    private long callerBytes = -1;
+    private final LongAdder transportBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final List<Runnable> closeHooks = new CopyOnWriteArrayList<>();
+
+    private Scope(@Nullable final Scope previous) {
+      this.previous = previous;
+      this.callerStart = threadAllocatedBytes();
+    }
+
+    static Scope open() {
+      final var scope = new Scope(CURRENT.get());
+      CURRENT.set(scope);
+      return scope;
+    }
+
+    /** The operation being timed on this thread, or {@code null} outside {@link OperationStats#time}. */
+    public static @Nullable Scope current() {
+      return CURRENT.get();
+    }
+
+    /** Reports bytes allocated on another thread for this operation and response body bytes it received. */
+    public void addTransport(final long allocated, final long bodyBytes) {
+      if (allocated > 0) transportBytes.add(allocated);
+      responseBytes.add(bodyBytes);
+    }
+
+    /** Reports one HTTP request sent for this operation and the bytes of its body. */
+    public void addRequest(final long bodyBytes) {
+      requests.increment();
+      requestBytes.add(bodyBytes);
+    }
+
+    /** Reports that the client sent one of the operation's requests again; also call {@link #addRequest}. */
+    public void addRetry() {
+      retries.increment();
+    }
+
+    /** Runs {@code hook} when the operation finishes, before its allocation total is taken. */
+    public void onClose(final Runnable hook) {
+      closeHooks.add(hook);
+    }
+
+    /**
+     * Runs {@code call} with this scope current on the calling thread, e.g. to send an operation's next request
+     * from the callback of its previous one. The thread's allocation isn't counted.
+     */
+    public <T> T within(final Supplier<T> call) {
+      final var outer = CURRENT.get();
+      CURRENT.set(this);
+      try {
+        return call.get();
+      } finally {
+        if (outer != null) {
+          CURRENT.set(outer);
+        } else {
+          CURRENT.remove();
+        }
+      }
+    }
+
+    void close() {
+      finish();
+      detach();
+    }
+
+    /** Ends the opening thread's part: takes its allocation and makes the enclosing scope current again. */
+    void detach() {
+      final long end = threadAllocatedBytes();
+      callerBytes = callerStart >= 0 && end >= 0 ? end - callerStart : -1;
+      if (previous != null) {
+        CURRENT.set(previous);
+      } else {
+        CURRENT.remove();
+      }
+    }
+
+    /** Runs the close hooks, once the operation has its last response. */
+    void finish() {
+      closeHooks.forEach(Runnable::run);
+    }
+
+    long allocatedBytes() {
+      return callerBytes < 0 ? -1 : callerBytes + transportBytes.sum();
+    }
+
+    /** Bytes allocated so far by the current thread; -1 where unsupported (non-HotSpot, virtual threads). */
+    public static long threadAllocatedBytes() {
+      return THREADS instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemoryEnabled()
+          ? sun.getCurrentThreadAllocatedBytes()
+          : -1;
+    }
+  }
+}
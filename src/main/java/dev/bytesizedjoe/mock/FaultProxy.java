@@ -0,0 +1,413 @@
+package dev.bytesizedjoe.mock;
+
+import dev.bytesizedjoe.cli.HarnessArgs;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * TCP proxy between the client and the API server (or the stand-in) that injects network faults: a delay
+ * drawn from a latency distribution, a bandwidth cap, connection resets and slow-loris connections whose
+ * responses trickle in. It forwards bytes without looking at them, so TLS, watch streams and WebSockets pass
+ * through unchanged; a "read" below is whatever one socket read returned, which for request/response traffic
+ * is roughly one request or one response, and for a watch one or a few events.
+ * <p>
+ * Each direction of a connection has a reader and a writer thread. The reader stamps every read with the
+ * time it may be forwarded (never earlier than the read before it, so bytes stay in order) and queues it;
+ * the writer waits for that time and then writes under the bandwidth cap. Delays therefore don't add up
+ * across back-to-back reads the way sleeping in the reader would.
+ * <p>
+ * Once a second {@link #CSV} gets open connections, bytes waiting in the proxy and the heap used by this
+ * JVM, so the client's memory can be followed while requests pile up behind the faults.
+ */
+@NullMarked
+@Slf4j
+public final class FaultProxy implements AutoCloseable {
+  public static final String CSV = "faults.csv";
+  private static final int BUFFER = 16 * 1024;
+  private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+
+  @Value
+  @Builder(toBuilder = true)
+  public static class Settings {
+    /** Start the proxy even without faults, to measure the proxy hop alone. */
+    @Builder.Default boolean enabled = false;
+    /** Delay added to each forwarded read, in each direction. */
+    @Builder.Default Latency latency = Latency.NONE;
+    /** Bytes/s per direction, shared by all connections like a link would be; 0 means no cap. */
+    @Builder.Default long bandwidthBytesPerSecond = 0;
+    /** Percentage of forwarded reads (either direction) on which the connection is reset instead. */
+    @Builder.Default double resetPercent = 0;
+    /** Percentage of connections whose responses are delivered at {@link #slowBytesPerSecond}. */
+    @Builder.Default double slowPercent = 0;
+    @Builder.Default long slowBytesPerSecond = 64;
+
+    public static Settings fromArgs(final HarnessArgs args) {
+      return Settings.builder()
+          .enabled(args.isFaultProxy())
+          .latency(args.getFaultLatency().map(Latency::parse).orElse(Latency.NONE))
+          .bandwidthBytesPerSecond(args.getFaultBandwidth())
+          .resetPercent(args.getFaultResetPercent())
+          .slowPercent(args.getFaultSlowPercent())
+          .slowBytesPerSecond(args.getFaultSlowRate())
+          .build();
+    }
+
+    /** Whether the client should go through the proxy at all. */
+    public boolean isActive() {
+      return enabled || !Latency.NONE.equals(latency) || bandwidthBytesPerSecond > 0 || resetPercent > 0
+          || slowPercent > 0;
+    }
+  }
+
+  /**
+   * Delay distribution in milliseconds: {@code constant}, {@code uniform} between {@code a} and {@code b},
+   * {@code exp} with mean {@code a}, or {@code pareto} with minimum {@code a} and shape {@code b} (smaller
+   * is a heavier tail). Samples are capped at a minute.
+   */
+  @Value
+  public static class Latency {
+    public static final Latency NONE = new Latency("constant", 0, 0);
+    private static final double MAX_MS = 60_000;
+
+    String kind;
+    double a;
+    double b;
+
+    /** Parses {@code 20}, {@code uniform:5:50}, {@code exp:20} or {@code pareto:10:1.5}. */
+    public static Latency parse(final String spec) {
+      final String[] parts = spec.trim().toLowerCase(Locale.ROOT).split(":");
+      try {
+        return switch (parts[0]) {
+          case "", "none" -> NONE;
+          case "uniform" -> new Latency("uniform", Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+          case "exp" -> new Latency("exp", Double.parseDouble(parts[1]), 0);
+          case "pareto" -> new Latency("pareto", Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+          default -> new Latency("constant", Double.parseDouble(parts[0]), 0);
+        };
+      } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+        throw new IllegalArgumentException("Expected a latency like 20, uniform:5:50, exp:20 or pareto:10:1.5 but got '" + spec + "'", e);
+      }
+    }
+
+    long sampleNanos() {
+      final var random = ThreadLocalRandom.current();
+      final double ms = switch (kind) {
+        case "uniform" -> a + random.nextDouble() * Math.max(0, b - a);
+        case "exp" -> -a * Math.log(1 - random.nextDouble());
+        case "pareto" -> a / Math.pow(1 - random.nextDouble(), 1 / Math.max(1e-3, b));
+        default -> a;
+      };
+      return (long) (Math.min(MAX_MS, Math.max(0, ms)) * 1e6);
+    }
+
+    @Override
+    public String toString() {
+      return switch (kind) {
+        case "uniform", "pareto" -> kind + ":" + a + ":" + b;
+        case "exp" -> kind + ":" + a;
+        default -> a + "ms";
+      };
+    }
+  }
+
+  private final Settings settings;
+  private final InetSocketAddress upstream;
+  private final ServerSocket serverSocket;
+  private final ExecutorService threads;
+  private final ScheduledExecutorService sampler;
+  private final @Nullable Pacer link;
+  private final @Nullable BufferedWriter timeline;
+  private final long startNanos = System.nanoTime();
+
+  private final AtomicLong accepted = new AtomicLong();
+  private final AtomicInteger open = new AtomicInteger();
+  private final AtomicLong resets = new AtomicLong();
+  private final AtomicLong slow = new AtomicLong();
+  private final AtomicLong refused = new AtomicLong();
+  private final AtomicLong queued = new AtomicLong();
+  private final AtomicLong bytesUp = new AtomicLong();
+  private final AtomicLong bytesDown = new AtomicLong();
+
+  private FaultProxy(final URI upstream, final Settings settings, final Path dir) throws IOException {
+    this.settings = settings;
+    final int port = upstream.getPort() > 0 ? upstream.getPort() : "https".equals(upstream.getScheme()) ? 443 : 80;
+    this.upstream = new InetSocketAddress(upstream.getHost(), port);
+    this.serverSocket = new ServerSocket(0, 512, InetAddress.getLoopbackAddress());
+    this.link = settings.getBandwidthBytesPerSecond() > 0 ? new Pacer(settings.getBandwidthBytesPerSecond()) : null;
+    final var counter = new AtomicInteger();
+    this.threads = Executors.newCachedThreadPool(r -> {
+      final var t = new Thread(r, "fault-proxy-" + counter.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    BufferedWriter out = null;
+    try {
+      Files.createDirectories(dir);
+      out = Files.newBufferedWriter(dir.resolve(CSV));
+      out.write("epoch_ms,elapsed_s,accepted,open,resets,slow,refused,queued_bytes,up_bytes,down_bytes,heap_used_bytes");
+      out.newLine();
+    } catch (IOException e) {
+      log.warn("Failed to create {}: {}", dir.resolve(CSV), e.toString());
+    }
+    this.timeline = out;
+    this.sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+      final var t = new Thread(r, "fault-proxy-sampler");
+      t.setDaemon(true);
+      return t;
+    });
+    sampler.scheduleAtFixedRate(this::sample, 0, 1, TimeUnit.SECONDS);
+    threads.execute(this::acceptLoop);
+  }
+
+  /** Starts proxying to {@code upstream} (the API server URL), writing {@link #CSV} to {@code <outputDir>/faults-<timestamp>/}. */
+  public static FaultProxy start(final String upstream, final Settings settings, final Path outputDir) throws IOException {
+    final var df = new SimpleDateFormat("yyyyMMdd-HHmmss");
+    df.setTimeZone(TimeZone.getTimeZone("UTC"));
+    final var proxy = new FaultProxy(URI.create(upstream), settings, outputDir.resolve("faults-" + df.format(new Date())));
+    log.info("Fault proxy on {} in front of {} (latency {}, bandwidth {} B/s, {}% resets, {}% slow at {} B/s)",
+        proxy.address(), upstream, settings.getLatency(), settings.getBandwidthBytesPerSecond(),
+        settings.getResetPercent(), settings.getSlowPercent(), settings.getSlowBytesPerSecond());
+    return proxy;
+  }
+
+  /** {@code host:port} to connect to instead of the API server. */
+  public String address() {
+    return "127.0.0.1:" + serverSocket.getLocalPort();
+  }
+
+  @Override
+  public void close() {
+    try { serverSocket.close(); } catch (IOException ignored) { }
+    sampler.shutdownNow();
+    threads.shutdownNow();
+    sample();
+    if (timeline != null) {
+      try { timeline.close(); } catch (IOException ignored) { }
+    }
+    log.info("Fault proxy closed: {} connections, {} reset, {} slow, {} refused upstream", accepted.get(),
+        resets.get(), slow.get(), refused.get());
+  }
+
+  private void acceptLoop() {
+    while (!serverSocket.isClosed()) {
+      try {
+        final Socket socket = serverSocket.accept();
+        socket.setTcpNoDelay(true);
+        accepted.incrementAndGet();
+        threads.execute(() -> connect(socket));
+      } catch (IOException e) {
+        if (!serverSocket.isClosed()) log.debug("Accept failed: {}", e.toString());
+      } catch (RuntimeException e) {
+        // Executor rejected the connection because the proxy is shutting down
+        return;
+      }
+    }
+  }
+
+  private void connect(final Socket client) {
+    final var server = new Socket();
+    try {
+      server.setTcpNoDelay(true);
+      server.connect(upstream, CONNECT_TIMEOUT_MILLIS);
+    } catch (IOException e) {
+      refused.incrementAndGet();
+      log.debug("Upstream {} refused: {}", upstream, e.toString());
+      closeQuietly(client);
+      closeQuietly(server);
+      return;
+    }
+    final boolean slowLoris = chance(settings.getSlowPercent());
+    if (slowLoris) slow.incrementAndGet();
+    final var connection = new Connection(client, server);
+    open.incrementAndGet();
+    try {
+      connection.pipe(client, server, link, bytesUp);
+      connection.pipe(server, client, slowLoris ? new Pacer(settings.getSlowBytesPerSecond()) : link, bytesDown);
+    } catch (IOException | RuntimeException e) {
+      connection.close(false);
+    }
+  }
+
+  private void sample() {
+    if (timeline == null) return;
+    try {
+      synchronized (timeline) {
+        timeline.write(String.format(Locale.ROOT, "%d,%.1f,%d,%d,%d,%d,%d,%d,%d,%d,%d", System.currentTimeMillis(),
+            (System.nanoTime() - startNanos) / 1e9, accepted.get(), open.get(), resets.get(), slow.get(),
+            refused.get(), queued.get(), bytesUp.get(), bytesDown.get(),
+            ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed()));
+        timeline.newLine();
+        timeline.flush();
+      }
+    } catch (IOException e) {
+      log.debug("Failed to write {}: {}", CSV, e.toString());
+    }
+  }
+
+  private static boolean chance(final double percent) {
+    return percent > 0 && ThreadLocalRandom.current().nextDouble(100) < percent;
+  }
+
+  private static void closeQuietly(final Socket socket) {
+    try { socket.close(); } catch (IOException ignored) { }
+  }
+
+  /** One proxied connection: two sockets, each direction piped by a reader and a writer. */
+  private final class Connection {
+    private final Socket client;
+    private final Socket server;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicInteger halves = new AtomicInteger(2);
+    private final List<BlockingQueue<Chunk>> queues = new CopyOnWriteArrayList<>();
+
+    Connection(final Socket client, final Socket server) {
+      this.client = client;
+      this.server = server;
+    }
+
+    void pipe(final Socket from, final Socket to, @Nullable final Pacer pacer, final AtomicLong bytes) throws IOException {
+      final BlockingQueue<Chunk> chunks = new LinkedBlockingQueue<>();
+      queues.add(chunks);
+      final InputStream in = from.getInputStream();
+      final OutputStream out = to.getOutputStream();
+      threads.execute(() -> read(in, chunks, bytes));
+      threads.execute(() -> write(out, to, chunks, pacer));
+    }
+
+    private void read(final InputStream in, final BlockingQueue<Chunk> chunks, final AtomicLong bytes) {
+      long lastDue = 0;
+      try {
+        final byte[] buffer = new byte[BUFFER];
+        for (int n; (n = in.read(buffer)) >= 0; ) {
+          if (n == 0) continue;
+          if (chance(settings.getResetPercent())) {
+            resets.incrementAndGet();
+            close(true);
+            return;
+          }
+          lastDue = Math.max(lastDue, System.nanoTime() + settings.getLatency().sampleNanos());
+          bytes.addAndGet(n);
+          queued.addAndGet(n);
+          chunks.add(new Chunk(Arrays.copyOf(buffer, n), lastDue));
+        }
+      } catch (IOException e) {
+        close(false);
+        return;
+      }
+      chunks.add(Chunk.EOF);
+    }
+
+    private void write(final OutputStream out, final Socket to, final BlockingQueue<Chunk> chunks,
+                       @Nullable final Pacer pacer) {
+      try {
+        for (Chunk chunk = chunks.take(); chunk != Chunk.EOF; chunk = chunks.take()) {
+          sleepUntil(chunk.due);
+          // Slow-loris connections dribble a tenth of a second's worth at a time
+          final int slice = pacer == null ? chunk.data.length
+              : (int) Math.max(1, Math.min(BUFFER, pacer.bytesPerSecond / 10));
+          for (int off = 0; off < chunk.data.length; off += slice) {
+            final int len = Math.min(slice, chunk.data.length - off);
+            if (pacer != null) sleepUntil(pacer.reserve(len));
+            out.write(chunk.data, off, len);
+            out.flush();
+            queued.addAndGet(-len);
+          }
+        }
+        to.shutdownOutput();
+        if (halves.decrementAndGet() == 0) close(false);
+      } catch (IOException e) {
+        close(false);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        close(false);
+      }
+    }
+
+    /** Closes both sockets; with {@code reset}, with an RST rather than a FIN. */
+    void close(final boolean reset) {
+      if (!closed.compareAndSet(false, true)) return;
+      open.decrementAndGet();
+      for (final Socket socket : new Socket[] {client, server}) {
+        if (reset) {
+          try { socket.setSoLinger(true, 0); } catch (IOException ignored) { }
+        }
+        closeQuietly(socket);
+      }
+      // Wake the writers; whatever they still hold is dropped
+      queues.forEach(chunks -> {
+        chunks.forEach(chunk -> queued.addAndGet(-chunk.data.length));
+        chunks.clear();
+        chunks.add(Chunk.EOF);
+      });
+    }
+  }
+
+  private static void sleepUntil(final long nanoTime) throws InterruptedException {
+    for (long wait = nanoTime - System.nanoTime(); wait > 0; wait = nanoTime - System.nanoTime()) {
+      LockSupport.parkNanos(wait);
+      if (Thread.interrupted()) throw new InterruptedException();
+    }
+  }
+
+  /** Bytes read from one side, and when they may be written to the other. */
+  private static final class Chunk {
+    static final Chunk EOF = new Chunk(new byte[0], 0);
+
+    final byte[] data;
+    final long due;
+
+    Chunk(final byte[] data, final long due) {
+      this.data = data;
+      this.due = due;
+    }
+  }
+
+  /** A rate limit: hands out the time by which a transfer of some bytes finishes at the given rate. */
+  private static final class Pacer {
+    final long bytesPerSecond;
+    private long next;
+
+    Pacer(final long bytesPerSecond) {
+      this.bytesPerSecond = Math.max(1, bytesPerSecond);
+    }
+
+    synchronized long reserve(final int bytes) {
+      next = Math.max(System.nanoTime(), next) + bytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+      return next;
+    }
+  }
+}
@@ -0,0 +1,752 @@
+package dev.bytesizedjoe.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import dev.bytesizedjoe.cli.HarnessArgs;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.fabric8.kubernetes.client.utils.KubernetesSerialization;
+import io.fabric8.zjsonpatch.JsonPatch;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in Kubernetes API server for offline runs. Serves a deterministic, configurable dataset of
+ * pods and services, a writable ConfigMap/Namespace store, paginated lists with {@code continue}
+ * tokens, watch streams (WebSocket or chunked HTTP), followable pod logs, and exec/attach/port-forward
+ * WebSockets that echo. Optionally over TLS, with {@code /ab/handshake} reporting how each connection
+ * was established.
+ */
+@NullMarked
+@Slf4j
+public final class MockApiServer implements AutoCloseable {
+  /** Annotation stamped on every synthetic watch event with the emit time in epoch millis. */
+  public static final String EMITTED_AT_ANNOTATION = "mock.ab-harness/emitted-at";
+
+  private static final int WATCH_QUEUE_LIMIT = 10_000;
+  private static final String CREATED = "2024-01-01T00:00:00Z";
+
+  @Value
+  @Builder(toBuilder = true)
+  public static class Settings {
+    @Builder.Default int port = 0;
+    @Builder.Default int pods = 1000;
+    @Builder.Default int services = 200;
+    @Builder.Default int namespaces = 10;
+    @Builder.Default int latencyMs = 0;
+    @Builder.Default int watchEventsPerSecond = 10;
+    @Builder.Default int logBytesPerSecond = 4096;
+    @Builder.Default boolean tls = false;
+    /** Share of TLS connections that may resume a session; the rest get a full handshake (see {@link MockTls}). */
+    @Builder.Default int tlsResumablePercent = 50;
+
+    public static Settings fromArgs(final HarnessArgs args) {
+      return Settings.builder()
+          .port(args.getMockPort())
+          .pods(args.getMockPods())
+          .services(args.getMockServices())
+          .latencyMs(args.getMockLatencyMs())
+          .watchEventsPerSecond(args.getMockWatchRate())
+          .logBytesPerSecond(args.getMockLogRate())
+          .tls(args.isMockTls())
+          .tlsResumablePercent(args.getMockTlsResumable())
+          .build();
+    }
+  }
+
+  private final Settings settings;
+  private final ObjectMapper json = new ObjectMapper();
+  private final ObjectMapper yaml = new ObjectMapper(new YAMLFactory());
+  private final KubernetesSerialization serialization = new KubernetesSerialization();
+  private final AtomicLong resourceVersion = new AtomicLong(1000);
+  private final Map<String, MockStore> stores = Map.of(
+      "pods", new MockStore("Pod", true),
+      "services", new MockStore("Service", true),
+      "configmaps", new MockStore("ConfigMap", true),
+      "namespaces", new MockStore("Namespace", false));
+  private final MockHttpServer http;
+  private final ScheduledExecutorService churn;
+
+  private MockApiServer(final Settings settings) throws IOException {
+    this.settings = settings;
+    seed();
+    this.http = new MockHttpServer(new ServerSocket(settings.getPort(), 512, InetAddress.getLoopbackAddress()),
+        settings.isTls() ? new MockTls(settings.getTlsResumablePercent()) : null, this::handle, "mock-api");
+    this.churn = Executors.newSingleThreadScheduledExecutor(r -> {
+      final var t = new Thread(r, "mock-api-churn");
+      t.setDaemon(true);
+      return t;
+    });
+    if (settings.getWatchEventsPerSecond() > 0 && settings.getPods() > 0) {
+      final long periodMicros = Math.max(1, 1_000_000L / settings.getWatchEventsPerSecond());
+      final var cursor = new AtomicLong();
+      churn.scheduleAtFixedRate(() -> touchPod((int) (cursor.getAndIncrement() % settings.getPods())),
+          periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+    }
+  }
+
+  public static MockApiServer start(final Settings settings) throws IOException {
+    final var server = new MockApiServer(settings);
+    log.info("Mock API server listening on {} ({} pods, {} services, {} ms latency, {} watch events/s)",
+        server.url(), settings.getPods(), settings.getServices(), settings.getLatencyMs(),
+        settings.getWatchEventsPerSecond());
+    return server;
+  }
+
+  public String url() {
+    return (settings.isTls() ? "https" : "http") + "://127.0.0.1:" + http.port();
+  }
+
+  @Override
+  public void close() {
+    churn.shutdownNow();
+    http.close();
+  }
+
+  private void seed() {
+    for (var n = 0; n < settings.getNamespaces(); n++) {
+      putNamespace(namespaceOf(n));
+    }
+    for (var i = 0; i < settings.getPods(); i++) {
+      final Pod pod = podAt(i);
+      stores.get("pods").put(item(pod.getMetadata().getNamespace(), pod.getMetadata().getName(),
+          serialization.asJson(pod)), "ADDED");
+    }
+    for (var i = 0; i < settings.getServices(); i++) {
+      final Service svc = serviceAt(i);
+      stores.get("services").put(item(svc.getMetadata().getNamespace(), svc.getMetadata().getName(),
+          serialization.asJson(svc)), "ADDED");
+    }
+  }
+
+  private String namespaceOf(final int index) {
+    return "mock-ns-" + (index % Math.max(1, settings.getNamespaces()));
+  }
+
+  private Pod podAt(final int i) {
+    final String name = String.format(Locale.ROOT, "mock-pod-%06d", i);
+    return new PodBuilder()
+        .withNewMetadata()
+          .withName(name)
+          .withNamespace(namespaceOf(i))
+          .withUid(UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString())
+          .withResourceVersion(Long.toString(resourceVersion.incrementAndGet()))
+          .withCreationTimestamp(CREATED)
+          .addToLabels("app", "mock-app-" + (i % 20))
+          .addToLabels("tier", i % 2 == 0 ? "web" : "worker")
+        .endMetadata()
+        .withNewSpec()
+          .withNodeName("mock-node-" + (i % 50))
+          .addNewContainer()
+            .withName("main")
+            .withImage("registry.example/mock/app:1.0")
+            .addNewPort().withContainerPort(8080).withProtocol("TCP").endPort()
+          .endContainer()
+        .endSpec()
+        .withNewStatus()
+          .withPhase("Running")
+          .withPodIP("10.0." + (i / 250 % 256) + "." + (i % 250 + 1))
+          .addNewCondition().withType("Ready").withStatus("True").endCondition()
+          .addNewContainerStatus()
+            .withName("main")
+            .withImage("registry.example/mock/app:1.0")
+            .withReady(true)
+            .withRestartCount(0)
+          .endContainerStatus()
+        .endStatus()
+        .build();
+  }
+
+  private Service serviceAt(final int i) {
+    final String name = String.format(Locale.ROOT, "mock-svc-%05d", i);
+    return new ServiceBuilder()
+        .withNewMetadata()
+          .withName(name)
+          .withNamespace(namespaceOf(i))
+          .withUid(UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString())
+          .withResourceVersion(Long.toString(resourceVersion.incrementAndGet()))
+          .withCreationTimestamp(CREATED)
+        .endMetadata()
+        .withNewSpec()
+          .withType("ClusterIP")
+          .withClusterIP("10.96." + (i / 250 % 256) + "." + (i % 250 + 1))
+          .addToSelector("app", "mock-app-" + (i % 20))
+          .addNewPort().withName("http").withPort(80).withNewTargetPort(8080).withProtocol("TCP").endPort()
+        .endSpec()
+        .build();
+  }
+
+  private void putNamespace(final String name) {
+    final ObjectNode ns = json.createObjectNode();
+    ns.put("apiVersion", "v1").put("kind", "Namespace");
+    ns.putObject("metadata").put("name", name).put("uid", UUID.randomUUID().toString())
+        .put("creationTimestamp", CREATED).put("resourceVersion", Long.toString(resourceVersion.incrementAndGet()));
+    ns.putObject("status").put("phase", "Active");
+    stores.get("namespaces").put(item("", name, ns.toString()), "ADDED");
+  }
+
+  private void touchPod(final int index) {
+    try {
+      final var pods = stores.get("pods");
+      final String ns = namespaceOf(index);
+      final String name = String.format(Locale.ROOT, "mock-pod-%06d", index);
+      synchronized (pods) {
+        final MockStore.Item current = pods.get(ns, name);
+        if (current == null) return;
+        final ObjectNode obj = (ObjectNode) json.readTree(current.getJson());
+        final long rv = resourceVersion.incrementAndGet();
+        final ObjectNode meta = (ObjectNode) obj.get("metadata");
+        meta.put("resourceVersion", Long.toString(rv));
+        meta.withObject("/annotations").put(EMITTED_AT_ANNOTATION, Long.toString(System.currentTimeMillis()));
+        pods.put(new MockStore.Item(ns, name, rv, json.writeValueAsBytes(obj)), "MODIFIED");
+      }
+    } catch (Exception e) {
+      log.debug("Pod churn failed: {}", e.toString());
+    }
+  }
+
+  private MockStore.Item item(final String namespace, final String name, final String body) {
+    final long rv = resourceVersion.get();
+    return new MockStore.Item(namespace, name, rv, body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  // ---------------------------------------------------------------------------------------------
+  // Routing
+
+  private void handle(final MockHttpServer.Exchange ex) throws Exception {
+    if (settings.getLatencyMs() > 0) {
+      Thread.sleep(settings.getLatencyMs());
+    }
+    final String[] seg = ex.path.replaceAll("^/+|/+$", "").split("/");
+    if (seg.length == 1 && "version".equals(seg[0])) {
+      respondJson(ex, 200, "{\"major\":\"1\",\"minor\":\"30\",\"gitVersion\":\"v1.30.0-mock\",\"platform\":\"mock\"}");
+      return;
+    }
+    if (seg.length == 2 && "ab".equals(seg[0]) && "handshake".equals(seg[1])) {
+      handshake(ex);
+      return;
+    }
+    if (seg.length == 1 && "api".equals(seg[0])) {
+      respondJson(ex, 200, "{\"kind\":\"APIVersions\",\"versions\":[\"v1\"]}");
+      return;
+    }
+    if (seg.length == 1 && "apis".equals(seg[0])) {
+      respondJson(ex, 200, "{\"kind\":\"APIGroupList\",\"apiVersion\":\"v1\",\"groups\":[]}");
+      return;
+    }
+    if (seg.length < 2 || !"api".equals(seg[0]) || !"v1".equals(seg[1])) {
+      status(ex, 404, "NotFound", "the server could not find the requested resource");
+      return;
+    }
+    if (seg.length == 2) {
+      respondJson(ex, 200, discovery());
+    } else if (seg.length == 3) {
+      collection(ex, seg[2], null);
+    } else if (seg.length == 4 && "namespaces".equals(seg[2])) {
+      object(ex, "namespaces", "", seg[3]);
+    } else if (seg.length == 5 && "namespaces".equals(seg[2])) {
+      collection(ex, seg[4], seg[3]);
+    } else if (seg.length == 6 && "namespaces".equals(seg[2])) {
+      object(ex, seg[4], seg[3], seg[5]);
+    } else if (seg.length == 7 && "namespaces".equals(seg[2]) && "pods".equals(seg[4]) && "log".equals(seg[6])) {
+      podLog(ex, seg[3], seg[5]);
+    } else if (seg.length == 7 && "namespaces".equals(seg[2]) && "pods".equals(seg[4])
+        && ("exec".equals(seg[6]) || "attach".equals(seg[6]) || "portforward".equals(seg[6]))) {
+      echoSession(ex, seg[3], seg[5], "portforward".equals(seg[6]));
+    } else {
+      status(ex, 404, "NotFound", "the server could not find the requested resource");
+    }
+  }
+
+  private String discovery() {
+    final var sb = new StringBuilder("{\"kind\":\"APIResourceList\",\"apiVersion\":\"v1\",\"groupVersion\":\"v1\",\"resources\":[");
+    var first = true;
+    for (final var e : stores.entrySet()) {
+      if (!first) sb.append(',');
+      first = false;
+      sb.append("{\"name\":\"").append(e.getKey()).append("\",\"singularName\":\"")
+          .append(e.getValue().kind.toLowerCase(Locale.ROOT)).append("\",\"namespaced\":").append(e.getValue().namespaced)
+          .append(",\"kind\":\"").append(e.getValue().kind)
+          .append("\",\"verbs\":[\"create\",\"delete\",\"get\",\"list\",\"patch\",\"update\",\"watch\"]}");
+    }
+    return sb.append("]}").toString();
+  }
+
+  private void collection(final MockHttpServer.Exchange ex, final String plural, @Nullable final String namespace) throws Exception {
+    final MockStore store = stores.get(plural);
+    if (store == null) {
+      status(ex, 404, "NotFound", "the server could not find the requested resource");
+      return;
+    }
+    switch (ex.method) {
+      case "GET":
+        if (isTrue(ex.query.get("watch"))) {
+          watch(ex, store, namespace);
+        } else {
+          list(ex, store, namespace);
+        }
+        break;
+      case "POST":
+        create(ex, store, store.namespaced ? namespace : "");
+        break;
+      default:
+        status(ex, 405, "MethodNotAllowed", ex.method + " is not supported on collections");
+    }
+  }
+
+  private void object(final MockHttpServer.Exchange ex, final String plural, final String namespace, final String name) throws Exception {
+    final MockStore store = stores.get(plural);
+    if (store == null) {
+      status(ex, 404, "NotFound", "the server could not find the requested resource");
+      return;
+    }
+    switch (ex.method) {
+      case "GET": {
+        final MockStore.Item item = store.get(namespace, name);
+        if (item == null) {
+          notFound(ex, plural, name);
+        } else {
+          respondJson(ex, 200, item.getJson());
+        }
+        break;
+      }
+      case "PUT":
+        replace(ex, store, plural, namespace, name);
+        break;
+      case "PATCH":
+        patch(ex, store, plural, namespace, name);
+        break;
+      case "DELETE":
+        delete(ex, store, plural, namespace, name);
+        break;
+      default:
+        status(ex, 405, "MethodNotAllowed", ex.method + " is not supported");
+    }
+  }
+
+  // ---------------------------------------------------------------------------------------------
+  // Reads
+
+  private void list(final MockHttpServer.Exchange ex, final MockStore store, @Nullable final String namespace) throws IOException {
+    final int limit = Integer.parseInt(ex.query.getOrDefault("limit", "0"));
+    final String token = ex.query.get("continue");
+    final String after = token == null || token.isEmpty() ? null
+        : new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+    final MockStore.Page page = store.list(namespace, after, limit);
+
+    final var body = new ByteArrayOutputStream(64 + page.getItems().size() * 1024);
+    body.writeBytes(("{\"apiVersion\":\"v1\",\"kind\":\"" + store.kind + "List\",\"metadata\":{\"resourceVersion\":\""
+        + resourceVersion.get() + "\"").getBytes(StandardCharsets.UTF_8));
+    if (page.getContinueKey() != null) {
+      final String next = Base64.getUrlEncoder().withoutPadding()
+          .encodeToString(page.getContinueKey().getBytes(StandardCharsets.UTF_8));
+      body.writeBytes((",\"continue\":\"" + next + "\"").getBytes(StandardCharsets.UTF_8));
+    }
+    body.writeBytes("},\"items\":[".getBytes(StandardCharsets.UTF_8));
+    final Iterator<MockStore.Item> it = page.getItems().iterator();
+    while (it.hasNext()) {
+      body.writeBytes(it.next().getJson());
+      if (it.hasNext()) body.write(',');
+    }
+    body.writeBytes("]}".getBytes(StandardCharsets.UTF_8));
+    ex.respond(200, "application/json", body.toByteArray());
+  }
+
+  private void watch(final MockHttpServer.Exchange ex, final MockStore store, @Nullable final String namespace) throws Exception {
+    final BlockingQueue<MockStore.Event> queue = new LinkedBlockingQueue<>(WATCH_QUEUE_LIMIT);
+    final var overflow = new AtomicBoolean();
+    final Runnable unsubscribe = store.subscribe(e -> {
+      if ((namespace == null || namespace.equals(e.getItem().getNamespace())) && !queue.offer(e)) {
+        overflow.set(true);
+      }
+    });
+    try {
+      final long timeoutSec = Long.parseLong(ex.query.getOrDefault("timeoutSeconds", "0"));
+      final long deadline = timeoutSec > 0 ? System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSec) : Long.MAX_VALUE;
+      final String rv = ex.query.getOrDefault("resourceVersion", "");
+      final WatchSink sink = ex.isWebSocketUpgrade() ? new WebSocketSink(ex.upgrade(null)) : new ChunkedSink(ex);
+      try (sink) {
+        if (rv.isEmpty() || "0".equals(rv)) {
+          for (final MockStore.Item item : store.list(namespace, null, 0).getItems()) {
+            sink.send(event("ADDED", item));
+          }
+        }
+        while (sink.isOpen() && !overflow.get() && System.nanoTime() < deadline) {
+          final MockStore.Event e = queue.poll(250, TimeUnit.MILLISECONDS);
+          if (e != null) sink.send(event(e.getType(), e.getItem()));
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      unsubscribe.run();
+    }
+  }
+
+  private static byte[] event(final String type, final MockStore.Item item) {
+    final byte[] prefix = ("{\"type\":\"" + type + "\",\"object\":").getBytes(StandardCharsets.UTF_8);
+    final byte[] out = new byte[prefix.length + item.getJson().length + 1];
+    System.arraycopy(prefix, 0, out, 0, prefix.length);
+    System.arraycopy(item.getJson(), 0, out, prefix.length, item.getJson().length);
+    out[out.length - 1] = '}';
+    return out;
+  }
+
+  private void podLog(final MockHttpServer.Exchange ex, final String namespace, final String name) throws Exception {
+    if (stores.get("pods").get(namespace, name) == null) {
+      notFound(ex, "pods", name);
+      return;
+    }
+    final int tail = Integer.parseInt(ex.query.getOrDefault("tailLines", "10"));
+    final boolean follow = isTrue(ex.query.get("follow"));
+    long seq = 0;
+    try (OutputStream out = ex.startChunked(200, "text/plain")) {
+      for (; seq < tail; seq++) {
+        out.write(logLine(namespace, name, seq));
+      }
+      out.flush();
+      if (!follow || settings.getLogBytesPerSecond() <= 0) return;
+      final long tickNanos = TimeUnit.MILLISECONDS.toNanos(100);
+      final int bytesPerTick = Math.max(1, settings.getLogBytesPerSecond() / 10);
+      long next = System.nanoTime();
+      while (!Thread.currentThread().isInterrupted()) {
+        var written = 0;
+        while (written < bytesPerTick) {
+          final byte[] line = logLine(namespace, name, seq++);
+          out.write(line);
+          written += line.length;
+        }
+        out.flush();
+        next += tickNanos;
+        final long sleep = next - System.nanoTime();
+        if (sleep > 0) TimeUnit.NANOSECONDS.sleep(sleep);
+      }
+    }
+  }
+
+  private static byte[] logLine(final String namespace, final String name, final long seq) {
+    final var sb = new StringBuilder(128)
+        .append(System.currentTimeMillis()).append(' ').append(namespace).append('/').append(name)
+        .append(" seq=").append(seq).append(' ');
+    while (sb.length() < 127) sb.append('x');
+    return sb.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  // ---------------------------------------------------------------------------------------------
+  // Connection handshakes
+
+  /**
+   * Reports how the request's connection was set up: its TLS protocol ({@code none} in plain text), whether
+   * the session was resumed and the server's handshake time, plus which request on the connection this is
+   * and the server's connection and request totals. Closes the connection after the {@code closeAfter}-th
+   * request on it (default 1), so the client has to connect again for the next one.
+   */
+  private void handshake(final MockHttpServer.Exchange ex) throws IOException {
+    final int closeAfter = Integer.parseInt(ex.query.getOrDefault("closeAfter", "1"));
+    final var handshake = ex.handshake();
+    final ObjectNode body = json.createObjectNode()
+        .put("protocol", handshake == null ? "none" : handshake.getProtocol())
+        .put("resumed", handshake != null && handshake.isResumed())
+        .put("handshakeMicros", handshake == null ? 0 : TimeUnit.NANOSECONDS.toMicros(handshake.getNanos()))
+        .put("connection", ex.connection())
+        .put("request", ex.requestOnConnection())
+        .put("connections", http.connections())
+        .put("requests", http.requests());
+    if (closeAfter > 0 && ex.requestOnConnection() >= closeAfter) ex.closeAfterResponse();
+    respondJson(ex, 200, body.toString());
+  }
+
+  // ---------------------------------------------------------------------------------------------
+  // Exec, attach and port-forward
+
+  /**
+   * Echoes everything the client sends back to it, whatever the command or port. Exec and attach use the
+   * channel protocol (stdin on channel 0 comes back on stdout, channel 1). Port-forward first announces the
+   * port on the data and error channels, as the kubelet does, then echoes channel 0 on channel 0.
+   */
+  private void echoSession(final MockHttpServer.Exchange ex, final String namespace, final String name,
+                           final boolean portForward) throws Exception {
+    if (stores.get("pods").get(namespace, name) == null) {
+      notFound(ex, "pods", name);
+      return;
+    }
+    if (!ex.isWebSocketUpgrade()) {
+      status(ex, 400, "BadRequest", "Upgrade request required");
+      return;
+    }
+    final String offered = ex.header("sec-websocket-protocol");
+    final String protocol = offered == null ? null : offered.split(",")[0].trim();
+    try (MockHttpServer.WebSocket ws = ex.upgrade(protocol)) {
+      if (portForward) {
+        final int port = Integer.parseInt(ex.query.getOrDefault("ports", "80").split(",")[0]);
+        ws.sendBinary(new byte[] {0, (byte) port, (byte) (port >>> 8)});
+        ws.sendBinary(new byte[] {1, (byte) port, (byte) (port >>> 8)});
+      }
+      final byte replyChannel = (byte) (portForward ? 0 : 1);
+      for (MockHttpServer.WebSocket.Message m = ws.read(); m != null; m = ws.read()) {
+        if (m.payload.length < 2 || m.payload[0] != 0) continue;
+        m.payload[0] = replyChannel;
+        ws.sendBinary(m.payload);
+      }
+    }
+  }
+
+  // ---------------------------------------------------------------------------------------------
+  // Writes
+
+  private void create(final MockHttpServer.Exchange ex, final MockStore store, @Nullable final String namespace) throws IOException {
+    final JsonNode parsed = json.readTree(ex.body);
+    if (!(parsed instanceof ObjectNode)) {
+      status(ex, 400, "BadRequest", "request body must be a JSON object");
+      return;
+    }
+    final ObjectNode obj = (ObjectNode) parsed;
+    final ObjectNode meta = obj.withObject("/metadata");
+    String name = meta.path("name").asText("");
+    if (name.isEmpty() && meta.hasNonNull("generateName")) {
+      name = meta.get("generateName").asText() + UUID.randomUUID().toString().substring(0, 5);
+      meta.put("name", name);
+    }
+    if (name.isEmpty()) {
+      status(ex, 422, "Invalid", "metadata.name: Required value");
+      return;
+    }
+    final String ns = namespace != null ? namespace : meta.path("namespace").asText("default");
+    synchronized (store) {
+      if (store.get(ns, name) != null) {
+        status(ex, 409, "AlreadyExists", store.kind.toLowerCase(Locale.ROOT) + " \"" + name + "\" already exists");
+        return;
+      }
+      final MockStore.Item item = stamp(store, obj, ns, name, null);
+      store.put(item, "ADDED");
+      respondJson(ex, 201, item.getJson());
+    }
+  }
+
+  private void replace(final MockHttpServer.Exchange ex, final MockStore store, final String plural,
+                       final String namespace, final String name) throws IOException {
+    final ObjectNode obj = (ObjectNode) json.readTree(ex.body);
+    synchronized (store) {
+      final MockStore.Item current = store.get(namespace, name);
+      if (current == null) {
+        notFound(ex, plural, name);
+        return;
+      }
+      final String expectedRv = obj.path("metadata").path("resourceVersion").asText("");
+      if (!expectedRv.isEmpty() && !expectedRv.equals(Long.toString(current.getResourceVersion()))) {
+        status(ex, 409, "Conflict", "the object has been modified; please apply your changes to the latest version and try again");
+        return;
+      }
+      final MockStore.Item item = stamp(store, obj, namespace, name, (ObjectNode) json.readTree(current.getJson()));
+      store.put(item, "MODIFIED");
+      respondJson(ex, 200, item.getJson());
+    }
+  }
+
+  private void patch(final MockHttpServer.Exchange ex, final MockStore store, final String plural,
+                     final String namespace, final String name) throws IOException {
+    final String contentType = String.valueOf(ex.header("content-type")).toLowerCase(Locale.ROOT);
+    synchronized (store) {
+      final MockStore.Item current = store.get(namespace, name);
+      final boolean apply = contentType.startsWith("application/apply-patch");
+      if (current == null && !apply) {
+        notFound(ex, plural, name);
+        return;
+      }
+      final ObjectNode existing = current == null ? json.createObjectNode() : (ObjectNode) json.readTree(current.getJson());
+      final JsonNode patched;
+      try {
+        if (contentType.startsWith("application/json-patch+json")) {
+          patched = JsonPatch.apply(json.readTree(ex.body), existing);
+        } else if (apply) {
+          patched = mergePatch(existing, yaml.readTree(ex.body));
+        } else if (contentType.startsWith("application/merge-patch+json")
+            || contentType.startsWith("application/strategic-merge-patch+json")) {
+          patched = mergePatch(existing, json.readTree(ex.body));
+        } else {
+          status(ex, 415, "UnsupportedMediaType", "the body of the request was in an unknown format: " + contentType);
+          return;
+        }
+      } catch (RuntimeException e) {
+        status(ex, 422, "Invalid", "patch could not be applied: " + e.getMessage());
+        return;
+      }
+      final MockStore.Item item = stamp(store, (ObjectNode) patched, namespace, name, current == null ? null : existing);
+      store.put(item, current == null ? "ADDED" : "MODIFIED");
+      respondJson(ex, current == null ? 201 : 200, item.getJson());
+    }
+  }
+
+  private void delete(final MockHttpServer.Exchange ex, final MockStore store, final String plural,
+                      final String namespace, final String name) throws IOException {
+    final MockStore.Item removed;
+    synchronized (store) {
+      removed = store.remove(namespace, name);
+    }
+    if (removed == null) {
+      notFound(ex, plural, name);
+      return;
+    }
+    final ObjectNode status = json.createObjectNode();
+    status.put("kind", "Status").put("apiVersion", "v1").put("status", "Success");
+    status.putObject("metadata");
+    status.putObject("details").put("name", name).put("kind", plural)
+        .put("uid", json.readTree(removed.getJson()).path("metadata").path("uid").asText(""));
+    respondJson(ex, 200, status.toString());
+  }
+
+  /** Fills server-managed metadata and serializes the object as the new stored revision. */
+  private MockStore.Item stamp(final MockStore store, final ObjectNode obj, final String namespace, final String name,
+                               @Nullable final ObjectNode previous) throws IOException {
+    final long rv = resourceVersion.incrementAndGet();
+    final ObjectNode meta = obj.withObject("/metadata");
+    final JsonNode prevMeta = previous == null ? null : previous.get("metadata");
+    obj.put("apiVersion", "v1").put("kind", store.kind);
+    meta.put("name", name);
+    if (store.namespaced) meta.put("namespace", namespace);
+    meta.put("uid", prevMeta != null ? prevMeta.path("uid").asText() : UUID.randomUUID().toString());
+    meta.put("creationTimestamp", prevMeta != null ? prevMeta.path("creationTimestamp").asText()
+        : Instant.now().truncatedTo(ChronoUnit.SECONDS).toString());
+    meta.put("resourceVersion", Long.toString(rv));
+    return new MockStore.Item(namespace, name, rv, json.writeValueAsBytes(obj));
+  }
+
+  /** RFC 7386 JSON merge patch. */
+  private static JsonNode mergePatch(final JsonNode target, final JsonNode patch) {
+    if (!patch.isObject()) return patch;
+    final ObjectNode result = target.isObject() ? (ObjectNode) target : JsonNodeFactory.instance.objectNode();
+    patch.fields().forEachRemaining(e -> {
+      if (e.getValue().isNull()) {
+        result.remove(e.getKey());
+      } else {
+        final JsonNode existing = result.get(e.getKey());
+        result.set(e.getKey(), mergePatch(existing == null ? result.objectNode() : existing, e.getValue()));
+      }
+    });
+    return result;
+  }
+
+  // ---------------------------------------------------------------------------------------------
+  // Responses
+
+  private static boolean isTrue(@Nullable final String value) {
+    return "true".equalsIgnoreCase(value) || "1".equals(value);
+  }
+
+  private static void respondJson(final MockHttpServer.Exchange ex, final int code, final String body) throws IOException {
+    respondJson(ex, code, body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void respondJson(final MockHttpServer.Exchange ex, final int code, final byte[] body) throws IOException {
+    ex.respond(code, "application/json", body);
+  }
+
+  private void notFound(final MockHttpServer.Exchange ex, final String plural, final String name) throws IOException {
+    status(ex, 404, "NotFound", plural + " \"" + name + "\" not found");
+  }
+
+  private void status(final MockHttpServer.Exchange ex, final int code, final String reason, final String message) throws IOException {
+    final ObjectNode status = json.createObjectNode();
+    status.put("kind", "Status").put("apiVersion", "v1").put("status", "Failure")
+        .put("message", message).put("reason", reason).put("code", code);
+    status.putObject("metadata");
+    respondJson(ex, code, status.toString());
+  }
+
+  private interface WatchSink extends AutoCloseable {
+    void send(byte[] event) throws IOException;
+
+    boolean isOpen();
+
+    @Override
+    void close() throws IOException;
+  }
+
+  private final class WebSocketSink implements WatchSink {
+    private final MockHttpServer.WebSocket ws;
+
+    WebSocketSink(final MockHttpServer.WebSocket ws) {
+      this.ws = ws;
+      // Drain client frames so pings are answered and a client close is noticed promptly
+      http.execute(() -> {
+        try {
+          while (ws.read() != null) {
+            // watch clients don't send data
+          }
+        } catch (IOException ignored) {
+        } finally {
+          ws.close();
+        }
+      });
+    }
+
+    @Override public void send(final byte[] event) throws IOException {
+      ws.send(MockHttpServer.WebSocket.TEXT, event);
+    }
+
+    @Override public boolean isOpen() {
+      return ws.isOpen();
+    }
+
+    @Override public void close() {
+      ws.close();
+    }
+  }
+
+  private static final class ChunkedSink implements WatchSink {
+    private final OutputStream out;
+    private boolean open = true;
+
+    ChunkedSink(final MockHttpServer.Exchange ex) throws IOException {
+      this.out = ex.startChunked(200, "application/json");
+    }
+
+    @Override public void send(final byte[] event) throws IOException {
+      try {
+        out.write(event);
+        out.write('\n');
+        out.flush();
+      } catch (IOException e) {
+        open = false;
+        throw e;
+      }
+    }
+
+    @Override public boolean isOpen() {
+      return open;
+    }
+
+    @Override public void close() throws IOException {
+      if (open) out.close();
+    }
+  }
+}
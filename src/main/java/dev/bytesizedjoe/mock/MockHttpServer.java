@@ -0,0 +1,524 @@
+package dev.bytesizedjoe.mock;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal blocking HTTP/1.1 server (one thread per connection) used by the stand-in API server.
+ * Supports keep-alive, chunked streaming responses and WebSocket upgrades, which is all the
+ * Fabric8 client needs for CRUD, list, watch and log calls, optionally over TLS.
+ */
+@NullMarked
+@Slf4j
+public final class MockHttpServer implements AutoCloseable {
+  /**
+   * Response header naming the connection a request arrived on and its position there, as {@code <id>/<n>}, so a
+   * client can tell which of its requests reused a connection.
+   */
+  public static final String CONNECTION_HEADER = "X-Ab-Connection";
+  private static final String WS_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+  @FunctionalInterface
+  public interface Handler {
+    void handle(Exchange exchange) throws Exception;
+  }
+
+  private final ServerSocket serverSocket;
+  private final @Nullable MockTls tls;
+  private final Handler handler;
+  private final ExecutorService connections;
+  private final Thread acceptor;
+  private final AtomicLong accepted = new AtomicLong();
+  private final AtomicLong requests = new AtomicLong();
+
+  public MockHttpServer(final ServerSocket serverSocket, final Handler handler, final String threadPrefix) {
+    this(serverSocket, null, handler, threadPrefix);
+  }
+
+  /** Serves TLS on every connection when {@code tls} is set. */
+  MockHttpServer(final ServerSocket serverSocket, @Nullable final MockTls tls, final Handler handler,
+                 final String threadPrefix) {
+    this.serverSocket = serverSocket;
+    this.tls = tls;
+    this.handler = handler;
+    final var counter = new AtomicInteger();
+    this.connections = Executors.newCachedThreadPool(r -> {
+      final var t = new Thread(r, threadPrefix + "-" + counter.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    this.acceptor = new Thread(this::acceptLoop, threadPrefix + "-acceptor");
+    this.acceptor.setDaemon(true);
+    this.acceptor.start();
+  }
+
+  public int port() {
+    return serverSocket.getLocalPort();
+  }
+
+  /** Connections accepted so far. */
+  public long connections() {
+    return accepted.get();
+  }
+
+  /** Requests read so far, over all connections. */
+  public long requests() {
+    return requests.get();
+  }
+
+  /** Runs {@code task} on the server's connection pool, e.g. to read a WebSocket while another thread writes. */
+  public void execute(final Runnable task) {
+    connections.execute(task);
+  }
+
+  @Override
+  public void close() {
+    try { serverSocket.close(); } catch (IOException ignored) { }
+    connections.shutdownNow();
+  }
+
+  private void acceptLoop() {
+    while (!serverSocket.isClosed()) {
+      try {
+        final Socket socket = serverSocket.accept();
+        socket.setTcpNoDelay(true);
+        final long id = accepted.incrementAndGet();
+        connections.execute(() -> serve(socket, id));
+      } catch (IOException e) {
+        if (!serverSocket.isClosed()) {
+          log.debug("Accept failed: {}", e.toString());
+        }
+      } catch (RuntimeException e) {
+        // Executor rejected the connection because the server is shutting down
+        return;
+      }
+    }
+  }
+
+  private void serve(final Socket plain, final long id) {
+    try (plain) {
+      // The handshake runs here rather than on the acceptor so slow handshakes don't hold up other connections
+      final MockTls.Handshake handshake = tls != null ? tls.accept(plain) : null;
+      final Socket socket = handshake != null ? handshake.getSocket() : plain;
+      final var in = new BufferedInputStream(socket.getInputStream());
+      final var out = new BufferedOutputStream(socket.getOutputStream());
+      for (var n = 1; !socket.isClosed(); n++) {
+        final Exchange exchange = readRequest(socket, in, out);
+        if (exchange == null) return;
+        requests.incrementAndGet();
+        exchange.connection = id;
+        exchange.requestOnConnection = n;
+        exchange.handshake = handshake;
+        exchange.responseHeader(CONNECTION_HEADER, id + "/" + n);
+        try {
+          handler.handle(exchange);
+        } catch (SocketException | EOFException e) {
+          return;
+        } catch (Exception e) {
+          log.debug("Handler failed for {} {}: {}", exchange.method, exchange.path, e.toString());
+          if (!exchange.responded) {
+            exchange.respond(500, "text/plain", String.valueOf(e).getBytes(StandardCharsets.UTF_8));
+          } else {
+            return;
+          }
+        }
+        if (!exchange.responded) {
+          exchange.respond(500, "text/plain", "no response".getBytes(StandardCharsets.UTF_8));
+        }
+        out.flush();
+        if (exchange.upgraded || exchange.closeAfterResponse
+            || "close".equalsIgnoreCase(exchange.header("connection"))) {
+          return;
+        }
+      }
+    } catch (IOException e) {
+      log.trace("Connection ended: {}", e.toString());
+    }
+  }
+
+  private @Nullable Exchange readRequest(final Socket socket, final InputStream in, final OutputStream out) throws IOException {
+    final String requestLine = readLine(in);
+    if (requestLine == null || requestLine.isEmpty()) return null;
+    final String[] parts = requestLine.split(" ");
+    if (parts.length < 2) return null;
+    final Map<String, String> headers = new HashMap<>();
+    for (String line = readLine(in); line != null && !line.isEmpty(); line = readLine(in)) {
+      final int colon = line.indexOf(':');
+      if (colon > 0) {
+        headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+      }
+    }
+    if ("100-continue".equalsIgnoreCase(headers.get("expect"))) {
+      out.write("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+      out.flush();
+    }
+    final byte[] body;
+    if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+      body = readChunkedBody(in);
+    } else {
+      final int length = Integer.parseInt(headers.getOrDefault("content-length", "0"));
+      body = in.readNBytes(length);
+      if (body.length < length) throw new EOFException("Truncated request body");
+    }
+    final String target = parts[1];
+    final int q = target.indexOf('?');
+    final String path = q < 0 ? target : target.substring(0, q);
+    final Map<String, String> query = q < 0 ? Map.of() : parseQuery(target.substring(q + 1));
+    return new Exchange(socket, in, out, parts[0], path, query, headers, body);
+  }
+
+  private static byte[] readChunkedBody(final InputStream in) throws IOException {
+    final var body = new ByteArrayOutputStream();
+    while (true) {
+      final String sizeLine = readLine(in);
+      if (sizeLine == null) throw new EOFException("Truncated chunked body");
+      final int semi = sizeLine.indexOf(';');
+      final int size = Integer.parseInt((semi < 0 ? sizeLine : sizeLine.substring(0, semi)).trim(), 16);
+      if (size == 0) {
+        for (String trailer = readLine(in); trailer != null && !trailer.isEmpty(); trailer = readLine(in)) {
+          // discard trailers
+        }
+        return body.toByteArray();
+      }
+      body.write(in.readNBytes(size));
+      readLine(in);
+    }
+  }
+
+  private static Map<String, String> parseQuery(final String raw) {
+    final Map<String, String> query = new LinkedHashMap<>();
+    for (final String pair : raw.split("&")) {
+      if (pair.isEmpty()) continue;
+      final int eq = pair.indexOf('=');
+      final String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+      final String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+      query.put(key, value);
+    }
+    return query;
+  }
+
+  private static @Nullable String readLine(final InputStream in) throws IOException {
+    final var line = new StringBuilder();
+    int c;
+    while ((c = in.read()) != -1) {
+      if (c == '\n') {
+        final int len = line.length();
+        if (len > 0 && line.charAt(len - 1) == '\r') line.setLength(len - 1);
+        return line.toString();
+      }
+      line.append((char) c);
+    }
+    return line.length() == 0 ? null : line.toString();
+  }
+
+  /** One request/response pair on a connection. */
+  public static final class Exchange {
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    public final String method;
+    public final String path;
+    public final Map<String, String> query;
+    private final Map<String, String> headers;
+    public final byte[] body;
+    private final Map<String, String> responseHeaders = new LinkedHashMap<>();
+    private boolean responded;
+    private boolean upgraded;
+    private boolean closeAfterResponse;
+    private long connection;
+    private int requestOnConnection;
+    private MockTls.@Nullable Handshake handshake;
+
+    Exchange(final Socket socket, final InputStream in, final OutputStream out, final String method, final String path,
+             final Map<String, String> query, final Map<String, String> headers, final byte[] body) {
+      this.socket = socket;
+      this.in = in;
+      this.out = out;
+      this.method = method;
+      this.path = path;
+      this.query = query;
+      this.headers = headers;
+      this.body = body;
+    }
+
+    public @Nullable String header(final String name) {
+      return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public Socket socket() {
+      return socket;
+    }
+
+    /** Id of the connection this request arrived on, in accept order. */
+    public long connection() {
+      return connection;
+    }
+
+    /** 1 for the first request on its connection, which therefore paid for connecting. */
+    public int requestOnConnection() {
+      return requestOnConnection;
+    }
+
+    /** The TLS handshake of this request's connection; {@code null} on a plain-text listener. */
+    MockTls.@Nullable Handshake handshake() {
+      return handshake;
+    }
+
+    public boolean isWebSocketUpgrade() {
+      return "websocket".equalsIgnoreCase(header("upgrade"));
+    }
+
+    public Exchange responseHeader(final String name, final String value) {
+      responseHeaders.put(name, value);
+      return this;
+    }
+
+    /** Closes the connection once the current response has been written. */
+    public void closeAfterResponse() {
+      closeAfterResponse = true;
+      responseHeaders.put("Connection", "close");
+    }
+
+    public void respond(final int status, final String contentType, final byte[] payload) throws IOException {
+      writeHead(status, contentType, "Content-Length: " + payload.length);
+      out.write(payload);
+      out.flush();
+    }
+
+    /** Starts a chunked response; each {@code write}+{@code flush} becomes a chunk, {@code close} ends the body. */
+    public OutputStream startChunked(final int status, final String contentType) throws IOException {
+      writeHead(status, contentType, "Transfer-Encoding: chunked");
+      out.flush();
+      return new ChunkedOutputStream(out);
+    }
+
+    /** Completes the WebSocket handshake; the connection is handed over to the returned session. */
+    public WebSocket upgrade(@Nullable final String protocol) throws IOException {
+      final String key = header("sec-websocket-key");
+      if (key == null) throw new IOException("Missing Sec-WebSocket-Key");
+      final var head = new StringBuilder("HTTP/1.1 101 Switching Protocols\r\n")
+          .append("Upgrade: websocket\r\nConnection: Upgrade\r\n")
+          .append("Sec-WebSocket-Accept: ").append(acceptKey(key)).append("\r\n");
+      if (protocol != null) head.append("Sec-WebSocket-Protocol: ").append(protocol).append("\r\n");
+      responseHeaders.forEach((k, v) -> head.append(k).append(": ").append(v).append("\r\n"));
+      head.append("\r\n");
+      out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+      out.flush();
+      responded = true;
+      upgraded = true;
+      return new WebSocket(socket, in, out);
+    }
+
+    private void writeHead(final int status, final String contentType, final String framing) throws IOException {
+      final var head = new StringBuilder("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n")
+          .append("Content-Type: ").append(contentType).append("\r\n")
+          .append(framing).append("\r\n");
+      responseHeaders.forEach((k, v) -> head.append(k).append(": ").append(v).append("\r\n"));
+      head.append("\r\n");
+      out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+      responded = true;
+    }
+
+    private static String acceptKey(final String key) {
+      try {
+        final var sha1 = MessageDigest.getInstance("SHA-1");
+        return Base64.getEncoder().encodeToString(sha1.digest((key + WS_GUID).getBytes(StandardCharsets.ISO_8859_1)));
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private static String reason(final int status) {
+      switch (status) {
+        case 200: return "OK";
+        case 201: return "Created";
+        case 400: return "Bad Request";
+        case 404: return "Not Found";
+        case 405: return "Method Not Allowed";
+        case 409: return "Conflict";
+        case 410: return "Gone";
+        case 415: return "Unsupported Media Type";
+        case 422: return "Unprocessable Entity";
+        case 500: return "Internal Server Error";
+        case 503: return "Service Unavailable";
+        default: return "Status";
+      }
+    }
+  }
+
+  private static final class ChunkedOutputStream extends OutputStream {
+    private final OutputStream out;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private boolean closed;
+
+    ChunkedOutputStream(final OutputStream out) {
+      this.out = out;
+    }
+
+    @Override public void write(final int b) {
+      pending.write(b);
+    }
+
+    @Override public void write(final byte[] b, final int off, final int len) {
+      pending.write(b, off, len);
+    }
+
+    @Override public void flush() throws IOException {
+      if (pending.size() == 0) return;
+      out.write((Integer.toHexString(pending.size()) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+      pending.writeTo(out);
+      out.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+      out.flush();
+      pending.reset();
+    }
+
+    @Override public void close() throws IOException {
+      if (closed) return;
+      closed = true;
+      flush();
+      out.write("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+      out.flush();
+    }
+  }
+
+  /** Server side of an upgraded WebSocket connection (RFC 6455, no extensions). */
+  public static final class WebSocket implements Closeable {
+    public static final int TEXT = 0x1;
+    public static final int BINARY = 0x2;
+    private static final int CONTINUATION = 0x0;
+    private static final int CLOSE = 0x8;
+    private static final int PING = 0x9;
+    private static final int PONG = 0xA;
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private volatile boolean closed;
+
+    WebSocket(final Socket socket, final InputStream in, final OutputStream out) {
+      this.socket = socket;
+      this.in = in;
+      this.out = out;
+    }
+
+    public boolean isOpen() {
+      return !closed && !socket.isClosed();
+    }
+
+    public void sendText(final String text) throws IOException {
+      send(TEXT, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void sendBinary(final byte[] payload) throws IOException {
+      send(BINARY, payload);
+    }
+
+    public synchronized void send(final int opcode, final byte[] payload) throws IOException {
+      out.write(0x80 | opcode);
+      final int len = payload.length;
+      if (len < 126) {
+        out.write(len);
+      } else if (len < 65536) {
+        out.write(126);
+        out.write(len >>> 8);
+        out.write(len);
+      } else {
+        out.write(127);
+        for (int shift = 56; shift >= 0; shift -= 8) out.write((int) ((long) len >>> shift));
+      }
+      out.write(payload);
+      out.flush();
+    }
+
+    /**
+     * Reads the next complete data message, answering pings and close frames internally.
+     * Returns {@code null} once the peer has closed the connection.
+     */
+    public @Nullable Message read() throws IOException {
+      final var data = new ByteArrayOutputStream();
+      int messageOpcode = -1;
+      while (true) {
+        final int b0 = in.read();
+        if (b0 < 0) return null;
+        final int b1 = in.read();
+        if (b1 < 0) return null;
+        final boolean fin = (b0 & 0x80) != 0;
+        final int opcode = b0 & 0x0F;
+        long len = b1 & 0x7F;
+        if (len == 126) {
+          len = (in.read() << 8) | in.read();
+        } else if (len == 127) {
+          len = 0;
+          for (int i = 0; i < 8; i++) len = (len << 8) | in.read();
+        }
+        final byte[] mask = (b1 & 0x80) != 0 ? in.readNBytes(4) : null;
+        final byte[] payload = in.readNBytes((int) len);
+        if (payload.length < len) return null;
+        if (mask != null) {
+          for (int i = 0; i < payload.length; i++) payload[i] ^= mask[i & 3];
+        }
+        switch (opcode) {
+          case PING:
+            send(PONG, payload);
+            continue;
+          case PONG:
+            continue;
+          case CLOSE:
+            close();
+            return null;
+          default:
+            if (opcode != CONTINUATION) messageOpcode = opcode;
+            data.write(payload);
+            if (fin) return new Message(messageOpcode, data.toByteArray());
+        }
+      }
+    }
+
+    @Override
+    public void close() {
+      if (closed) return;
+      closed = true;
+      try {
+        send(CLOSE, new byte[] {0x03, (byte) 0xE8});
+      } catch (IOException ignored) {
+      }
+      try { socket.close(); } catch (IOException ignored) { }
+    }
+
+    public static final class Message {
+      public final int opcode;
+      public final byte[] payload;
+
+      Message(final int opcode, final byte[] payload) {
+        this.opcode = opcode;
+        this.payload = payload;
+      }
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package dev.bytesizedjoe.mock;
+
+import lombok.Value;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-memory collection of one resource kind, keyed by {@code namespace/name} and holding
+ * pre-serialized JSON so list and watch responses don't re-encode objects per request.
+ */
+@NullMarked
+final class MockStore {
+  @Value
+  static class Item {
+    String namespace;
+    String name;
+    long resourceVersion;
+    byte[] json;
+
+    String key() {
+      return MockStore.key(namespace, name);
+    }
+  }
+
+  @Value
+  static class Event {
+    String type;
+    Item item;
+  }
+
+  @Value
+  static class Page {
+    List<Item> items;
+    @Nullable String continueKey;
+  }
+
+  final String kind;
+  final boolean namespaced;
+  private final NavigableMap<String, Item> items = new ConcurrentSkipListMap<>();
+  private final List<Consumer<Event>> listeners = new CopyOnWriteArrayList<>();
+
+  MockStore(final String kind, final boolean namespaced) {
+    this.kind = kind;
+    this.namespaced = namespaced;
+  }
+
+  static String key(final String namespace, final String name) {
+    return namespace + "/" + name;
+  }
+
+  @Nullable Item get(final String namespace, final String name) {
+    return items.get(key(namespace, name));
+  }
+
+  void put(final Item item, final String eventType) {
+    items.put(item.key(), item);
+    publish(new Event(eventType, item));
+  }
+
+  @Nullable Item remove(final String namespace, final String name) {
+    final Item removed = items.remove(key(namespace, name));
+    if (removed != null) publish(new Event("DELETED", removed));
+    return removed;
+  }
+
+  /** Returns up to {@code limit} items after {@code continueKey}, optionally restricted to one namespace. */
+  Page list(@Nullable final String namespace, @Nullable final String continueKey, final int limit) {
+    NavigableMap<String, Item> view = namespace == null ? items
+        : items.subMap(namespace + "/", true, namespace + "/\uffff", true);
+    if (continueKey != null) view = view.tailMap(continueKey, false);
+    final int max = limit > 0 ? limit : Integer.MAX_VALUE;
+    final List<Item> page = new ArrayList<>(Math.min(max, 1024));
+    @Nullable String last = null;
+    for (final Item item : view.values()) {
+      if (page.size() == max) {
+        return new Page(page, last);
+      }
+      page.add(item);
+      last = item.key();
+    }
+    return new Page(page, null);
+  }
+
+  Runnable subscribe(final Consumer<Event> listener) {
+    listeners.add(listener);
+    return () -> listeners.remove(listener);
+  }
+
+  private void publish(final Event event) {
+    for (final Consumer<Event> listener : listeners) {
+      listener.accept(event);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package dev.bytesizedjoe.mock;
+
+import lombok.Value;
+import org.jspecify.annotations.NullMarked;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server side of the stand-in's TLS listener, using the self-signed {@code mock-tls.p12} bundled with the
+ * harness (CN and SAN {@code localhost}/{@code 127.0.0.1}), so clients need {@code --trustCerts}.
+ * <p>
+ * {@code resumablePercent} of connections are handshaken on the current context, whose session cache and
+ * ticket keys let a returning client resume. For the rest the context is replaced first, as when a client
+ * reconnects to a new API server instance during a rollout: the client's session is unknown to it, so the
+ * handshake is a full one, and the following connections can resume the session it establishes. That gives
+ * both kinds in one run at a fixed mix.
+ */
+@NullMarked
+final class MockTls {
+  private static final String KEYSTORE = "/mock-tls.p12";
+  private static final char[] PASSWORD = "changeit".toCharArray();
+
+  private final KeyManager[] keyManagers;
+  private volatile SSLContext current;
+  private final int resumablePercent;
+  private final AtomicLong accepted = new AtomicLong();
+
+  MockTls(final int resumablePercent) throws IOException {
+    try (InputStream in = MockTls.class.getResourceAsStream(KEYSTORE)) {
+      if (in == null) throw new IOException("Missing " + KEYSTORE + " on the classpath");
+      final KeyStore store = KeyStore.getInstance("PKCS12");
+      store.load(in, PASSWORD);
+      final KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+      kmf.init(store, PASSWORD);
+      this.keyManagers = kmf.getKeyManagers();
+      this.current = context();
+    } catch (GeneralSecurityException e) {
+      throw new IOException("Cannot load " + KEYSTORE, e);
+    }
+    this.resumablePercent = Math.max(0, Math.min(100, resumablePercent));
+  }
+
+  /** Wraps an accepted socket and completes the server handshake on it. */
+  Handshake accept(final Socket plain) throws IOException {
+    final long n = accepted.incrementAndGet();
+    // Spread the resumable connections evenly: n is resumable when n * percent crosses a multiple of 100
+    final boolean allowResume = n * resumablePercent / 100 != (n - 1) * resumablePercent / 100;
+    SSLContext context = current;
+    if (!allowResume) {
+      try {
+        context = context();
+      } catch (GeneralSecurityException e) {
+        throw new IOException("Cannot create TLS context", e);
+      }
+      current = context;
+    }
+    final long startMillis = System.currentTimeMillis();
+    final long start = System.nanoTime();
+    final var socket = (SSLSocket) context.getSocketFactory()
+        .createSocket(plain, plain.getInetAddress().getHostAddress(), plain.getPort(), true);
+    socket.setUseClientMode(false);
+    socket.startHandshake();
+    final long nanos = System.nanoTime() - start;
+    final var session = socket.getSession();
+    // A resumed session keeps the creation time of the handshake that established it
+    return new Handshake(socket, session.getProtocol(), session.getCreationTime() < startMillis, nanos);
+  }
+
+  private SSLContext context() throws GeneralSecurityException {
+    final SSLContext context = SSLContext.getInstance("TLS");
+    context.init(keyManagers, null, null);
+    return context;
+  }
+
+  /** What the server saw of one connection's handshake. */
+  @Value
+  static class Handshake {
+    SSLSocket socket;
+    String protocol;
+    boolean resumed;
+    long nanos;
+  }
+}
@@ -0,0 +1,103 @@
+package dev.bytesizedjoe.mock;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The stand-in API server in a child JVM ({@code mock} subcommand on this JVM's classpath), for measurements
+ * where its heap must not mix with the client's: a 100k pod dataset and the list bodies rendered from it would
+ * swamp any heap figure taken in-process. The child's output goes to a log file; it is killed on close.
+ */
+@NullMarked
+@Slf4j
+public final class StandInProcess implements AutoCloseable {
+  private static final String MAIN_CLASS = "dev.bytesizedjoe.Main";
+  private static final long START_TIMEOUT_SECONDS = 120;
+
+  private final Process process;
+  private final String url;
+
+  private StandInProcess(final Process process, final String url) {
+    this.process = process;
+    this.url = url;
+  }
+
+  /** Forks the stand-in with {@code settings} (its port is picked here) and waits until it accepts connections. */
+  public static StandInProcess start(final MockApiServer.Settings settings, final Path logFile)
+      throws IOException, InterruptedException {
+    final int port;
+    try (var probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      port = probe.getLocalPort();
+    }
+    final List<String> cmd = new ArrayList<>(List.of(java(), "-cp", System.getProperty("java.class.path"), MAIN_CLASS,
+        "mock", "--mockPort", String.valueOf(port),
+        "--mockPods", String.valueOf(settings.getPods()),
+        "--mockServices", String.valueOf(settings.getServices()),
+        "--mockLatencyMs", String.valueOf(settings.getLatencyMs()),
+        "--mockWatchRate", String.valueOf(settings.getWatchEventsPerSecond()),
+        "--mockLogRate", String.valueOf(settings.getLogBytesPerSecond()),
+        "--mockTlsResumable", String.valueOf(settings.getTlsResumablePercent())));
+    if (settings.isTls()) cmd.add("--mockTls");
+    Files.createDirectories(logFile.toAbsolutePath().getParent());
+    final Process process = new ProcessBuilder(cmd)
+        .redirectErrorStream(true)
+        .redirectOutput(logFile.toFile())
+        .start();
+    final var standIn = new StandInProcess(process, (settings.isTls() ? "https" : "http") + "://127.0.0.1:" + port);
+    try {
+      standIn.awaitPort(port);
+    } catch (IOException | InterruptedException e) {
+      standIn.close();
+      throw e;
+    }
+    log.info("Stand-in with {} pods running as pid {} on {}", settings.getPods(), process.pid(), standIn.url);
+    return standIn;
+  }
+
+  public String url() {
+    return url;
+  }
+
+  @Override
+  public void close() {
+    process.destroy();
+    try {
+      if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly().waitFor(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** The stand-in binds its port only after seeding its dataset, so an accepted connection means it's ready. */
+  private void awaitPort(final int port) throws IOException, InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(START_TIMEOUT_SECONDS);
+    while (System.nanoTime() < deadline) {
+      if (!process.isAlive()) throw new IOException("Stand-in exited with " + process.exitValue() + " before listening");
+      try (var socket = new Socket()) {
+        socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1000);
+        return;
+      } catch (IOException notYet) {
+        TimeUnit.MILLISECONDS.sleep(200);
+      }
+    }
+    throw new IOException("Stand-in did not listen on port " + port + " within " + START_TIMEOUT_SECONDS + " s");
+  }
+
+  private static String java() {
+    return ProcessHandle.current().info().command()
+        .orElseGet(() -> Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+  }
+}
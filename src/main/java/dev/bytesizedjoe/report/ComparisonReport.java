@@ -0,0 +1,282 @@
+package dev.bytesizedjoe.report;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dev.bytesizedjoe.cli.ArgsParser;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * The {@code report} subcommand: reads every repeat under {@code out/<label>/}, compares each label against
+ * the first (the baseline) metric by metric, and writes {@code REPORT.md} and {@code report.json} to the
+ * output directory.
+ * <p>
+ * Per metric it reports the median of the repeats with a bootstrap interval, the bootstrap interval of the
+ * median difference, and a two-sided Mann-Whitney U p-value. A difference is called real only when the
+ * U test rejects at {@code --alpha}; with so few repeats that the test cannot reach alpha at all (three vs
+ * three can't go below p=0.1), it says so rather than guessing.
+ */
+@NullMarked
+@Slf4j
+public final class ComparisonReport {
+  public static final String MARKDOWN = "REPORT.md";
+  public static final String JSON = "report.json";
+  private static final long SEED = 42;
+  /** Throughput metrics not named {@code .ops_s}; everything else is a cost, where lower is better. */
+  private static final Set<String> THROUGHPUT = Set.of("logs.mb_s", "ws.exec.mb_s", "ws.portforward.mb_s");
+
+  private final double alpha;
+  private final double confidence;
+  private final int resamples;
+
+  public ComparisonReport(final double alpha, final double confidence, final int resamples) {
+    this.alpha = alpha;
+    this.confidence = confidence;
+    this.resamples = resamples;
+  }
+
+  public static void main(final String[] args) throws IOException {
+    final Map<String, String> flags = ArgsParser.flags(args);
+    final Path out = Paths.get(flags.getOrDefault("out", "out"));
+    final List<String> labels = flags.containsKey("labels")
+        ? List.of(flags.get("labels").split("\\s*,\\s*"))
+        : discoverLabels(out);
+    if (labels.size() < 2) {
+      throw new IllegalArgumentException("Need at least two labels to compare under " + out + ", found " + labels);
+    }
+    final var report = new ComparisonReport(
+        Double.parseDouble(flags.getOrDefault("alpha", "0.05")),
+        Double.parseDouble(flags.getOrDefault("confidence", "0.95")),
+        Integer.parseInt(flags.getOrDefault("resamples", "10000")));
+    final var comparisons = report.compare(out, labels);
+    report.write(out, labels, comparisons);
+    log.info("Wrote {} and {} under {}", MARKDOWN, JSON, out);
+  }
+
+  /** Label directories under {@code out} that contain at least one finished run, in name order. */
+  static List<String> discoverLabels(final Path out) throws IOException {
+    if (!Files.isDirectory(out)) return List.of();
+    try (Stream<Path> dirs = Files.list(out)) {
+      return dirs.filter(Files::isDirectory)
+          .filter(d -> !runs(d).isEmpty())
+          .map(d -> d.getFileName().toString())
+          .sorted()
+          .toList();
+    }
+  }
+
+  static List<Path> runs(final Path labelDir) {
+    try (Stream<Path> dirs = Files.list(labelDir)) {
+      return dirs.filter(RunMetrics::isRun).sorted().toList();
+    } catch (IOException e) {
+      return List.of();
+    }
+  }
+
+  /** Compares every label after the first against the first. */
+  public List<Comparison> compare(final Path out, final List<String> labels) {
+    final Map<String, List<Map<String, Double>>> samples = new LinkedHashMap<>();
+    for (final String label : labels) {
+      final List<Map<String, Double>> perRun = new ArrayList<>();
+      for (final Path run : runs(out.resolve(label))) {
+        perRun.add(RunMetrics.read(run));
+      }
+      log.info("{}: {} runs", label, perRun.size());
+      samples.put(label, perRun);
+    }
+    final String baseline = labels.get(0);
+    final List<Comparison> comparisons = new ArrayList<>();
+    for (final String candidate : labels.subList(1, labels.size())) {
+      comparisons.add(compare(baseline, samples.get(baseline), candidate, samples.get(candidate)));
+    }
+    return comparisons;
+  }
+
+  Comparison compare(final String baseline, final List<Map<String, Double>> a,
+                     final String candidate, final List<Map<String, Double>> b) {
+    final Set<String> metrics = new LinkedHashSet<>();
+    a.forEach(run -> metrics.addAll(run.keySet()));
+    b.forEach(run -> metrics.addAll(run.keySet()));
+    final Random random = new Random(SEED);
+    final List<MetricResult> results = new ArrayList<>();
+    for (final String metric : metrics) {
+      final double[] va = values(a, metric);
+      final double[] vb = values(b, metric);
+      if (va.length == 0 || vb.length == 0) continue;
+      final double medianA = Statistics.median(va);
+      final double medianB = Statistics.median(vb);
+      final double p = Statistics.mannWhitneyP(va, vb);
+      results.add(new MetricResult(metric, higherIsBetter(metric),
+          new Sample(va, medianA, Statistics.bootstrapMedian(va, confidence, resamples, random)),
+          new Sample(vb, medianB, Statistics.bootstrapMedian(vb, confidence, resamples, random)),
+          medianB - medianA,
+          Statistics.bootstrapMedianDifference(va, vb, confidence, resamples, random),
+          medianA != 0 ? 100.0 * (medianB - medianA) / Math.abs(medianA) : Double.NaN,
+          p,
+          verdict(metric, va.length, vb.length, medianB - medianA, p)));
+    }
+    return new Comparison(baseline, candidate, a.size(), b.size(), results);
+  }
+
+  String verdict(final String metric, final int n1, final int n2, final double difference, final double p) {
+    if (Statistics.minimumP(n1, n2) > alpha) return "too few runs";
+    if (Double.isNaN(p) || p >= alpha || difference == 0) return "noise";
+    return (difference > 0) == higherIsBetter(metric) ? "better" : "worse";
+  }
+
+  static boolean higherIsBetter(final String metric) {
+    return metric.endsWith(".ops_s") || THROUGHPUT.contains(metric);
+  }
+
+  private static double[] values(final List<Map<String, Double>> runs, final String metric) {
+    return runs.stream().map(r -> r.get(metric)).filter(v -> v != null && !v.isNaN())
+        .mapToDouble(Double::doubleValue).toArray();
+  }
+
+  public void write(final Path out, final List<String> labels, final List<Comparison> comparisons) throws IOException {
+    Files.createDirectories(out);
+    try (var md = new PrintWriter(Files.newBufferedWriter(out.resolve(MARKDOWN)))) {
+      writeMarkdown(md, out, comparisons);
+    }
+    final Map<String, Object> json = new LinkedHashMap<>();
+    json.put("generated", Instant.now().toString());
+    json.put("out", out.toString());
+    json.put("labels", labels);
+    json.put("alpha", alpha);
+    json.put("confidence", confidence);
+    json.put("resamples", resamples);
+    final List<Object> cs = new ArrayList<>();
+    for (final var c : comparisons) cs.add(c.toJson());
+    json.put("comparisons", cs);
+    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(out.resolve(JSON).toFile(), json);
+  }
+
+  private void writeMarkdown(final PrintWriter md, final Path out, final List<Comparison> comparisons) {
+    md.println("## A/B Comparison");
+    md.println();
+    md.printf(Locale.ROOT, "Base: `%s`  •  Generated: %s%n", out, Instant.now());
+    md.println();
+    md.printf(Locale.ROOT, "Medians over repeats with %.0f%% bootstrap intervals (%d resamples). A difference is "
+        + "**better**/**worse** when a two-sided Mann-Whitney U test gives p < %s, otherwise **noise**.%n",
+        confidence * 100, resamples, alpha);
+    for (final var c : comparisons) {
+      md.println();
+      md.printf(Locale.ROOT, "### %s (n=%d) vs %s (n=%d)%n", c.candidate, c.candidateRuns, c.baseline, c.baselineRuns);
+      md.println();
+      if (Statistics.minimumP(c.baselineRuns, c.candidateRuns) > alpha) {
+        md.printf(Locale.ROOT, "> With %d and %d runs the smallest possible p is %.3f, so no difference can be "
+            + "significant at %s. Use more `--repeats`.%n%n",
+            c.baselineRuns, c.candidateRuns, Statistics.minimumP(c.baselineRuns, c.candidateRuns), alpha);
+      }
+      md.printf(Locale.ROOT, "| Metric | %s | %s | Δ median | Δ %% | p | Verdict |%n", c.baseline, c.candidate);
+      md.println("|---|---:|---:|---:|---:|---:|---|");
+      for (final var r : c.metrics) {
+        md.printf(Locale.ROOT, "| %s | %s | %s | %s | %s | %s | %s |%n", r.metric,
+            withInterval(r.baseline.median, r.baseline.interval), withInterval(r.candidate.median, r.candidate.interval),
+            withInterval(r.difference, r.differenceInterval),
+            Double.isNaN(r.differencePct) ? "-" : String.format(Locale.ROOT, "%+.1f%%", r.differencePct),
+            Double.isNaN(r.p) ? "-" : String.format(Locale.ROOT, "%.3f", r.p),
+            r.verdict.equals("better") || r.verdict.equals("worse") ? "**" + r.verdict + "**" : r.verdict);
+      }
+    }
+  }
+
+  private static String withInterval(final double value, final Statistics.Interval interval) {
+    if (Double.isNaN(interval.getLow())) return format(value);
+    return format(value) + " [" + format(interval.getLow()) + ", " + format(interval.getHigh()) + "]";
+  }
+
+  private static String format(final double value) {
+    if (Double.isNaN(value)) return "-";
+    final double abs = Math.abs(value);
+    return String.format(Locale.ROOT, abs >= 100 ? "%.0f" : abs >= 10 ? "%.1f" : abs >= 1 ? "%.2f" : "%.3f", value);
+  }
+
+  private static @Nullable Double finite(final double value) {
+    return Double.isFinite(value) ? value : null;
+  }
+
+  @Value
+  public static class Sample {
+    double[] values;
+    double median;
+    Statistics.Interval interval;
+
+    Map<String, Object> toJson() {
+      final Map<String, Object> json = new LinkedHashMap<>();
+      json.put("n", values.length);
+      json.put("values", values);
+      json.put("median", finite(median));
+      json.put("ci_low", finite(interval.getLow()));
+      json.put("ci_high", finite(interval.getHigh()));
+      return json;
+    }
+  }
+
+  @Value
+  public static class MetricResult {
+    String metric;
+    boolean higherIsBetter;
+    Sample baseline;
+    Sample candidate;
+    double difference;
+    Statistics.Interval differenceInterval;
+    double differencePct;
+    double p;
+    String verdict;
+
+    Map<String, Object> toJson() {
+      final Map<String, Object> json = new LinkedHashMap<>();
+      json.put("metric", metric);
+      json.put("higher_is_better", higherIsBetter);
+      json.put("baseline", baseline.toJson());
+      json.put("candidate", candidate.toJson());
+      json.put("diff_median", finite(difference));
+      json.put("diff_ci_low", finite(differenceInterval.getLow()));
+      json.put("diff_ci_high", finite(differenceInterval.getHigh()));
+      json.put("diff_pct", finite(differencePct));
+      json.put("p_value", finite(p));
+      json.put("verdict", verdict);
+      return json;
+    }
+  }
+
+  @Value
+  public static class Comparison {
+    String baseline;
+    String candidate;
+    int baselineRuns;
+    int candidateRuns;
+    List<MetricResult> metrics;
+
+    Map<String, Object> toJson() {
+      final Map<String, Object> json = new LinkedHashMap<>();
+      json.put("baseline", baseline);
+      json.put("candidate", candidate);
+      json.put("baseline_runs", baselineRuns);
+      json.put("candidate_runs", candidateRuns);
+      final List<Object> ms = new ArrayList<>();
+      for (final var m : metrics) ms.add(m.toJson());
+      json.put("metrics", ms);
+      return json;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package dev.bytesizedjoe.report;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the artifacts of one measurement run ({@code out/<label>/<runId>/}) into one value per metric,
+ * so repeats can be compared as samples. Metrics whose source file is missing are simply absent: jcmd
+ * files only exist with {@code --jcmd}, telemetry is JVM-wide and lives elsewhere for interleaved runs.
+ */
+@NullMarked
+@Slf4j
+@UtilityClass
+public class RunMetrics {
+  private static final Pattern COMMITTED = Pattern.compile("committed=(\\d+)([KMG]?)B");
+  private static final List<String> LATENCY_COLUMNS = List.of("p50_ms", "p90_ms", "p99_ms", "p99.9_ms", "max_ms");
+
+  /** Whether {@code dir} looks like a finished run. */
+  public boolean isRun(final Path dir) {
+    return Files.isRegularFile(dir.resolve("end").resolve("latency.txt"));
+  }
+
+  public Map<String, Double> read(final Path runDir) {
+    final Map<String, Double> metrics = new LinkedHashMap<>();
+    final Path end = runDir.resolve("end");
+    try {
+      readLatency(end.resolve("latency.txt"), metrics);
+      readAllocation(end.resolve("allocation.txt"), metrics);
+      readTelemetry(runDir.resolve("telemetry.csv"), metrics);
+      readJfr(runDir.resolve("jfr_summary.txt"), metrics);
+      readNmt(end.resolve("nmt_summary.txt"), metrics);
+      readGcutil(end.resolve("gcutil.txt"), metrics);
+      readLogs(runDir.resolve("logs.txt"), metrics);
+      readWebSockets(runDir.resolve("websockets.txt"), metrics);
+      readWarmup(runDir.resolve("warmup.txt"), metrics);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not fully read run {}: {}", runDir, e.toString());
+    }
+    return metrics;
+  }
+
+  /** Throughput and latency percentiles per operation; counters are skipped since their scale depends on run length. */
+  private void readLatency(final Path file, final Map<String, Double> metrics) throws IOException {
+    if (!Files.isRegularFile(file)) return;
+    List<String> header = List.of();
+    for (final String line : Files.readAllLines(file)) {
+      if (line.startsWith("#") || line.isBlank()) continue;
+      final List<String> cols = List.of(line.trim().split("\\s+"));
+      if (cols.get(0).equals("op")) {
+        header = cols;
+        continue;
+      }
+      final String op = cols.get(0);
+      put(metrics, op + ".ops_s", header, cols, "ops_s");
+      final double count = number(header, cols, "count");
+      final double errors = number(header, cols, "errors");
+      if (count > 0 && !Double.isNaN(errors)) metrics.put(op + ".error_pct", 100.0 * errors / count);
+      for (final String column : LATENCY_COLUMNS) {
+        put(metrics, op + "." + column, header, cols, column);
+      }
+    }
+  }
+
+  private void readAllocation(final Path file, final Map<String, Double> metrics) throws IOException {
+    if (!Files.isRegularFile(file)) return;
+    List<String> header = List.of();
+    for (final String line : Files.readAllLines(file)) {
+      if (line.isBlank()) continue;
+      final List<String> cols = List.of(line.trim().split("\\s+"));
+      if (cols.get(0).equals("op")) {
+        header = cols;
+        continue;
+      }
+      put(metrics, cols.get(0) + ".alloc_mean_kb", header, cols, "mean_kb");
+      put(metrics, cols.get(0) + ".alloc_per_byte", header, cols, "alloc_per_byte");
+    }
+  }
+
+  /** Peaks and deltas over the sampled run: RSS, heap, GC time, CPU time and allocation rate. */
+  private void readTelemetry(final Path file, final Map<String, Double> metrics) throws IOException {
+    if (!Files.isRegularFile(file)) return;
+    final List<String> lines = Files.readAllLines(file);
+    if (lines.size() < 3) return;
+    final List<String> header = List.of(lines.get(0).split(","));
+    final List<String> first = List.of(lines.get(1).split(","));
+    final List<String> last = List.of(lines.get(lines.size() - 1).split(","));
+    double rssPeak = -1;
+    double heapPeak = -1;
+    for (final String line : lines.subList(1, lines.size())) {
+      final List<String> cols = List.of(line.split(","));
+      rssPeak = Math.max(rssPeak, number(header, cols, "rss.bytes"));
+      heapPeak = Math.max(heapPeak, number(header, cols, "heap.used"));
+    }
+    if (rssPeak > 0) metrics.put("jvm.rss_peak_mb", rssPeak / (1024 * 1024));
+    if (heapPeak > 0) metrics.put("jvm.heap_peak_mb", heapPeak / (1024 * 1024));
+
+    double gcMillis = 0;
+    for (final String column : header) {
+      if (column.startsWith("gc.") && column.endsWith(".ms")) {
+        gcMillis += number(header, last, column) - number(header, first, column);
+      }
+    }
+    if (!Double.isNaN(gcMillis)) metrics.put("jvm.gc_ms", gcMillis);
+    final double seconds = (number(header, last, "elapsed_ms") - number(header, first, "elapsed_ms")) / 1000.0;
+    final double cpu = number(header, last, "cpu.process_ms") - number(header, first, "cpu.process_ms");
+    if (cpu >= 0) metrics.put("jvm.cpu_ms", cpu);
+    final double allocated = number(header, last, "alloc.bytes") - number(header, first, "alloc.bytes");
+    if (seconds > 0 && allocated >= 0) metrics.put("jvm.alloc_mb_s", allocated / seconds / (1024 * 1024));
+  }
+
+  /** The measurement phase of {@code jfr_summary.txt}. */
+  private void readJfr(final Path file, final Map<String, Double> metrics) throws IOException {
+    if (!Files.isRegularFile(file)) return;
+    boolean measure = false;
+    for (final String line : Files.readAllLines(file)) {
+      if (line.startsWith("# phase=")) {
+        measure = line.startsWith("# phase=measure");
+        continue;
+      }
+      if (!measure) continue;
+      final String[] kv = line.split(" ");
+      if (kv.length != 2) continue;
+      switch (kv[0]) {
+        case "gc.pause_total_ms", "gc.pause_max_ms", "alloc.sampled_mb_s", "safepoint.total_ms",
+             "park.total_ms", "monitor.total_ms", "socket.read.total_ms" ->
+            metrics.put("jfr." + kv[0], Double.parseDouble(kv[1]));
+        default -> { }
+      }
+    }
+  }
+
+  private void readNmt(final Path file, final Map<String, Double> metrics) throws IOException {
+    if (!Files.isRegularFile(file)) return;
+    for (final String line : Files.readAllLines(file)) {
+      final String trimmed = line.trim();
+      if (trimmed.startsWith("Total:")) {
+        committedMb(trimmed, "nmt.total_committed_mb", metrics);
+      } else if (trimmed.startsWith("-") && trimmed.contains("Java Heap (")) {
+        committedMb(trimmed, "nmt.heap_committed_mb", metrics);
+      } else if (trimmed.startsWith("-") && trimmed.contains("Thread (")) {
+        committedMb(trimmed, "nmt.thread_committed_mb", metrics);
+      }
+    }
+  }
+
+  private void committedMb(final String line, final String key, final Map<String, Double> metrics) {
+    final Matcher m = COMMITTED.matcher(line);
+    if (!m.find()) return;
+    final double value = Double.parseDouble(m.group(1));
+    final double mb = switch (m.group(2)) {
+      case "G" -> value * 1024;
+      case "M" -> value;
+      case "K" -> value / 1024;
+      default -> value / (1024 * 1024);
+    };
+    metrics.putIfAbsent(key, mb);
+  }
+
+  private void readGcutil(final Path file, final Map<String, Double> metrics) throws IOException {
+    if (!Files.isRegularFile(file)) return;
+    final List<String> lines = Files.readAllLines(file);
+    if (lines.size() < 2) return;
+    final List<String> header = List.of(lines.get(0).trim().split("\\s+"));
+    final List<String> cols = List.of(lines.get(1).trim().split("\\s+"));
+    put(metrics, "gcutil.gct_s", header, cols, "GCT");
+  }
+
+  /** Log streaming throughput, CPU per MB and buffer peaks from {@code --logStreams}. */
+  private void readLogs(final Path file, final Map<String, Double> metrics) throws IOException {
+    if (!Files.isRegularFile(file)) return;
+    for (final String line : Files.readAllLines(file)) {
+      final String[] kv = line.split(" ");
+      if (kv.length != 2) continue;
+      switch (kv[0]) {
+        case "mb_s", "cpu_ms_per_mb" -> metrics.put("logs." + kv[0], Double.parseDouble(kv[1]));
+        case "peak_heap_bytes", "peak_direct_bytes" ->
+            metrics.put("logs." + kv[0].replace("_bytes", "_mb"), Double.parseDouble(kv[1]) / (1024 * 1024));
+        default -> { }
+      }
+    }
+  }
+
+  /** Exec and port-forward echo throughput from {@code --execSessions}/{@code --portForwards}. */
+  private void readWebSockets(final Path file, final Map<String, Double> metrics) throws IOException {
+    if (!Files.isRegularFile(file)) return;
+    for (final String line : Files.readAllLines(file)) {
+      final String[] kv = line.split(" ");
+      if (kv.length == 2 && kv[0].endsWith(".mb_s")) metrics.put("ws." + kv[0], Double.parseDouble(kv[1]));
+    }
+  }
+
+  /** How long the warmup took to reach steady state, and the JIT time it spent; the same for every repeat of a run. */
+  private void readWarmup(final Path file, final Map<String, Double> metrics) throws IOException {
+    if (!Files.isRegularFile(file)) return;
+    for (final String line : Files.readAllLines(file)) {
+      final String[] kv = line.split(" ");
+      if (kv.length != 2) continue;
+      switch (kv[0]) {
+        case "seconds", "compile_ms" -> metrics.put("warmup." + kv[0], Double.parseDouble(kv[1]));
+        default -> { }
+      }
+    }
+  }
+
+  private void put(final Map<String, Double> metrics, final String key, final List<String> header,
+                   final List<String> cols, final String column) {
+    final double value = number(header, cols, column);
+    if (!Double.isNaN(value)) metrics.put(key, value);
+  }
+
+  private double number(final List<String> header, final List<String> cols, final String column) {
+    final int i = header.indexOf(column);
+    if (i < 0 || i >= cols.size()) return Double.NaN;
+    try {
+      return Double.parseDouble(cols.get(i));
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+}
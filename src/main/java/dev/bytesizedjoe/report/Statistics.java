@@ -0,0 +1,165 @@
+package dev.bytesizedjoe.report;
+
+import lombok.Value;
+import lombok.experimental.UtilityClass;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Small-sample statistics for comparing repeats of two transports: medians, percentile-bootstrap
+ * confidence intervals and the Mann-Whitney U test. Nothing here assumes normality, since per-run
+ * latency percentiles and GC times are skewed and we rarely have more than a handful of repeats.
+ */
+@NullMarked
+@UtilityClass
+public class Statistics {
+  /** Above this many label assignments the U test falls back to the normal approximation. */
+  private static final long EXACT_LIMIT = 200_000;
+
+  public double median(final double[] values) {
+    if (values.length == 0) return Double.NaN;
+    final double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    final int mid = sorted.length / 2;
+    return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+  }
+
+  /** Percentile-bootstrap interval of the median. */
+  public Interval bootstrapMedian(final double[] values, final double confidence, final int resamples, final Random random) {
+    if (values.length == 0) return Interval.EMPTY;
+    final double[] medians = new double[resamples];
+    for (var i = 0; i < resamples; i++) {
+      medians[i] = median(resample(values, random));
+    }
+    return percentiles(medians, confidence);
+  }
+
+  /** Percentile-bootstrap interval of {@code median(b) - median(a)}, resampling both groups independently. */
+  public Interval bootstrapMedianDifference(final double[] a, final double[] b, final double confidence,
+                                           final int resamples, final Random random) {
+    if (a.length == 0 || b.length == 0) return Interval.EMPTY;
+    final double[] diffs = new double[resamples];
+    for (var i = 0; i < resamples; i++) {
+      diffs[i] = median(resample(b, random)) - median(resample(a, random));
+    }
+    return percentiles(diffs, confidence);
+  }
+
+  /**
+   * Two-sided Mann-Whitney U test p-value. Exact (enumerating every assignment of the pooled midranks,
+   * so ties are handled) for small samples, normal approximation with tie and continuity correction otherwise.
+   */
+  public double mannWhitneyP(final double[] a, final double[] b) {
+    final int n1 = a.length;
+    final int n2 = b.length;
+    if (n1 == 0 || n2 == 0) return Double.NaN;
+    final int n = n1 + n2;
+    final double[] pooled = new double[n];
+    System.arraycopy(a, 0, pooled, 0, n1);
+    System.arraycopy(b, 0, pooled, n1, n2);
+    final double[] ranks = midranks(pooled);
+
+    double rankSumA = 0;
+    for (var i = 0; i < n1; i++) rankSumA += ranks[i];
+    final double expected = n1 * (n + 1) / 2.0;
+    final double observed = Math.abs(rankSumA - expected);
+
+    if (binomial(n, n1) <= EXACT_LIMIT) {
+      final long[] extreme = new long[2];
+      enumerate(ranks, n1, 0, 0.0, expected, observed - 1e-9, extreme);
+      return (double) extreme[0] / extreme[1];
+    }
+
+    double tieTerm = 0;
+    final double[] sorted = pooled.clone();
+    Arrays.sort(sorted);
+    for (int i = 0, j; i < n; i = j) {
+      for (j = i; j < n && sorted[j] == sorted[i]; j++) { }
+      final double t = j - i;
+      tieTerm += t * t * t - t;
+    }
+    final double variance = n1 * (double) n2 / 12.0 * ((n + 1) - tieTerm / (n * (double) (n - 1)));
+    if (variance <= 0) return 1.0;
+    final double z = Math.max(0, observed - 0.5) / Math.sqrt(variance);
+    return Math.min(1.0, 2 * (1 - normalCdf(z)));
+  }
+
+  /**
+   * The smallest two-sided p-value the exact U test can produce for these group sizes; when it's above
+   * alpha no result can be significant, however large the difference.
+   */
+  public double minimumP(final int n1, final int n2) {
+    if (n1 == 0 || n2 == 0) return 1.0;
+    return Math.min(1.0, 2.0 / binomial(n1 + n2, n1));
+  }
+
+  private void enumerate(final double[] ranks, final int remaining, final int from, final double sum,
+                         final double expected, final double threshold, final long[] extreme) {
+    if (remaining == 0) {
+      extreme[1]++;
+      if (Math.abs(sum - expected) >= threshold) extreme[0]++;
+      return;
+    }
+    for (int i = from; i <= ranks.length - remaining; i++) {
+      enumerate(ranks, remaining - 1, i + 1, sum + ranks[i], expected, threshold, extreme);
+    }
+  }
+
+  private double[] midranks(final double[] values) {
+    final Integer[] order = new Integer[values.length];
+    for (var i = 0; i < order.length; i++) order[i] = i;
+    Arrays.sort(order, (x, y) -> Double.compare(values[x], values[y]));
+    final double[] ranks = new double[values.length];
+    for (int i = 0, j; i < order.length; i = j) {
+      for (j = i; j < order.length && values[order[j]] == values[order[i]]; j++) { }
+      final double rank = (i + 1 + j) / 2.0;
+      for (int k = i; k < j; k++) ranks[order[k]] = rank;
+    }
+    return ranks;
+  }
+
+  private double[] resample(final double[] values, final Random random) {
+    final double[] out = new double[values.length];
+    for (var i = 0; i < out.length; i++) out[i] = values[random.nextInt(values.length)];
+    return out;
+  }
+
+  private Interval percentiles(final double[] samples, final double confidence) {
+    Arrays.sort(samples);
+    final double tail = (1 - confidence) / 2;
+    final int lo = (int) Math.floor(tail * (samples.length - 1));
+    final int hi = (int) Math.ceil((1 - tail) * (samples.length - 1));
+    return new Interval(samples[lo], samples[hi]);
+  }
+
+  private long binomial(final int n, final int k) {
+    long result = 1;
+    for (var i = 1; i <= Math.min(k, n - k); i++) {
+      result = result * (n - i + 1) / i;
+      if (result > EXACT_LIMIT * 1000) return Long.MAX_VALUE;
+    }
+    return result;
+  }
+
+  /** Standard normal CDF (Abramowitz and Stegun 26.2.17, absolute error below 7.5e-8). */
+  private double normalCdf(final double z) {
+    if (z < 0) return 1 - normalCdf(-z);
+    final double t = 1 / (1 + 0.2316419 * z);
+    final double poly = t * (0.319381530 + t * (-0.356563782 + t * (1.781477937 + t * (-1.821255978 + t * 1.330274429))));
+    return 1 - Math.exp(-z * z / 2) / Math.sqrt(2 * Math.PI) * poly;
+  }
+
+  @Value
+  public static class Interval {
+    static final Interval EMPTY = new Interval(Double.NaN, Double.NaN);
+
+    double low;
+    double high;
+
+    public boolean excludesZero() {
+      return low > 0 || high < 0;
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package dev.bytesizedjoe.k8s;
+
+import lombok.experimental.UtilityClass;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Java 17 build: virtual threads are unavailable. Build with {@code -Pjdk21} to get the real implementation
+ * from {@code src/main/java21}.
+ */
+@NullMarked
+@UtilityClass
+public class VirtualThreads {
+  public boolean isSupported() {
+    return false;
+  }
+
+  public ExecutorService newExecutor(final String namePrefix) {
+    throw new UnsupportedOperationException("--mode virtual needs a build with -Pjdk21 running on JDK 21+");
+  }
+}
@@ -0,0 +1,22 @@
+package dev.bytesizedjoe.k8s;
+
+import lombok.experimental.UtilityClass;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Java 21 build: one virtual thread per submitted task.
+ */
+@NullMarked
+@UtilityClass
+public class VirtualThreads {
+  public boolean isSupported() {
+    return true;
+  }
+
+  public ExecutorService newExecutor(final String namePrefix) {
+    return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix + "-", 1).factory());
+  }
+}
@@ -13,6 +13,9 @@ class ArgsParserTest {
     var cfg = ArgsParser.parse(new String[]{});
     assertEquals(3, cfg.getRepeats());
     assertEquals(15L, cfg.getWarmupSeconds());
+    assertEquals(180L, cfg.getWarmupMaxSeconds());
+    assertEquals(5L, cfg.getWarmupWindowSeconds());
+    assertEquals(10.0, cfg.getWarmupTolerancePercent());
     assertEquals(120L, cfg.getDurationSeconds());
     assertEquals(4, cfg.getWorkloadThreads());
     assertFalse(cfg.isTrustCerts());
@@ -24,6 +27,132 @@ class ArgsParserTest {
     assertTrue(cfg.getTlsVersions().contains("TLSv1.2"));
     assertTrue(cfg.getTlsVersions().contains("TLSv1.3"));
     assertEquals(0, cfg.getJfrSeconds());
+    assertTrue(cfg.isJfrSummary());
+    assertTrue(cfg.getMasterUrl().isEmpty());
+    assertFalse(cfg.isFaultProxy());
+    assertTrue(cfg.getFaultLatency().isEmpty());
+    assertEquals(0.0, cfg.getFaultResetPercent());
+    assertEquals(64L, cfg.getFaultSlowRate());
+    assertTrue(cfg.getProxyAddress().isEmpty());
+    assertFalse(cfg.isMock());
+    assertEquals(1000, cfg.getMockPods());
+    assertEquals(200, cfg.getMockServices());
+    assertEquals(0, cfg.getMockLatencyMs());
+    assertTrue(cfg.getRates().isEmpty());
+    assertEquals(ExecutionMode.PLATFORM, cfg.getExecutionMode());
+    assertEquals(WriteMode.EDIT, cfg.getWriteMode());
+    assertEquals(256, cfg.getPayloadBytes());
+    assertEquals(200, cfg.getPageSize());
+    assertTrue(cfg.getPayloadSizes().isEmpty());
+    assertTrue(cfg.getPageSizes().isEmpty());
+    assertEquals(ListMode.TYPED, cfg.getListMode());
+    assertTrue(cfg.getListDatasets().isEmpty());
+    assertTrue(cfg.getListModes().isEmpty());
+    assertEquals(0L, cfg.getSoakSeconds());
+    assertEquals(60L, cfg.getSoakSampleSeconds());
+    assertEquals(600L, cfg.getSoakWatchRestartSeconds());
+    assertEquals(1800L, cfg.getSoakClientChurnSeconds());
+    assertEquals(5.0, cfg.getLeakThresholdPercent());
+    assertEquals(64, cfg.getMaxInFlight());
+    assertEquals(0, cfg.getAgents());
+    assertEquals(0, cfg.getAgentPort());
+    assertFalse(cfg.isSpawnAgents());
+    assertEquals(1, cfg.getWatchCount());
+    assertFalse(cfg.isInformers());
+    assertEquals(1000L, cfg.getSampleMillis());
+    assertFalse(cfg.isJcmdSnapshots());
+    assertEquals(0, cfg.getLogStreams());
+    assertEquals(0L, cfg.getLogConsumeBytesPerSecond());
+    assertEquals(0, cfg.getExecSessions());
+    assertEquals(0, cfg.getPortForwards());
+    assertEquals(16384, cfg.getWebsocketChunkBytes());
+    assertTrue(cfg.getInterleavedTransports().isEmpty());
+    assertEquals(10L, cfg.getSliceSeconds());
+    assertTrue(cfg.getSweepConcurrency().isEmpty());
+    assertEquals(0, cfg.getClients());
+    assertEquals(0.0, cfg.getHandshakeRate());
+    assertEquals(1, cfg.getRequestsPerConnection());
+    assertFalse(cfg.isMockTls());
+    assertEquals(50, cfg.getMockTlsResumable());
+    assertEquals(20L, cfg.getStepSeconds());
+  }
+
+  @Test
+  @DisplayName("Should parse log streaming options")
+  void parse_withLogStreams_expectsStreamsAndConsumeRate() {
+    var cfg = ArgsParser.parse(new String[]{"--logStreams", "50", "--logConsumeRate", "2048"});
+    assertEquals(50, cfg.getLogStreams());
+    assertEquals(2048L, cfg.getLogConsumeBytesPerSecond());
+  }
+
+  @Test
+  @DisplayName("Should parse sweep concurrency levels and limits")
+  void parse_withSweep_expectsGrid() {
+    var cfg = ArgsParser.parse(new String[]{"--sweep", "4,8, 16", "--sweepLimits", "32,128", "--step", "5"});
+    assertEquals(java.util.List.of(4, 8, 16), cfg.getSweepConcurrency());
+    assertEquals(java.util.List.of(32, 128), cfg.getSweepLimits());
+    assertEquals(5L, cfg.getStepSeconds());
+  }
+
+  @Test
+  @DisplayName("Should keep interleaved transports in the order given")
+  void parse_withInterleave_expectsOrderedTransports() {
+    var cfg = ArgsParser.parse(new String[]{"--interleave", "vertx5=t/v5, vertx4=t/v4", "--slice", "5"});
+    assertEquals(java.util.List.of("vertx5", "vertx4"), java.util.List.copyOf(cfg.getInterleavedTransports().keySet()));
+    assertEquals("t/v4", cfg.getInterleavedTransports().get("vertx4"));
+    assertEquals(5L, cfg.getSliceSeconds());
+    assertThrows(IllegalArgumentException.class, () -> ArgsParser.parse(new String[]{"--interleave", "vertx4"}));
+  }
+
+  @Test
+  @DisplayName("Should parse execution and write modes case-insensitively")
+  void parse_withMode_expectsExecutionMode() {
+    var cfg = ArgsParser.parse(new String[]{"--mode", "Async", "--inflight", "512"});
+    assertEquals(ExecutionMode.ASYNC, cfg.getExecutionMode());
+    assertEquals(512, cfg.getMaxInFlight());
+    assertEquals(ExecutionMode.VIRTUAL, ArgsParser.parse(new String[]{"--mode", "virtual"}).getExecutionMode());
+    assertEquals(WriteMode.MERGE_PATCH, ArgsParser.parse(new String[]{"--write", "merge-patch"}).getWriteMode());
+  }
+
+  @Test
+  @DisplayName("Should parse list decoding variants and dataset sizes")
+  void parse_withListDecoding_expectsModesAndDatasets() {
+    var cfg = ArgsParser.parse(new String[]{"--list", "Streaming", "--listModes", "generic, typed",
+        "--listDatasets", "1000,100000"});
+    assertEquals(ListMode.STREAMING, cfg.getListMode());
+    assertEquals(java.util.List.of(ListMode.GENERIC, ListMode.TYPED), cfg.getListModes());
+    assertEquals(java.util.List.of(1000, 100000), cfg.getListDatasets());
+    assertThrows(IllegalArgumentException.class, () -> ArgsParser.parse(new String[]{"--list", "raw"}));
+  }
+
+  @Test
+  @DisplayName("Should apply a bare --rate to every operation type and accept per-type rates")
+  void parse_withRates_expectsPerTypeRates() {
+    var all = ArgsParser.parse(new String[]{"--rate", "25"});
+    assertEquals(25.0, all.getRates().get("configmap"));
+    assertEquals(25.0, all.getRates().get("pods"));
+    assertEquals(25.0, all.getRates().get("services"));
+
+    var perType = ArgsParser.parse(new String[]{"--rate", "configmap=10, pods=0.5"});
+    assertEquals(2, perType.getRates().size());
+    assertEquals(10.0, perType.getRates().get("configmap"));
+    assertEquals(0.5, perType.getRates().get("pods"));
+  }
+
+  @Test
+  @DisplayName("Should parse mock server flags, treating a bare --mock as true")
+  void parse_withMockFlags_expectsMockSettings() {
+    var cfg = ArgsParser.parse(new String[]{
+        "--mock", "--mockPort", "8089", "--mockPods", "5000", "--mockServices", "50",
+        "--mockLatencyMs", "3", "--mockWatchRate", "0", "--mockLogRate", "1024", "--master", "http://127.0.0.1:8089"});
+    assertTrue(cfg.isMock());
+    assertEquals(8089, cfg.getMockPort());
+    assertEquals(5000, cfg.getMockPods());
+    assertEquals(50, cfg.getMockServices());
+    assertEquals(3, cfg.getMockLatencyMs());
+    assertEquals(0, cfg.getMockWatchRate());
+    assertEquals(1024, cfg.getMockLogRate());
+    assertEquals("http://127.0.0.1:8089", cfg.getMasterUrl().orElseThrow());
   }
 
   @Test
@@ -53,4 +182,16 @@ class ArgsParserTest {
     assertEquals("TLSv1.3", cfg.getTlsVersions().get(0));
     assertEquals(8, cfg.getJfrSeconds());
   }
+
+  @Test
+  @DisplayName("Should accept soak durations in seconds or with a unit suffix")
+  void parse_withSoakDurations_expectsSeconds() {
+    var cfg = ArgsParser.parse(new String[]{"--soak", "6h", "--soakSample", "30", "--soakWatchRestart", "10m",
+        "--soakClientChurn", "1d"});
+    assertEquals(21600L, cfg.getSoakSeconds());
+    assertEquals(30L, cfg.getSoakSampleSeconds());
+    assertEquals(600L, cfg.getSoakWatchRestartSeconds());
+    assertEquals(86400L, cfg.getSoakClientChurnSeconds());
+    assertThrows(NumberFormatException.class, () -> ArgsParser.parse(new String[]{"--soak", "6x"}));
+  }
 }
@@ -0,0 +1,57 @@
+package dev.bytesizedjoe.harness;
+
+import dev.bytesizedjoe.cli.ArgsParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientFanOutTest {
+
+  private static ClientFanOut.Sample sample(final int clients, final long heap, final long threads, final long nmt) {
+    return new ClientFanOut.Sample(1, ClientFanOut.SEPARATE, ClientFanOut.OPEN, clients, 0, 0, heap, 0, -1, threads, nmt, nmt, nmt);
+  }
+
+  @Test
+  @DisplayName("Should take the marginal cost per client as the slope over the client count")
+  void slope_expectsPerClientCostAndNaNWhenUnavailable() {
+    var curve = List.of(sample(0, 1_000, 20, -1), sample(1, 3_100, 22, -1), sample(2, 4_900, 24, -1), sample(3, 7_000, 26, -1));
+
+    assertEquals(1_980, ClientFanOut.slope(curve, "heap_bytes"), 1e-9);
+    assertEquals(2, ClientFanOut.slope(curve, "threads"), 1e-9);
+    assertTrue(Double.isNaN(ClientFanOut.slope(curve, "nmt_total")));
+    assertTrue(Double.isNaN(ClientFanOut.slope(curve, "netty_direct")));
+    assertTrue(Double.isNaN(ClientFanOut.slope(curve.subList(0, 1), "heap_bytes")));
+  }
+
+  @Test
+  @DisplayName("Should divide threads, rates and the async window between the clients")
+  void perClient_expectsWorkloadSplitAcrossClients() {
+    var args = ArgsParser.parse(new String[]{"--threads", "10", "--inflight", "64", "--rate", "configmap=40,pods=8"});
+
+    var each = ClientFanOut.perClient(args, 4);
+    assertEquals(3, each.getWorkloadThreads());
+    assertEquals(16, each.getMaxInFlight());
+    assertEquals(Map.of("configmap", 10.0, "pods", 2.0), each.getRates());
+  }
+
+  @Test
+  @DisplayName("Should keep a thread per operation type for each client when threads run short")
+  void perClient_withFewThreads_expectsOneThreadPerOperationType() {
+    var args = ArgsParser.parse(new String[]{"--threads", "4"});
+
+    assertEquals(3, ClientFanOut.perClient(args, 4).getWorkloadThreads());
+    assertEquals(3, ClientFanOut.perClient(args, 2).getWorkloadThreads());
+  }
+
+  @Test
+  @DisplayName("Should alternate which pass runs first from one repeat to the next")
+  void order_expectsAlternatingPasses() {
+    assertEquals(List.of(ClientFanOut.SEPARATE, ClientFanOut.SHARED), ClientFanOut.order(1));
+    assertEquals(List.of(ClientFanOut.SHARED, ClientFanOut.SEPARATE), ClientFanOut.order(2));
+    assertEquals(List.of(ClientFanOut.SEPARATE, ClientFanOut.SHARED), ClientFanOut.order(3));
+  }
+}
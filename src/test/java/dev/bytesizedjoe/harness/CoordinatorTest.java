@@ -0,0 +1,29 @@
+package dev.bytesizedjoe.harness;
+
+import dev.bytesizedjoe.cli.ArgsParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoordinatorTest {
+
+  @Test
+  @DisplayName("Should hand agents this invocation's flags, pointed at the API server resolved at startup")
+  void agentArgv_withInProcessStandIn_expectsResolvedMaster() {
+    final String[] argv = {"--mock", "--mockTls", "--agents", "3", "--spawnAgents", "--threads", "8", "--write", "apply"};
+    final var resolved = ArgsParser.parse(argv).toBuilder()
+        .masterUrl(Optional.of("https://127.0.0.1:40123"))
+        .trustCerts(true)
+        .build();
+
+    final var agent = ArgsParser.parse(Coordinator.agentArgv(argv, resolved).toArray(new String[0]));
+
+    assertEquals(Optional.of("https://127.0.0.1:40123"), agent.getMasterUrl());
+    assertTrue(agent.isTrustCerts());
+    assertEquals(8, agent.getWorkloadThreads());
+    assertEquals(resolved.getWriteMode(), agent.getWriteMode());
+  }
+}
@@ -0,0 +1,29 @@
+package dev.bytesizedjoe.harness;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaturationSweepTest {
+
+  private static SaturationSweep.Step step(final int limit, final int concurrency, final double ops, final double p99) {
+    return new SaturationSweep.Step(limit, concurrency, ops, p99 / 2, p99, 0, false, false);
+  }
+
+  @Test
+  @DisplayName("Should put the knee where throughput flattens while p99 keeps rising")
+  void markKnees_expectsKneeAtHighestPowerPerLimit() {
+    final var marked = SaturationSweep.markKnees(List.of(
+        step(16, 4, 400, 10), step(16, 8, 780, 10.5), step(16, 16, 800, 20), step(16, 32, 805, 40),
+        step(64, 4, 400, 10), step(64, 8, 790, 10), step(64, 16, 1500, 11)));
+
+    assertEquals(7, marked.size());
+    assertEquals(List.of(false, true, false, false), marked.subList(0, 4).stream().map(SaturationSweep.Step::isKnee).toList());
+    assertEquals(List.of(false, false, true, true), marked.subList(0, 4).stream().map(SaturationSweep.Step::isSaturated).toList());
+    assertEquals(List.of(false, false, true), marked.subList(4, 7).stream().map(SaturationSweep.Step::isKnee).toList());
+    assertTrue(marked.subList(4, 7).stream().noneMatch(SaturationSweep.Step::isSaturated));
+  }
+}
@@ -0,0 +1,23 @@
+package dev.bytesizedjoe.harness;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScalingMatrixTest {
+
+  private static ScalingMatrix.Point point(final double kbPerOp, final double p50) {
+    return new ScalingMatrix.Point(ScalingMatrix.PAYLOAD, (int) kbPerOp * 1024, "configmap.edit", 100, kbPerOp, 1, p50, p50 * 2, 0);
+  }
+
+  @Test
+  @DisplayName("Should fit the p50 cost per MiB of body across a curve")
+  void msPerMiB_withLinearCurve_expectsSlope() {
+    assertEquals(8.0, ScalingMatrix.msPerMiB(List.of(point(0, 2), point(512, 6), point(1024, 10))), 1e-9);
+    assertEquals(8.0, ScalingMatrix.msPerMiB(List.of(point(0, 2), point(100, Double.NaN), point(1024, 10))), 1e-9);
+    assertTrue(Double.isNaN(ScalingMatrix.msPerMiB(List.of(point(1024, 10)))));
+  }
+}
@@ -0,0 +1,45 @@
+package dev.bytesizedjoe.harness;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SoakTest {
+
+  /** Hourly samples over {@code hours} with {@code threads(hour)} threads and every other resource flat. */
+  private static List<Soak.Sample> soak(final int hours, final LongUnaryOperator threads) {
+    final List<Soak.Sample> samples = new ArrayList<>();
+    for (var h = 0; h <= hours; h++) {
+      samples.add(new Soak.Sample(h * 3600.0, 1, h * 1000L, 0, 0, 50_000_000, 1_000_000, -1, -1, -1,
+          threads.applyAsLong(h), 120, -1, -1, -1));
+    }
+    return samples;
+  }
+
+  @Test
+  @DisplayName("Should flag a resource that keeps growing and leave flat ones alone")
+  void trend_withLeakingThreads_expectsOnlyThreadsGrowing() {
+    final var samples = soak(10, h -> 40 + 4 * h);
+
+    final var threads = Soak.trend(samples, "threads", 5);
+    assertEquals(4.0, threads.getSlopePerHour(), 1e-9);
+    assertEquals(1.0, threads.getR2(), 1e-9);
+    assertTrue(threads.isGrowing());
+
+    assertFalse(Soak.trend(samples, "heap_bytes", 5).isGrowing());
+    assertEquals(0.0, Soak.trend(samples, "fds", 5).getSlopePerHour(), 1e-9);
+    assertTrue(Double.isNaN(Soak.trend(samples, "nmt_total", 5).getSlopePerHour()), "NMT was off");
+  }
+
+  @Test
+  @DisplayName("Should ignore startup growth and noise without a trend")
+  void trend_withStartupStepAndNoise_expectsFlat() {
+    assertFalse(Soak.trend(soak(20, h -> h == 0 ? 20 : 60), "threads", 5).isGrowing(), "growth in the first tenth");
+    assertFalse(Soak.trend(soak(20, h -> h % 2 == 0 ? 40 : 80), "threads", 5).isGrowing(), "no trend, only noise");
+  }
+}
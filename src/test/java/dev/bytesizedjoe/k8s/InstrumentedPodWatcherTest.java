@@ -0,0 +1,40 @@
+package dev.bytesizedjoe.k8s;
+
+import dev.bytesizedjoe.metrics.OperationStats;
+import dev.bytesizedjoe.mock.MockApiServer;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.Watcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentedPodWatcherTest {
+
+  @Test
+  @DisplayName("Should count events per action and record lag from the emitted-at annotation")
+  void eventReceived_expectsCountersAndLag(@TempDir Path dir) throws Exception {
+    var stats = new OperationStats();
+    var watcher = new InstrumentedPodWatcher(stats, cause -> fail("unexpected close"));
+    var stamped = new PodBuilder().withNewMetadata().withName("p").withResourceVersion("42")
+        .addToAnnotations(MockApiServer.EMITTED_AT_ANNOTATION, Long.toString(System.currentTimeMillis() - 250))
+        .endMetadata().build();
+    var plain = new PodBuilder().withNewMetadata().withName("q").withResourceVersion("43").endMetadata().build();
+
+    watcher.eventReceived(Watcher.Action.MODIFIED, stamped);
+    watcher.eventReceived(Watcher.Action.DELETED, plain);
+
+    assertEquals(1, stats.counter("watch.events.modified"));
+    assertEquals(1, stats.counter("watch.events.deleted"));
+    assertEquals("43", watcher.lastResourceVersion());
+    stats.writeSnapshot(dir);
+    var lag = Files.readAllLines(dir.resolve("latency.txt")).stream()
+        .filter(l -> l.startsWith("watch.lag ")).findFirst().orElseThrow().trim().split("\\s+");
+    assertEquals("1", lag[1]);
+    assertTrue(Double.parseDouble(lag[4]) >= 250.0, String.join(" ", lag));
+  }
+}
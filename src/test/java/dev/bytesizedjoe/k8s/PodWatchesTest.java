@@ -0,0 +1,24 @@
+package dev.bytesizedjoe.k8s;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PodWatchesTest {
+
+  @Test
+  @DisplayName("Should attribute only marked pod watch requests to their watch set")
+  void marker_withWatchRequests_expectsOnlyMarkedWatchesMatched() {
+    assertEquals("ab-watch-set-12", PodWatches.marker(URI.create(
+        "https://h/api/v1/pods?allowWatchBookmarks=true&fieldSelector=metadata.name%21%3Dab-watch-set-12&resourceVersion=5&watch=true")));
+    assertEquals("ab-watch-set-1", PodWatches.marker(URI.create(
+        "https://h/api/v1/pods?fieldSelector=metadata.name!%3Dab-watch-set-1&watch=true")));
+    // An informer's watch, or a list that happens to carry the selector, is not a set's connection
+    assertNull(PodWatches.marker(URI.create("https://h/api/v1/namespaces/ab/pods?resourceVersion=5&watch=true")));
+    assertNull(PodWatches.marker(URI.create("https://h/api/v1/pods?fieldSelector=metadata.name%21%3Dab-watch-set-3")));
+    assertNull(PodWatches.marker(URI.create("https://h/api/v1/pods/ab-watch-set-3?watch=true")));
+  }
+}
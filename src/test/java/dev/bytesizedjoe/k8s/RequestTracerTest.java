@@ -0,0 +1,34 @@
+package dev.bytesizedjoe.k8s;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTracerTest {
+
+  @Test
+  @DisplayName("Should group requests by resource path without namespaces and names")
+  void endpoint_withResourcePaths_expectsNormalizedEndpoints() {
+    assertEquals("GET pods", RequestTracer.endpoint("GET", URI.create("https://h/api/v1/pods?limit=200")));
+    assertEquals("GET pods", RequestTracer.endpoint("GET", URI.create("https://h/api/v1/namespaces/ns-1/pods")));
+    assertEquals("PATCH configmaps/{name}",
+        RequestTracer.endpoint("PATCH", URI.create("https://h/api/v1/namespaces/ab/configmaps/ab-cm-1")));
+    assertEquals("GET namespaces/{name}", RequestTracer.endpoint("GET", URI.create("https://h/api/v1/namespaces/ab")));
+    assertEquals("GET pods/{name}/log", RequestTracer.endpoint("GET", URI.create("https://h/api/v1/namespaces/a/pods/p/log")));
+    assertEquals("GET apps/deployments", RequestTracer.endpoint("GET", URI.create("https://h/apis/apps/v1/namespaces/a/deployments")));
+    assertEquals("GET pods?watch", RequestTracer.endpoint("GET", URI.create("https://h/api/v1/pods?watch=true&resourceVersion=1")));
+    assertEquals("GET /version", RequestTracer.endpoint("GET", URI.create("https://h/version")));
+  }
+
+  @Test
+  @DisplayName("Should tell reused connections from the stand-in's connection header")
+  void reused_withConnectionHeader_expectsReuseFlag() {
+    assertEquals(0, RequestTracer.reused("7/1"));
+    assertEquals(1, RequestTracer.reused("7/2"));
+    assertEquals(-1, RequestTracer.reused(null));
+    assertEquals(-1, RequestTracer.reused("garbage/x"));
+  }
+}
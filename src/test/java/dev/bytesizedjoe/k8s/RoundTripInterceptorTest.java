@@ -0,0 +1,20 @@
+package dev.bytesizedjoe.k8s;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoundTripInterceptorTest {
+
+  @Test
+  @DisplayName("Should measure UTF-8 body length as the encoder would")
+  void utf8Length_withMixedText_expectsEncodedLength() {
+    for (final var text : new String[] {"", "{\"kind\":\"Pod\"}", "café", "€ 5", "pod-🚀"}) {
+      assertEquals(text.getBytes(StandardCharsets.UTF_8).length, RoundTripInterceptor.utf8Length(text), text);
+    }
+    assertEquals(1, RoundTripInterceptor.utf8Length("\uD83D"));
+  }
+}
@@ -0,0 +1,51 @@
+package dev.bytesizedjoe.k8s;
+
+import io.fabric8.kubernetes.client.KubernetesClient;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransportClassLoaderTest {
+
+  @Test
+  @DisplayName("Should isolate transport packages and their service registrations only")
+  void isIsolated_expectsTransportPackagesOnly() {
+    assertTrue(TransportClassLoader.isIsolated("io.vertx.core.Vertx"));
+    assertTrue(TransportClassLoader.isIsolated("io.netty.buffer.ByteBuf"));
+    assertTrue(TransportClassLoader.isIsolated("io.fabric8.kubernetes.client.vertx.VertxHttpClientFactory"));
+    assertFalse(TransportClassLoader.isIsolated("io.fabric8.kubernetes.client.http.HttpClient"));
+    assertFalse(TransportClassLoader.isIsolated("com.fasterxml.jackson.databind.ObjectMapper"));
+
+    assertTrue(TransportClassLoader.isIsolatedResource("META-INF/services/io.fabric8.kubernetes.client.http.HttpClient$Factory"));
+    assertTrue(TransportClassLoader.isIsolatedResource("META-INF/services/io.vertx.core.spi.VertxServiceProvider"));
+    assertTrue(TransportClassLoader.isIsolatedResource("io/netty/util/Version.class"));
+    assertFalse(TransportClassLoader.isIsolatedResource("META-INF/services/org.slf4j.spi.SLF4JServiceProvider"));
+  }
+
+  @Test
+  @DisplayName("Should never fall back to the parent for transport classes")
+  void loadClass_expectsNoParentFallbackForTransportClasses(@TempDir Path dir) throws Exception {
+    try (var jar = new JarOutputStream(Files.newOutputStream(dir.resolve("empty.jar")))) {
+      jar.putNextEntry(new ZipEntry("README"));
+    }
+    try (var loader = TransportClassLoader.create("test", dir.toString())) {
+      assertSame(KubernetesClient.class, loader.loadClass(KubernetesClient.class.getName()));
+      assertThrows(ClassNotFoundException.class, () -> loader.loadClass("io.netty.util.Version"));
+      assertThrows(IllegalStateException.class, loader::loadFactory);
+    }
+  }
+
+  @Test
+  @DisplayName("Should reject a transport classpath without jars")
+  void create_withoutJars_expectsIllegalArgument(@TempDir Path dir) {
+    assertThrows(IllegalArgumentException.class, () -> TransportClassLoader.create("empty", dir.toString()));
+    assertThrows(IllegalArgumentException.class, () -> TransportClassLoader.create("missing", dir.resolve("nope").toString()));
+  }
+}
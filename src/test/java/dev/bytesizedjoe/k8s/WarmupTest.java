@@ -0,0 +1,35 @@
+package dev.bytesizedjoe.k8s;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmupTest {
+
+  private static Warmup.Window window(final double opsPerSecond, final long compileMillis) {
+    return new Warmup.Window(0, opsPerSecond, compileMillis, 0);
+  }
+
+  @Test
+  @DisplayName("Should call the warmup steady once throughput and compilation have both leveled off")
+  void isSteady_withSettlingWindows_expectsSteadyOnlyAtTheEnd() {
+    final var climbing = List.of(window(200, 4000), window(600, 2500), window(800, 900), window(850, 300));
+    final var compiling = List.of(window(200, 4000), window(840, 2500), window(850, 900), window(845, 800));
+    final var settled = List.of(window(200, 4000), window(600, 2500), window(840, 300), window(850, 120), window(845, 40));
+
+    assertFalse(Warmup.isSteady(climbing, 0.1, 5000), "throughput still rising");
+    assertFalse(Warmup.isSteady(compiling, 0.1, 5000), "C2 still busy");
+    assertTrue(Warmup.isSteady(settled, 0.1, 5000));
+    assertFalse(Warmup.isSteady(settled.subList(0, 2), 0.1, 5000), "fewer windows than the span");
+  }
+
+  @Test
+  @DisplayName("Should judge throughput alone when compilation time isn't monitored")
+  void isSteady_withoutCompilationTime_expectsThroughputOnly() {
+    assertTrue(Warmup.isSteady(List.of(window(500, -1), window(505, -1), window(498, -1)), 0.05, 5000));
+    assertFalse(Warmup.isSteady(List.of(window(0, -1), window(0, -1), window(0, -1)), 0.05, 5000));
+  }
+}
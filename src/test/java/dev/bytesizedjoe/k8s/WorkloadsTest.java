@@ -0,0 +1,53 @@
+package dev.bytesizedjoe.k8s;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkloadsTest {
+
+  private static Workloads.Page decode(final String json, final List<ObjectMeta> items) throws IOException {
+    try (var parser = new JsonFactory().createParser(json)) {
+      return Workloads.metadataOnly(parser, items::add);
+    }
+  }
+
+  @Test
+  @DisplayName("Should pull item metadata and the continue token out of a list, skipping everything else")
+  void metadataOnly_withPodList_expectsMetadataAndContinue() throws IOException {
+    final List<ObjectMeta> items = new ArrayList<>();
+    final var page = decode("""
+        {"kind":"PodList","apiVersion":"v1",
+         "items":[
+          {"metadata":{"name":"p-0","namespace":"ns-0","resourceVersion":"7","labels":{"app":"a"},
+                       "ownerReferences":[{"name":"rs"}]},
+           "spec":{"containers":[{"name":"c","image":"i","args":["x"]}]},"status":{"phase":"Running"}},
+          {"spec":{},"metadata":{"name":"p-1","namespace":"ns-1","resourceVersion":"8"}}
+         ],
+         "metadata":{"resourceVersion":"9","continue":"tok-2","remainingItemCount":3}}
+        """, items);
+
+    assertEquals(2, page.getItems());
+    assertEquals("tok-2", page.getNext());
+    assertEquals(List.of("p-0", "p-1"), items.stream().map(ObjectMeta::getName).toList());
+    assertEquals("ns-1", items.get(1).getNamespace());
+    assertEquals("7", items.get(0).getResourceVersion());
+    assertTrue(items.get(0).getLabels() == null || items.get(0).getLabels().isEmpty());
+  }
+
+  @Test
+  @DisplayName("Should report no continue token on the last page")
+  void metadataOnly_withLastPage_expectsNoContinue() throws IOException {
+    final var page = decode("{\"metadata\":{\"resourceVersion\":\"1\"},\"items\":[]}", new ArrayList<>());
+
+    assertEquals(0, page.getItems());
+    assertNull(page.getNext());
+  }
+}
@@ -0,0 +1,43 @@
+package dev.bytesizedjoe.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrMonitorTest {
+
+  @Test
+  @DisplayName("Should attribute allocation samples to the phase they happened in")
+  void phases_expectsAllocationOnlyInBusyPhase(@TempDir Path dir) throws Exception {
+    try (var jfr = JfrMonitor.start()) {
+      assertNotNull(jfr);
+      var idle = jfr.begin("idle");
+      Thread.sleep(200);
+      jfr.end(idle);
+
+      var busy = jfr.begin("busy");
+      List<byte[]> sink = new ArrayList<>();
+      for (var i = 0; i < 20_000; i++) {
+        sink.add(new byte[4096]);
+        if (sink.size() > 100) sink.clear();
+      }
+      jfr.end(busy);
+      jfr.writeSummary(dir, idle, busy);
+    }
+
+    var lines = Files.readAllLines(dir.resolve(JfrMonitor.FILE_NAME));
+    var busyAt = lines.indexOf(lines.stream().filter(l -> l.startsWith("# phase=busy")).findFirst().orElseThrow());
+    var busyBytes = lines.subList(busyAt, lines.size()).stream()
+        .filter(l -> l.startsWith("alloc.sampled_bytes ")).findFirst().orElseThrow();
+    assertTrue(Long.parseLong(busyBytes.split(" ")[1]) > 1_000_000, busyBytes);
+    assertTrue(lines.stream().anyMatch(l -> l.startsWith("alloc.frame dev.bytesizedjoe.metrics.JfrMonitorTest.")));
+    assertTrue(lines.contains("socket.read.bytes 0"));
+  }
+}
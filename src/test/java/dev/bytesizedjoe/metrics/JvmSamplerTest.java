@@ -0,0 +1,36 @@
+package dev.bytesizedjoe.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JvmSamplerTest {
+
+  @Test
+  @DisplayName("Should write a header and one fixed-width row per sample")
+  void start_thenClose_expectsCsvRows(@TempDir Path dir) throws Exception {
+    var sampler = JvmSampler.start(dir, 20);
+    assertNotNull(sampler);
+    Thread.sleep(120);
+    sampler.close();
+
+    var lines = Files.readAllLines(dir.resolve(JvmSampler.FILE_NAME));
+    var header = List.of(lines.get(0).split(","));
+    assertEquals("elapsed_ms", header.get(0));
+    assertTrue(header.contains("heap.used"));
+    assertTrue(header.contains("buffer.direct.used"));
+    assertTrue(header.contains("threads.live"));
+    assertTrue(lines.size() >= 3, "expected initial, periodic and final samples");
+    for (var row : lines.subList(1, lines.size())) {
+      assertEquals(header.size(), row.split(",").length);
+    }
+    var heapUsed = lines.get(1).split(",")[header.indexOf("heap.used")];
+    assertTrue(Long.parseLong(heapUsed) > 0);
+  }
+}
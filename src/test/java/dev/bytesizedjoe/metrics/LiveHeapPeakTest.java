@@ -0,0 +1,26 @@
+package dev.bytesizedjoe.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveHeapPeakTest {
+
+  @Test
+  @DisplayName("Should report the heap left after a GC that ran while open, including data still reachable")
+  void peakBytes_afterGcWithRetainedData_expectsAtLeastTheRetainedBytes() throws Exception {
+    try (var live = LiveHeapPeak.start()) {
+      assertEquals(-1, live.peakBytes());
+      final byte[] retained = new byte[32 << 20];
+      System.gc();
+      // Notifications arrive on a JMX thread after the collection
+      for (var i = 0; i < 50 && live.collections() == 0; i++) TimeUnit.MILLISECONDS.sleep(100);
+
+      assertTrue(live.collections() > 0);
+      assertTrue(live.peakBytes() >= retained.length, String.valueOf(live.peakBytes()));
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package dev.bytesizedjoe.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeMemoryTest {
+
+  @Test
+  @DisplayName("Should read total and per-category committed bytes from an NMT summary")
+  void parse_summary_expectsCommittedBytes() {
+    var summary = """
+        Native Memory Tracking:
+
+        (Omitting categories weighting less than 1KB)
+
+        Total: reserved=1462328KB, committed=118904KB
+               malloc: 20112KB #100236
+               mmap:   reserved=1442216KB, committed=98792KB
+
+        -                 Java Heap (reserved=262144KB, committed=67584KB)
+                                    (mmap: reserved=262144KB, committed=67584KB)
+
+        -                    Thread (reserved=25698KB, committed=1322KB)
+                                    (thread #25)
+
+        -                     Other (reserved=2MB, committed=2MB)
+                                    (malloc=2MB #14)
+        """;
+
+    var committed = NativeMemory.parse(summary);
+    assertEquals(118904L * 1024, NativeMemory.committed(committed, NativeMemory.TOTAL));
+    assertEquals(67584L * 1024, committed.get("Java Heap"));
+    assertEquals(1322L * 1024, NativeMemory.committed(committed, NativeMemory.THREAD));
+    assertEquals(2L << 20, NativeMemory.committed(committed, NativeMemory.OTHER));
+    assertEquals(-1L, NativeMemory.committed(committed, "Class"));
+    assertTrue(NativeMemory.parse("Native memory tracking is not enabled").isEmpty());
+  }
+}
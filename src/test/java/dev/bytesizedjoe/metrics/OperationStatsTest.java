@@ -0,0 +1,136 @@
+package dev.bytesizedjoe.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationStatsTest {
+
+  @Test
+  @DisplayName("Should count successes and errors and rethrow failures")
+  void time_expectsCountsAndRethrow(@TempDir Path dir) throws Exception {
+    var stats = new OperationStats();
+    assertEquals("ok", stats.time("op.a", () -> "ok"));
+    assertThrows(IllegalStateException.class, () -> stats.time("op.a", () -> { throw new IllegalStateException("boom"); }));
+    stats.record("op.b", 2_000_000L, null);
+
+    stats.writeSnapshot(dir);
+    var lines = Files.readAllLines(dir.resolve("latency.txt"));
+    assertTrue(lines.get(0).startsWith("# elapsed_s="));
+    var a = lines.stream().filter(l -> l.startsWith("op.a ")).findFirst().orElseThrow().trim().split("\\s+");
+    assertEquals("2", a[1]);
+    assertEquals("1", a[2]);
+    var b = lines.stream().filter(l -> l.startsWith("op.b ")).findFirst().orElseThrow().trim().split("\\s+");
+    assertEquals(2.0, Double.parseDouble(b[4]), 0.01);
+    assertTrue(lines.contains("# error op.a IllegalStateException=1"));
+  }
+
+  @Test
+  @DisplayName("Should attribute caller and transport allocation to the timed operation")
+  void time_expectsAllocationPerOperation(@TempDir Path dir) throws Exception {
+    var stats = new OperationStats();
+    stats.time("op.alloc", () -> {
+      var scope = OperationStats.Scope.current();
+      assertNotNull(scope);
+      scope.addTransport(512 * 1024, 1024);
+      return new byte[1024 * 1024];
+    });
+    assertNull(OperationStats.Scope.current());
+
+    stats.writeSnapshot(dir);
+    var row = Files.readAllLines(dir.resolve("allocation.txt")).stream()
+        .filter(l -> l.startsWith("op.alloc ")).findFirst().orElseThrow().trim().split("\\s+");
+    assertEquals("1", row[1]);
+    assertTrue(Double.parseDouble(row[2]) >= 1536, String.join(" ", row));
+    assertEquals(1.0, Double.parseDouble(row[7]), 0.01);
+  }
+
+  @Test
+  @DisplayName("Should report requests, retries and body bytes per timed operation")
+  void time_expectsWirePerOperation(@TempDir Path dir) throws Exception {
+    var stats = new OperationStats();
+    for (var i = 0; i < 2; i++) {
+      stats.time("op.write", () -> {
+        var scope = OperationStats.Scope.current();
+        scope.addRequest(0);
+        scope.addRequest(2048);
+        scope.addRetry();
+        scope.addRequest(2048);
+        scope.addTransport(0, 512);
+        return null;
+      });
+    }
+
+    stats.writeSnapshot(dir);
+    var row = Files.readAllLines(dir.resolve("wire.txt")).stream()
+        .filter(l -> l.startsWith("op.write ")).findFirst().orElseThrow().trim().split("\\s+");
+    assertEquals("2", row[1]);
+    assertEquals(3.0, Double.parseDouble(row[2]), 0.01);
+    assertEquals(4.0, Double.parseDouble(row[3]), 0.01);
+    assertEquals(0.5, Double.parseDouble(row[4]), 0.01);
+    assertEquals(2, stats.counter("retries.op.write"));
+  }
+
+  @Test
+  @DisplayName("Should record an async operation and its requests when its future completes")
+  void timeAsync_expectsScopeUntilCompletion(@TempDir Path dir) throws Exception {
+    var stats = new OperationStats();
+    var response = new CompletableFuture<String>();
+    var done = stats.timeAsync("op.async", scope -> {
+      assertSame(scope, OperationStats.Scope.current());
+      scope.addRequest(1024);
+      return response.thenApply(r -> scope.within(() -> {
+        OperationStats.Scope.current().addRequest(1024);
+        return r;
+      }));
+    });
+    assertNull(OperationStats.Scope.current());
+    assertEquals(0, stats.requestBytes("op.async"));
+
+    response.complete("ok");
+    assertEquals("ok", done.get());
+    var failed = stats.timeAsync("op.async", scope -> CompletableFuture.failedFuture(new IllegalStateException("boom")));
+    assertTrue(failed.isCompletedExceptionally());
+
+    assertEquals(2048, stats.requestBytes("op.async"));
+    stats.writeSnapshot(dir);
+    assertTrue(Files.readAllLines(dir.resolve("latency.txt")).contains("# error op.async IllegalStateException=1"));
+  }
+
+  @Test
+  @DisplayName("Should add up histograms, totals, errors and counters merged from encoded stats")
+  void merge_withTwoEncodedStats_expectsSums() {
+    var a = new OperationStats();
+    var b = new OperationStats();
+    for (var i = 1; i <= 100; i++) a.record("op.read", i * 1_000_000L, null);
+    b.record("op.read", 500_000_000L, null);
+    b.record("op.read", 1_000_000L, new IllegalStateException("boom"));
+    a.add("watch.events", 3);
+    b.add("watch.events", 4);
+
+    var merged = new OperationStats();
+    merged.merge(encoded(a));
+    merged.merge(encoded(b));
+
+    assertEquals(102, merged.latency("op.read").getTotalCount());
+    assertEquals(500.0, merged.latency("op.read").getMaxValue() / 1e6, 1.0);
+    assertEquals(1, merged.totalErrors());
+    assertEquals(7, merged.counter("watch.events"));
+    assertTrue(merged.activeSeconds() <= Math.max(a.activeSeconds(), b.activeSeconds()));
+    assertThrows(IllegalArgumentException.class, () -> merged.merge(java.util.List.of("histogram op.read")));
+  }
+
+  private static java.util.List<String> encoded(final OperationStats stats) {
+    var text = new java.io.StringWriter();
+    try (var out = new java.io.PrintWriter(text)) {
+      stats.encode(out);
+    }
+    return text.toString().lines().toList();
+  }
+}
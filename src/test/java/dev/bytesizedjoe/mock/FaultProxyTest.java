@@ -0,0 +1,75 @@
+package dev.bytesizedjoe.mock;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FaultProxyTest {
+  private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  private MockApiServer server;
+
+  @BeforeEach
+  void start() throws Exception {
+    server = MockApiServer.start(MockApiServer.Settings.builder().pods(10).services(1).watchEventsPerSecond(0).build());
+  }
+
+  @AfterEach
+  void stop() {
+    server.close();
+  }
+
+  @Test
+  @DisplayName("Should parse each latency distribution and reject malformed ones")
+  void parse_withSpecs_expectsDistributions() {
+    assertEquals(new FaultProxy.Latency("constant", 20, 0), FaultProxy.Latency.parse("20"));
+    assertEquals(new FaultProxy.Latency("uniform", 5, 50), FaultProxy.Latency.parse("uniform:5:50"));
+    assertEquals(new FaultProxy.Latency("pareto", 10, 1.5), FaultProxy.Latency.parse("pareto:10:1.5"));
+    assertEquals(FaultProxy.Latency.NONE, FaultProxy.Latency.parse("none"));
+    assertThrows(IllegalArgumentException.class, () -> FaultProxy.Latency.parse("uniform:5"));
+    assertFalse(FaultProxy.Settings.builder().build().isActive());
+  }
+
+  @Test
+  @DisplayName("Should delay proxied requests by the configured latency in each direction")
+  void get_throughProxyWithLatency_expectsDelayedResponse(@TempDir final Path dir) throws Exception {
+    var settings = FaultProxy.Settings.builder().latency(FaultProxy.Latency.parse("50")).build();
+    try (var proxy = FaultProxy.start(server.url(), settings, dir)) {
+      var start = System.nanoTime();
+      var response = get("http://" + proxy.address() + "/api/v1/namespaces");
+      var millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      assertEquals(200, response.statusCode());
+      assertTrue(millis >= 100, "request and response should each be held back 50 ms, took " + millis);
+    }
+    try (var files = Files.list(dir)) {
+      assertTrue(files.anyMatch(d -> Files.exists(d.resolve(FaultProxy.CSV))));
+    }
+  }
+
+  @Test
+  @DisplayName("Should reset connections when every read is to be reset")
+  void get_throughProxyWithResets_expectsIOException(@TempDir final Path dir) throws Exception {
+    var settings = FaultProxy.Settings.builder().resetPercent(100).build();
+    try (var proxy = FaultProxy.start(server.url(), settings, dir)) {
+      assertThrows(IOException.class, () -> get("http://" + proxy.address() + "/api/v1/namespaces"));
+    }
+  }
+
+  private HttpResponse<String> get(final String url) throws Exception {
+    return http.send(HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(10)).build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+}
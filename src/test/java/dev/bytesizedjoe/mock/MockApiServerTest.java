@@ -0,0 +1,179 @@
+package dev.bytesizedjoe.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MockApiServerTest {
+  private final ObjectMapper json = new ObjectMapper();
+  private final HttpClient http = HttpClient.newHttpClient();
+  private MockApiServer server;
+
+  @BeforeEach
+  void start() throws Exception {
+    server = MockApiServer.start(MockApiServer.Settings.builder().pods(450).services(5).watchEventsPerSecond(50).build());
+  }
+
+  @AfterEach
+  void stop() {
+    server.close();
+  }
+
+  @Test
+  @DisplayName("Should page through all pods using continue tokens")
+  void list_withLimit_expectsAllPagesWithoutDuplicates() throws Exception {
+    var names = new HashSet<String>();
+    String cont = "";
+    var pages = 0;
+    do {
+      var page = get("/api/v1/pods?limit=200" + (cont.isEmpty() ? "" : "&continue=" + cont));
+      page.get("items").forEach(p -> names.add(p.get("metadata").get("name").asText()));
+      cont = page.get("metadata").path("continue").asText("");
+      pages++;
+    } while (!cont.isEmpty());
+    assertEquals(3, pages);
+    assertEquals(450, names.size());
+    assertEquals(45, get("/api/v1/namespaces/mock-ns-3/pods").get("items").size());
+  }
+
+  @Test
+  @DisplayName("Should name each response's connection and the request's position on it")
+  void get_twice_expectsConnectionHeader() throws Exception {
+    var first = send("GET", "/api/v1/namespaces", "application/json", "");
+    var second = send("GET", "/api/v1/namespaces", "application/json", "");
+    var a = first.headers().firstValue(MockHttpServer.CONNECTION_HEADER).orElseThrow().split("/");
+    var b = second.headers().firstValue(MockHttpServer.CONNECTION_HEADER).orElseThrow().split("/");
+    assertEquals("1", a[1]);
+    assertEquals(a[0], b[0], "the client should keep the connection alive");
+    assertEquals("2", b[1]);
+  }
+
+  @Test
+  @DisplayName("Should create, JSON-patch, merge-patch and delete a ConfigMap")
+  void configMap_crud_expectsResourceVersionBumps() throws Exception {
+    var created = send("POST", "/api/v1/namespaces/ab/configmaps", "application/json",
+        "{\"metadata\":{\"name\":\"cm1\"},\"data\":{\"k\":\"v1\"}}");
+    assertEquals(201, created.statusCode());
+    assertEquals(409, send("POST", "/api/v1/namespaces/ab/configmaps", "application/json",
+        "{\"metadata\":{\"name\":\"cm1\"}}").statusCode());
+
+    var patched = send("PATCH", "/api/v1/namespaces/ab/configmaps/cm1", "application/json-patch+json",
+        "[{\"op\":\"replace\",\"path\":\"/data/k\",\"value\":\"v2\"}]");
+    assertEquals(200, patched.statusCode());
+    send("PATCH", "/api/v1/namespaces/ab/configmaps/cm1", "application/merge-patch+json", "{\"data\":{\"j\":\"x\"}}");
+
+    var cm = get("/api/v1/namespaces/ab/configmaps/cm1");
+    assertEquals("v2", cm.get("data").get("k").asText());
+    assertEquals("x", cm.get("data").get("j").asText());
+    assertTrue(cm.get("metadata").get("resourceVersion").asLong()
+        > json.readTree(created.body()).get("metadata").get("resourceVersion").asLong());
+
+    assertEquals(200, send("DELETE", "/api/v1/namespaces/ab/configmaps/cm1", "application/json", "").statusCode());
+    assertEquals(404, send("GET", "/api/v1/namespaces/ab/configmaps/cm1", "application/json", "").statusCode());
+  }
+
+  @Test
+  @DisplayName("Should stream pod watch events over a WebSocket")
+  void watch_overWebSocket_expectsModifiedEvents() throws Exception {
+    var rv = get("/api/v1/pods?limit=1").get("metadata").get("resourceVersion").asText();
+    var modified = new CountDownLatch(3);
+    var ws = http.newWebSocketBuilder()
+        .buildAsync(URI.create(server.url().replace("http", "ws") + "/api/v1/pods?watch=true&resourceVersion=" + rv),
+            new WebSocket.Listener() {
+              @Override
+              public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                if (data.toString().startsWith("{\"type\":\"MODIFIED\"")) modified.countDown();
+                webSocket.request(1);
+                return null;
+              }
+            })
+        .get(5, TimeUnit.SECONDS);
+    assertTrue(modified.await(5, TimeUnit.SECONDS));
+    ws.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+  }
+
+  @Test
+  @DisplayName("Should echo exec stdin back on stdout over a WebSocket")
+  void exec_overWebSocket_expectsStdinEchoedOnStdout() throws Exception {
+    var meta = get("/api/v1/pods?limit=1").get("items").get(0).get("metadata");
+    var echoed = new CompletableFuture<byte[]>();
+    var ws = http.newWebSocketBuilder()
+        .subprotocols("v4.channel.k8s.io")
+        .buildAsync(URI.create(server.url().replace("http", "ws") + "/api/v1/namespaces/"
+                + meta.get("namespace").asText() + "/pods/" + meta.get("name").asText() + "/exec?command=cat&stdin=true&stdout=true"),
+            new WebSocket.Listener() {
+              @Override
+              public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+                var bytes = new byte[data.remaining()];
+                data.get(bytes);
+                echoed.complete(bytes);
+                return null;
+              }
+            })
+        .get(5, TimeUnit.SECONDS);
+    ws.sendBinary(ByteBuffer.wrap(new byte[] {0, 'h', 'i'}), true);
+    assertArrayEquals(new byte[] {1, 'h', 'i'}, echoed.get(5, TimeUnit.SECONDS));
+    ws.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+  }
+
+  @Test
+  @DisplayName("Should serve TLS and report when a request had to open a new connection")
+  void handshake_overTls_expectsConnectionClosedAfterTheRequestedCount() throws Exception {
+    try (var tls = MockApiServer.start(MockApiServer.Settings.builder().pods(1).services(0).watchEventsPerSecond(0).tls(true).build())) {
+      assertTrue(tls.url().startsWith("https://"));
+      var trustAll = SSLContext.getInstance("TLS");
+      trustAll.init(null, new TrustManager[] {new X509TrustManager() {
+        @Override public void checkClientTrusted(X509Certificate[] chain, String authType) { }
+        @Override public void checkServerTrusted(X509Certificate[] chain, String authType) { }
+        @Override public X509Certificate[] getAcceptedIssuers() { return new X509Certificate[0]; }
+      }}, null);
+      var https = HttpClient.newBuilder().sslContext(trustAll).version(HttpClient.Version.HTTP_1_1).build();
+      var requests = new ArrayList<Integer>();
+      for (var i = 0; i < 3; i++) {
+        var resp = https.send(HttpRequest.newBuilder(URI.create(tls.url() + "/ab/handshake?closeAfter=2")).build(),
+            HttpResponse.BodyHandlers.ofString());
+        var body = json.readTree(resp.body());
+        assertEquals("TLSv1.3", body.get("protocol").asText());
+        requests.add(body.get("request").asInt());
+      }
+      assertEquals(List.of(1, 2, 1), requests);
+    }
+  }
+
+  private JsonNode get(String path) throws Exception {
+    var resp = send("GET", path, "application/json", "");
+    assertEquals(200, resp.statusCode(), resp.body());
+    return json.readTree(resp.body());
+  }
+
+  private HttpResponse<String> send(String method, String path, String contentType, String body) throws Exception {
+    var req = HttpRequest.newBuilder(URI.create(server.url() + path))
+        .header("Content-Type", contentType)
+        .method(method, body.isEmpty() ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+        .build();
+    return http.send(req, HttpResponse.BodyHandlers.ofString());
+  }
+}
@@ -0,0 +1,64 @@
+package dev.bytesizedjoe.report;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComparisonReportTest {
+
+  @Test
+  @DisplayName("Should read every repeat and separate real differences from noise")
+  void generate_expectsVerdictsInMarkdownAndJson(@TempDir Path out) throws Exception {
+    for (var i = 0; i < 5; i++) {
+      // p50 clearly differs; p99 overlaps
+      writeRun(out.resolve("vertx4").resolve("run" + i), 10 + i * 0.1, 40 + i, 100 + i);
+      writeRun(out.resolve("vertx5").resolve("run" + i), 8 + i * 0.1, 42 - i, 120 + i);
+    }
+    Files.createDirectories(out.resolve("interleaved").resolve("run0"));
+
+    ComparisonReport.main(new String[]{"--out", out.toString(), "--resamples", "500"});
+
+    var json = new ObjectMapper().readTree(out.resolve(ComparisonReport.JSON).toFile());
+    assertEquals(List.of("vertx4", "vertx5"), List.of(json.get("labels").get(0).asText(), json.get("labels").get(1).asText()));
+    var metrics = json.get("comparisons").get(0).get("metrics");
+    assertEquals(5, json.get("comparisons").get(0).get("candidate_runs").asInt());
+    assertEquals("better", verdict(metrics, "pods.list.page.p50_ms"));
+    assertEquals("noise", verdict(metrics, "pods.list.page.p99_ms"));
+    assertEquals("better", verdict(metrics, "pods.list.page.ops_s"));
+    var md = Files.readString(out.resolve(ComparisonReport.MARKDOWN));
+    assertTrue(md.contains("### vertx5 (n=5) vs vertx4 (n=5)"), md);
+    assertTrue(md.contains("| pods.list.page.p50_ms | 10.2 ["), md);
+  }
+
+  @Test
+  @DisplayName("Should refuse to call a difference real when the repeats cannot reach significance")
+  void verdict_withThreeRuns_expectsTooFewRuns() {
+    var report = new ComparisonReport(0.05, 0.95, 100);
+    assertEquals("too few runs", report.verdict("x.p50_ms", 3, 3, 5, 0.1));
+    assertEquals("worse", report.verdict("x.p50_ms", 5, 5, 5, 0.01));
+    assertEquals("worse", report.verdict("x.ops_s", 5, 5, -5, 0.01));
+  }
+
+  private static String verdict(final com.fasterxml.jackson.databind.JsonNode metrics, final String name) {
+    for (var m : metrics) {
+      if (m.get("metric").asText().equals(name)) return m.get("verdict").asText();
+    }
+    throw new AssertionError("missing " + name);
+  }
+
+  private static void writeRun(final Path run, final double p50, final double p99, final double opsS) throws Exception {
+    Files.createDirectories(run.resolve("end"));
+    Files.writeString(run.resolve("end").resolve("latency.txt"), String.format(java.util.Locale.ROOT,
+        "# elapsed_s=60.000%n"
+            + "op                            count   errors      ops_s     p50_ms     p90_ms     p99_ms   p99.9_ms     max_ms%n"
+            + "pods.list.page                 6000        0 %10.2f %10.3f %10.3f %10.3f %10.3f %10.3f%n"
+            + "# counter watch.connects=1%n", opsS, p50, p50 * 2, p99, p99 * 2, p99 * 3));
+  }
+}
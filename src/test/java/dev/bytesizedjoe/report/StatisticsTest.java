@@ -0,0 +1,48 @@
+package dev.bytesizedjoe.report;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticsTest {
+
+  @Test
+  @DisplayName("Should give exact Mann-Whitney p-values for small samples, ties included")
+  void mannWhitneyP_expectsExactSmallSampleValues() {
+    assertEquals(0.1, Statistics.mannWhitneyP(new double[]{1, 2, 3}, new double[]{4, 5, 6}), 1e-9);
+    assertEquals(0.1, Statistics.minimumP(3, 3), 1e-9);
+    assertEquals(1.0, Statistics.mannWhitneyP(new double[]{1, 2, 3}, new double[]{1, 2, 3}), 1e-9);
+    // 5 vs 5 fully separated: 2 / C(10,5)
+    assertEquals(2.0 / 252, Statistics.mannWhitneyP(new double[]{1, 2, 3, 4, 5}, new double[]{6, 7, 8, 9, 10}), 1e-9);
+    assertEquals(1.0, Statistics.mannWhitneyP(new double[]{7, 7, 7}, new double[]{7, 7, 7}), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Should fall back to the normal approximation for large samples")
+  void mannWhitneyP_withLargeSamples_expectsNormalApproximation() {
+    var random = new Random(1);
+    var a = new double[40];
+    var b = new double[40];
+    for (var i = 0; i < 40; i++) {
+      a[i] = random.nextGaussian();
+      b[i] = random.nextGaussian() + 2;
+    }
+    assertTrue(Statistics.mannWhitneyP(a, b) < 1e-6);
+    assertTrue(Statistics.mannWhitneyP(a, a.clone()) > 0.9);
+  }
+
+  @Test
+  @DisplayName("Should compute medians and bootstrap intervals that contain them")
+  void bootstrap_expectsIntervalAroundMedian() {
+    var values = new double[]{10, 11, 12, 13, 50};
+    assertEquals(12, Statistics.median(values));
+    assertEquals(11.5, Statistics.median(new double[]{13, 10, 11, 12}));
+    var ci = Statistics.bootstrapMedian(values, 0.95, 2000, new Random(7));
+    assertTrue(ci.getLow() <= 12 && ci.getHigh() >= 12, ci.toString());
+    var diff = Statistics.bootstrapMedianDifference(new double[]{10, 11, 12, 13, 14}, new double[]{20, 21, 22, 23, 24}, 0.95, 2000, new Random(7));
+    assertTrue(diff.excludesZero(), diff.toString());
+  }
+}